@@ -0,0 +1,98 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import java.nio.ByteBuffer;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * {@link CoordinateSequence} backed by interleaved double ordinates (x0, y0, x1, y1, ...) in a {@link ByteBuffer},
+ * which may be a direct or memory-mapped buffer. Only absolute get and put operations are used, so the position and
+ * limit of the buffer are never changed. The byte order of the buffer is used. Changes are written through to the
+ * buffer.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class ByteBufferCoordinateSequence implements CoordinateSequence {
+
+	private final ByteBuffer buffer;
+
+	private final int position;
+
+	private final int size;
+
+	/**
+	 * Create a sequence for a region of the given buffer.
+	 *
+	 * @param buffer
+	 *            The buffer holding the ordinates.
+	 * @param position
+	 *            The byte index of the x-ordinate of the first coordinate.
+	 * @param size
+	 *            The number of coordinates.
+	 */
+	public ByteBufferCoordinateSequence(ByteBuffer buffer, int position, int size) {
+		if (position < 0 || size < 0 || position + 16L * size > buffer.capacity()) {
+			throw new IllegalArgumentException("Region [" + position + ", " + (position + 16L * size)
+					+ "[ is out of range of the buffer.");
+		}
+		this.buffer = buffer;
+		this.position = position;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return buffer.getDouble(position + (index << 4));
+	}
+
+	@Override
+	public double getY(int index) {
+		return buffer.getDouble(position + (index << 4) + 8);
+	}
+
+	@Override
+	public void setX(int index, double x) {
+		buffer.putDouble(position + (index << 4), x);
+	}
+
+	@Override
+	public void setY(int index, double y) {
+		buffer.putDouble(position + (index << 4) + 8, y);
+	}
+
+	/**
+	 * Get the backing buffer.
+	 *
+	 * @return buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Get the byte index of the first coordinate of this sequence in the backing buffer.
+	 *
+	 * @return position, counted in bytes
+	 */
+	public int getPosition() {
+		return position;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * {@link CoordinateSequence} backed by an array of {@link Coordinate} objects, as used by {@link Geometry}. Changes
+ * are written through to the coordinates.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class CoordinateArraySequence implements CoordinateSequence {
+
+	private final Coordinate[] coordinates;
+
+	/**
+	 * Create a sequence for the given coordinates.
+	 *
+	 * @param coordinates
+	 *            The coordinates, may be null for an empty sequence.
+	 */
+	public CoordinateArraySequence(Coordinate[] coordinates) {
+		this.coordinates = coordinates;
+	}
+
+	@Override
+	public int size() {
+		return coordinates == null ? 0 : coordinates.length;
+	}
+
+	@Override
+	public double getX(int index) {
+		return coordinates[index].getX();
+	}
+
+	@Override
+	public double getY(int index) {
+		return coordinates[index].getY();
+	}
+
+	@Override
+	public void setX(int index, double x) {
+		coordinates[index].setX(x);
+	}
+
+	@Override
+	public void setY(int index, double y) {
+		coordinates[index].setY(y);
+	}
+
+	/**
+	 * Get the backing coordinate array.
+	 *
+	 * @return coordinates
+	 */
+	public Coordinate[] getCoordinates() {
+		return coordinates;
+	}
+}
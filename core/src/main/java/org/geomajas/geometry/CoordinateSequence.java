@@ -0,0 +1,71 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Read and write access to an ordered list of coordinates, independent of how the coordinates are actually stored.
+ * This allows the geometry services to run on coordinate arrays, packed ordinate arrays or any other backing store
+ * without creating {@link Coordinate} objects.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public interface CoordinateSequence {
+
+	/**
+	 * Get the number of coordinates in this sequence.
+	 *
+	 * @return number of coordinates
+	 */
+	int size();
+
+	/**
+	 * Get the x-ordinate of the coordinate at the given index.
+	 *
+	 * @param index
+	 *            coordinate index
+	 * @return x
+	 */
+	double getX(int index);
+
+	/**
+	 * Get the y-ordinate of the coordinate at the given index.
+	 *
+	 * @param index
+	 *            coordinate index
+	 * @return y
+	 */
+	double getY(int index);
+
+	/**
+	 * Set the x-ordinate of the coordinate at the given index.
+	 *
+	 * @param index
+	 *            coordinate index
+	 * @param x
+	 *            x
+	 */
+	void setX(int index, double x);
+
+	/**
+	 * Set the y-ordinate of the coordinate at the given index.
+	 *
+	 * @param index
+	 *            coordinate index
+	 * @param y
+	 *            y
+	 */
+	void setY(int index, double y);
+}
@@ -14,12 +14,18 @@ package org.geomajas.geometry;
 import java.io.Serializable;
 
 import org.geomajas.annotation.Api;
+import org.geomajas.geometry.service.SerializedGeometry;
 
 /**
  * <p>
  * Definition of a mutable geometry object. This type of geometry is meant as a Data Transfer Object (DTO) within Java
  * environments, and especially within GWT environments.
  * </p>
+ * <p>
+ * Java serialization uses a compact form: instead of a separate object per coordinate, the coordinates of the whole
+ * geometry tree are written as packed doubles (or as variable length deltas when they fit the precision), see
+ * {@link SerializedGeometry}. Geometries that were serialized in the original form can still be read.
+ * </p>
  * 
  * @author Pieter De Graef
  * @since GBE-1.6.0
@@ -240,20 +246,32 @@ public class Geometry implements Serializable {
 	 */
 	private Geometry cloneRecursively(Geometry geometry) {
 		Geometry clone = new Geometry(geometry.geometryType, geometry.srid, geometry.precision);
-		if (geometry.getGeometries() != null) {
-			Geometry[] geometryClones = new Geometry[geometry.getGeometries().length];
-			for (int i = 0; i < geometry.getGeometries().length; i++) {
-				geometryClones[i] = cloneRecursively(geometry.getGeometries()[i]);
+		Geometry[] geometries = geometry.getGeometries();
+		if (geometries != null) {
+			Geometry[] geometryClones = new Geometry[geometries.length];
+			for (int i = 0; i < geometries.length; i++) {
+				geometryClones[i] = cloneRecursively(geometries[i]);
 			}
 			clone.setGeometries(geometryClones);
 		}
-		if (geometry.getCoordinates() != null) {
-			Coordinate[] coordinateClones = new Coordinate[geometry.getCoordinates().length];
-			for (int i = 0; i < geometry.getCoordinates().length; i++) {
-				coordinateClones[i] = (Coordinate) geometry.getCoordinates()[i].clone();
+		Coordinate[] coordinates = geometry.getCoordinates();
+		if (coordinates != null) {
+			Coordinate[] coordinateClones = new Coordinate[coordinates.length];
+			for (int i = 0; i < coordinates.length; i++) {
+				coordinateClones[i] = new Coordinate(coordinates[i].getX(), coordinates[i].getY());
 			}
 			clone.setCoordinates(coordinateClones);
 		}
 		return clone;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Replace the geometry by its compact serialized form when it is written to an object stream.
+	 *
+	 * @return the serialized form
+	 */
+	@GwtIncompatible("Java serialization")
+	private Object writeReplace() {
+		return new SerializedGeometry(this, false);
+	}
+}
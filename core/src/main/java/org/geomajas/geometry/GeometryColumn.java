@@ -0,0 +1,268 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import java.io.Serializable;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * <p>
+ * Columnar batch of geometries, in struct-of-arrays layout. The vertices of all geometries are stored in two flat
+ * arrays of x and y ordinates. The structure is described by three levels of offsets, which extend the layout of a
+ * {@link PackedGeometry} to a list of geometries:
+ * </p>
+ * <ul>
+ * <li><b>geometry offsets</b>: the index of the first part of every geometry, followed by the total number of parts.
+ * </li>
+ * <li><b>part offsets</b>: the index of the first ring of every part, followed by the total number of rings. A part
+ * maps to a single member of a multi-geometry, or to the geometry itself for non-multi geometries.</li>
+ * <li><b>ring offsets</b>: the index of the first vertex of every ring, followed by the total number of vertices. A
+ * ring maps to a single coordinate array (a point, a line string or a linear ring).</li>
+ * </ul>
+ * <p>
+ * The type of every geometry is stored as a byte code, see {@link #getTypeCode(String)}. Use the
+ * {@link org.geomajas.geometry.service.GeometryColumnService} to convert from and to {@link Geometry}, and for batch
+ * operations on the column.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class GeometryColumn implements Serializable {
+
+	private static final long serialVersionUID = 140L;
+
+	/** Type code for {@link Geometry#POINT}. */
+	public static final byte POINT = 0;
+
+	/** Type code for {@link Geometry#LINE_STRING}. */
+	public static final byte LINE_STRING = 1;
+
+	/** Type code for {@link Geometry#LINEAR_RING}. */
+	public static final byte LINEAR_RING = 2;
+
+	/** Type code for {@link Geometry#POLYGON}. */
+	public static final byte POLYGON = 3;
+
+	/** Type code for {@link Geometry#MULTI_POINT}. */
+	public static final byte MULTI_POINT = 4;
+
+	/** Type code for {@link Geometry#MULTI_LINE_STRING}. */
+	public static final byte MULTI_LINE_STRING = 5;
+
+	/** Type code for {@link Geometry#MULTI_POLYGON}. */
+	public static final byte MULTI_POLYGON = 6;
+
+	private static final String[] TYPES = { Geometry.POINT, Geometry.LINE_STRING, Geometry.LINEAR_RING,
+			Geometry.POLYGON, Geometry.MULTI_POINT, Geometry.MULTI_LINE_STRING, Geometry.MULTI_POLYGON };
+
+	private byte[] types;
+
+	private int[] srids;
+
+	private int[] precisions;
+
+	private int[] geometryOffsets;
+
+	private int[] partOffsets;
+
+	private int[] ringOffsets;
+
+	private double[] x;
+
+	private double[] y;
+
+	// -------------------------------------------------------------------------
+	// Constructors
+	// -------------------------------------------------------------------------
+
+	/** No argument constructor. Creates an empty column. */
+	public GeometryColumn() {
+		this(new byte[0], new int[0], new int[0], new int[] { 0 }, new int[] { 0 }, new int[] { 0 }, new double[0],
+				new double[0]);
+	}
+
+	/**
+	 * Create a new column. The arrays are used as is, they are not copied.
+	 *
+	 * @param types
+	 *            The type code of each geometry.
+	 * @param srids
+	 *            The spatial reference ID of each geometry.
+	 * @param precisions
+	 *            The precision of each geometry.
+	 * @param geometryOffsets
+	 *            The index of the first part of each geometry, followed by the total number of parts.
+	 * @param partOffsets
+	 *            The index of the first ring of each part, followed by the total number of rings.
+	 * @param ringOffsets
+	 *            The index of the first vertex of each ring, followed by the total number of vertices.
+	 * @param x
+	 *            The x-ordinates of all vertices.
+	 * @param y
+	 *            The y-ordinates of all vertices.
+	 */
+	public GeometryColumn(byte[] types, int[] srids, int[] precisions, int[] geometryOffsets, int[] partOffsets,
+			int[] ringOffsets, double[] x, double[] y) {
+		this.types = types;
+		this.srids = srids;
+		this.precisions = precisions;
+		this.geometryOffsets = geometryOffsets;
+		this.partOffsets = partOffsets;
+		this.ringOffsets = ringOffsets;
+		this.x = x;
+		this.y = y;
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the type code for a geometry type.
+	 *
+	 * @param geometryType
+	 *            One of the {@link Geometry} type constants.
+	 * @return The type code.
+	 */
+	public static byte getTypeCode(String geometryType) {
+		for (byte i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(geometryType)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported geometry type: " + geometryType);
+	}
+
+	/**
+	 * Get the number of geometries in this column.
+	 *
+	 * @return number of geometries
+	 */
+	public int size() {
+		return types.length;
+	}
+
+	/**
+	 * Get the type of a geometry.
+	 *
+	 * @param geometry
+	 *            geometry index
+	 * @return One of the {@link Geometry} type constants.
+	 */
+	public String getGeometryType(int geometry) {
+		return TYPES[types[geometry]];
+	}
+
+	/**
+	 * Get the index of the first vertex of a geometry.
+	 *
+	 * @param geometry
+	 *            geometry index
+	 * @return vertex index
+	 */
+	public int getVertexStart(int geometry) {
+		return ringOffsets[partOffsets[geometryOffsets[geometry]]];
+	}
+
+	/**
+	 * Get the number of vertices of a geometry.
+	 *
+	 * @param geometry
+	 *            geometry index
+	 * @return number of vertices
+	 */
+	public int getNumPoints(int geometry) {
+		return getVertexStart(geometry + 1) - getVertexStart(geometry);
+	}
+
+	// -------------------------------------------------------------------------
+	// General getters
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the type code of each geometry. This is the backing array, not a copy.
+	 *
+	 * @return type codes
+	 */
+	public byte[] getTypes() {
+		return types;
+	}
+
+	/**
+	 * Get the spatial reference ID of each geometry. This is the backing array, not a copy.
+	 *
+	 * @return srids
+	 */
+	public int[] getSrids() {
+		return srids;
+	}
+
+	/**
+	 * Get the precision of each geometry. This is the backing array, not a copy.
+	 *
+	 * @return precisions
+	 */
+	public int[] getPrecisions() {
+		return precisions;
+	}
+
+	/**
+	 * Get the index of the first part of each geometry, followed by the total number of parts. This is the backing
+	 * array, not a copy.
+	 *
+	 * @return geometry offsets
+	 */
+	public int[] getGeometryOffsets() {
+		return geometryOffsets;
+	}
+
+	/**
+	 * Get the index of the first ring of each part, followed by the total number of rings. This is the backing array,
+	 * not a copy.
+	 *
+	 * @return part offsets
+	 */
+	public int[] getPartOffsets() {
+		return partOffsets;
+	}
+
+	/**
+	 * Get the index of the first vertex of each ring, followed by the total number of vertices. This is the backing
+	 * array, not a copy.
+	 *
+	 * @return ring offsets
+	 */
+	public int[] getRingOffsets() {
+		return ringOffsets;
+	}
+
+	/**
+	 * Get the x-ordinates of all vertices. This is the backing array, not a copy.
+	 *
+	 * @return x-ordinates
+	 */
+	public double[] getX() {
+		return x;
+	}
+
+	/**
+	 * Get the y-ordinates of all vertices. This is the backing array, not a copy.
+	 *
+	 * @return y-ordinates
+	 */
+	public double[] getY() {
+		return y;
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a member that the GWT compiler should leave out, because it uses classes that GWT does not emulate. GWT
+ * recognizes any annotation with this simple name, so the DTOs in this package stay GWT compatible.
+ *
+ * @author Jan De Moerloose
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({ ElementType.TYPE, ElementType.METHOD, ElementType.CONSTRUCTOR, ElementType.FIELD })
+@Documented
+@interface GwtIncompatible {
+
+	/**
+	 * Why the member is not GWT compatible.
+	 *
+	 * @return the reason
+	 */
+	String value() default "";
+}
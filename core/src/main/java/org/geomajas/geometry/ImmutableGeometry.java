@@ -0,0 +1,180 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.service.SerializedGeometry;
+
+/**
+ * <p>
+ * Frozen copy of a {@link Geometry}. All setters throw an {@link UnsupportedOperationException}, which allows the
+ * bounds, area, length and number of points to be calculated only once. It is a {@link MeasuredGeometry}, so the
+ * {@link GeometryService} methods use these cached values.
+ * </p>
+ * <p>
+ * The coordinate and geometry arrays are returned as is for performance reasons. They, and the coordinates within,
+ * must not be modified. Use {@link GeometryService#clone(Geometry)} to get a mutable copy.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class ImmutableGeometry extends Geometry implements MeasuredGeometry {
+
+	private static final long serialVersionUID = 140L;
+
+	private static final String ERR_MSG = "Immutable geometries can not be changed.";
+
+	private transient volatile Bbox bounds;
+
+	private transient volatile boolean boundsKnown;
+
+	private transient volatile Double area;
+
+	private transient volatile Double length;
+
+	private transient volatile Integer numPoints;
+
+	/** No argument constructor, needed for serialization. */
+	protected ImmutableGeometry() {
+	}
+
+	/**
+	 * Create a frozen copy of the given geometry. Sub-geometries are frozen as well.
+	 *
+	 * @param geometry
+	 *            The geometry to copy.
+	 */
+	public ImmutableGeometry(Geometry geometry) {
+		super(geometry.getGeometryType(), geometry.getSrid(), geometry.getPrecision());
+		if (geometry.getGeometries() != null) {
+			Geometry[] geometries = new Geometry[geometry.getGeometries().length];
+			for (int i = 0; i < geometries.length; i++) {
+				Geometry child = geometry.getGeometries()[i];
+				geometries[i] = child instanceof ImmutableGeometry ? child : new ImmutableGeometry(child);
+			}
+			super.setGeometries(geometries);
+		}
+		if (geometry.getCoordinates() != null) {
+			Coordinate[] coordinates = new Coordinate[geometry.getCoordinates().length];
+			for (int i = 0; i < coordinates.length; i++) {
+				coordinates[i] = new Coordinate(geometry.getCoordinates()[i]);
+			}
+			super.setCoordinates(coordinates);
+		}
+	}
+
+	/**
+	 * Get the bounds of this geometry, calculated only once.
+	 *
+	 * @return A copy of the bounding box, or null if the geometry is empty.
+	 */
+	@Override
+	public Bbox getBounds() {
+		if (!boundsKnown) {
+			bounds = GeometryService.calculateBounds(this);
+			boundsKnown = true;
+		}
+		return bounds == null ? null : new Bbox(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+	}
+
+	/**
+	 * Get the area of this geometry, calculated only once.
+	 *
+	 * @return The area.
+	 */
+	@Override
+	public double getArea() {
+		Double result = area;
+		if (result == null) {
+			result = GeometryService.calculateArea(this);
+			area = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the length of this geometry, calculated only once.
+	 *
+	 * @return The length.
+	 */
+	@Override
+	public double getLength() {
+		Double result = length;
+		if (result == null) {
+			result = GeometryService.calculateLength(this);
+			length = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the total number of coordinates of this geometry, calculated only once.
+	 *
+	 * @return The number of coordinates.
+	 */
+	@Override
+	public int getNumPoints() {
+		Integer result = numPoints;
+		if (result == null) {
+			result = GeometryService.calculateNumPoints(this);
+			numPoints = result;
+		}
+		return result;
+	}
+
+	// -------------------------------------------------------------------------
+	// Setters are not supported:
+	// -------------------------------------------------------------------------
+
+	@Override
+	public void setGeometryType(String geometryType) {
+		throw new UnsupportedOperationException(ERR_MSG);
+	}
+
+	@Override
+	public void setSrid(int srid) {
+		throw new UnsupportedOperationException(ERR_MSG);
+	}
+
+	@Override
+	public void setPrecision(int precision) {
+		throw new UnsupportedOperationException(ERR_MSG);
+	}
+
+	@Override
+	public void setCoordinates(Coordinate[] coordinates) {
+		throw new UnsupportedOperationException(ERR_MSG);
+	}
+
+	@Override
+	public void setGeometries(Geometry[] geometries) {
+		throw new UnsupportedOperationException(ERR_MSG);
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Replace the geometry by its compact serialized form when it is written to an object stream. The sub-geometries
+	 * are frozen again when the geometry is read.
+	 *
+	 * @return the serialized form
+	 */
+	@GwtIncompatible("Java serialization")
+	private Object writeReplace() {
+		return new SerializedGeometry(this, true);
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * A {@link Geometry} that knows its own bounds, number of points, area and length, usually because it caches them.
+ * The {@link org.geomajas.geometry.service.GeometryService} methods
+ * {@link org.geomajas.geometry.service.GeometryService#getBounds(Geometry)},
+ * {@link org.geomajas.geometry.service.GeometryService#getNumPoints(Geometry)},
+ * {@link org.geomajas.geometry.service.GeometryService#getArea(Geometry)} and
+ * {@link org.geomajas.geometry.service.GeometryService#getLength(Geometry)} ask these geometries instead of walking
+ * over the coordinates.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public interface MeasuredGeometry {
+
+	/**
+	 * Get the bounds of this geometry.
+	 *
+	 * @return The bounding box, or null if the geometry is empty.
+	 */
+	Bbox getBounds();
+
+	/**
+	 * Get the total number of coordinates of this geometry, including those of the sub-geometries.
+	 *
+	 * @return The number of coordinates.
+	 */
+	int getNumPoints();
+
+	/**
+	 * Get the area of this geometry. The area of holes is subtracted.
+	 *
+	 * @return The area.
+	 */
+	double getArea();
+
+	/**
+	 * Get the length of this geometry. This adds up the length of all edges.
+	 *
+	 * @return The length.
+	 */
+	double getLength();
+}
@@ -0,0 +1,104 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * {@link CoordinateSequence} backed by (a slice of) an interleaved array of double ordinates (x0, y0, x1, y1, ...).
+ * Changes are written through to the array.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class PackedCoordinateSequence implements CoordinateSequence {
+
+	private final double[] ordinates;
+
+	private final int offset;
+
+	private final int size;
+
+	/**
+	 * Create a sequence for all coordinates in the given array.
+	 *
+	 * @param ordinates
+	 *            The interleaved x and y ordinates.
+	 */
+	public PackedCoordinateSequence(double[] ordinates) {
+		this(ordinates, 0, ordinates.length / 2);
+	}
+
+	/**
+	 * Create a sequence for a slice of the given array.
+	 *
+	 * @param ordinates
+	 *            The interleaved x and y ordinates.
+	 * @param offset
+	 *            The index of the first coordinate of the slice (not the index of its x-ordinate).
+	 * @param size
+	 *            The number of coordinates in the slice.
+	 */
+	public PackedCoordinateSequence(double[] ordinates, int offset, int size) {
+		if (offset < 0 || size < 0 || 2 * (offset + size) > ordinates.length) {
+			throw new IllegalArgumentException("Slice [" + offset + ", " + (offset + size)
+					+ "[ is out of range of the ordinate array.");
+		}
+		this.ordinates = ordinates;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return ordinates[(offset + index) << 1];
+	}
+
+	@Override
+	public double getY(int index) {
+		return ordinates[((offset + index) << 1) + 1];
+	}
+
+	@Override
+	public void setX(int index, double x) {
+		ordinates[(offset + index) << 1] = x;
+	}
+
+	@Override
+	public void setY(int index, double y) {
+		ordinates[((offset + index) << 1) + 1] = y;
+	}
+
+	/**
+	 * Get the backing ordinate array.
+	 *
+	 * @return ordinates
+	 */
+	public double[] getOrdinates() {
+		return ordinates;
+	}
+
+	/**
+	 * Get the index of the first coordinate of this sequence in the backing array.
+	 *
+	 * @return offset, counted in coordinates
+	 */
+	public int getOffset() {
+		return offset;
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import java.io.Serializable;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * <p>
+ * Compact representation of a {@link Geometry}. Instead of a tree of geometries holding separate {@link Coordinate}
+ * objects, all vertices are stored in one interleaved array of ordinates (x0, y0, x1, y1, ...). The structure of the
+ * geometry is described by two offset arrays:
+ * </p>
+ * <ul>
+ * <li><b>ring offsets</b>: the index of the first vertex of every ring, followed by the total number of vertices. A
+ * ring is a list of vertices that maps to a single coordinate array (a point, a line string or a linear ring).</li>
+ * <li><b>part offsets</b>: the index of the first ring of every part, followed by the total number of rings. A part
+ * maps to a single member of a multi-geometry, or to the geometry itself for non-multi geometries.</li>
+ * </ul>
+ * <p>
+ * The vertices of a part are stored contiguously, so every part (and every ring) is a slice of the ordinate array. Use
+ * the {@link org.geomajas.geometry.service.PackedGeometryService} to convert from and to {@link Geometry}.
+ * </p>
+ * <p>
+ * Packed geometries can be cloned with a few bulk array copies ({@link #clone()}), or copied in constant time with
+ * {@link #copy()}. Such a copy shares its arrays with the original until one of both changes an ordinate through
+ * {@link #setX(int, double)}, {@link #setY(int, double)} or a coordinate sequence, at which time the ordinates are
+ * copied. The offset arrays are never changed, so they remain shared.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class PackedGeometry implements Serializable {
+
+	private static final long serialVersionUID = 140L;
+
+	private String geometryType;
+
+	private int srid;
+
+	private int precision;
+
+	private double[] ordinates;
+
+	private int[] ringOffsets;
+
+	private int[] partOffsets;
+
+	private transient boolean shared;
+
+	// -------------------------------------------------------------------------
+	// Constructors
+	// -------------------------------------------------------------------------
+
+	/** No argument constructor. Creates an empty geometry without type. */
+	public PackedGeometry() {
+		this(null, 0, 0, new double[0], new int[] { 0 }, new int[] { 0 });
+	}
+
+	/**
+	 * Create a new packed geometry. The arrays are used as is, they are not copied.
+	 *
+	 * @param geometryType
+	 *            The type of geometry, one of the {@link Geometry} type constants.
+	 * @param srid
+	 *            The spatial reference ID for this geometry.
+	 * @param precision
+	 *            The precision at which manipulation on the geometry should occur.
+	 * @param ordinates
+	 *            The interleaved x and y ordinates of all vertices.
+	 * @param ringOffsets
+	 *            The index of the first vertex of each ring, followed by the total number of vertices.
+	 * @param partOffsets
+	 *            The index of the first ring of each part, followed by the total number of rings.
+	 */
+	public PackedGeometry(String geometryType, int srid, int precision, double[] ordinates, int[] ringOffsets,
+			int[] partOffsets) {
+		this.geometryType = geometryType;
+		this.srid = srid;
+		this.precision = precision;
+		this.ordinates = ordinates;
+		this.ringOffsets = ringOffsets;
+		this.partOffsets = partOffsets;
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the total number of vertices in this geometry.
+	 *
+	 * @return number of vertices
+	 */
+	public int getNumPoints() {
+		return ringOffsets[ringOffsets.length - 1];
+	}
+
+	/**
+	 * Get the total number of rings in this geometry.
+	 *
+	 * @return number of rings
+	 */
+	public int getNumRings() {
+		return ringOffsets.length - 1;
+	}
+
+	/**
+	 * Get the number of parts in this geometry.
+	 *
+	 * @return number of parts
+	 */
+	public int getNumParts() {
+		return partOffsets.length - 1;
+	}
+
+	/**
+	 * Get the index of the first vertex of a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return vertex index
+	 */
+	public int getRingStart(int ring) {
+		return ringOffsets[ring];
+	}
+
+	/**
+	 * Get the number of vertices in a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return number of vertices
+	 */
+	public int getRingSize(int ring) {
+		return ringOffsets[ring + 1] - ringOffsets[ring];
+	}
+
+	/**
+	 * Get the index of the first ring of a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return ring index
+	 */
+	public int getPartStart(int part) {
+		return partOffsets[part];
+	}
+
+	/**
+	 * Get the number of rings in a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return number of rings
+	 */
+	public int getPartSize(int part) {
+		return partOffsets[part + 1] - partOffsets[part];
+	}
+
+	/**
+	 * Get the x-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return x
+	 */
+	public double getX(int vertex) {
+		return ordinates[vertex << 1];
+	}
+
+	/**
+	 * Get the y-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return y
+	 */
+	public double getY(int vertex) {
+		return ordinates[(vertex << 1) + 1];
+	}
+
+	/**
+	 * Set the x-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @param x
+	 *            x
+	 */
+	public void setX(int vertex, double x) {
+		ensureWritable();
+		ordinates[vertex << 1] = x;
+	}
+
+	/**
+	 * Set the y-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @param y
+	 *            y
+	 */
+	public void setY(int vertex, double y) {
+		ensureWritable();
+		ordinates[(vertex << 1) + 1] = y;
+	}
+
+	/**
+	 * Get a coordinate sequence view on the vertices of a ring. Changes to the sequence are written through to this
+	 * geometry.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return coordinate sequence
+	 */
+	public CoordinateSequence getCoordinateSequence(int ring) {
+		return new RingSequence(ringOffsets[ring], getRingSize(ring));
+	}
+
+	/**
+	 * Create a deep copy of this geometry, using bulk array copies.
+	 *
+	 * @return A clone.
+	 */
+	@edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "CN_IDIOM_NO_SUPER_CALL",
+			justification = "needed for GWT")
+	public Object clone() { // NOSONAR
+		return new PackedGeometry(geometryType, srid, precision, ordinates.clone(), ringOffsets.clone(),
+				partOffsets.clone());
+	}
+
+	/**
+	 * Create a copy-on-write copy of this geometry. The copy is created in constant time, as it shares the arrays of
+	 * this geometry. The ordinates are only copied when either this geometry or the copy is changed.
+	 *
+	 * @return A copy.
+	 */
+	public PackedGeometry copy() {
+		PackedGeometry copy = new PackedGeometry(geometryType, srid, precision, ordinates, ringOffsets, partOffsets);
+		shared = true;
+		copy.shared = true;
+		return copy;
+	}
+
+	/**
+	 * Does this geometry (possibly) share its ordinates with a copy?
+	 *
+	 * @return true if the ordinates will be copied on the next change
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * This geometry is empty if it has no vertices.
+	 *
+	 * @return true or false.
+	 */
+	public boolean isEmpty() {
+		return getNumPoints() == 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// General getters
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the geometry type.
+	 *
+	 * @return geometry type
+	 */
+	public String getGeometryType() {
+		return geometryType;
+	}
+
+	/**
+	 * Return the spatial reference ID.
+	 *
+	 * @return Returns the srid as an integer.
+	 */
+	public int getSrid() {
+		return srid;
+	}
+
+	/**
+	 * Get the precision for the geometry.
+	 *
+	 * @return geometry precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Get the interleaved x and y ordinates of all vertices. This is the backing array, not a copy. It may be shared
+	 * with copies of this geometry, so use {@link #setX(int, double)} and {@link #setY(int, double)} to make changes.
+	 *
+	 * @return ordinates
+	 */
+	public double[] getOrdinates() {
+		return ordinates;
+	}
+
+	/**
+	 * Get the index of the first vertex of each ring, followed by the total number of vertices. This is the backing
+	 * array, not a copy.
+	 *
+	 * @return ring offsets
+	 */
+	public int[] getRingOffsets() {
+		return ringOffsets;
+	}
+
+	/**
+	 * Get the index of the first ring of each part, followed by the total number of rings. This is the backing array,
+	 * not a copy.
+	 *
+	 * @return part offsets
+	 */
+	public int[] getPartOffsets() {
+		return partOffsets;
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	private void ensureWritable() {
+		if (shared) {
+			ordinates = ordinates.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Coordinate sequence on a ring, that always reads the current ordinate array and writes through the setters.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private class RingSequence implements CoordinateSequence {
+
+		private final int offset;
+
+		private final int size;
+
+		RingSequence(int offset, int size) {
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public double getX(int index) {
+			return PackedGeometry.this.getX(offset + index);
+		}
+
+		@Override
+		public double getY(int index) {
+			return PackedGeometry.this.getY(offset + index);
+		}
+
+		@Override
+		public void setX(int index, double x) {
+			PackedGeometry.this.setX(offset + index, x);
+		}
+
+		@Override
+		public void setY(int index, double y) {
+			PackedGeometry.this.setY(offset + index, y);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * {@link CoordinateSequence} backed by (a slice of) an interleaved array of quantized ordinates (x0, y0, x1, y1, ...).
+ * A quantized ordinate is the actual ordinate multiplied by 10 to the power of the precision and rounded to an
+ * integer. Ordinates are decoded when read and quantized when written. Changes are written through to the array.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class QuantizedCoordinateSequence implements CoordinateSequence {
+
+	private final int[] ordinates;
+
+	private final int offset;
+
+	private final int size;
+
+	private final double scale;
+
+	/**
+	 * Create a sequence for a slice of the given array.
+	 *
+	 * @param ordinates
+	 *            The interleaved and quantized x and y ordinates.
+	 * @param offset
+	 *            The index of the first coordinate of the slice (not the index of its x-ordinate).
+	 * @param size
+	 *            The number of coordinates in the slice.
+	 * @param precision
+	 *            The number of decimals that are kept in the quantized ordinates.
+	 */
+	public QuantizedCoordinateSequence(int[] ordinates, int offset, int size, int precision) {
+		if (offset < 0 || size < 0 || 2 * (offset + size) > ordinates.length) {
+			throw new IllegalArgumentException("Slice [" + offset + ", " + (offset + size)
+					+ "[ is out of range of the ordinate array.");
+		}
+		this.ordinates = ordinates;
+		this.offset = offset;
+		this.size = size;
+		this.scale = Math.pow(10, precision);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return ordinates[(offset + index) << 1] / scale;
+	}
+
+	@Override
+	public double getY(int index) {
+		return ordinates[((offset + index) << 1) + 1] / scale;
+	}
+
+	@Override
+	public void setX(int index, double x) {
+		ordinates[(offset + index) << 1] = quantize(x);
+	}
+
+	@Override
+	public void setY(int index, double y) {
+		ordinates[((offset + index) << 1) + 1] = quantize(y);
+	}
+
+	private int quantize(double value) {
+		double scaled = Math.rint(value * scale);
+		if (scaled > Integer.MAX_VALUE || scaled < Integer.MIN_VALUE) {
+			throw new IllegalArgumentException("Value " + value + " is out of range for quantization.");
+		}
+		return (int) scaled;
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import java.io.Serializable;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * <p>
+ * Quantized representation of a {@link Geometry}. Every ordinate is stored as an integer, being the ordinate
+ * multiplied by 10 to the power of the geometry's precision and rounded. All vertices are stored in one interleaved
+ * array (x0, y0, x1, y1, ...), which takes half the memory of a {@link PackedGeometry}. The structure of the geometry
+ * is described by the same two offset arrays as for packed geometries:
+ * </p>
+ * <ul>
+ * <li><b>ring offsets</b>: the index of the first vertex of every ring, followed by the total number of vertices. A
+ * ring is a list of vertices that maps to a single coordinate array (a point, a line string or a linear ring).</li>
+ * <li><b>part offsets</b>: the index of the first ring of every part, followed by the total number of rings. A part
+ * maps to a single member of a multi-geometry, or to the geometry itself for non-multi geometries.</li>
+ * </ul>
+ * <p>
+ * Use the {@link org.geomajas.geometry.service.QuantizationService} to convert from and to {@link Geometry} and
+ * {@link PackedGeometry}, and to calculate bounds, intersections and transformations without decoding.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class QuantizedGeometry implements Serializable {
+
+	private static final long serialVersionUID = 140L;
+
+	private String geometryType;
+
+	private int srid;
+
+	private int precision;
+
+	private double scale;
+
+	private int[] ordinates;
+
+	private int[] ringOffsets;
+
+	private int[] partOffsets;
+
+	// -------------------------------------------------------------------------
+	// Constructors
+	// -------------------------------------------------------------------------
+
+	/** No argument constructor. Creates an empty geometry without type. */
+	public QuantizedGeometry() {
+		this(null, 0, 0, new int[0], new int[] { 0 }, new int[] { 0 });
+	}
+
+	/**
+	 * Create a new quantized geometry. The arrays are used as is, they are not copied.
+	 *
+	 * @param geometryType
+	 *            The type of geometry, one of the {@link Geometry} type constants.
+	 * @param srid
+	 *            The spatial reference ID for this geometry.
+	 * @param precision
+	 *            The number of decimals that are kept in the quantized ordinates.
+	 * @param ordinates
+	 *            The interleaved and quantized x and y ordinates of all vertices.
+	 * @param ringOffsets
+	 *            The index of the first vertex of each ring, followed by the total number of vertices.
+	 * @param partOffsets
+	 *            The index of the first ring of each part, followed by the total number of rings.
+	 */
+	public QuantizedGeometry(String geometryType, int srid, int precision, int[] ordinates, int[] ringOffsets,
+			int[] partOffsets) {
+		this.geometryType = geometryType;
+		this.srid = srid;
+		this.precision = precision;
+		this.scale = Math.pow(10, precision);
+		this.ordinates = ordinates;
+		this.ringOffsets = ringOffsets;
+		this.partOffsets = partOffsets;
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the total number of vertices in this geometry.
+	 *
+	 * @return number of vertices
+	 */
+	public int getNumPoints() {
+		return ringOffsets[ringOffsets.length - 1];
+	}
+
+	/**
+	 * Get the total number of rings in this geometry.
+	 *
+	 * @return number of rings
+	 */
+	public int getNumRings() {
+		return ringOffsets.length - 1;
+	}
+
+	/**
+	 * Get the number of parts in this geometry.
+	 *
+	 * @return number of parts
+	 */
+	public int getNumParts() {
+		return partOffsets.length - 1;
+	}
+
+	/**
+	 * Get the index of the first vertex of a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return vertex index
+	 */
+	public int getRingStart(int ring) {
+		return ringOffsets[ring];
+	}
+
+	/**
+	 * Get the number of vertices in a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return number of vertices
+	 */
+	public int getRingSize(int ring) {
+		return ringOffsets[ring + 1] - ringOffsets[ring];
+	}
+
+	/**
+	 * Get the index of the first ring of a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return ring index
+	 */
+	public int getPartStart(int part) {
+		return partOffsets[part];
+	}
+
+	/**
+	 * Get the number of rings in a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return number of rings
+	 */
+	public int getPartSize(int part) {
+		return partOffsets[part + 1] - partOffsets[part];
+	}
+
+	/**
+	 * Get the decoded x-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return x
+	 */
+	public double getX(int vertex) {
+		return ordinates[vertex << 1] / scale;
+	}
+
+	/**
+	 * Get the decoded y-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return y
+	 */
+	public double getY(int vertex) {
+		return ordinates[(vertex << 1) + 1] / scale;
+	}
+
+	/**
+	 * Get the scale factor of the quantized ordinates, being 10 to the power of the precision.
+	 *
+	 * @return scale factor
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * Get a coordinate sequence view on the vertices of a ring. The sequence decodes the ordinates when they are read
+	 * and quantizes them when they are written. Changes to the sequence are written through to this geometry.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return coordinate sequence
+	 */
+	public CoordinateSequence getCoordinateSequence(int ring) {
+		return new QuantizedCoordinateSequence(ordinates, ringOffsets[ring], getRingSize(ring), precision);
+	}
+
+	/**
+	 * This geometry is empty if it has no vertices.
+	 *
+	 * @return true or false.
+	 */
+	public boolean isEmpty() {
+		return getNumPoints() == 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// General getters
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the geometry type.
+	 *
+	 * @return geometry type
+	 */
+	public String getGeometryType() {
+		return geometryType;
+	}
+
+	/**
+	 * Return the spatial reference ID.
+	 *
+	 * @return Returns the srid as an integer.
+	 */
+	public int getSrid() {
+		return srid;
+	}
+
+	/**
+	 * Get the precision for the geometry. This is the number of decimals that are kept in the quantized ordinates.
+	 *
+	 * @return geometry precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Get the interleaved and quantized x and y ordinates of all vertices. This is the backing array, not a copy.
+	 *
+	 * @return ordinates
+	 */
+	public int[] getOrdinates() {
+		return ordinates;
+	}
+
+	/**
+	 * Get the index of the first vertex of each ring, followed by the total number of vertices. This is the backing
+	 * array, not a copy.
+	 *
+	 * @return ring offsets
+	 */
+	public int[] getRingOffsets() {
+		return ringOffsets;
+	}
+
+	/**
+	 * Get the index of the first ring of each part, followed by the total number of rings. This is the backing array,
+	 * not a copy.
+	 *
+	 * @return part offsets
+	 */
+	public int[] getPartOffsets() {
+		return partOffsets;
+	}
+}
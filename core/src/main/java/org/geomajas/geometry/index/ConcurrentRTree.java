@@ -0,0 +1,533 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+
+/**
+ * <p>
+ * R-tree for many reading threads and few writing threads. The nodes of the tree are immutable: a change copies the
+ * nodes on the path from the root to the changed leaf, and the new root is published through an
+ * {@link AtomicReference}. Readers never lock and never wait for a writer, they simply work on the root that was
+ * current when they started. An iterator therefore returns a stable snapshot of the tree, no matter what is changed
+ * while iterating. Writers do not lock either: a writer that loses the race to another writer repeats its change on the
+ * new root, so a single writer thread never repeats work.
+ * </p>
+ * <p>
+ * The entries are values with a {@link Bbox} as key. The same value can be inserted more than once, with the same or
+ * different bounds. Values are compared with {@link Object#equals(Object)} when they are removed or moved.
+ * </p>
+ *
+ * @param <T>
+ *            type of the values
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class ConcurrentRTree<T> implements Iterable<T> {
+
+	/** The default maximum number of entries of a node. */
+	public static final int DEFAULT_MAX_ENTRIES = 16;
+
+	private static final double MIN_FILL = 0.4;
+
+	private final int maxEntries;
+
+	private final int minEntries;
+
+	private final AtomicReference<State> state;
+
+	/**
+	 * Create an empty tree with the default maximum number of entries per node.
+	 */
+	public ConcurrentRTree() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create an empty tree.
+	 *
+	 * @param maxEntries
+	 *            The maximum number of entries of a node, at least 4.
+	 */
+	public ConcurrentRTree(int maxEntries) {
+		this(maxEntries, new State(new Node(0, new double[0], new Object[0]), 0));
+		if (maxEntries < 4) {
+			throw new IllegalArgumentException("Maximum number of entries should be at least 4");
+		}
+	}
+
+	private ConcurrentRTree(int maxEntries, State state) {
+		this.maxEntries = maxEntries;
+		minEntries = Math.max(2, (int) (maxEntries * MIN_FILL));
+		this.state = new AtomicReference<State>(state);
+	}
+
+	/**
+	 * Get the number of entries in the tree.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return state.get().size;
+	}
+
+	/**
+	 * Get the maximum number of entries of a node.
+	 *
+	 * @return maximum number of entries
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Get the bounds of all entries.
+	 *
+	 * @return The bounds, or null if the tree is empty.
+	 */
+	public Bbox getBounds() {
+		State current = state.get();
+		if (current.size == 0) {
+			return null;
+		}
+		Node root = current.root;
+		return new Bbox(root.minX, root.minY, root.maxX - root.minX, root.maxY - root.minY);
+	}
+
+	/**
+	 * Insert an entry.
+	 *
+	 * @param bounds
+	 *            The bounds of the entry.
+	 * @param value
+	 *            The value of the entry, not null.
+	 */
+	public void insert(Bbox bounds, T value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Value should not be null");
+		}
+		while (true) {
+			State current = state.get();
+			Node root = insert(current.root, bounds.getX(), bounds.getY(), bounds.getMaxX(), bounds.getMaxY(), value);
+			if (state.compareAndSet(current, new State(root, current.size + 1))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Remove an entry.
+	 *
+	 * @param bounds
+	 *            The bounds with which the entry was inserted.
+	 * @param value
+	 *            The value of the entry.
+	 * @return true if the entry was removed, false if there was no such entry
+	 */
+	public boolean remove(Bbox bounds, T value) {
+		while (true) {
+			State current = state.get();
+			Node root = remove(current.root, bounds.getX(), bounds.getY(), bounds.getMaxX(), bounds.getMaxY(), value);
+			if (root == null) {
+				return false;
+			}
+			if (state.compareAndSet(current, new State(root, current.size - 1))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Move an entry to new bounds. Readers see the entry either at the old or at the new bounds, never at both or at
+	 * neither.
+	 *
+	 * @param from
+	 *            The bounds with which the entry was inserted.
+	 * @param to
+	 *            The new bounds of the entry.
+	 * @param value
+	 *            The value of the entry.
+	 * @return true if the entry was moved, false if there was no such entry
+	 */
+	public boolean move(Bbox from, Bbox to, T value) {
+		while (true) {
+			State current = state.get();
+			Node root = remove(current.root, from.getX(), from.getY(), from.getMaxX(), from.getMaxY(), value);
+			if (root == null) {
+				return false;
+			}
+			root = insert(root, to.getX(), to.getY(), to.getMaxX(), to.getMaxY(), value);
+			if (state.compareAndSet(current, new State(root, current.size))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		state.set(new State(new Node(0, new double[0], new Object[0]), 0));
+	}
+
+	/**
+	 * Get a copy of the tree in its current state. The copy takes constant time, because the nodes are shared. Changes
+	 * to the copy do not affect this tree and vice versa.
+	 *
+	 * @return the copy
+	 */
+	public ConcurrentRTree<T> snapshot() {
+		return new ConcurrentRTree<T>(maxEntries, state.get());
+	}
+
+	/**
+	 * Iterate over the values of the entries with bounds that intersect a window. Entries that only touch the window
+	 * are included. The iterator sees the tree as it was when this method was called.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return iterator over the values, in no particular order
+	 */
+	public Iterator<T> query(Bbox window) {
+		return new QueryIterator<T>(state.get().root, window.getX(), window.getY(), window.getMaxX(),
+				window.getMaxY());
+	}
+
+	/**
+	 * Iterate over the values of all entries. The iterator sees the tree as it was when this method was called.
+	 *
+	 * @return iterator over the values, in no particular order
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new QueryIterator<T>(state.get().root, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Get a copy of the tree with a new entry. */
+	private Node insert(Node root, double minX, double minY, double maxX, double maxY, Object value) {
+		Node[] nodes = insertInto(root, minX, minY, maxX, maxY, value);
+		if (nodes.length == 1) {
+			return nodes[0];
+		}
+		double[] bounds = new double[8];
+		setBounds(bounds, 0, nodes[0]);
+		setBounds(bounds, 1, nodes[1]);
+		return new Node(root.level + 1, bounds, new Object[] { nodes[0], nodes[1] });
+	}
+
+	/** Get a copy of a node with a new entry, which is split in two nodes when it overflows. */
+	private Node[] insertInto(Node node, double minX, double minY, double maxX, double maxY, Object value) {
+		int n = node.items.length;
+		double[] bounds;
+		Object[] items;
+		if (node.level == 0) {
+			bounds = Arrays.copyOf(node.bounds, 4 * (n + 1));
+			bounds[4 * n] = minX;
+			bounds[4 * n + 1] = minY;
+			bounds[4 * n + 2] = maxX;
+			bounds[4 * n + 3] = maxY;
+			items = Arrays.copyOf(node.items, n + 1);
+			items[n] = value;
+		} else {
+			int best = chooseChild(node, minX, minY, maxX, maxY);
+			Node[] children = insertInto((Node) node.items[best], minX, minY, maxX, maxY, value);
+			int size = n + children.length - 1;
+			bounds = Arrays.copyOf(node.bounds, 4 * size);
+			items = Arrays.copyOf(node.items, size);
+			setBounds(bounds, best, children[0]);
+			items[best] = children[0];
+			if (children.length == 2) {
+				setBounds(bounds, n, children[1]);
+				items[n] = children[1];
+			}
+		}
+		if (items.length <= maxEntries) {
+			return new Node[] { new Node(node.level, bounds, items) };
+		}
+		int[] order = new int[items.length];
+		int split = IndexHelper.split(bounds, items.length, minEntries, order);
+		return new Node[] { copy(node.level, bounds, items, order, 0, split),
+				copy(node.level, bounds, items, order, split, items.length) };
+	}
+
+	/** Get the child that needs the least area enlargement for new bounds, then the smallest one. */
+	private int chooseChild(Node node, double minX, double minY, double maxX, double maxY) {
+		double[] bounds = node.bounds;
+		int best = 0;
+		double bestEnlargement = Double.POSITIVE_INFINITY;
+		double bestArea = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < node.items.length; i++) {
+			double area = IndexHelper.area(bounds, i);
+			double enlargement = (Math.max(bounds[4 * i + 2], maxX) - Math.min(bounds[4 * i], minX))
+					* (Math.max(bounds[4 * i + 3], maxY) - Math.min(bounds[4 * i + 1], minY)) - area;
+			if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+				best = i;
+				bestEnlargement = enlargement;
+				bestArea = area;
+			}
+		}
+		return best;
+	}
+
+	/** Get a copy of the tree without an entry, or null if there is no such entry. */
+	private Node remove(Node root, double minX, double minY, double maxX, double maxY, Object value) {
+		List<Node> orphans = new ArrayList<Node>();
+		Node result = removeFrom(root, minX, minY, maxX, maxY, value, orphans);
+		if (result == null) {
+			return null;
+		}
+		// the entries of nodes that became too small are inserted again
+		for (Node orphan : orphans) {
+			result = reinsert(result, orphan);
+		}
+		while (result.level > 0 && result.items.length == 1) {
+			result = (Node) result.items[0];
+		}
+		return result;
+	}
+
+	/** Get a copy of a node without an entry, collecting children that become too small, or null if not found. */
+	private Node removeFrom(Node node, double minX, double minY, double maxX, double maxY, Object value,
+			List<Node> orphans) {
+		double[] bounds = node.bounds;
+		for (int i = 0; i < node.items.length; i++) {
+			if (node.level == 0) {
+				if (bounds[4 * i] == minX && bounds[4 * i + 1] == minY && bounds[4 * i + 2] == maxX
+						&& bounds[4 * i + 3] == maxY && value.equals(node.items[i])) {
+					return without(node, i);
+				}
+			} else if (bounds[4 * i] <= minX && bounds[4 * i + 1] <= minY && bounds[4 * i + 2] >= maxX
+					&& bounds[4 * i + 3] >= maxY) {
+				Node child = removeFrom((Node) node.items[i], minX, minY, maxX, maxY, value, orphans);
+				if (child != null) {
+					if (child.items.length < minEntries) {
+						orphans.add(child);
+						return without(node, i);
+					}
+					double[] copyBounds = bounds.clone();
+					Object[] copyItems = node.items.clone();
+					setBounds(copyBounds, i, child);
+					copyItems[i] = child;
+					return new Node(node.level, copyBounds, copyItems);
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Insert the entries in the leaves of an orphan node. */
+	private Node reinsert(Node root, Node orphan) {
+		Node result = root;
+		for (int i = 0; i < orphan.items.length; i++) {
+			if (orphan.level == 0) {
+				double[] bounds = orphan.bounds;
+				result = insert(result, bounds[4 * i], bounds[4 * i + 1], bounds[4 * i + 2], bounds[4 * i + 3],
+						orphan.items[i]);
+			} else {
+				result = reinsert(result, (Node) orphan.items[i]);
+			}
+		}
+		return result;
+	}
+
+	private static Node without(Node node, int index) {
+		int n = node.items.length - 1;
+		double[] bounds = new double[4 * n];
+		Object[] items = new Object[n];
+		System.arraycopy(node.bounds, 0, bounds, 0, 4 * index);
+		System.arraycopy(node.bounds, 4 * (index + 1), bounds, 4 * index, 4 * (n - index));
+		System.arraycopy(node.items, 0, items, 0, index);
+		System.arraycopy(node.items, index + 1, items, index, n - index);
+		return new Node(node.level, bounds, items);
+	}
+
+	private static Node copy(int level, double[] bounds, Object[] items, int[] order, int from, int to) {
+		double[] copyBounds = new double[4 * (to - from)];
+		Object[] copyItems = new Object[to - from];
+		for (int i = from; i < to; i++) {
+			System.arraycopy(bounds, 4 * order[i], copyBounds, 4 * (i - from), 4);
+			copyItems[i - from] = items[order[i]];
+		}
+		return new Node(level, copyBounds, copyItems);
+	}
+
+	private static void setBounds(double[] bounds, int index, Node node) {
+		bounds[4 * index] = node.minX;
+		bounds[4 * index + 1] = node.minY;
+		bounds[4 * index + 2] = node.maxX;
+		bounds[4 * index + 3] = node.maxY;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Root and size of the tree, which are published together.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class State {
+
+		private final Node root;
+
+		private final int size;
+
+		private State(Node root, int size) {
+			this.root = root;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Immutable node of the tree. The arrays are never changed after construction, so a node can be shared by any
+	 * number of versions of the tree.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Node {
+
+		// 0 for a leaf
+		private final int level;
+
+		// bounds (minX, minY, maxX, maxY) of the entries
+		private final double[] bounds;
+
+		// values in a leaf, child nodes otherwise
+		private final Object[] items;
+
+		private final double minX;
+
+		private final double minY;
+
+		private final double maxX;
+
+		private final double maxY;
+
+		private Node(int level, double[] bounds, Object[] items) {
+			this.level = level;
+			this.bounds = bounds;
+			this.items = items;
+			double x1 = Double.POSITIVE_INFINITY;
+			double y1 = Double.POSITIVE_INFINITY;
+			double x2 = Double.NEGATIVE_INFINITY;
+			double y2 = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < items.length; i++) {
+				x1 = Math.min(x1, bounds[4 * i]);
+				y1 = Math.min(y1, bounds[4 * i + 1]);
+				x2 = Math.max(x2, bounds[4 * i + 2]);
+				y2 = Math.max(y2, bounds[4 * i + 3]);
+			}
+			minX = x1;
+			minY = y1;
+			maxX = x2;
+			maxY = y2;
+		}
+	}
+
+	/**
+	 * Depth-first iterator over the values of the entries that intersect a window, with an explicit stack of nodes.
+	 *
+	 * @param <T>
+	 *            type of the values
+	 * @author Jan De Moerloose
+	 */
+	private static final class QueryIterator<T> implements Iterator<T> {
+
+		private final double minX;
+
+		private final double minY;
+
+		private final double maxX;
+
+		private final double maxY;
+
+		private final Node[] nodes;
+
+		private final int[] positions;
+
+		private int depth;
+
+		private T next;
+
+		private QueryIterator(Node root, double minX, double minY, double maxX, double maxY) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			nodes = new Node[root.level + 1];
+			positions = new int[root.level + 1];
+			nodes[0] = root;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			T result = next;
+			advance();
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("The tree can not be changed through its iterator");
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				Node node = nodes[depth];
+				double[] bounds = node.bounds;
+				int i = positions[depth];
+				while (i < node.items.length && (bounds[4 * i] > maxX || bounds[4 * i + 1] > maxY
+						|| bounds[4 * i + 2] < minX || bounds[4 * i + 3] < minY)) {
+					i++;
+				}
+				if (i == node.items.length) {
+					depth--;
+				} else {
+					positions[depth] = i + 1;
+					if (node.level == 0) {
+						next = (T) node.items[i];
+						return;
+					}
+					depth++;
+					nodes[depth] = (Node) node.items[i];
+					positions[depth] = 0;
+				}
+			}
+		}
+	}
+}
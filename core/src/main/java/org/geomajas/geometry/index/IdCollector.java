@@ -0,0 +1,73 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+/**
+ * Visitor that collects or counts the ids of a query.
+ *
+ * @author Jan De Moerloose
+ */
+final class IdCollector implements IndexVisitor {
+
+	private static final int INITIAL_SIZE = 16;
+
+	private final boolean count;
+
+	private int[] ids;
+
+	private int size;
+
+	/**
+	 * Create a collector.
+	 *
+	 * @param count
+	 *            true to only count the ids
+	 */
+	IdCollector(boolean count) {
+		this.count = count;
+		ids = count ? null : new int[INITIAL_SIZE];
+	}
+
+	@Override
+	public boolean visit(int id) {
+		if (!count) {
+			if (size == ids.length) {
+				int[] grown = new int[2 * size];
+				System.arraycopy(ids, 0, grown, 0, size);
+				ids = grown;
+			}
+			ids[size] = id;
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Get the number of ids.
+	 *
+	 * @return number of ids
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the ids.
+	 *
+	 * @return the ids, in the order of the query
+	 */
+	int[] toArray() {
+		int[] result = new int[size];
+		System.arraycopy(ids, 0, result, 0, size);
+		return result;
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.GeometryService;
+
+/**
+ * Helper methods that are shared by the spatial indexes.
+ *
+ * @author Jan De Moerloose
+ */
+final class IndexHelper {
+
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	private IndexHelper() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Get the bounds of geometries.
+	 *
+	 * @param geometries
+	 *            geometries, may contain null
+	 * @return the bounds, null for null and empty geometries
+	 */
+	static Bbox[] getBounds(Geometry[] geometries) {
+		Bbox[] bounds = new Bbox[geometries.length];
+		for (int i = 0; i < geometries.length; i++) {
+			if (geometries[i] != null) {
+				bounds[i] = GeometryService.getBounds(geometries[i]);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Sort a range of an array of items on a key per item.
+	 *
+	 * @param items
+	 *            items, used as index in the keys
+	 * @param keys
+	 *            keys
+	 * @param from
+	 *            start of the range (inclusive)
+	 * @param to
+	 *            end of the range (exclusive)
+	 */
+	static void sort(int[] items, double[] keys, int from, int to) {
+		int start = from;
+		int end = to;
+		int[] range = new int[2];
+		while (end - start > INSERTION_SORT_SIZE) {
+			partition(items, keys, start, end, range);
+			int less = range[0];
+			int greater = range[1];
+			// recurse into the smaller part, so the stack depth is logarithmic
+			if (less - start < end - greater) {
+				sort(items, keys, start, less);
+				start = greater;
+			} else {
+				sort(items, keys, greater, end);
+				end = less;
+			}
+		}
+		for (int i = start + 1; i < end; i++) {
+			int item = items[i];
+			double key = keys[item];
+			int j = i - 1;
+			while (j >= start && keys[items[j]] > key) {
+				items[j + 1] = items[j];
+				j--;
+			}
+			items[j + 1] = item;
+		}
+	}
+
+	/**
+	 * Partially sort a range of an array of items on a key per item, so the item at a given position is the one that
+	 * would be there if the range were sorted, with no larger keys before it and no smaller keys after it.
+	 *
+	 * @param items
+	 *            items, used as index in the keys
+	 * @param keys
+	 *            keys
+	 * @param from
+	 *            start of the range (inclusive)
+	 * @param to
+	 *            end of the range (exclusive)
+	 * @param position
+	 *            the position to select, within the range
+	 */
+	static void select(int[] items, double[] keys, int from, int to, int position) {
+		int start = from;
+		int end = to;
+		int[] range = new int[2];
+		while (end - start > 1) {
+			partition(items, keys, start, end, range);
+			if (position < range[0]) {
+				end = range[0];
+			} else if (position >= range[1]) {
+				start = range[1];
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Choose the split of an overflowing R-tree node, as in the R*-tree: the axis with the smallest sum of margins over
+	 * all distributions, and on that axis the distribution with the least overlap, then the least area.
+	 *
+	 * @param bounds
+	 *            bounds (minX, minY, maxX, maxY) of the entries
+	 * @param n
+	 *            number of entries
+	 * @param minEntries
+	 *            minimum number of entries of each group
+	 * @param order
+	 *            receives the order of the entries, the first group first
+	 * @return the number of entries in the first group
+	 */
+	static int split(double[] bounds, int n, int minEntries, int[] order) {
+		double[] keys = new double[n];
+		double[] prefix = new double[4 * n];
+		double[] suffix = new double[4 * n];
+		double marginX = 0;
+		double marginY = 0;
+		for (int upper = 0; upper < 2; upper++) {
+			marginX += getMargins(bounds, n, 0, upper, minEntries, order, keys, prefix, suffix);
+			marginY += getMargins(bounds, n, 1, upper, minEntries, order, keys, prefix, suffix);
+		}
+		int axis = marginX <= marginY ? 0 : 1;
+		int bestUpper = 0;
+		int bestSplit = minEntries;
+		double bestOverlap = Double.POSITIVE_INFINITY;
+		double bestArea = Double.POSITIVE_INFINITY;
+		for (int upper = 0; upper < 2; upper++) {
+			sort(bounds, n, axis, upper, order, keys, prefix, suffix);
+			for (int k = minEntries; k <= n - minEntries; k++) {
+				double overlap = overlap(prefix, k - 1, suffix[4 * k], suffix[4 * k + 1], suffix[4 * k + 2],
+						suffix[4 * k + 3]);
+				double area = area(prefix, k - 1) + area(suffix, k);
+				if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+					bestUpper = upper;
+					bestSplit = k;
+					bestOverlap = overlap;
+					bestArea = area;
+				}
+			}
+		}
+		if (bestUpper == 0) {
+			sort(bounds, n, axis, 0, order, keys, prefix, suffix);
+		}
+		return bestSplit;
+	}
+
+	/**
+	 * Get the area of a box.
+	 *
+	 * @param bounds
+	 *            bounds (minX, minY, maxX, maxY) of boxes
+	 * @param i
+	 *            index of the box
+	 * @return the area
+	 */
+	static double area(double[] bounds, int i) {
+		return (bounds[4 * i + 2] - bounds[4 * i]) * (bounds[4 * i + 3] - bounds[4 * i + 1]);
+	}
+
+	/**
+	 * Get the area of the intersection of a box with another box.
+	 *
+	 * @param bounds
+	 *            bounds (minX, minY, maxX, maxY) of boxes
+	 * @param i
+	 *            index of the box
+	 * @param minX
+	 *            minimum x of the other box
+	 * @param minY
+	 *            minimum y of the other box
+	 * @param maxX
+	 *            maximum x of the other box
+	 * @param maxY
+	 *            maximum y of the other box
+	 * @return the area of the intersection, 0 if the boxes do not overlap
+	 */
+	static double overlap(double[] bounds, int i, double minX, double minY, double maxX, double maxY) {
+		double width = Math.min(bounds[4 * i + 2], maxX) - Math.max(bounds[4 * i], minX);
+		double height = Math.min(bounds[4 * i + 3], maxY) - Math.max(bounds[4 * i + 1], minY);
+		return width > 0 && height > 0 ? width * height : 0;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Three-way partition of a range around the median of three keys, so many equal keys (points on a grid) do not make
+	 * a sort quadratic. The range gets the keys below, equal to and above the pivot, in that order, and the start and
+	 * end of the equal keys are returned in range.
+	 */
+	private static void partition(int[] items, double[] keys, int start, int end, int[] range) {
+		double pivot = median(keys[items[start]], keys[items[(start + end) >>> 1]], keys[items[end - 1]]);
+		int less = start;
+		int greater = end;
+		int i = start;
+		while (i < greater) {
+			double key = keys[items[i]];
+			if (key < pivot) {
+				swap(items, less++, i++);
+			} else if (key > pivot) {
+				swap(items, i, --greater);
+			} else {
+				i++;
+			}
+		}
+		range[0] = less;
+		range[1] = greater;
+	}
+
+	private static double median(double a, double b, double c) {
+		if (a < b) {
+			return b < c ? b : (a < c ? c : a);
+		}
+		return a < c ? a : (b < c ? c : b);
+	}
+
+	private static void swap(int[] items, int i, int j) {
+		int swap = items[i];
+		items[i] = items[j];
+		items[j] = swap;
+	}
+
+	/** Sort the entries on an axis and get the sum of the margins of all distributions. */
+	private static double getMargins(double[] bounds, int n, int axis, int upper, int minEntries, int[] order,
+			double[] keys, double[] prefix, double[] suffix) {
+		sort(bounds, n, axis, upper, order, keys, prefix, suffix);
+		double margin = 0;
+		for (int k = minEntries; k <= n - minEntries; k++) {
+			margin += margin(prefix, k - 1) + margin(suffix, k);
+		}
+		return margin;
+	}
+
+	/**
+	 * Sort the entries on the lower (upper = 0) or upper (upper = 1) bound of an axis, and get the union of the bounds
+	 * of every prefix and suffix of the order.
+	 */
+	private static void sort(double[] bounds, int n, int axis, int upper, int[] order, double[] keys,
+			double[] prefix, double[] suffix) {
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			keys[i] = bounds[4 * i + axis + 2 * upper];
+		}
+		sort(order, keys, 0, n);
+		System.arraycopy(bounds, 4 * order[0], prefix, 0, 4);
+		for (int i = 1; i < n; i++) {
+			union(prefix, i - 1, bounds, order[i], prefix, i);
+		}
+		System.arraycopy(bounds, 4 * order[n - 1], suffix, 4 * (n - 1), 4);
+		for (int i = n - 2; i >= 0; i--) {
+			union(suffix, i + 1, bounds, order[i], suffix, i);
+		}
+	}
+
+	private static void union(double[] one, int i, double[] two, int j, double[] target, int k) {
+		target[4 * k] = Math.min(one[4 * i], two[4 * j]);
+		target[4 * k + 1] = Math.min(one[4 * i + 1], two[4 * j + 1]);
+		target[4 * k + 2] = Math.max(one[4 * i + 2], two[4 * j + 2]);
+		target[4 * k + 3] = Math.max(one[4 * i + 3], two[4 * j + 3]);
+	}
+
+	private static double margin(double[] bounds, int i) {
+		return bounds[4 * i + 2] - bounds[4 * i] + bounds[4 * i + 3] - bounds[4 * i + 1];
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Receiver of the results of a spatial index query. Results are passed as the ids of the entries, so a query does not
+ * have to create an object for every result.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public interface IndexVisitor {
+
+	/**
+	 * Visit an entry that matches the query.
+	 *
+	 * @param id
+	 *            The id of the entry.
+	 * @return true to continue the query, false to stop it
+	 */
+	boolean visit(int id);
+}
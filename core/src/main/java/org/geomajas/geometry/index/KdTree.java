@@ -0,0 +1,367 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Balanced KD-tree over points, for nearest neighbour and distance queries. The tree is implicit: the points are
+ * ordered so the median of every range splits it on the axis with the largest spread, and the coordinates are kept in
+ * primitive arrays in that order. A nearest neighbour search keeps the best candidates in a bounded priority queue and
+ * skips every half of a range that is farther away than the worst of them.
+ * </p>
+ * <p>
+ * The tree can also be built over the vertices of geometries, to find the geometries that are closest to a position,
+ * such as a mouse click. The id of every vertex is then the index of its geometry, and the nearest neighbour search
+ * returns every geometry once. The distance to the vertices of a line or polygon can be larger than the distance to
+ * its edges, so a search for exact distances can ask a few more geometries and measure them with
+ * {@link org.geomajas.geometry.service.GeometryService#getDistance(Geometry, org.geomajas.geometry.Coordinate)}.
+ * </p>
+ * <p>
+ * The tree can not be changed after it is built, so it can be queried by any number of threads at the same time.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class KdTree {
+
+	// ranges of at most this size are searched linearly
+	private static final int LEAF_SIZE = 8;
+
+	private final double[] x;
+
+	private final double[] y;
+
+	private final int[] ids;
+
+	// for the median of every range, true if the range is split on x, false if it is split on y
+	private final boolean[] splitX;
+
+	/**
+	 * Build a tree over points. The id of a point is its index in the arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 */
+	public KdTree(double[] x, double[] y) {
+		this(Points.copyOf(x, y));
+	}
+
+	/**
+	 * Build a tree over the vertices of geometries. The id of a vertex is the index of its geometry in the array.
+	 *
+	 * @param geometries
+	 *            The geometries, may contain null.
+	 */
+	public KdTree(Geometry[] geometries) {
+		this(Points.of(geometries));
+	}
+
+	private KdTree(Points points) {
+		int n = points.size();
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		splitX = new boolean[n];
+		build(points.getX(), points.getY(), order, 0, n);
+		x = new double[n];
+		y = new double[n];
+		ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = points.getX()[order[i]];
+			y[i] = points.getY()[order[i]];
+			ids[i] = points.getIds()[order[i]];
+		}
+	}
+
+	/**
+	 * Get the number of points in the tree.
+	 *
+	 * @return number of points
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Find the id of the point that is nearest to a position.
+	 *
+	 * @param px
+	 *            x of the position
+	 * @param py
+	 *            y of the position
+	 * @return The id, or -1 if the tree is empty.
+	 */
+	public int nearest(double px, double py) {
+		int[] nearest = nearest(px, py, 1);
+		return nearest.length == 0 ? -1 : nearest[0];
+	}
+
+	/**
+	 * Find the ids of the points that are nearest to a position. Every id is returned once, at the distance of its
+	 * nearest point.
+	 *
+	 * @param px
+	 *            x of the position
+	 * @param py
+	 *            y of the position
+	 * @param k
+	 *            The maximum number of ids.
+	 * @return The ids of at most k points, nearest first.
+	 */
+	public int[] nearest(double px, double py, int k) {
+		return nearest(px, py, k, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Find the ids of the points that are nearest to a position and within a maximum distance. Every id is returned
+	 * once, at the distance of its nearest point.
+	 *
+	 * @param px
+	 *            x of the position
+	 * @param py
+	 *            y of the position
+	 * @param k
+	 *            The maximum number of ids.
+	 * @param maxDistance
+	 *            The maximum distance, inclusive.
+	 * @return The ids of at most k points, nearest first.
+	 */
+	public int[] nearest(double px, double py, int k, double maxDistance) {
+		if (k <= 0 || ids.length == 0) {
+			return new int[0];
+		}
+		NearestQueue queue = new NearestQueue(Math.min(k, ids.length), maxDistance * maxDistance);
+		nearest(0, ids.length, px, py, queue);
+		return queue.toArray();
+	}
+
+	/**
+	 * Find the points within a distance of a position, including the points at that distance.
+	 *
+	 * @param px
+	 *            x of the position
+	 * @param py
+	 *            y of the position
+	 * @param distance
+	 *            The distance.
+	 * @param visitor
+	 *            The visitor for the ids of the points, once for every point.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean within(double px, double py, double distance, IndexVisitor visitor) {
+		return within(0, ids.length, px, py, distance * distance, visitor);
+	}
+
+	/**
+	 * Find the ids of the points within a distance of a position, including the points at that distance.
+	 *
+	 * @param px
+	 *            x of the position
+	 * @param py
+	 *            y of the position
+	 * @param distance
+	 *            The distance.
+	 * @return The ids, once for every point, in no particular order.
+	 */
+	public int[] within(double px, double py, double distance) {
+		IdCollector collector = new IdCollector(false);
+		within(px, py, distance, collector);
+		return collector.toArray();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Order a range of points so its median splits it on the axis with the largest spread, and recurse. */
+	private void build(double[] px, double[] py, int[] order, int start, int end) {
+		if (end - start <= LEAF_SIZE) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			minX = Math.min(minX, px[order[i]]);
+			minY = Math.min(minY, py[order[i]]);
+			maxX = Math.max(maxX, px[order[i]]);
+			maxY = Math.max(maxY, py[order[i]]);
+		}
+		boolean onX = maxX - minX >= maxY - minY;
+		int median = (start + end) >>> 1;
+		IndexHelper.select(order, onX ? px : py, start, end, median);
+		splitX[median] = onX;
+		build(px, py, order, start, median);
+		build(px, py, order, median + 1, end);
+	}
+
+	private void nearest(int start, int end, double px, double py, NearestQueue queue) {
+		if (end - start <= LEAF_SIZE) {
+			for (int i = start; i < end; i++) {
+				queue.offer(getDistance(i, px, py), ids[i]);
+			}
+			return;
+		}
+		int median = (start + end) >>> 1;
+		double delta = splitX[median] ? px - x[median] : py - y[median];
+		queue.offer(getDistance(median, px, py), ids[median]);
+		// the near half first, the far half only if it can still be closer than the worst candidate
+		if (delta < 0) {
+			nearest(start, median, px, py, queue);
+			if (delta * delta <= queue.getBound()) {
+				nearest(median + 1, end, px, py, queue);
+			}
+		} else {
+			nearest(median + 1, end, px, py, queue);
+			if (delta * delta <= queue.getBound()) {
+				nearest(start, median, px, py, queue);
+			}
+		}
+	}
+
+	private boolean within(int start, int end, double px, double py, double distanceSquared, IndexVisitor visitor) {
+		if (end - start <= LEAF_SIZE) {
+			for (int i = start; i < end; i++) {
+				if (getDistance(i, px, py) <= distanceSquared && !visitor.visit(ids[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int median = (start + end) >>> 1;
+		double delta = splitX[median] ? px - x[median] : py - y[median];
+		if (getDistance(median, px, py) <= distanceSquared && !visitor.visit(ids[median])) {
+			return false;
+		}
+		// points before the median are not beyond it on the split axis, points after it are not before it
+		boolean near = delta * delta <= distanceSquared;
+		if ((delta <= 0 || near) && !within(start, median, px, py, distanceSquared, visitor)) {
+			return false;
+		}
+		return (delta < 0 && !near) || within(median + 1, end, px, py, distanceSquared, visitor);
+	}
+
+	/** Get the squared distance from a point to a position. */
+	private double getDistance(int i, double px, double py) {
+		double dx = x[i] - px;
+		double dy = y[i] - py;
+		return dx * dx + dy * dy;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Bounded max-heap of the nearest ids found so far, on their squared distance. An id is kept once, at its smallest
+	 * distance.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class NearestQueue {
+
+		private final double[] distances;
+
+		private final int[] ids;
+
+		private final double maxDistanceSquared;
+
+		private int size;
+
+		private NearestQueue(int capacity, double maxDistanceSquared) {
+			distances = new double[capacity];
+			ids = new int[capacity];
+			this.maxDistanceSquared = maxDistanceSquared;
+		}
+
+		/** Get the squared distance that a new candidate has to beat. */
+		private double getBound() {
+			return size < ids.length ? maxDistanceSquared : distances[0];
+		}
+
+		private void offer(double distance, int id) {
+			if (distance > maxDistanceSquared || (size == ids.length && distance >= distances[0])) {
+				return;
+			}
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					if (distance < distances[i]) {
+						distances[i] = distance;
+						siftDown(i);
+					}
+					return;
+				}
+			}
+			if (size < ids.length) {
+				int i = size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (distances[parent] >= distance) {
+						break;
+					}
+					distances[i] = distances[parent];
+					ids[i] = ids[parent];
+					i = parent;
+				}
+				distances[i] = distance;
+				ids[i] = id;
+			} else {
+				distances[0] = distance;
+				ids[0] = id;
+				siftDown(0);
+			}
+		}
+
+		private void siftDown(int index) {
+			double distance = distances[index];
+			int id = ids[index];
+			int i = index;
+			int child = 2 * i + 1;
+			while (child < size) {
+				if (child + 1 < size && distances[child + 1] > distances[child]) {
+					child++;
+				}
+				if (distance >= distances[child]) {
+					break;
+				}
+				distances[i] = distances[child];
+				ids[i] = ids[child];
+				i = child;
+				child = 2 * i + 1;
+			}
+			distances[i] = distance;
+			ids[i] = id;
+		}
+
+		/** Empty the heap into an array, nearest first. */
+		private int[] toArray() {
+			int[] result = new int[size];
+			while (size > 0) {
+				result[size - 1] = ids[0];
+				size--;
+				distances[0] = distances[size];
+				ids[0] = ids[size];
+				siftDown(0);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Uniform grid over points, for large point datasets that are spread evenly, such as sensor networks. The bounds of
+ * the points are cut into square cells, and the points are sorted on their cell, row by row, with a counting sort. The
+ * points of a cell, and of a run of cells within a row, are therefore a contiguous range of the primitive coordinate
+ * arrays.
+ * </p>
+ * <p>
+ * A count adds the size of the range of every row of cells that is completely inside the window, and only looks at the
+ * points of the cells on the border. Queries pass the ids of the points to an {@link IndexVisitor} and do not create
+ * any objects. The grid can not be changed after it is built, so it can be queried by any number of threads at the
+ * same time. For points that are clustered, the {@link PointQuadtree} adapts better.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class PointGrid {
+
+	/** The default average number of points per cell, when no cell size is given. */
+	public static final int DEFAULT_POINTS_PER_CELL = 16;
+
+	private final double[] x;
+
+	private final double[] y;
+
+	private final int[] ids;
+
+	private final double minX;
+
+	private final double minY;
+
+	private final double maxX;
+
+	private final double maxY;
+
+	private final double cellSize;
+
+	private final int columns;
+
+	private final int rows;
+
+	// start of the points of every cell, row by row, and the end of the points as last element
+	private final int[] cellStart;
+
+	/**
+	 * Build a grid with cells of about {@link #DEFAULT_POINTS_PER_CELL} points. The id of a point is its index in the
+	 * arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 */
+	public PointGrid(double[] x, double[] y) {
+		this(Points.copyOf(x, y), 0);
+	}
+
+	/**
+	 * Build a grid. The id of a point is its index in the arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 * @param cellSize
+	 *            The width and height of a cell.
+	 */
+	public PointGrid(double[] x, double[] y, double cellSize) {
+		this(Points.copyOf(x, y), checkCellSize(cellSize));
+	}
+
+	/**
+	 * Build a grid over the coordinates of geometries, with cells of about {@link #DEFAULT_POINTS_PER_CELL} points.
+	 * Points and multipoints are meant, other geometries contribute all their vertices. The id of a point is the index
+	 * of its geometry in the array.
+	 *
+	 * @param geometries
+	 *            The geometries, may contain null.
+	 */
+	public PointGrid(Geometry[] geometries) {
+		this(Points.of(geometries), 0);
+	}
+
+	private PointGrid(Points points, double size) {
+		int n = points.size();
+		double[] unsortedX = points.getX();
+		double[] unsortedY = points.getY();
+		double x1 = Double.POSITIVE_INFINITY;
+		double y1 = Double.POSITIVE_INFINITY;
+		double x2 = Double.NEGATIVE_INFINITY;
+		double y2 = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			x1 = Math.min(x1, unsortedX[i]);
+			y1 = Math.min(y1, unsortedY[i]);
+			x2 = Math.max(x2, unsortedX[i]);
+			y2 = Math.max(y2, unsortedY[i]);
+		}
+		if (n == 0) {
+			x1 = y1 = x2 = y2 = 0;
+		}
+		minX = x1;
+		minY = y1;
+		maxX = x2;
+		maxY = y2;
+		cellSize = size > 0 ? size : getDefaultCellSize(n, x2 - x1, y2 - y1);
+		double numColumns = Math.floor((x2 - x1) / cellSize) + 1;
+		double numRows = Math.floor((y2 - y1) / cellSize) + 1;
+		if (numColumns * numRows >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cell size is too small for the bounds of the points: " + cellSize);
+		}
+		columns = (int) numColumns;
+		rows = (int) numRows;
+
+		// counting sort on the cells
+		cellStart = new int[columns * rows + 1];
+		int[] cells = new int[n];
+		for (int i = 0; i < n; i++) {
+			cells[i] = getRow(unsortedY[i]) * columns + getColumn(unsortedX[i]);
+			cellStart[cells[i] + 1]++;
+		}
+		for (int i = 1; i < cellStart.length; i++) {
+			cellStart[i] += cellStart[i - 1];
+		}
+		x = new double[n];
+		y = new double[n];
+		ids = new int[n];
+		int[] next = new int[cellStart.length - 1];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for (int i = 0; i < n; i++) {
+			int j = next[cells[i]]++;
+			x[j] = unsortedX[i];
+			y[j] = unsortedY[i];
+			ids[j] = points.getIds()[i];
+		}
+	}
+
+	/**
+	 * Get the number of points in the grid.
+	 *
+	 * @return number of points
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Get the width and height of a cell.
+	 *
+	 * @return cell size
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Get the bounds of all points.
+	 *
+	 * @return The bounds, or null if the grid is empty.
+	 */
+	public Bbox getBounds() {
+		if (ids.length == 0) {
+			return null;
+		}
+		return new Bbox(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Find the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @param visitor
+	 *            The visitor for the ids of the points, once for every point.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(Bbox window, IndexVisitor visitor) {
+		double x1 = window.getX();
+		double y1 = window.getY();
+		double x2 = window.getMaxX();
+		double y2 = window.getMaxY();
+		if (ids.length == 0 || x1 > maxX || y1 > maxY || x2 < minX || y2 < minY) {
+			return true;
+		}
+		int firstColumn = getColumn(x1);
+		int lastColumn = getColumn(x2);
+		int lastRow = getRow(y2);
+		for (int row = getRow(y1); row <= lastRow; row++) {
+			int start = cellStart[row * columns + firstColumn];
+			int end = cellStart[row * columns + lastColumn + 1];
+			for (int i = start; i < end; i++) {
+				if (x[i] >= x1 && x[i] <= x2 && y[i] >= y1 && y[i] <= y2 && !visitor.visit(ids[i])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find the ids of the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The ids of the points, once for every point, in no particular order.
+	 */
+	public int[] query(Bbox window) {
+		IdCollector collector = new IdCollector(false);
+		query(window, collector);
+		return collector.toArray();
+	}
+
+	/**
+	 * Count the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The number of points.
+	 */
+	public int count(Bbox window) {
+		double x1 = window.getX();
+		double y1 = window.getY();
+		double x2 = window.getMaxX();
+		double y2 = window.getMaxY();
+		if (ids.length == 0 || x1 > maxX || y1 > maxY || x2 < minX || y2 < minY) {
+			return 0;
+		}
+		int firstColumn = getColumn(x1);
+		int lastColumn = getColumn(x2);
+		int firstRow = getRow(y1);
+		int lastRow = getRow(y2);
+		// a point is only assigned to a later cell than the cell of a coordinate if it is larger, so the cells between
+		// the cells of the window border, and the outer cells when the window covers the bounds, are inside
+		int firstInsideColumn = x1 <= minX ? firstColumn : firstColumn + 1;
+		int lastInsideColumn = x2 >= maxX ? lastColumn : lastColumn - 1;
+		int firstInsideRow = y1 <= minY ? firstRow : firstRow + 1;
+		int lastInsideRow = y2 >= maxY ? lastRow : lastRow - 1;
+		int count = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			int offset = row * columns;
+			if (row >= firstInsideRow && row <= lastInsideRow && firstInsideColumn <= lastInsideColumn) {
+				count += cellStart[offset + lastInsideColumn + 1] - cellStart[offset + firstInsideColumn];
+				if (firstInsideColumn > firstColumn) {
+					count += count(cellStart[offset + firstColumn], cellStart[offset + firstColumn + 1], x1, y1, x2,
+							y2);
+				}
+				if (lastInsideColumn < lastColumn) {
+					count += count(cellStart[offset + lastColumn], cellStart[offset + lastColumn + 1], x1, y1, x2,
+							y2);
+				}
+			} else {
+				count += count(cellStart[offset + firstColumn], cellStart[offset + lastColumn + 1], x1, y1, x2, y2);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Find the points within a distance of a center, including the points at that distance.
+	 *
+	 * @param centerX
+	 *            x of the center
+	 * @param centerY
+	 *            y of the center
+	 * @param radius
+	 *            The distance.
+	 * @param visitor
+	 *            The visitor for the ids of the points, once for every point.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(double centerX, double centerY, double radius, IndexVisitor visitor) {
+		if (ids.length == 0 || centerX - radius > maxX || centerY - radius > maxY || centerX + radius < minX
+				|| centerY + radius < minY) {
+			return true;
+		}
+		double radiusSquared = radius * radius;
+		int lastRow = getRow(centerY + radius);
+		for (int row = getRow(centerY - radius); row <= lastRow; row++) {
+			// only the columns that the circle reaches within this row
+			double dy = Math.max(Math.max(minY + row * cellSize - centerY, centerY - minY - (row + 1) * cellSize), 0);
+			double dx = Math.sqrt(Math.max(radiusSquared - dy * dy, 0));
+			int start = cellStart[row * columns + getColumn(centerX - dx - cellSize)];
+			int end = cellStart[row * columns + getColumn(centerX + dx + cellSize) + 1];
+			for (int i = start; i < end; i++) {
+				double px = x[i] - centerX;
+				double py = y[i] - centerY;
+				if (px * px + py * py <= radiusSquared && !visitor.visit(ids[i])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Count the points within a distance of a center, including the points at that distance.
+	 *
+	 * @param centerX
+	 *            x of the center
+	 * @param centerY
+	 *            y of the center
+	 * @param radius
+	 *            The distance.
+	 * @return The number of points.
+	 */
+	public int count(double centerX, double centerY, double radius) {
+		IdCollector counter = new IdCollector(true);
+		query(centerX, centerY, radius, counter);
+		return counter.size();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private int getColumn(double coordinate) {
+		return Math.min(Math.max((int) Math.floor((coordinate - minX) / cellSize), 0), columns - 1);
+	}
+
+	private int getRow(double coordinate) {
+		return Math.min(Math.max((int) Math.floor((coordinate - minY) / cellSize), 0), rows - 1);
+	}
+
+	private int count(int start, int end, double x1, double y1, double x2, double y2) {
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			if (x[i] >= x1 && x[i] <= x2 && y[i] >= y1 && y[i] <= y2) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static double checkCellSize(double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size should be positive: " + cellSize);
+		}
+		return cellSize;
+	}
+
+	private static double getDefaultCellSize(int size, double width, double height) {
+		int cells = Math.max(1, size / DEFAULT_POINTS_PER_CELL);
+		double area = width * height;
+		if (area > 0) {
+			return Math.sqrt(area / cells);
+		}
+		// all points on a horizontal or vertical line, or on one spot
+		double length = Math.max(width, height);
+		return length > 0 ? length / cells : 1;
+	}
+}
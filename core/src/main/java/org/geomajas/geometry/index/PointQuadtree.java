@@ -0,0 +1,401 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Bucket quadtree over points, for large point datasets such as GPS tracks or sensor readings. Every node is split in
+ * four at the center of the bounds of its points, until it has no more points than the bucket size. The points are
+ * reordered while the tree is built, so the points of every node are a contiguous range of the primitive coordinate
+ * arrays, and every node keeps the exact bounds of its points.
+ * </p>
+ * <p>
+ * A count only looks at the points of the nodes on the border of the query: a node that is completely inside adds the
+ * size of its range. Queries pass the ids of the points to an {@link IndexVisitor} and do not create any objects. The
+ * tree can not be changed after it is built, so it can be queried by any number of threads at the same time.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class PointQuadtree {
+
+	/** The default maximum number of points of a leaf. */
+	public static final int DEFAULT_BUCKET_SIZE = 32;
+
+	// stop splitting nodes of (nearly) equal points
+	private static final int MAX_DEPTH = 32;
+
+	private final int bucketSize;
+
+	private final double[] x;
+
+	private final double[] y;
+
+	private final int[] ids;
+
+	// bounds (minX, minY, maxX, maxY), point range and first of the four children (-1 for a leaf) of the nodes
+	private double[] nodeBounds;
+
+	private int[] nodeStart;
+
+	private int[] nodeEnd;
+
+	private int[] nodeChild;
+
+	private int numNodes;
+
+	/**
+	 * Build a tree with the default bucket size. The id of a point is its index in the arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 */
+	public PointQuadtree(double[] x, double[] y) {
+		this(Points.copyOf(x, y), DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Build a tree. The id of a point is its index in the arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 * @param bucketSize
+	 *            The maximum number of points of a leaf, at least 1.
+	 */
+	public PointQuadtree(double[] x, double[] y, int bucketSize) {
+		this(Points.copyOf(x, y), bucketSize);
+	}
+
+	/**
+	 * Build a tree over the coordinates of geometries, with the default bucket size. Points and multipoints are meant,
+	 * other geometries contribute all their vertices. The id of a point is the index of its geometry in the array.
+	 *
+	 * @param geometries
+	 *            The geometries, may contain null.
+	 */
+	public PointQuadtree(Geometry[] geometries) {
+		this(Points.of(geometries), DEFAULT_BUCKET_SIZE);
+	}
+
+	private PointQuadtree(Points points, int bucketSize) {
+		if (bucketSize < 1) {
+			throw new IllegalArgumentException("Bucket size should be at least 1");
+		}
+		this.bucketSize = bucketSize;
+		x = points.getX();
+		y = points.getY();
+		ids = points.getIds();
+		int capacity = 4 * (ids.length / bucketSize) + 1;
+		nodeBounds = new double[4 * capacity];
+		nodeStart = new int[capacity];
+		nodeEnd = new int[capacity];
+		nodeChild = new int[capacity];
+		numNodes = 1;
+		build(points, 0, 0, ids.length, 0);
+	}
+
+	/**
+	 * Get the number of points in the tree.
+	 *
+	 * @return number of points
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Get the maximum number of points of a leaf.
+	 *
+	 * @return bucket size
+	 */
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	/**
+	 * Get the bounds of all points.
+	 *
+	 * @return The bounds, or null if the tree is empty.
+	 */
+	public Bbox getBounds() {
+		if (ids.length == 0) {
+			return null;
+		}
+		return new Bbox(nodeBounds[0], nodeBounds[1], nodeBounds[2] - nodeBounds[0], nodeBounds[3] - nodeBounds[1]);
+	}
+
+	/**
+	 * Find the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @param visitor
+	 *            The visitor for the ids of the points, once for every point.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(Bbox window, IndexVisitor visitor) {
+		return query(0, window.getX(), window.getY(), window.getMaxX(), window.getMaxY(), visitor);
+	}
+
+	/**
+	 * Find the ids of the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The ids of the points, once for every point, in no particular order.
+	 */
+	public int[] query(Bbox window) {
+		IdCollector collector = new IdCollector(false);
+		query(window, collector);
+		return collector.toArray();
+	}
+
+	/**
+	 * Count the points inside a window, including the border.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The number of points.
+	 */
+	public int count(Bbox window) {
+		return count(0, window.getX(), window.getY(), window.getMaxX(), window.getMaxY());
+	}
+
+	/**
+	 * Find the points within a distance of a center, including the points at that distance.
+	 *
+	 * @param centerX
+	 *            x of the center
+	 * @param centerY
+	 *            y of the center
+	 * @param radius
+	 *            The distance.
+	 * @param visitor
+	 *            The visitor for the ids of the points, once for every point.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(double centerX, double centerY, double radius, IndexVisitor visitor) {
+		return query(0, centerX, centerY, radius * radius, visitor);
+	}
+
+	/**
+	 * Count the points within a distance of a center, including the points at that distance.
+	 *
+	 * @param centerX
+	 *            x of the center
+	 * @param centerY
+	 *            y of the center
+	 * @param radius
+	 *            The distance.
+	 * @return The number of points.
+	 */
+	public int count(double centerX, double centerY, double radius) {
+		return count(0, centerX, centerY, radius * radius);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private void build(Points points, int node, int start, int end, int depth) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		nodeBounds[4 * node] = minX;
+		nodeBounds[4 * node + 1] = minY;
+		nodeBounds[4 * node + 2] = maxX;
+		nodeBounds[4 * node + 3] = maxY;
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		nodeChild[node] = -1;
+		if (end - start <= bucketSize || depth == MAX_DEPTH || (minX == maxX && minY == maxY)) {
+			return;
+		}
+		double midX = (minX + maxX) / 2;
+		double midY = (minY + maxY) / 2;
+		int south = partition(points, y, start, end, midY);
+		int southWest = partition(points, x, start, south, midX);
+		int northWest = partition(points, x, south, end, midX);
+		int child = numNodes;
+		if (child + 4 > nodeStart.length) {
+			grow(Math.max(child + 4, 2 * nodeStart.length));
+		}
+		numNodes += 4;
+		nodeChild[node] = child;
+		build(points, child, start, southWest, depth + 1);
+		build(points, child + 1, southWest, south, depth + 1);
+		build(points, child + 2, south, northWest, depth + 1);
+		build(points, child + 3, northWest, end, depth + 1);
+	}
+
+	/** Move the points with a coordinate below a value to the front of a range, and return where the rest starts. */
+	private static int partition(Points points, double[] coordinates, int start, int end, double value) {
+		int i = start;
+		int j = end - 1;
+		while (true) {
+			while (i <= j && coordinates[i] < value) {
+				i++;
+			}
+			while (i <= j && coordinates[j] >= value) {
+				j--;
+			}
+			if (i >= j) {
+				return i;
+			}
+			points.swap(i++, j--);
+		}
+	}
+
+	private void grow(int capacity) {
+		double[] bounds = new double[4 * capacity];
+		System.arraycopy(nodeBounds, 0, bounds, 0, 4 * numNodes);
+		nodeBounds = bounds;
+		int[] start = new int[capacity];
+		System.arraycopy(nodeStart, 0, start, 0, numNodes);
+		nodeStart = start;
+		int[] end = new int[capacity];
+		System.arraycopy(nodeEnd, 0, end, 0, numNodes);
+		nodeEnd = end;
+		int[] child = new int[capacity];
+		System.arraycopy(nodeChild, 0, child, 0, numNodes);
+		nodeChild = child;
+	}
+
+	private boolean query(int node, double minX, double minY, double maxX, double maxY, IndexVisitor visitor) {
+		int i = 4 * node;
+		if (nodeBounds[i] > maxX || nodeBounds[i + 1] > maxY || nodeBounds[i + 2] < minX || nodeBounds[i + 3] < minY) {
+			return true;
+		}
+		if (nodeChild[node] < 0 || (nodeBounds[i] >= minX && nodeBounds[i + 1] >= minY && nodeBounds[i + 2] <= maxX
+				&& nodeBounds[i + 3] <= maxY)) {
+			for (int j = nodeStart[node]; j < nodeEnd[node]; j++) {
+				if (x[j] >= minX && x[j] <= maxX && y[j] >= minY && y[j] <= maxY && !visitor.visit(ids[j])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int child = nodeChild[node];
+		for (int j = child; j < child + 4; j++) {
+			if (!query(j, minX, minY, maxX, maxY, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int count(int node, double minX, double minY, double maxX, double maxY) {
+		int i = 4 * node;
+		if (nodeBounds[i] > maxX || nodeBounds[i + 1] > maxY || nodeBounds[i + 2] < minX || nodeBounds[i + 3] < minY) {
+			return 0;
+		}
+		if (nodeBounds[i] >= minX && nodeBounds[i + 1] >= minY && nodeBounds[i + 2] <= maxX
+				&& nodeBounds[i + 3] <= maxY) {
+			return nodeEnd[node] - nodeStart[node];
+		}
+		int count = 0;
+		int child = nodeChild[node];
+		if (child < 0) {
+			for (int j = nodeStart[node]; j < nodeEnd[node]; j++) {
+				if (x[j] >= minX && x[j] <= maxX && y[j] >= minY && y[j] <= maxY) {
+					count++;
+				}
+			}
+		} else {
+			for (int j = child; j < child + 4; j++) {
+				count += count(j, minX, minY, maxX, maxY);
+			}
+		}
+		return count;
+	}
+
+	private boolean query(int node, double centerX, double centerY, double radiusSquared, IndexVisitor visitor) {
+		if (getMinDistance(node, centerX, centerY) > radiusSquared) {
+			return true;
+		}
+		int child = nodeChild[node];
+		if (child < 0 || getMaxDistance(node, centerX, centerY) <= radiusSquared) {
+			for (int j = nodeStart[node]; j < nodeEnd[node]; j++) {
+				double dx = x[j] - centerX;
+				double dy = y[j] - centerY;
+				if (dx * dx + dy * dy <= radiusSquared && !visitor.visit(ids[j])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		for (int j = child; j < child + 4; j++) {
+			if (!query(j, centerX, centerY, radiusSquared, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int count(int node, double centerX, double centerY, double radiusSquared) {
+		if (getMinDistance(node, centerX, centerY) > radiusSquared) {
+			return 0;
+		}
+		if (getMaxDistance(node, centerX, centerY) <= radiusSquared) {
+			return nodeEnd[node] - nodeStart[node];
+		}
+		int count = 0;
+		int child = nodeChild[node];
+		if (child < 0) {
+			for (int j = nodeStart[node]; j < nodeEnd[node]; j++) {
+				double dx = x[j] - centerX;
+				double dy = y[j] - centerY;
+				if (dx * dx + dy * dy <= radiusSquared) {
+					count++;
+				}
+			}
+		} else {
+			for (int j = child; j < child + 4; j++) {
+				count += count(j, centerX, centerY, radiusSquared);
+			}
+		}
+		return count;
+	}
+
+	/** Get the squared distance from a point to the nearest point of the bounds of a node. */
+	private double getMinDistance(int node, double px, double py) {
+		int i = 4 * node;
+		double dx = Math.max(Math.max(nodeBounds[i] - px, px - nodeBounds[i + 2]), 0);
+		double dy = Math.max(Math.max(nodeBounds[i + 1] - py, py - nodeBounds[i + 3]), 0);
+		return dx * dx + dy * dy;
+	}
+
+	/** Get the squared distance from a point to the farthest corner of the bounds of a node. */
+	private double getMaxDistance(int node, double px, double py) {
+		int i = 4 * node;
+		double dx = Math.max(px - nodeBounds[i], nodeBounds[i + 2] - px);
+		double dy = Math.max(py - nodeBounds[i + 1], nodeBounds[i + 3] - py);
+		return dx * dx + dy * dy;
+	}
+}
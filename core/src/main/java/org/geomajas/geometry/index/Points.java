@@ -0,0 +1,171 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * Coordinates of the points of a point index in primitive arrays, with the id of every point. The point indexes
+ * reorder the arrays while they are built, so they always work on their own copy.
+ *
+ * @author Jan De Moerloose
+ */
+final class Points {
+
+	private final double[] x;
+
+	private final double[] y;
+
+	private final int[] ids;
+
+	private Points(double[] x, double[] y, int[] ids) {
+		this.x = x;
+		this.y = y;
+		this.ids = ids;
+	}
+
+	/**
+	 * Copy coordinates. The id of a point is its index in the arrays.
+	 *
+	 * @param x
+	 *            x of the points
+	 * @param y
+	 *            y of the points, as many as x
+	 * @return the points
+	 */
+	static Points copyOf(double[] x, double[] y) {
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("There should be as many x as y coordinates");
+		}
+		int[] ids = new int[x.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		return new Points(x.clone(), y.clone(), ids);
+	}
+
+	/**
+	 * Get the coordinates of geometries, which are usually points or multipoints. Other geometries contribute all their
+	 * vertices. The id of a point is the index of its geometry in the array.
+	 *
+	 * @param geometries
+	 *            geometries, may contain null
+	 * @return the points
+	 */
+	static Points of(Geometry[] geometries) {
+		int size = 0;
+		for (Geometry geometry : geometries) {
+			size += count(geometry);
+		}
+		Points points = new Points(new double[size], new double[size], new int[size]);
+		int offset = 0;
+		for (int i = 0; i < geometries.length; i++) {
+			offset = points.add(geometries[i], i, offset);
+		}
+		return points;
+	}
+
+	/**
+	 * Get the number of points.
+	 *
+	 * @return number of points
+	 */
+	int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Get the x coordinates.
+	 *
+	 * @return x coordinates
+	 */
+	double[] getX() {
+		return x;
+	}
+
+	/**
+	 * Get the y coordinates.
+	 *
+	 * @return y coordinates
+	 */
+	double[] getY() {
+		return y;
+	}
+
+	/**
+	 * Get the ids.
+	 *
+	 * @return ids
+	 */
+	int[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * Swap two points.
+	 *
+	 * @param i
+	 *            index of the first point
+	 * @param j
+	 *            index of the second point
+	 */
+	void swap(int i, int j) {
+		double swapX = x[i];
+		x[i] = x[j];
+		x[j] = swapX;
+		double swapY = y[i];
+		y[i] = y[j];
+		y[j] = swapY;
+		int swapId = ids[i];
+		ids[i] = ids[j];
+		ids[j] = swapId;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static int count(Geometry geometry) {
+		int count = 0;
+		if (geometry != null) {
+			if (geometry.getGeometries() != null) {
+				for (Geometry child : geometry.getGeometries()) {
+					count += count(child);
+				}
+			}
+			if (geometry.getCoordinates() != null) {
+				count += geometry.getCoordinates().length;
+			}
+		}
+		return count;
+	}
+
+	private int add(Geometry geometry, int id, int offset) {
+		int index = offset;
+		if (geometry != null) {
+			if (geometry.getGeometries() != null) {
+				for (Geometry child : geometry.getGeometries()) {
+					index = add(child, id, index);
+				}
+			}
+			if (geometry.getCoordinates() != null) {
+				for (Coordinate coordinate : geometry.getCoordinates()) {
+					x[index] = coordinate.getX();
+					y[index] = coordinate.getY();
+					ids[index++] = id;
+				}
+			}
+		}
+		return index;
+	}
+}
@@ -0,0 +1,731 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.GeometryService;
+
+/**
+ * <p>
+ * Dynamic R*-tree, for entries that are inserted, moved and removed one at a time, such as the features of a layer
+ * that is being edited. The tree follows the R*-tree of Beckmann et al.: a new entry goes to the subtree that needs the
+ * least overlap enlargement, an overflowing node first reinserts the entries that are farthest from its center, once
+ * per level and insert, and is only split when that does not help. A split is made along the axis with the smallest sum
+ * of margins, at the distribution with the least overlap.
+ * </p>
+ * <p>
+ * Every entry has an id, which is a small non-negative number such as the index of a feature in a list, because the
+ * tree keeps an array from id to leaf to remove and move entries without searching. Queries pass the ids to an
+ * {@link IndexVisitor}. The tree is not thread-safe, and it should not be changed by a visitor during a query.
+ * </p>
+ * <p>
+ * When the geometry of an entry is edited, for example by changing the coordinates at a
+ * {@link org.geomajas.geometry.service.GeometryIndexService} index, {@link #update(int, Geometry)} moves the entry to
+ * the new bounds of the geometry.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class RStarTree {
+
+	/** The default maximum number of entries of a node. */
+	public static final int DEFAULT_MAX_ENTRIES = 16;
+
+	private static final double MIN_FILL = 0.4;
+
+	private static final double REINSERT_FILL = 0.3;
+
+	private final int maxEntries;
+
+	private final int minEntries;
+
+	private final int reinsertCount;
+
+	private Node root;
+
+	private int size;
+
+	// the leaf of every id, null if the id is not in the tree
+	private Node[] leaves = new Node[DEFAULT_MAX_ENTRIES];
+
+	// the levels at which a node has reinserted entries during the current insert
+	private boolean[] reinserted = new boolean[DEFAULT_MAX_ENTRIES];
+
+	/**
+	 * Create an empty tree with the default maximum number of entries per node.
+	 */
+	public RStarTree() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create an empty tree.
+	 *
+	 * @param maxEntries
+	 *            The maximum number of entries of a node, at least 4.
+	 */
+	public RStarTree(int maxEntries) {
+		if (maxEntries < 4) {
+			throw new IllegalArgumentException("Maximum number of entries should be at least 4");
+		}
+		this.maxEntries = maxEntries;
+		minEntries = Math.max(2, (int) (maxEntries * MIN_FILL));
+		reinsertCount = Math.max(1, (int) (maxEntries * REINSERT_FILL));
+		root = new Node(0, maxEntries);
+	}
+
+	/**
+	 * Get the number of entries in the tree.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the maximum number of entries of a node.
+	 *
+	 * @return maximum number of entries
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Is there an entry with the given id?
+	 *
+	 * @param id
+	 *            The id.
+	 * @return true if the id is in the tree
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < leaves.length && leaves[id] != null;
+	}
+
+	/**
+	 * Get the bounds of all entries.
+	 *
+	 * @return The bounds, or null if the tree is empty.
+	 */
+	public Bbox getBounds() {
+		if (size == 0) {
+			return null;
+		}
+		double[] bounds = new double[4];
+		union(root, bounds, 0);
+		return new Bbox(bounds[0], bounds[1], bounds[2] - bounds[0], bounds[3] - bounds[1]);
+	}
+
+	/**
+	 * Get the bounds of an entry.
+	 *
+	 * @param id
+	 *            The id of the entry.
+	 * @return The bounds, or null if the id is not in the tree.
+	 */
+	public Bbox getBounds(int id) {
+		if (!contains(id)) {
+			return null;
+		}
+		Node leaf = leaves[id];
+		int i = 4 * indexOf(leaf, id);
+		return new Bbox(leaf.bounds[i], leaf.bounds[i + 1], leaf.bounds[i + 2] - leaf.bounds[i], leaf.bounds[i + 3]
+				- leaf.bounds[i + 1]);
+	}
+
+	/**
+	 * Insert an entry.
+	 *
+	 * @param id
+	 *            The id of the entry, which should not be in the tree yet.
+	 * @param bounds
+	 *            The bounds of the entry.
+	 */
+	public void insert(int id, Bbox bounds) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Id should not be negative: " + id);
+		}
+		if (contains(id)) {
+			throw new IllegalArgumentException("Id is already in the tree: " + id);
+		}
+		if (id >= leaves.length) {
+			leaves = Arrays.copyOf(leaves, Math.max(id + 1, 2 * leaves.length));
+		}
+		Arrays.fill(reinserted, false);
+		insert(bounds.getX(), bounds.getY(), bounds.getMaxX(), bounds.getMaxY(), id, null, 0);
+		size++;
+	}
+
+	/**
+	 * Remove an entry.
+	 *
+	 * @param id
+	 *            The id of the entry.
+	 * @return true if the entry was removed, false if the id was not in the tree
+	 */
+	public boolean remove(int id) {
+		if (!contains(id)) {
+			return false;
+		}
+		Node leaf = leaves[id];
+		removeEntry(leaf, indexOf(leaf, id));
+		leaves[id] = null;
+		size--;
+		condense(leaf);
+		return true;
+	}
+
+	/**
+	 * Move an entry to new bounds. When the new bounds are within the bounds of the leaf of the entry, only the bounds
+	 * of the leaf and its parents are adjusted, otherwise the entry is removed and inserted again.
+	 *
+	 * @param id
+	 *            The id of the entry, which should be in the tree.
+	 * @param bounds
+	 *            The new bounds of the entry.
+	 */
+	public void move(int id, Bbox bounds) {
+		if (!contains(id)) {
+			throw new IllegalArgumentException("Id is not in the tree: " + id);
+		}
+		Node leaf = leaves[id];
+		int i = 4 * indexOf(leaf, id);
+		boolean inside = leaf == root;
+		if (!inside) {
+			double[] parentBounds = leaf.parent.bounds;
+			int j = 4 * indexOf(leaf.parent, leaf);
+			inside = parentBounds[j] <= bounds.getX() && parentBounds[j + 1] <= bounds.getY()
+					&& parentBounds[j + 2] >= bounds.getMaxX() && parentBounds[j + 3] >= bounds.getMaxY();
+		}
+		if (inside) {
+			leaf.bounds[i] = bounds.getX();
+			leaf.bounds[i + 1] = bounds.getY();
+			leaf.bounds[i + 2] = bounds.getMaxX();
+			leaf.bounds[i + 3] = bounds.getMaxY();
+			for (Node node = leaf; node != root; node = node.parent) {
+				refresh(node);
+			}
+		} else {
+			remove(id);
+			insert(id, bounds);
+		}
+	}
+
+	/**
+	 * Insert, move or remove the entry of a geometry, after the geometry has been created, edited or deleted. The
+	 * entry gets the bounds of the geometry, and is removed when the geometry is null or empty.
+	 *
+	 * @param id
+	 *            The id of the entry.
+	 * @param geometry
+	 *            The geometry, or null if it has been deleted.
+	 */
+	public void update(int id, Geometry geometry) {
+		Bbox bounds = geometry == null ? null : GeometryService.getBounds(geometry);
+		if (bounds == null) {
+			remove(id);
+		} else if (contains(id)) {
+			move(id, bounds);
+		} else {
+			insert(id, bounds);
+		}
+	}
+
+	/**
+	 * Find the entries with bounds that intersect a window. Entries that only touch the window are included.
+	 *
+	 * @param window
+	 *            The window.
+	 * @param visitor
+	 *            The visitor for the ids of the entries.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(Bbox window, IndexVisitor visitor) {
+		return query(root, window.getX(), window.getY(), window.getMaxX(), window.getMaxY(), visitor);
+	}
+
+	/**
+	 * Find the entries with bounds that contain a point, including the border.
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @param visitor
+	 *            The visitor for the ids of the entries.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(double x, double y, IndexVisitor visitor) {
+		return query(root, x, y, x, y, visitor);
+	}
+
+	/**
+	 * Find the ids of the entries with bounds that intersect a window.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The ids of the entries, in no particular order.
+	 */
+	public int[] query(Bbox window) {
+		IdCollector collector = new IdCollector(false);
+		query(window, collector);
+		return collector.toArray();
+	}
+
+	/**
+	 * Count the entries with bounds that intersect a window.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The number of entries.
+	 */
+	public int count(Bbox window) {
+		IdCollector counter = new IdCollector(true);
+		query(window, counter);
+		return counter.size();
+	}
+
+	/**
+	 * Find the entries that are nearest to a point, measured to their bounds. The distance to the bounds is never
+	 * larger than the distance to the geometry of an entry.
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @param k
+	 *            The maximum number of entries, should not be negative.
+	 * @return The ids of at most k entries, nearest first.
+	 */
+	public int[] nearest(double x, double y, int k) {
+		return nearest(x, y, k, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Find the entries that are nearest to a point and within a maximum distance, measured to their bounds.
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @param k
+	 *            The maximum number of entries, should not be negative.
+	 * @param maxDistance
+	 *            The maximum distance, inclusive.
+	 * @return The ids of at most k entries, nearest first.
+	 */
+	public int[] nearest(double x, double y, int k, double maxDistance) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Number of entries should not be negative: " + k);
+		}
+		int[] result = new int[Math.min(k, size)];
+		int count = 0;
+		double maxSquared = maxDistance * maxDistance;
+		NearestQueue queue = new NearestQueue();
+		queue.add(0, root, -1);
+		while (count < result.length && queue.poll() && queue.distance <= maxSquared) {
+			Node node = queue.node;
+			if (node == null) {
+				result[count++] = queue.id;
+			} else {
+				for (int i = 0; i < node.size; i++) {
+					double distance = distanceSquared(node.bounds, i, x, y);
+					if (distance <= maxSquared) {
+						if (node.level == 0) {
+							queue.add(distance, null, node.ids[i]);
+						} else {
+							queue.add(distance, node.children[i], -1);
+						}
+					}
+				}
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Insert an entry (id) or a child node (child) into a node at the given level, 0 being the leaves. */
+	private void insert(double minX, double minY, double maxX, double maxY, int id, Node child, int level) {
+		Node node = chooseSubtree(minX, minY, maxX, maxY, level);
+		add(node, minX, minY, maxX, maxY, id, child);
+		while (node != null) {
+			if (node.size > maxEntries) {
+				if (node != root && !reinserted[node.level]) {
+					reinserted[node.level] = true;
+					reinsert(node);
+					return;
+				}
+				Node sibling = split(node);
+				if (node == root) {
+					root = new Node(node.level + 1, maxEntries);
+					if (root.level >= reinserted.length) {
+						reinserted = Arrays.copyOf(reinserted, 2 * reinserted.length);
+					}
+					addNode(root, node);
+					addNode(root, sibling);
+					return;
+				}
+				refresh(node);
+				addNode(node.parent, sibling);
+			} else if (node != root) {
+				refresh(node);
+			}
+			node = node.parent;
+		}
+	}
+
+	/** Find the node at the given level that needs the least enlargement for new bounds. */
+	private Node chooseSubtree(double minX, double minY, double maxX, double maxY, int level) {
+		Node node = root;
+		while (node.level > level) {
+			double[] bounds = node.bounds;
+			int best = 0;
+			double bestOverlap = Double.POSITIVE_INFINITY;
+			double bestEnlargement = Double.POSITIVE_INFINITY;
+			double bestArea = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < node.size; i++) {
+				double x1 = Math.min(bounds[4 * i], minX);
+				double y1 = Math.min(bounds[4 * i + 1], minY);
+				double x2 = Math.max(bounds[4 * i + 2], maxX);
+				double y2 = Math.max(bounds[4 * i + 3], maxY);
+				double area = IndexHelper.area(bounds, i);
+				double enlargement = (x2 - x1) * (y2 - y1) - area;
+				double overlap = 0;
+				if (node.level == 1) {
+					// the children are leaves, minimize the overlap between them
+					for (int j = 0; j < node.size; j++) {
+						if (j != i) {
+							overlap += IndexHelper.overlap(bounds, j, x1, y1, x2, y2)
+									- IndexHelper.overlap(bounds, j, bounds[4 * i], bounds[4 * i + 1],
+											bounds[4 * i + 2], bounds[4 * i + 3]);
+						}
+					}
+				}
+				if (overlap < bestOverlap || (overlap == bestOverlap && (enlargement < bestEnlargement
+						|| (enlargement == bestEnlargement && area < bestArea)))) {
+					best = i;
+					bestOverlap = overlap;
+					bestEnlargement = enlargement;
+					bestArea = area;
+				}
+			}
+			node = node.children[best];
+		}
+		return node;
+	}
+
+	/** Remove the entries that are farthest from the center of an overflowing node and insert them again. */
+	private void reinsert(Node node) {
+		int n = node.size;
+		double[] center = new double[4];
+		union(node, center, 0);
+		double centerX = (center[0] + center[2]) / 2;
+		double centerY = (center[1] + center[3]) / 2;
+		int[] order = new int[n];
+		double[] distances = new double[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			double dx = (node.bounds[4 * i] + node.bounds[4 * i + 2]) / 2 - centerX;
+			double dy = (node.bounds[4 * i + 1] + node.bounds[4 * i + 3]) / 2 - centerY;
+			distances[i] = dx * dx + dy * dy;
+		}
+		IndexHelper.sort(order, distances, 0, n);
+		double[] bounds = node.bounds.clone();
+		int[] ids = node.ids == null ? null : node.ids.clone();
+		Node[] children = node.children == null ? null : node.children.clone();
+		int keep = n - reinsertCount;
+		node.size = 0;
+		for (int i = 0; i < keep; i++) {
+			copy(bounds, ids, children, order[i], node);
+		}
+		for (Node parent = node; parent != root; parent = parent.parent) {
+			refresh(parent);
+		}
+		// close reinsert: the nearest of the removed entries goes first
+		for (int i = keep; i < n; i++) {
+			int j = order[i];
+			insert(bounds[4 * j], bounds[4 * j + 1], bounds[4 * j + 2], bounds[4 * j + 3], ids == null ? -1 : ids[j],
+					children == null ? null : children[j], node.level);
+		}
+	}
+
+	/** Split an overflowing node, keeping the first group of entries and returning a new node with the second. */
+	private Node split(Node node) {
+		int n = node.size;
+		int[] order = new int[n];
+		int split = IndexHelper.split(node.bounds, n, minEntries, order);
+		double[] bounds = node.bounds.clone();
+		int[] ids = node.ids == null ? null : node.ids.clone();
+		Node[] children = node.children == null ? null : node.children.clone();
+		Node sibling = new Node(node.level, maxEntries);
+		node.size = 0;
+		for (int i = 0; i < n; i++) {
+			copy(bounds, ids, children, order[i], i < split ? node : sibling);
+		}
+		return sibling;
+	}
+
+	/** Remove nodes that have too few entries after a removal, and insert their entries again. */
+	private void condense(Node leaf) {
+		List<Node> orphans = new ArrayList<Node>();
+		Node node = leaf;
+		while (node != root) {
+			Node parent = node.parent;
+			if (node.size < minEntries) {
+				removeEntry(parent, indexOf(parent, node));
+				orphans.add(node);
+			} else {
+				refresh(node);
+			}
+			node = parent;
+		}
+		for (Node orphan : orphans) {
+			double[] bounds = orphan.bounds;
+			for (int i = 0; i < orphan.size; i++) {
+				Arrays.fill(reinserted, false);
+				insert(bounds[4 * i], bounds[4 * i + 1], bounds[4 * i + 2], bounds[4 * i + 3],
+						orphan.ids == null ? -1 : orphan.ids[i], orphan.children == null ? null : orphan.children[i],
+						orphan.level);
+			}
+		}
+		while (root.level > 0 && root.size == 1) {
+			root = root.children[0];
+			root.parent = null;
+		}
+	}
+
+	private boolean query(Node node, double minX, double minY, double maxX, double maxY, IndexVisitor visitor) {
+		double[] bounds = node.bounds;
+		for (int i = 0; i < node.size; i++) {
+			if (bounds[4 * i] <= maxX && bounds[4 * i + 1] <= maxY && bounds[4 * i + 2] >= minX
+					&& bounds[4 * i + 3] >= minY) {
+				if (node.level == 0) {
+					if (!visitor.visit(node.ids[i])) {
+						return false;
+					}
+				} else if (!query(node.children[i], minX, minY, maxX, maxY, visitor)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Add an entry (id) or a child node (child) to a node. */
+	private void add(Node node, double minX, double minY, double maxX, double maxY, int id, Node child) {
+		int i = node.size++;
+		node.bounds[4 * i] = minX;
+		node.bounds[4 * i + 1] = minY;
+		node.bounds[4 * i + 2] = maxX;
+		node.bounds[4 * i + 3] = maxY;
+		if (child != null) {
+			node.children[i] = child;
+			child.parent = node;
+		} else {
+			node.ids[i] = id;
+			leaves[id] = node;
+		}
+	}
+
+	private void addNode(Node node, Node child) {
+		double[] bounds = new double[4];
+		union(child, bounds, 0);
+		add(node, bounds[0], bounds[1], bounds[2], bounds[3], -1, child);
+	}
+
+	private void copy(double[] bounds, int[] ids, Node[] children, int index, Node target) {
+		add(target, bounds[4 * index], bounds[4 * index + 1], bounds[4 * index + 2], bounds[4 * index + 3],
+				ids == null ? -1 : ids[index], children == null ? null : children[index]);
+	}
+
+	/** Remove an entry from a node, by moving the last entry in its place. */
+	private static void removeEntry(Node node, int index) {
+		int last = --node.size;
+		System.arraycopy(node.bounds, 4 * last, node.bounds, 4 * index, 4);
+		if (node.children != null) {
+			node.children[index] = node.children[last];
+			node.children[last] = null;
+		} else {
+			node.ids[index] = node.ids[last];
+		}
+	}
+
+	/** Set the bounds of a node in its parent to the union of its entries. */
+	private static void refresh(Node node) {
+		union(node, node.parent.bounds, 4 * indexOf(node.parent, node));
+	}
+
+	private static void union(Node node, double[] target, int offset) {
+		double[] bounds = node.bounds;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < node.size; i++) {
+			minX = Math.min(minX, bounds[4 * i]);
+			minY = Math.min(minY, bounds[4 * i + 1]);
+			maxX = Math.max(maxX, bounds[4 * i + 2]);
+			maxY = Math.max(maxY, bounds[4 * i + 3]);
+		}
+		target[offset] = minX;
+		target[offset + 1] = minY;
+		target[offset + 2] = maxX;
+		target[offset + 3] = maxY;
+	}
+
+	private static int indexOf(Node node, int id) {
+		int i = 0;
+		while (node.ids[i] != id) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int indexOf(Node node, Node child) {
+		int i = 0;
+		while (node.children[i] != child) {
+			i++;
+		}
+		return i;
+	}
+
+	private static double distanceSquared(double[] bounds, int i, double x, double y) {
+		double dx = Math.max(Math.max(bounds[4 * i] - x, x - bounds[4 * i + 2]), 0);
+		double dy = Math.max(Math.max(bounds[4 * i + 1] - y, y - bounds[4 * i + 3]), 0);
+		return dx * dx + dy * dy;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Node of the tree. The bounds of the entries are stored in the node, so a query only looks at the children that
+	 * intersect the window.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Node {
+
+		// 0 for a leaf
+		private final int level;
+
+		private Node parent;
+
+		private int size;
+
+		// bounds (minX, minY, maxX, maxY) of the entries, with room for one entry of overflow
+		private final double[] bounds;
+
+		private final int[] ids;
+
+		private final Node[] children;
+
+		private Node(int level, int maxEntries) {
+			this.level = level;
+			bounds = new double[4 * (maxEntries + 1)];
+			ids = level == 0 ? new int[maxEntries + 1] : null;
+			children = level == 0 ? null : new Node[maxEntries + 1];
+		}
+	}
+
+	/**
+	 * Binary min-heap of nodes and entries on their squared distance to a point, for the nearest neighbour search. An
+	 * entry has a null node.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class NearestQueue {
+
+		private double[] distances = new double[DEFAULT_MAX_ENTRIES];
+
+		private Node[] nodes = new Node[DEFAULT_MAX_ENTRIES];
+
+		private int[] ids = new int[DEFAULT_MAX_ENTRIES];
+
+		private int size;
+
+		// the last polled element
+		private double distance;
+
+		private Node node;
+
+		private int id;
+
+		private void add(double distance, Node node, int id) {
+			if (size == distances.length) {
+				distances = Arrays.copyOf(distances, 2 * size);
+				nodes = Arrays.copyOf(nodes, 2 * size);
+				ids = Arrays.copyOf(ids, 2 * size);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (distances[parent] <= distance) {
+					break;
+				}
+				set(i, distances[parent], nodes[parent], ids[parent]);
+				i = parent;
+			}
+			set(i, distance, node, id);
+		}
+
+		private boolean poll() {
+			if (size == 0) {
+				return false;
+			}
+			distance = distances[0];
+			node = nodes[0];
+			id = ids[0];
+			int last = --size;
+			double lastDistance = distances[last];
+			Node lastNode = nodes[last];
+			int lastId = ids[last];
+			nodes[last] = null;
+			int i = 0;
+			int child = 1;
+			while (child < size) {
+				if (child + 1 < size && distances[child + 1] < distances[child]) {
+					child++;
+				}
+				if (lastDistance <= distances[child]) {
+					break;
+				}
+				set(i, distances[child], nodes[child], ids[child]);
+				i = child;
+				child = 2 * i + 1;
+			}
+			if (size > 0) {
+				set(i, lastDistance, lastNode, lastId);
+			}
+			return true;
+		}
+
+		private void set(int i, double distance, Node node, int id) {
+			distances[i] = distance;
+			nodes[i] = node;
+			ids[i] = id;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Static R-tree that is bulk loaded with the Sort-Tile-Recursive (STR) algorithm. The entries are sorted on the x
+ * coordinate of their center, cut into vertical slices, and every slice is sorted on the y coordinate and packed into
+ * full nodes. The same is done for every level of nodes, up to the root.
+ * </p>
+ * <p>
+ * The tree is stored in flat primitive arrays, and queries pass the ids of the matching entries to an
+ * {@link IndexVisitor}, so a query does not create any objects for its results. The id of an entry is its index in the
+ * array from which the tree is built. The tree can not be changed after it is built, so it can be queried by any number
+ * of threads at the same time.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class StrTree {
+
+	/** The default maximum number of children of a node. */
+	public static final int DEFAULT_NODE_CAPACITY = 16;
+
+	private final int nodeCapacity;
+
+	// bounds (minX, minY, maxX, maxY) and id of the entries, in the order of the leaves
+	private final double[] entryBounds;
+
+	private final int[] entryIds;
+
+	// bounds and children of the nodes, the leaves first and the root last
+	private final double[] nodeBounds;
+
+	private final int[] nodeFirst;
+
+	private final int[] nodeCount;
+
+	private final int numLeaves;
+
+	private final int root;
+
+	/**
+	 * Build a tree with the default node capacity.
+	 *
+	 * @param bounds
+	 *            The bounds of the entries, null entries are left out.
+	 */
+	public StrTree(Bbox[] bounds) {
+		this(bounds, DEFAULT_NODE_CAPACITY);
+	}
+
+	/**
+	 * Build a tree for the bounds of geometries, with the default node capacity.
+	 *
+	 * @param geometries
+	 *            The geometries, null and empty geometries are left out.
+	 */
+	public StrTree(Geometry[] geometries) {
+		this(IndexHelper.getBounds(geometries), DEFAULT_NODE_CAPACITY);
+	}
+
+	/**
+	 * Build a tree.
+	 *
+	 * @param bounds
+	 *            The bounds of the entries, null entries are left out.
+	 * @param nodeCapacity
+	 *            The maximum number of children of a node, at least 2.
+	 */
+	public StrTree(Bbox[] bounds, int nodeCapacity) {
+		if (nodeCapacity < 2) {
+			throw new IllegalArgumentException("Node capacity should be at least 2");
+		}
+		this.nodeCapacity = nodeCapacity;
+		int size = 0;
+		for (Bbox bbox : bounds) {
+			if (bbox != null) {
+				size++;
+			}
+		}
+		double[] unsorted = new double[4 * size];
+		int[] ids = new int[size];
+		int index = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			if (bounds[i] != null) {
+				unsorted[4 * index] = bounds[i].getX();
+				unsorted[4 * index + 1] = bounds[i].getY();
+				unsorted[4 * index + 2] = bounds[i].getMaxX();
+				unsorted[4 * index + 3] = bounds[i].getMaxY();
+				ids[index++] = i;
+			}
+		}
+		int[] order = getStrOrder(unsorted, size);
+		entryBounds = new double[4 * size];
+		entryIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(unsorted, 4 * order[i], entryBounds, 4 * i, 4);
+			entryIds[i] = ids[order[i]];
+		}
+
+		int maxNodes = 0;
+		int n = size;
+		while (n > 0) {
+			n = (n + nodeCapacity - 1) / nodeCapacity;
+			maxNodes += n;
+			n = n == 1 ? 0 : n;
+		}
+		nodeBounds = new double[4 * maxNodes];
+		nodeFirst = new int[maxNodes];
+		nodeCount = new int[maxNodes];
+		if (size == 0) {
+			numLeaves = 0;
+			root = -1;
+			return;
+		}
+		int numNodes = 0;
+		double[] children = entryBounds;
+		int childStart = 0;
+		int numChildren = size;
+		int leaves = -1;
+		while (true) {
+			int numParents = (numChildren + nodeCapacity - 1) / nodeCapacity;
+			double[] parentBounds = new double[4 * numParents];
+			int[] parentFirst = new int[numParents];
+			int[] parentCount = new int[numParents];
+			for (int i = 0; i < numParents; i++) {
+				int first = childStart + i * nodeCapacity;
+				int count = Math.min(nodeCapacity, childStart + numChildren - first);
+				parentFirst[i] = first;
+				parentCount[i] = count;
+				System.arraycopy(children, 4 * first, parentBounds, 4 * i, 4);
+				for (int j = first + 1; j < first + count; j++) {
+					parentBounds[4 * i] = Math.min(parentBounds[4 * i], children[4 * j]);
+					parentBounds[4 * i + 1] = Math.min(parentBounds[4 * i + 1], children[4 * j + 1]);
+					parentBounds[4 * i + 2] = Math.max(parentBounds[4 * i + 2], children[4 * j + 2]);
+					parentBounds[4 * i + 3] = Math.max(parentBounds[4 * i + 3], children[4 * j + 3]);
+				}
+			}
+			// the new level is sorted in turn, before it is grouped into parents
+			int[] parentOrder = numParents == 1 ? new int[1] : getStrOrder(parentBounds, numParents);
+			childStart = numNodes;
+			for (int i = 0; i < numParents; i++) {
+				int parent = parentOrder[i];
+				System.arraycopy(parentBounds, 4 * parent, nodeBounds, 4 * numNodes, 4);
+				nodeFirst[numNodes] = parentFirst[parent];
+				nodeCount[numNodes] = parentCount[parent];
+				numNodes++;
+			}
+			if (leaves < 0) {
+				leaves = numNodes;
+			}
+			if (numParents == 1) {
+				break;
+			}
+			children = nodeBounds;
+			numChildren = numParents;
+		}
+		numLeaves = leaves;
+		root = numNodes - 1;
+	}
+
+	/**
+	 * Get the number of entries in the tree.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return entryIds.length;
+	}
+
+	/**
+	 * Get the maximum number of children of a node.
+	 *
+	 * @return node capacity
+	 */
+	public int getNodeCapacity() {
+		return nodeCapacity;
+	}
+
+	/**
+	 * Get the bounds of all entries.
+	 *
+	 * @return The bounds, or null if the tree is empty.
+	 */
+	public Bbox getBounds() {
+		if (root < 0) {
+			return null;
+		}
+		return new Bbox(nodeBounds[4 * root], nodeBounds[4 * root + 1], nodeBounds[4 * root + 2]
+				- nodeBounds[4 * root], nodeBounds[4 * root + 3] - nodeBounds[4 * root + 1]);
+	}
+
+	/**
+	 * Find the entries with bounds that intersect a window. Entries that only touch the window are included.
+	 *
+	 * @param window
+	 *            The window.
+	 * @param visitor
+	 *            The visitor for the ids of the entries.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(Bbox window, IndexVisitor visitor) {
+		return query(window.getX(), window.getY(), window.getMaxX(), window.getMaxY(), visitor);
+	}
+
+	/**
+	 * Find the entries with bounds that contain a point, including the border.
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @param visitor
+	 *            The visitor for the ids of the entries.
+	 * @return false if the visitor stopped the query, true otherwise
+	 */
+	public boolean query(double x, double y, IndexVisitor visitor) {
+		return query(x, y, x, y, visitor);
+	}
+
+	/**
+	 * Find the ids of the entries with bounds that intersect a window.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The ids of the entries, in no particular order.
+	 */
+	public int[] query(Bbox window) {
+		IdCollector collector = new IdCollector(false);
+		query(window, collector);
+		return collector.toArray();
+	}
+
+	/**
+	 * Count the entries with bounds that intersect a window.
+	 *
+	 * @param window
+	 *            The window.
+	 * @return The number of entries.
+	 */
+	public int count(Bbox window) {
+		IdCollector counter = new IdCollector(true);
+		query(window, counter);
+		return counter.size();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private boolean query(double minX, double minY, double maxX, double maxY, IndexVisitor visitor) {
+		if (root < 0 || !intersects(nodeBounds, root, minX, minY, maxX, maxY)) {
+			return true;
+		}
+		return query(root, minX, minY, maxX, maxY, visitor);
+	}
+
+	/** Query the children of a node that intersects the window. */
+	private boolean query(int node, double minX, double minY, double maxX, double maxY, IndexVisitor visitor) {
+		int first = nodeFirst[node];
+		int end = first + nodeCount[node];
+		if (node < numLeaves) {
+			for (int i = first; i < end; i++) {
+				if (intersects(entryBounds, i, minX, minY, maxX, maxY) && !visitor.visit(entryIds[i])) {
+					return false;
+				}
+			}
+		} else {
+			for (int i = first; i < end; i++) {
+				if (intersects(nodeBounds, i, minX, minY, maxX, maxY) && !query(i, minX, minY, maxX, maxY, visitor)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean intersects(double[] bounds, int index, double minX, double minY, double maxX,
+			double maxY) {
+		return bounds[4 * index] <= maxX && bounds[4 * index + 1] <= maxY && bounds[4 * index + 2] >= minX
+				&& bounds[4 * index + 3] >= minY;
+	}
+
+	/** Get the STR order of boxes: sorted on x in vertical slices, and on y within every slice. */
+	private int[] getStrOrder(double[] bounds, int size) {
+		int[] order = new int[size];
+		double[] centerX = new double[size];
+		double[] centerY = new double[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			centerX[i] = (bounds[4 * i] + bounds[4 * i + 2]) / 2;
+			centerY[i] = (bounds[4 * i + 1] + bounds[4 * i + 3]) / 2;
+		}
+		int numParents = (size + nodeCapacity - 1) / nodeCapacity;
+		int numSlices = (int) Math.ceil(Math.sqrt(numParents));
+		int sliceSize = numSlices * nodeCapacity;
+		IndexHelper.sort(order, centerX, 0, size);
+		for (int start = 0; start < size; start += sliceSize) {
+			IndexHelper.sort(order, centerY, start, Math.min(start + sliceSize, size));
+		}
+		return order;
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * Fast formatting and parsing of doubles, with the same result as {@link Double#toString(double)} and
+ * {@link Double#parseDouble(String)}. Most coordinates have only a
+ * few decimals: such values are written digit by digit, without creating intermediate strings. All other values are
+ * delegated to {@link Double#toString(double)}.
+ * </p>
+ * <p>
+ * A value is written directly when it is in the range where {@link Double#toString(double)} uses plain notation, and
+ * it is exactly equal to (the double nearest to) an integer of at most 15 digits divided by a power of ten. Decimals of
+ * at most 15 significant digits convert to distinct doubles, so these digits are the shortest representation of the
+ * value.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ */
+final class DoubleFormat {
+
+	/** Maximum number of decimals that is tried for the fast path. */
+	static final int MAX_DECIMALS = 9;
+
+	private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+
+	private static final long MAX_DIGITS = 1000000000000000L;
+
+	// range in which Double.toString() does not use scientific notation
+	private static final double MIN_PLAIN = 1e-3;
+
+	private static final double MAX_PLAIN = 1e7;
+
+	private static final int BASE = 10;
+
+	// powers of ten that can be represented exactly as a double
+	private static final double[] EXACT_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// largest mantissa that can be represented exactly as a double
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = BASE * POWERS_OF_TEN[i - 1];
+		}
+	}
+
+	private DoubleFormat() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Append a double, formatted like {@link Double#toString(double)}.
+	 *
+	 * @param value
+	 *            value to write
+	 * @param decimals
+	 *            the expected number of decimals, which is tried first (e.g. the precision of the geometry)
+	 * @param out
+	 *            output
+	 * @throws IOException
+	 *             in case appending to the output fails
+	 */
+	static void append(double value, int decimals, Appendable out) throws IOException {
+		double abs = Math.abs(value);
+		if (abs >= MIN_PLAIN && abs < MAX_PLAIN) {
+			if (decimals >= 0 && decimals <= MAX_DECIMALS && appendExact(value, decimals, out)) {
+				return;
+			}
+			for (int i = 0; i <= MAX_DECIMALS; i++) {
+				if (i != decimals && appendExact(value, i, out)) {
+					return;
+				}
+			}
+		} else if (value == 0) {
+			// positive or negative zero
+			out.append(Double.doubleToRawLongBits(value) == 0 ? "0.0" : "-0.0");
+			return;
+		}
+		out.append(Double.toString(value));
+	}
+
+	/**
+	 * Round a value to a number of decimals, in the same way as a fixed precision model (rounding half up).
+	 *
+	 * @param value
+	 *            value
+	 * @param decimals
+	 *            number of decimals, no rounding is done if negative
+	 * @return rounded value
+	 */
+	static double round(double value, int decimals) {
+		if (decimals < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+			return value;
+		}
+		double scale = Math.pow(BASE, decimals);
+		double scaled = value * scale;
+		if (Math.abs(scaled) >= Long.MAX_VALUE) {
+			return value;
+		}
+		return Math.round(scaled) / scale;
+	}
+
+	/**
+	 * Parse a number in place. Plain decimal numbers of which the digits fit in 53 bits are converted exactly, as a
+	 * single multiplication or division by an exact power of ten is correctly rounded. All other numbers (long
+	 * mantissas, large exponents, NaN, hexadecimal notation, ...) are parsed by {@link Double#parseDouble(String)}.
+	 *
+	 * @param chars
+	 *            characters that contain the number
+	 * @param from
+	 *            start index of the number (inclusive)
+	 * @param to
+	 *            end index of the number (exclusive)
+	 * @return the value
+	 * @throws NumberFormatException
+	 *             if the characters are not a number
+	 */
+	static double parse(CharSequence chars, int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && chars.charAt(i) == '-') {
+			negative = true;
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		for (; i < to; i++) {
+			char c = chars.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > MAX_MANTISSA_DIGITS) {
+					return parseSlow(chars, from, to);
+				}
+				mantissa = BASE * mantissa + (c - '0');
+				if (point) {
+					scale--;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			return parseSlow(chars, from, to);
+		}
+		if (i < to && (chars.charAt(i) == 'e' || chars.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+				negativeExponent = chars.charAt(i) == '-';
+				i++;
+			}
+			int exponent = 0;
+			int exponentStart = i;
+			for (; i < to && chars.charAt(i) >= '0' && chars.charAt(i) <= '9'; i++) {
+				if (exponent > EXACT_POWERS_OF_TEN.length) {
+					return parseSlow(chars, from, to);
+				}
+				exponent = BASE * exponent + (chars.charAt(i) - '0');
+			}
+			if (i == exponentStart) {
+				return parseSlow(chars, from, to);
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if (i < to || mantissa > MAX_EXACT_MANTISSA || Math.abs(scale) >= EXACT_POWERS_OF_TEN.length) {
+			return parseSlow(chars, from, to);
+		}
+		double value = scale < 0 ? mantissa / EXACT_POWERS_OF_TEN[-scale] : mantissa * EXACT_POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static boolean appendExact(double value, int decimals, Appendable out) throws IOException {
+		long power = POWERS_OF_TEN[decimals];
+		double scaled = Math.rint(Math.abs(value) * power);
+		if (scaled >= MAX_DIGITS || scaled / power != Math.abs(value)) {
+			return false;
+		}
+		long digits = (long) scaled;
+		if (value < 0) {
+			out.append('-');
+		}
+		appendLong(digits / power, out);
+		out.append('.');
+		long fraction = digits % power;
+		if (fraction == 0) {
+			out.append('0');
+		} else {
+			int length = decimals;
+			while (fraction % BASE == 0) {
+				fraction /= BASE;
+				length--;
+			}
+			for (int i = length - 1; i >= 0; i--) {
+				out.append((char) ('0' + (fraction / POWERS_OF_TEN[i]) % BASE));
+			}
+		}
+		return true;
+	}
+
+	private static double parseSlow(CharSequence chars, int from, int to) {
+		return Double.parseDouble(chars.subSequence(from, to).toString());
+	}
+
+	private static void appendLong(long value, Appendable out) throws IOException {
+		if (value >= BASE) {
+			appendLong(value / BASE, out);
+		}
+		out.append((char) ('0' + value % BASE));
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Streaming reader for the geometries of a GeoJSON feature collection. The features are parsed one by one while
+ * iterating, so no more than one geometry is held in memory, however large the collection is. The properties of the
+ * features are skipped.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * GeoJsonFeatureReader features = new GeoJsonFeatureReader(reader);
+ * while (features.hasNext()) {
+ * 	Geometry geometry = features.next();
+ * }
+ * </pre>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class GeoJsonFeatureReader {
+
+	private static final String FEATURE_COLLECTION = "FeatureCollection";
+
+	private final JsonReader reader;
+
+	private boolean done;
+
+	/**
+	 * Create a reader for a feature collection. The reader is positioned at the first feature, the members before
+	 * the "features" array are skipped.
+	 *
+	 * @param reader
+	 *            The reader to parse. It is read until the end, but it is not closed.
+	 * @throws GeoJsonException
+	 *             In case the input is not a feature collection.
+	 */
+	public GeoJsonFeatureReader(Reader reader) throws GeoJsonException {
+		if (reader == null) {
+			throw new GeoJsonException("Error while parsing GeoJSON: illegal argument; no reader");
+		}
+		this.reader = new JsonReader(reader);
+		this.reader.beginObject();
+		while (this.reader.hasNext()) {
+			String name = this.reader.nextName();
+			if ("features".equals(name)) {
+				this.reader.beginArray();
+				return;
+			} else if ("type".equals(name)) {
+				String type = this.reader.nextString();
+				if (!FEATURE_COLLECTION.equals(type)) {
+					throw this.reader.error("expected a " + FEATURE_COLLECTION + " instead of " + type);
+				}
+			} else {
+				this.reader.skipValue();
+			}
+		}
+		throw this.reader.error("missing features");
+	}
+
+	/**
+	 * Are there more features? When the last feature has been read, the rest of the input is checked.
+	 *
+	 * @return true if there are more features
+	 * @throws GeoJsonException
+	 *             In case something went wrong while parsing.
+	 */
+	public boolean hasNext() throws GeoJsonException {
+		if (done) {
+			return false;
+		}
+		if (reader.hasNext()) {
+			return true;
+		}
+		reader.endArray();
+		while (reader.hasNext()) {
+			reader.nextName();
+			reader.skipValue();
+		}
+		reader.endObject();
+		reader.endDocument();
+		done = true;
+		return false;
+	}
+
+	/**
+	 * Read the geometry of the next feature.
+	 *
+	 * @return The geometry, or null if the feature has no geometry.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while parsing.
+	 * @throws NoSuchElementException
+	 *             When there are no more features.
+	 */
+	public Geometry next() throws GeoJsonException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Geometry geometry = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if ("geometry".equals(reader.nextName())) {
+				geometry = GeoJsonService.readGeometry(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return geometry;
+	}
+}
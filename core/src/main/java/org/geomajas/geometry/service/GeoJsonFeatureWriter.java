@@ -0,0 +1,127 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Streaming writer for a GeoJSON feature collection. Every geometry is written as a feature (without properties) as
+ * soon as it is passed, so no geometry is held in memory. Call {@link #finish()} to close the collection.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * GeoJsonFeatureWriter features = new GeoJsonFeatureWriter(writer);
+ * for (Geometry geometry : geometries) {
+ * 	features.write(geometry);
+ * }
+ * features.finish();
+ * </pre>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class GeoJsonFeatureWriter {
+
+	private static final String ERR_MSG_WRITE = "Error while writing GeoJSON: ";
+
+	private final Appendable out;
+
+	private final StringBuilder feature = new StringBuilder();
+
+	private int count;
+
+	private boolean finished;
+
+	/**
+	 * Create a writer for a feature collection and write the start of the collection. When writing to an unbuffered
+	 * stream, wrap it in a {@link java.io.BufferedWriter}.
+	 *
+	 * @param out
+	 *            The output to write to.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while writing.
+	 */
+	public GeoJsonFeatureWriter(Appendable out) throws GeoJsonException {
+		this.out = out;
+		try {
+			out.append("{\"type\":\"FeatureCollection\",\"features\":[");
+		} catch (IOException e) {
+			throw new GeoJsonException(ERR_MSG_WRITE + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Write a feature with the given geometry. The feature is formatted completely before it is written, so nothing is
+	 * written when the geometry can not be formatted.
+	 *
+	 * @param geometry
+	 *            The geometry of the feature, or null for a feature without geometry.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while formatting or writing.
+	 */
+	public void write(Geometry geometry) throws GeoJsonException {
+		if (finished) {
+			throw new GeoJsonException(ERR_MSG_WRITE + "the feature collection has been finished");
+		}
+		try {
+			feature.setLength(0);
+			if (count > 0) {
+				feature.append(',');
+			}
+			feature.append("{\"type\":\"Feature\",\"geometry\":");
+			if (geometry == null) {
+				feature.append("null");
+			} else {
+				GeoJsonService.writeGeometry(geometry, feature);
+			}
+			feature.append(",\"properties\":{}}");
+			out.append(feature);
+			count++;
+		} catch (IOException e) {
+			throw new GeoJsonException(ERR_MSG_WRITE + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Write the end of the feature collection. The output is not closed.
+	 *
+	 * @throws GeoJsonException
+	 *             In case something went wrong while writing.
+	 */
+	public void finish() throws GeoJsonException {
+		if (!finished) {
+			finished = true;
+			try {
+				out.append("]}");
+			} catch (IOException e) {
+				throw new GeoJsonException(ERR_MSG_WRITE + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of features that have been written.
+	 *
+	 * @return number of features
+	 */
+	public int getCount() {
+		return count;
+	}
+}
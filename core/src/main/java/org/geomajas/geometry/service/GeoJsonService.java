@@ -0,0 +1,398 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * General service for GeoJSON to and from geometry conversion, without dependencies on a JSON library. Geometries are
+ * read with a pull parser, directly from a {@link Reader} or a string, and written to an {@link Appendable}. To stream
+ * feature collections, use the {@link GeoJsonFeatureReader} and {@link GeoJsonFeatureWriter}.
+ * </p>
+ * <p>
+ * All geometry types are supported, except for geometry collections. Linear rings are written as line strings. GeoJSON
+ * has no SRID, so the SRID of parsed geometries is 0 (and the precision is 0, as for WKT). Extra members (such as
+ * "bbox") and extra dimensions of a position are ignored while reading.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class GeoJsonService {
+
+	private static final String ERR_MSG = "Error while parsing GeoJSON: ";
+
+	private static final String ERR_MSG_WRITE = "Error while writing GeoJSON: ";
+
+	private static final String TYPE = "type";
+
+	private static final String COORDINATES = "coordinates";
+
+	private GeoJsonService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Parses a GeoJSON geometry object, such as {"type":"Point","coordinates":[1,2]}.
+	 *
+	 * @param geoJson
+	 *            The GeoJSON to parse.
+	 * @return The resulting geometry.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while parsing.
+	 */
+	public static Geometry toGeometry(String geoJson) throws GeoJsonException {
+		if (geoJson == null) {
+			throw new GeoJsonException(ERR_MSG + "illegal argument; no GeoJSON");
+		}
+		return toGeometry(new JsonReader(geoJson));
+	}
+
+	/**
+	 * Parses a GeoJSON geometry object from a reader. The reader is read until the end, but it is not closed.
+	 *
+	 * @param reader
+	 *            The reader to parse.
+	 * @return The resulting geometry.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while reading or parsing.
+	 */
+	public static Geometry toGeometry(Reader reader) throws GeoJsonException {
+		if (reader == null) {
+			throw new GeoJsonException(ERR_MSG + "illegal argument; no reader");
+		}
+		return toGeometry(new JsonReader(reader));
+	}
+
+	/**
+	 * Format a given geometry to a GeoJSON geometry object.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @return The GeoJSON.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while formatting.
+	 */
+	public static String toGeoJson(Geometry geometry) throws GeoJsonException {
+		StringBuilder builder = new StringBuilder();
+		toGeoJson(geometry, builder);
+		return builder.toString();
+	}
+
+	/**
+	 * Write a given geometry as a GeoJSON geometry object to an {@link Appendable}, such as a {@link StringBuilder} or
+	 * a {@link java.io.Writer}. When writing to an unbuffered stream, wrap it in a {@link java.io.BufferedWriter}.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param out
+	 *            The output to write to.
+	 * @throws GeoJsonException
+	 *             In case something went wrong while formatting or writing.
+	 */
+	public static void toGeoJson(Geometry geometry, Appendable out) throws GeoJsonException {
+		if (geometry == null) {
+			throw new GeoJsonException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		try {
+			writeGeometry(geometry, out);
+		} catch (IOException e) {
+			throw new GeoJsonException(ERR_MSG_WRITE + e.getMessage(), e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Package visible methods for the feature reader and writer:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Read a geometry object, or null.
+	 *
+	 * @param reader
+	 *            the JSON reader, positioned before the geometry
+	 * @return geometry or null
+	 * @throws GeoJsonException
+	 *             In case something went wrong while parsing.
+	 */
+	static Geometry readGeometry(JsonReader reader) throws GeoJsonException {
+		if (reader.isNull()) {
+			reader.nextLiteral("null");
+			return null;
+		}
+		String type = null;
+		Object coordinates = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (TYPE.equals(name)) {
+				type = reader.nextString();
+			} else if (COORDINATES.equals(name)) {
+				// the type may come after the coordinates, so the nesting is kept as is
+				coordinates = readCoordinates(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (type == null) {
+			throw reader.error("missing geometry type");
+		}
+		if (!isSupported(type)) {
+			throw reader.error("type of geometry not supported (" + type + ")");
+		}
+		if (coordinates == null) {
+			throw reader.error("missing coordinates for " + type);
+		}
+		Geometry geometry = createGeometry(type, coordinates);
+		if (geometry == null) {
+			throw reader.error("invalid coordinates for " + type);
+		}
+		return geometry;
+	}
+
+	/**
+	 * Write a geometry object.
+	 *
+	 * @param geometry
+	 *            geometry
+	 * @param out
+	 *            output
+	 * @throws GeoJsonException
+	 *             In case the geometry can not be formatted.
+	 * @throws IOException
+	 *             In case something went wrong while writing.
+	 */
+	static void writeGeometry(Geometry geometry, Appendable out) throws GeoJsonException, IOException {
+		String type = geometry.getGeometryType();
+		if (Geometry.LINEAR_RING.equals(type)) {
+			type = Geometry.LINE_STRING;
+		} else if (!isSupported(type)) {
+			throw new GeoJsonException(ERR_MSG_WRITE + "type of geometry not supported (" + type + ")");
+		}
+		out.append("{\"type\":\"").append(type).append("\",\"coordinates\":");
+		if (Geometry.POINT.equals(type)) {
+			if (isEmpty(geometry.getCoordinates())) {
+				out.append("[]");
+			} else {
+				writeCoordinate(geometry.getCoordinates()[0], geometry.getPrecision(), out);
+			}
+		} else if (Geometry.LINE_STRING.equals(type)) {
+			writeCoordinates(geometry, out);
+		} else if (Geometry.POLYGON.equals(type) || Geometry.MULTI_LINE_STRING.equals(type)) {
+			out.append('[');
+			for (int i = 0; i < getNumGeometries(geometry); i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				writeCoordinates(geometry.getGeometries()[i], out);
+			}
+			out.append(']');
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			out.append('[');
+			int count = 0;
+			for (int i = 0; i < getNumGeometries(geometry); i++) {
+				Geometry point = geometry.getGeometries()[i];
+				// empty points can not be represented
+				if (!isEmpty(point.getCoordinates())) {
+					if (count++ > 0) {
+						out.append(',');
+					}
+					writeCoordinate(point.getCoordinates()[0], point.getPrecision(), out);
+				}
+			}
+			out.append(']');
+		} else {
+			out.append('[');
+			for (int i = 0; i < getNumGeometries(geometry); i++) {
+				Geometry polygon = geometry.getGeometries()[i];
+				if (i > 0) {
+					out.append(',');
+				}
+				out.append('[');
+				for (int j = 0; j < getNumGeometries(polygon); j++) {
+					if (j > 0) {
+						out.append(',');
+					}
+					writeCoordinates(polygon.getGeometries()[j], out);
+				}
+				out.append(']');
+			}
+			out.append(']');
+		}
+		out.append('}');
+	}
+
+	// ------------------------------------------------------------------------
+	// Private parsing methods:
+	// ------------------------------------------------------------------------
+
+	private static Geometry toGeometry(JsonReader reader) throws GeoJsonException {
+		Geometry geometry = readGeometry(reader);
+		if (geometry == null) {
+			throw reader.error("no geometry");
+		}
+		reader.endDocument();
+		return geometry;
+	}
+
+	/** Read a position as a coordinate, or an array of positions (or deeper) as a list. */
+	private static Object readCoordinates(JsonReader reader) throws GeoJsonException {
+		reader.beginArray();
+		Object result;
+		if (reader.hasNext() && reader.peek() != '[') {
+			double x = reader.nextDouble();
+			if (!reader.hasNext()) {
+				throw reader.error("a position should have at least two elements");
+			}
+			double y = reader.nextDouble();
+			// ignore altitude and other extra elements
+			while (reader.hasNext()) {
+				reader.nextDouble();
+			}
+			result = new Coordinate(x, y);
+		} else {
+			List<Object> list = new ArrayList<Object>();
+			while (reader.hasNext()) {
+				list.add(readCoordinates(reader));
+			}
+			result = list;
+		}
+		reader.endArray();
+		return result;
+	}
+
+	/** Create the geometry from the coordinates, null if the nesting of the coordinates is wrong. */
+	private static Geometry createGeometry(String type, Object coordinates) {
+		Geometry geometry = new Geometry(type, 0, 0);
+		if (Geometry.POINT.equals(type)) {
+			if (coordinates instanceof Coordinate) {
+				geometry.setCoordinates(new Coordinate[] { (Coordinate) coordinates });
+				return geometry;
+			}
+			return ((List<?>) coordinates).isEmpty() ? geometry : null;
+		}
+		if (!(coordinates instanceof List)) {
+			return null;
+		}
+		List<?> list = (List<?>) coordinates;
+		if (list.isEmpty()) {
+			return geometry;
+		}
+		if (Geometry.LINE_STRING.equals(type)) {
+			return setCoordinates(geometry, list);
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			Geometry[] points = new Geometry[list.size()];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = createGeometry(Geometry.POINT, list.get(i));
+				if (points[i] == null || points[i].getCoordinates() == null) {
+					return null;
+				}
+			}
+			geometry.setGeometries(points);
+		} else if (Geometry.POLYGON.equals(type) || Geometry.MULTI_LINE_STRING.equals(type)
+				|| Geometry.MULTI_POLYGON.equals(type)) {
+			String childType = Geometry.POLYGON.equals(type) ? Geometry.LINEAR_RING
+					: (Geometry.MULTI_LINE_STRING.equals(type) ? Geometry.LINE_STRING : Geometry.POLYGON);
+			Geometry[] children = new Geometry[list.size()];
+			for (int i = 0; i < children.length; i++) {
+				if (!(list.get(i) instanceof List)) {
+					return null;
+				}
+				List<?> childList = (List<?>) list.get(i);
+				if (Geometry.POLYGON.equals(childType)) {
+					children[i] = createGeometry(childType, childList);
+				} else {
+					children[i] = setCoordinates(new Geometry(childType, 0, 0), childList);
+				}
+				if (children[i] == null) {
+					return null;
+				}
+			}
+			geometry.setGeometries(children);
+		} else {
+			return null;
+		}
+		return geometry;
+	}
+
+	/** Set a list of positions as coordinates of the geometry, null if the list contains something else. */
+	private static Geometry setCoordinates(Geometry geometry, List<?> positions) {
+		if (!positions.isEmpty()) {
+			Coordinate[] coordinates = new Coordinate[positions.size()];
+			for (int i = 0; i < coordinates.length; i++) {
+				if (!(positions.get(i) instanceof Coordinate)) {
+					return null;
+				}
+				coordinates[i] = (Coordinate) positions.get(i);
+			}
+			geometry.setCoordinates(coordinates);
+		}
+		return geometry;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private formatting methods:
+	// ------------------------------------------------------------------------
+
+	private static void writeCoordinates(Geometry geometry, Appendable out) throws GeoJsonException, IOException {
+		out.append('[');
+		if (!isEmpty(geometry.getCoordinates())) {
+			for (int i = 0; i < geometry.getCoordinates().length; i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				writeCoordinate(geometry.getCoordinates()[i], geometry.getPrecision(), out);
+			}
+		}
+		out.append(']');
+	}
+
+	private static void writeCoordinate(Coordinate coordinate, int precision, Appendable out)
+			throws GeoJsonException, IOException {
+		out.append('[');
+		writeNumber(coordinate.getX(), precision, out);
+		out.append(',');
+		writeNumber(coordinate.getY(), precision, out);
+		out.append(']');
+	}
+
+	private static void writeNumber(double value, int precision, Appendable out) throws GeoJsonException,
+			IOException {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new GeoJsonException(ERR_MSG_WRITE + "invalid number " + value);
+		}
+		DoubleFormat.append(value, precision, out);
+	}
+
+	private static boolean isSupported(String type) {
+		return Geometry.POINT.equals(type) || Geometry.LINE_STRING.equals(type) || Geometry.POLYGON.equals(type)
+				|| Geometry.MULTI_POINT.equals(type) || Geometry.MULTI_LINE_STRING.equals(type)
+				|| Geometry.MULTI_POLYGON.equals(type);
+	}
+
+	private static boolean isEmpty(Coordinate[] coordinates) {
+		return coordinates == null || coordinates.length == 0;
+	}
+
+	private static int getNumGeometries(Geometry geometry) {
+		return geometry.getGeometries() == null ? 0 : geometry.getGeometries().length;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * {@link GeometryHandler} that builds {@link Geometry} objects. Coordinate and geometry arrays are only set when they
+ * are not empty, as is the case for the geometries that are parsed by the {@link WktService}.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class GeometryBuilder implements GeometryHandler {
+
+	private final List<Geometry> geometries = new ArrayList<Geometry>();
+
+	private final List<List<Coordinate>> coordinates = new ArrayList<List<Coordinate>>();
+
+	private final List<List<Geometry>> children = new ArrayList<List<Geometry>>();
+
+	private Geometry geometry;
+
+	@Override
+	public void startGeometry(String geometryType, int srid, int precision) {
+		geometries.add(new Geometry(geometryType, srid, precision));
+		coordinates.add(null);
+		children.add(null);
+	}
+
+	@Override
+	public void addCoordinate(double x, double y) {
+		int depth = geometries.size() - 1;
+		if (depth < 0) {
+			throw new IllegalStateException("No geometry has been started.");
+		}
+		List<Coordinate> list = coordinates.get(depth);
+		if (list == null) {
+			list = new ArrayList<Coordinate>();
+			coordinates.set(depth, list);
+		}
+		list.add(new Coordinate(x, y));
+	}
+
+	@Override
+	public void endGeometry() {
+		int depth = geometries.size() - 1;
+		if (depth < 0) {
+			throw new IllegalStateException("No geometry has been started.");
+		}
+		Geometry ended = geometries.remove(depth);
+		List<Coordinate> list = coordinates.remove(depth);
+		if (list != null) {
+			ended.setCoordinates(list.toArray(new Coordinate[list.size()]));
+		}
+		List<Geometry> childList = children.remove(depth);
+		if (childList != null) {
+			ended.setGeometries(childList.toArray(new Geometry[childList.size()]));
+		}
+		if (depth == 0) {
+			geometry = ended;
+		} else {
+			List<Geometry> parentChildren = children.get(depth - 1);
+			if (parentChildren == null) {
+				parentChildren = new ArrayList<Geometry>();
+				children.set(depth - 1, parentChildren);
+			}
+			parentChildren.add(ended);
+		}
+	}
+
+	@Override
+	public void abort() {
+		geometries.clear();
+		coordinates.clear();
+		children.clear();
+	}
+
+	/**
+	 * Get the last geometry that has been completely built.
+	 *
+	 * @return The geometry, or null if no geometry has been ended yet.
+	 */
+	public Geometry getGeometry() {
+		return geometry;
+	}
+}
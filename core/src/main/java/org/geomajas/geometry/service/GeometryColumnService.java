@@ -0,0 +1,516 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryColumn;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.PackedGeometry;
+
+/**
+ * <p>
+ * Service for converting geometries to and from a {@link GeometryColumn}, and for batch operations on such a column.
+ * The batch operations return one result per geometry in a primitive array and run in tight loops over the ordinate
+ * arrays. Their results are the same as those of the corresponding {@link GeometryService} methods.
+ * </p>
+ * <p>
+ * Results that are undefined for a geometry (such as the bounds or centroid of an empty geometry) are returned as
+ * {@link Double#NaN}, where the {@link GeometryService} would return null.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class GeometryColumnService {
+
+	private GeometryColumnService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Convert a list of geometries into a column.
+	 *
+	 * @param geometries
+	 *            The geometries to convert.
+	 * @return The column.
+	 */
+	public static GeometryColumn toColumn(List<Geometry> geometries) {
+		return toColumn(geometries.toArray(new Geometry[geometries.size()]));
+	}
+
+	/**
+	 * Convert an array of geometries into a column.
+	 *
+	 * @param geometries
+	 *            The geometries to convert.
+	 * @return The column.
+	 */
+	public static GeometryColumn toColumn(Geometry[] geometries) {
+		// First pass: count parts, rings and vertices:
+		int numParts = 0;
+		int numRings = 0;
+		int numPoints = 0;
+		for (Geometry geometry : geometries) {
+			if (geometry == null) {
+				throw new IllegalArgumentException("Cannot convert null geometry.");
+			}
+			String type = geometry.getGeometryType();
+			for (Geometry part : PackedGeometryService.getParts(geometry)) {
+				numParts++;
+				for (Geometry ring : PackedGeometryService.getRings(type, part)) {
+					numRings++;
+					numPoints += ring.getCoordinates() == null ? 0 : ring.getCoordinates().length;
+				}
+			}
+		}
+
+		// Second pass: copy the coordinates and keep track of the offsets:
+		byte[] types = new byte[geometries.length];
+		int[] srids = new int[geometries.length];
+		int[] precisions = new int[geometries.length];
+		int[] geometryOffsets = new int[geometries.length + 1];
+		int[] partOffsets = new int[numParts + 1];
+		int[] ringOffsets = new int[numRings + 1];
+		double[] x = new double[numPoints];
+		double[] y = new double[numPoints];
+		int partIndex = 0;
+		int ringIndex = 0;
+		int vertexIndex = 0;
+		for (int i = 0; i < geometries.length; i++) {
+			String type = geometries[i].getGeometryType();
+			types[i] = GeometryColumn.getTypeCode(type);
+			srids[i] = geometries[i].getSrid();
+			precisions[i] = geometries[i].getPrecision();
+			geometryOffsets[i] = partIndex;
+			for (Geometry part : PackedGeometryService.getParts(geometries[i])) {
+				partOffsets[partIndex++] = ringIndex;
+				for (Geometry ring : PackedGeometryService.getRings(type, part)) {
+					ringOffsets[ringIndex++] = vertexIndex;
+					if (ring.getCoordinates() != null) {
+						for (Coordinate coordinate : ring.getCoordinates()) {
+							x[vertexIndex] = coordinate.getX();
+							y[vertexIndex] = coordinate.getY();
+							vertexIndex++;
+						}
+					}
+				}
+			}
+		}
+		geometryOffsets[geometries.length] = numParts;
+		partOffsets[numParts] = numRings;
+		ringOffsets[numRings] = numPoints;
+		return new GeometryColumn(types, srids, precisions, geometryOffsets, partOffsets, ringOffsets, x, y);
+	}
+
+	/**
+	 * Convert a single geometry of a column back into a geometry.
+	 *
+	 * @param column
+	 *            The column.
+	 * @param index
+	 *            The index of the geometry in the column.
+	 * @return The geometry.
+	 */
+	public static Geometry toGeometry(GeometryColumn column, int index) {
+		int[] geometryOffsets = column.getGeometryOffsets();
+		int[] partOffsets = column.getPartOffsets();
+		int[] ringOffsets = column.getRingOffsets();
+		int firstPart = geometryOffsets[index];
+		int firstRing = partOffsets[firstPart];
+		int firstVertex = ringOffsets[firstRing];
+
+		int[] packedParts = new int[geometryOffsets[index + 1] - firstPart + 1];
+		for (int i = 0; i < packedParts.length; i++) {
+			packedParts[i] = partOffsets[firstPart + i] - firstRing;
+		}
+		int[] packedRings = new int[packedParts[packedParts.length - 1] + 1];
+		for (int i = 0; i < packedRings.length; i++) {
+			packedRings[i] = ringOffsets[firstRing + i] - firstVertex;
+		}
+		double[] ordinates = new double[2 * packedRings[packedRings.length - 1]];
+		for (int i = 0; i < ordinates.length / 2; i++) {
+			ordinates[2 * i] = column.getX()[firstVertex + i];
+			ordinates[2 * i + 1] = column.getY()[firstVertex + i];
+		}
+		return PackedGeometryService.toGeometry(new PackedGeometry(column.getGeometryType(index),
+				column.getSrids()[index], column.getPrecisions()[index], ordinates, packedRings, packedParts));
+	}
+
+	/**
+	 * Convert all geometries of a column back into geometries.
+	 *
+	 * @param column
+	 *            The column.
+	 * @return The geometries.
+	 */
+	public static Geometry[] toGeometries(GeometryColumn column) {
+		Geometry[] geometries = new Geometry[column.size()];
+		for (int i = 0; i < geometries.length; i++) {
+			geometries[i] = toGeometry(column, i);
+		}
+		return geometries;
+	}
+
+	/**
+	 * Calculate the bounds of all geometries in a column.
+	 *
+	 * @param column
+	 *            The column.
+	 * @return An array holding minX, minY, maxX and maxY for every geometry (4 values per geometry). These are NaN for
+	 *         empty geometries.
+	 */
+	public static double[] getBounds(GeometryColumn column) {
+		int size = column.size();
+		int[] vertexOffsets = getVertexOffsets(column);
+		double[] x = column.getX();
+		double[] y = column.getY();
+		double[] bounds = new double[4 * size];
+		for (int g = 0; g < size; g++) {
+			int start = vertexOffsets[g];
+			int end = vertexOffsets[g + 1];
+			if (start == end) {
+				Arrays.fill(bounds, 4 * g, 4 * g + 4, Double.NaN);
+				continue;
+			}
+			double minX = Double.MAX_VALUE;
+			double minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE;
+			double maxY = -Double.MAX_VALUE;
+			for (int i = start; i < end; i++) {
+				if (x[i] < minX) {
+					minX = x[i];
+				}
+				if (y[i] < minY) {
+					minY = y[i];
+				}
+				if (x[i] > maxX) {
+					maxX = x[i];
+				}
+				if (y[i] > maxY) {
+					maxY = y[i];
+				}
+			}
+			bounds[4 * g] = minX;
+			bounds[4 * g + 1] = minY;
+			bounds[4 * g + 2] = maxX;
+			bounds[4 * g + 3] = maxY;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Calculate the area of all geometries in a column. As in {@link GeometryService#getArea(Geometry)}, the area of
+	 * holes is subtracted, and only polygons and linear rings have an area.
+	 *
+	 * @param column
+	 *            The column.
+	 * @return The area of every geometry.
+	 */
+	public static double[] getArea(GeometryColumn column) {
+		int size = column.size();
+		byte[] types = column.getTypes();
+		int[] geometryOffsets = column.getGeometryOffsets();
+		int[] partOffsets = column.getPartOffsets();
+		int[] ringOffsets = column.getRingOffsets();
+		double[] x = column.getX();
+		double[] y = column.getY();
+		double[] areas = new double[size];
+		for (int g = 0; g < size; g++) {
+			byte type = types[g];
+			double area = 0;
+			if (type == GeometryColumn.LINEAR_RING) {
+				int ring = partOffsets[geometryOffsets[g]];
+				area = getSignedArea(x, y, ringOffsets[ring], ringOffsets[ring + 1]);
+			} else if (type == GeometryColumn.POLYGON || type == GeometryColumn.MULTI_POLYGON) {
+				for (int p = geometryOffsets[g]; p < geometryOffsets[g + 1]; p++) {
+					double polygonArea = 0;
+					for (int r = partOffsets[p]; r < partOffsets[p + 1]; r++) {
+						double ringArea = Math.abs(getSignedArea(x, y, ringOffsets[r], ringOffsets[r + 1]));
+						polygonArea += r == partOffsets[p] ? ringArea : -ringArea;
+					}
+					area += type == GeometryColumn.POLYGON ? polygonArea : Math.abs(polygonArea);
+				}
+			}
+			areas[g] = Math.abs(area);
+		}
+		return areas;
+	}
+
+	/**
+	 * Calculate the length of all geometries in a column. As in {@link GeometryService#getLength(Geometry)}, this adds
+	 * up the length of all edges within every geometry.
+	 *
+	 * @param column
+	 *            The column.
+	 * @return The length of every geometry.
+	 */
+	public static double[] getLength(GeometryColumn column) {
+		int size = column.size();
+		byte[] types = column.getTypes();
+		int[] geometryOffsets = column.getGeometryOffsets();
+		int[] partOffsets = column.getPartOffsets();
+		int[] ringOffsets = column.getRingOffsets();
+		double[] x = column.getX();
+		double[] y = column.getY();
+		double[] lengths = new double[size];
+		for (int g = 0; g < size; g++) {
+			if (types[g] == GeometryColumn.POINT || types[g] == GeometryColumn.MULTI_POINT) {
+				continue;
+			}
+			double length = 0;
+			for (int p = geometryOffsets[g]; p < geometryOffsets[g + 1]; p++) {
+				double partLength = 0;
+				for (int r = partOffsets[p]; r < partOffsets[p + 1]; r++) {
+					partLength += getLength(x, y, ringOffsets[r], ringOffsets[r + 1]);
+				}
+				length += partLength;
+			}
+			lengths[g] = length;
+		}
+		return lengths;
+	}
+
+	/**
+	 * Calculate the centroid of all geometries in a column, as in {@link GeometryService#getCentroid(Geometry)}.
+	 *
+	 * @param column
+	 *            The column.
+	 * @return An array holding x and y of the centroid of every geometry (2 values per geometry). These are NaN for
+	 *         empty geometries.
+	 */
+	public static double[] getCentroid(GeometryColumn column) {
+		int size = column.size();
+		byte[] types = column.getTypes();
+		int[] geometryOffsets = column.getGeometryOffsets();
+		int[] partOffsets = column.getPartOffsets();
+		int[] ringOffsets = column.getRingOffsets();
+		double[] x = column.getX();
+		double[] y = column.getY();
+		double[] centroids = new double[2 * size];
+		Arrays.fill(centroids, Double.NaN);
+		// centroids of the parts, used for multi-geometries:
+		double[] parts = new double[2 * geometryOffsets[size]];
+		for (int g = 0; g < size; g++) {
+			byte type = types[g];
+			int firstPart = geometryOffsets[g];
+			int numParts = geometryOffsets[g + 1] - firstPart;
+			if (numParts == 0) {
+				continue;
+			}
+			if (type == GeometryColumn.MULTI_POINT) {
+				double sumX = 0;
+				double sumY = 0;
+				int numPoints = 0;
+				for (int p = firstPart; p < firstPart + numParts; p++) {
+					int ring = partOffsets[p];
+					if (ring < partOffsets[p + 1] && ringOffsets[ring] < ringOffsets[ring + 1]) {
+						sumX += x[ringOffsets[ring]];
+						sumY += y[ringOffsets[ring]];
+						numPoints++;
+					}
+				}
+				centroids[2 * g] = sumX / numPoints;
+				centroids[2 * g + 1] = sumY / numPoints;
+				continue;
+			}
+			for (int p = firstPart; p < firstPart + numParts; p++) {
+				parts[2 * p] = Double.NaN;
+				parts[2 * p + 1] = Double.NaN;
+				if (partOffsets[p + 1] == partOffsets[p]) {
+					continue;
+				}
+				int ring = partOffsets[p];
+				int start = ringOffsets[ring];
+				int end = ringOffsets[ring + 1];
+				if (start == end) {
+					continue;
+				}
+				if (type == GeometryColumn.POINT) {
+					parts[2 * p] = x[start];
+					parts[2 * p + 1] = y[start];
+				} else if (type == GeometryColumn.LINE_STRING || type == GeometryColumn.MULTI_LINE_STRING) {
+					getLineCentroid(x, y, start, end, parts, 2 * p);
+				} else {
+					getRingCentroid(x, y, start, end, parts, 2 * p);
+				}
+			}
+			if (numParts == 1) {
+				centroids[2 * g] = parts[2 * firstPart];
+				centroids[2 * g + 1] = parts[2 * firstPart + 1];
+			} else {
+				// multi line strings and multi polygons: centroid of the line through the centroids of the parts
+				getLineCentroid(parts, firstPart, firstPart + numParts, centroids, 2 * g);
+			}
+		}
+		return centroids;
+	}
+
+	/**
+	 * Find the geometries in a column whose bounds intersect the given bounding box. Touching bounds are considered
+	 * to intersect, as in {@link BboxService#intersects(Bbox, Bbox)}.
+	 *
+	 * @param column
+	 *            The column.
+	 * @param bbox
+	 *            The bounding box to filter on.
+	 * @return The indices of the matching geometries, in ascending order.
+	 */
+	public static int[] filter(GeometryColumn column, Bbox bbox) {
+		return filter(getBounds(column), bbox);
+	}
+
+	/**
+	 * Find the geometries whose bounds intersect the given bounding box, starting from precalculated bounds. This
+	 * allows running many filters on the same column without recalculating the bounds.
+	 *
+	 * @param bounds
+	 *            The bounds, as returned by {@link #getBounds(GeometryColumn)}.
+	 * @param bbox
+	 *            The bounding box to filter on.
+	 * @return The indices of the matching geometries, in ascending order.
+	 */
+	public static int[] filter(double[] bounds, Bbox bbox) {
+		double minX = bbox.getX();
+		double minY = bbox.getY();
+		double maxX = bbox.getMaxX();
+		double maxY = bbox.getMaxY();
+		int[] result = new int[bounds.length / 4];
+		int count = 0;
+		for (int g = 0; g < result.length; g++) {
+			// NaN bounds of empty geometries never match:
+			if (bounds[4 * g] <= maxX && bounds[4 * g + 1] <= maxY && bounds[4 * g + 2] >= minX
+					&& bounds[4 * g + 3] >= minY) {
+				result[count++] = g;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Perform a matrix transformation of all geometries in a column. The ordinates are changed in place.
+	 *
+	 * @param column
+	 *            The column to transform.
+	 * @param matrix
+	 *            The matrix to use.
+	 */
+	public static void transform(GeometryColumn column, Matrix matrix) {
+		double xx = matrix.getXx();
+		double xy = matrix.getXy();
+		double yx = matrix.getYx();
+		double yy = matrix.getYy();
+		double dx = matrix.getDx();
+		double dy = matrix.getDy();
+		double[] x = column.getX();
+		double[] y = column.getY();
+		for (int i = 0; i < x.length; i++) {
+			double xi = x[i];
+			double yi = y[i];
+			x[i] = xi * xx + yi * xy + dx;
+			y[i] = xi * yx + yi * yy + dy;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Get the index of the first vertex of every geometry, followed by the total number of vertices. */
+	private static int[] getVertexOffsets(GeometryColumn column) {
+		int[] geometryOffsets = column.getGeometryOffsets();
+		int[] partOffsets = column.getPartOffsets();
+		int[] ringOffsets = column.getRingOffsets();
+		int[] vertexOffsets = new int[geometryOffsets.length];
+		for (int g = 0; g < vertexOffsets.length; g++) {
+			vertexOffsets[g] = ringOffsets[partOffsets[geometryOffsets[g]]];
+		}
+		return vertexOffsets;
+	}
+
+	private static double getSignedArea(double[] x, double[] y, int start, int end) {
+		double temp = 0;
+		for (int i = start + 1; i < end; i++) {
+			temp += x[i - 1] * y[i] - x[i] * y[i - 1];
+		}
+		return temp / 2;
+	}
+
+	private static double getLength(double[] x, double[] y, int start, int end) {
+		double length = 0;
+		for (int i = start; i < end - 1; i++) {
+			double deltaX = x[i + 1] - x[i];
+			double deltaY = y[i + 1] - y[i];
+			length += Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+		}
+		return length;
+	}
+
+	private static void getLineCentroid(double[] x, double[] y, int start, int end, double[] result, int offset) {
+		double sumX = 0;
+		double sumY = 0;
+		double totalLength = 0;
+		for (int i = start; i < end - 1; i++) {
+			double deltaX = x[i + 1] - x[i];
+			double deltaY = y[i + 1] - y[i];
+			double length = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+			totalLength += length;
+			double midx = (x[i] + x[i + 1]) / 2;
+			sumX += length * midx;
+			double midy = (y[i] + y[i + 1]) / 2;
+			sumY += length * midy;
+		}
+		result[offset] = sumX / totalLength;
+		result[offset + 1] = sumY / totalLength;
+	}
+
+	/** Line centroid over interleaved points, used to combine the centroids of parts. */
+	private static void getLineCentroid(double[] points, int start, int end, double[] result, int offset) {
+		double sumX = 0;
+		double sumY = 0;
+		double totalLength = 0;
+		for (int i = start; i < end - 1; i++) {
+			double deltaX = points[2 * i + 2] - points[2 * i];
+			double deltaY = points[2 * i + 3] - points[2 * i + 1];
+			double length = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+			totalLength += length;
+			double midx = (points[2 * i] + points[2 * i + 2]) / 2;
+			sumX += length * midx;
+			double midy = (points[2 * i + 1] + points[2 * i + 3]) / 2;
+			sumY += length * midy;
+		}
+		result[offset] = sumX / totalLength;
+		result[offset + 1] = sumY / totalLength;
+	}
+
+	private static void getRingCentroid(double[] x, double[] y, int start, int end, double[] result, int offset) {
+		double area = getSignedArea(x, y, start, end);
+		double cx = 0;
+		double cy = 0;
+		for (int i = start + 1; i < end; i++) {
+			double x1 = x[i - 1];
+			double y1 = y[i - 1];
+			double x2 = x[i];
+			double y2 = y[i];
+			cx += (x1 + x2) * (x1 * y2 - x2 * y1);
+			cy += (y1 + y2) * (x1 * y2 - x2 * y1);
+		}
+		result[offset] = cx / (6 * area);
+		result[offset + 1] = cy / (6 * area);
+	}
+}
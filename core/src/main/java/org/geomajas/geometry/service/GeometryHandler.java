@@ -0,0 +1,76 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * <p>
+ * Receiver of the events that describe the structure of a geometry, as produced by parsers and converters. This
+ * allows a parser to write geometries directly into any representation, without creating intermediate
+ * {@link org.geomajas.geometry.Geometry} objects.
+ * </p>
+ * <p>
+ * Every geometry is reported as a call to {@link #startGeometry(String, int, int)}, followed by either the calls for
+ * its sub-geometries or the calls to {@link #addCoordinate(double, double)} for its coordinates, and finally a call to
+ * {@link #endGeometry()}. For example a polygon with one ring results in the following calls:
+ * </p>
+ *
+ * <pre>
+ * startGeometry(Geometry.POLYGON, srid, precision)
+ *   startGeometry(Geometry.LINEAR_RING, srid, precision)
+ *     addCoordinate(x, y) (once for every coordinate)
+ *   endGeometry()
+ * endGeometry()
+ * </pre>
+ * <p>
+ * When a parser or converter fails halfway through a geometry, it calls {@link #abort()}, so the handler can drop the
+ * partial geometry and be reused for the next one.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public interface GeometryHandler {
+
+	/**
+	 * Start a new geometry. If another geometry is still open, the new geometry is a sub-geometry of it.
+	 *
+	 * @param geometryType
+	 *            The type of the geometry, one of the {@link org.geomajas.geometry.Geometry} type constants.
+	 * @param srid
+	 *            The spatial reference ID of the geometry.
+	 * @param precision
+	 *            The precision of the geometry.
+	 */
+	void startGeometry(String geometryType, int srid, int precision);
+
+	/**
+	 * Add a coordinate to the geometry that is currently open.
+	 *
+	 * @param x
+	 *            x
+	 * @param y
+	 *            y
+	 */
+	void addCoordinate(double x, double y);
+
+	/** End the geometry that is currently open. */
+	void endGeometry();
+
+	/**
+	 * Discard all geometries that are currently open, as if they had never been started. Geometries that have been
+	 * ended completely are kept. Does nothing when no geometry is open.
+	 */
+	void abort();
+}
@@ -0,0 +1,317 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Compact encoding of a {@link Geometry} tree, as written by {@link SerializedGeometry}:
+ * </p>
+ * <ul>
+ * <li>a format version byte</li>
+ * <li>per geometry: a type code byte, the srid and precision as variable length integers and its content</li>
+ * <li>the content: a flags byte, followed by the sub-geometries and/or the coordinates</li>
+ * <li>coordinates are written as a count followed by packed doubles. When the geometry has a precision and all
+ * ordinates are exact multiples of that precision, they are written as variable length deltas instead.</li>
+ * </ul>
+ *
+ * @author Jan De Moerloose
+ */
+final class GeometrySerializer {
+
+	private static final int VERSION = 1;
+
+	private static final int HAS_COORDINATES = 1;
+
+	private static final int HAS_GEOMETRIES = 2;
+
+	private static final int DELTA_COORDINATES = 4;
+
+	private static final int OBJECT_COORDINATES = 8;
+
+	private static final int NULL_GEOMETRY = 0xFF;
+
+	private static final int NULL_TYPE = 0xFE;
+
+	private static final int CUSTOM_TYPE = 0xFD;
+
+	private static final String[] TYPES = { Geometry.POINT, Geometry.LINE_STRING, Geometry.LINEAR_RING,
+			Geometry.POLYGON, Geometry.MULTI_POINT, Geometry.MULTI_LINE_STRING, Geometry.MULTI_POLYGON };
+
+	private static final int MAX_DELTA_PRECISION = 9;
+
+	private static final double MAX_SCALED = 1L << 53;
+
+	private static final int VARINT_MASK = 0x7F;
+
+	private static final int VARINT_MORE = 0x80;
+
+	private static final int VARINT_SHIFT = 7;
+
+	private GeometrySerializer() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Write a geometry in the compact form.
+	 *
+	 * @param geometry
+	 *            geometry to write, may be null
+	 * @param out
+	 *            output
+	 * @throws IOException
+	 *             in case writing to the output fails
+	 */
+	static void write(Geometry geometry, ObjectOutput out) throws IOException {
+		out.writeByte(VERSION);
+		writeGeometry(geometry, out);
+	}
+
+	/**
+	 * Read a geometry in the compact form.
+	 *
+	 * @param in
+	 *            input
+	 * @return the geometry, may be null
+	 * @throws IOException
+	 *             in case reading from the input fails or the content is invalid
+	 * @throws ClassNotFoundException
+	 *             in case the class of a serialized coordinate array can not be found
+	 */
+	static Geometry read(ObjectInput in) throws IOException, ClassNotFoundException {
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new InvalidObjectException("Unsupported geometry serialization format " + version);
+		}
+		return readGeometry(in);
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	private static void writeContent(Geometry geometry, ObjectOutput out) throws IOException {
+		Geometry[] geometries = geometry.getGeometries();
+		Coordinate[] coordinates = geometry.getCoordinates();
+		int flags = 0;
+		if (geometries != null) {
+			flags |= HAS_GEOMETRIES;
+		}
+		if (coordinates != null) {
+			flags |= HAS_COORDINATES;
+			if (containsNull(coordinates)) {
+				flags |= OBJECT_COORDINATES;
+			} else if (isDeltaEncodable(coordinates, geometry.getPrecision())) {
+				flags |= DELTA_COORDINATES;
+			}
+		}
+		out.writeByte(flags);
+		if (geometries != null) {
+			writeVarLong(out, geometries.length);
+			for (Geometry child : geometries) {
+				writeGeometry(child, out);
+			}
+		}
+		if ((flags & OBJECT_COORDINATES) != 0) {
+			out.writeObject(coordinates);
+		} else if (coordinates != null) {
+			writeVarLong(out, coordinates.length);
+			if ((flags & DELTA_COORDINATES) != 0) {
+				double scale = getScale(geometry.getPrecision());
+				long lastX = 0;
+				long lastY = 0;
+				for (Coordinate coordinate : coordinates) {
+					long x = (long) Math.rint(coordinate.getX() * scale);
+					long y = (long) Math.rint(coordinate.getY() * scale);
+					writeVarLong(out, zigZag(x - lastX));
+					writeVarLong(out, zigZag(y - lastY));
+					lastX = x;
+					lastY = y;
+				}
+			} else {
+				for (Coordinate coordinate : coordinates) {
+					out.writeDouble(coordinate.getX());
+					out.writeDouble(coordinate.getY());
+				}
+			}
+		}
+	}
+
+	private static void writeGeometry(Geometry geometry, ObjectOutput out) throws IOException {
+		if (geometry == null) {
+			out.writeByte(NULL_GEOMETRY);
+			return;
+		}
+		String type = geometry.getGeometryType();
+		int code = getTypeCode(type);
+		out.writeByte(code);
+		if (code == CUSTOM_TYPE) {
+			out.writeUTF(type);
+		}
+		writeVarLong(out, zigZag(geometry.getSrid()));
+		writeVarLong(out, zigZag(geometry.getPrecision()));
+		writeContent(geometry, out);
+	}
+
+	private static void readContent(Geometry geometry, ObjectInput in) throws IOException, ClassNotFoundException {
+		int flags = in.readUnsignedByte();
+		Geometry[] geometries = null;
+		Coordinate[] coordinates = null;
+		if ((flags & HAS_GEOMETRIES) != 0) {
+			geometries = new Geometry[readLength(in)];
+			for (int i = 0; i < geometries.length; i++) {
+				geometries[i] = readGeometry(in);
+			}
+		}
+		if ((flags & OBJECT_COORDINATES) != 0) {
+			coordinates = (Coordinate[]) in.readObject();
+		} else if ((flags & HAS_COORDINATES) != 0) {
+			coordinates = new Coordinate[readLength(in)];
+			if ((flags & DELTA_COORDINATES) != 0) {
+				double scale = getScale(geometry.getPrecision());
+				long x = 0;
+				long y = 0;
+				for (int i = 0; i < coordinates.length; i++) {
+					x += unZigZag(readVarLong(in));
+					y += unZigZag(readVarLong(in));
+					coordinates[i] = new Coordinate(x / scale, y / scale);
+				}
+			} else {
+				for (int i = 0; i < coordinates.length; i++) {
+					coordinates[i] = new Coordinate(in.readDouble(), in.readDouble());
+				}
+			}
+		}
+		geometry.setGeometries(geometries);
+		geometry.setCoordinates(coordinates);
+	}
+
+	private static Geometry readGeometry(ObjectInput in) throws IOException, ClassNotFoundException {
+		int code = in.readUnsignedByte();
+		if (code == NULL_GEOMETRY) {
+			return null;
+		}
+		String type;
+		if (code == CUSTOM_TYPE) {
+			type = in.readUTF();
+		} else if (code == NULL_TYPE) {
+			type = null;
+		} else if (code < TYPES.length) {
+			type = TYPES[code];
+		} else {
+			throw new InvalidObjectException("Unknown geometry type code " + code);
+		}
+		int srid = (int) unZigZag(readVarLong(in));
+		int precision = (int) unZigZag(readVarLong(in));
+		Geometry geometry = new Geometry(type, srid, precision);
+		readContent(geometry, in);
+		return geometry;
+	}
+
+	private static int getTypeCode(String type) {
+		if (type == null) {
+			return NULL_TYPE;
+		}
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) {
+				return i;
+			}
+		}
+		return CUSTOM_TYPE;
+	}
+
+	private static boolean containsNull(Coordinate[] coordinates) {
+		for (Coordinate coordinate : coordinates) {
+			if (coordinate == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Delta encoding is only used when it is lossless: every ordinate must be reproduced exactly (bit for bit) from
+	 * its scaled integer value.
+	 */
+	private static boolean isDeltaEncodable(Coordinate[] coordinates, int precision) {
+		if (precision < 0 || precision > MAX_DELTA_PRECISION) {
+			return false;
+		}
+		double scale = getScale(precision);
+		for (Coordinate coordinate : coordinates) {
+			if (!isExact(coordinate.getX(), scale) || !isExact(coordinate.getY(), scale)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isExact(double value, double scale) {
+		double scaled = Math.rint(value * scale);
+		if (Double.isNaN(scaled) || Math.abs(scaled) > MAX_SCALED) {
+			return false;
+		}
+		return Double.doubleToLongBits(((long) scaled) / scale) == Double.doubleToLongBits(value);
+	}
+
+	private static double getScale(int precision) {
+		double scale = 1;
+		for (int i = 0; i < precision; i++) {
+			scale *= 10;
+		}
+		return scale;
+	}
+
+	private static int readLength(ObjectInput in) throws IOException {
+		long length = readVarLong(in);
+		if (length < 0 || length > Integer.MAX_VALUE) {
+			throw new InvalidObjectException("Invalid array length " + length);
+		}
+		return (int) length;
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(ObjectOutput out, long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~VARINT_MASK) != 0) {
+			out.writeByte((int) (remaining & VARINT_MASK) | VARINT_MORE);
+			remaining >>>= VARINT_SHIFT;
+		}
+		out.writeByte((int) remaining);
+	}
+
+	private static long readVarLong(ObjectInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += VARINT_SHIFT) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & VARINT_MASK) << shift;
+			if ((b & VARINT_MORE) == 0) {
+				return value;
+			}
+		}
+		throw new InvalidObjectException("Malformed variable length integer");
+	}
+}
@@ -17,8 +17,11 @@ import java.util.List;
 import org.geomajas.annotation.Api;
 import org.geomajas.geometry.Bbox;
 import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.CoordinateArraySequence;
+import org.geomajas.geometry.CoordinateSequence;
 import org.geomajas.geometry.Geometry;
 import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.MeasuredGeometry;
 import org.geomajas.geometry.service.IndexedGeometryHelper.IndexedLinearRing;
 import org.geomajas.geometry.service.IndexedGeometryHelper.IndexedLineString;
 import org.geomajas.geometry.service.IndexedGeometryHelper.IndexedMultiLineString;
@@ -65,19 +68,16 @@ public final class GeometryService {
 			throw new IllegalArgumentException("Cannot clone null geometry.");
 		}
 		Geometry clone = new Geometry(geometry.getGeometryType(), geometry.getSrid(), geometry.getPrecision());
-		if (geometry.getGeometries() != null) {
-			Geometry[] clones = new Geometry[geometry.getGeometries().length];
-			for (int i = 0; i < geometry.getGeometries().length; i++) {
-				clones[i] = clone(geometry.getGeometries()[i]);
+		Geometry[] geometries = geometry.getGeometries();
+		if (geometries != null) {
+			Geometry[] clones = new Geometry[geometries.length];
+			for (int i = 0; i < geometries.length; i++) {
+				clones[i] = clone(geometries[i]);
 			}
 			clone.setGeometries(clones);
 		}
 		if (geometry.getCoordinates() != null) {
-			Coordinate[] clones = new Coordinate[geometry.getCoordinates().length];
-			for (int i = 0; i < geometry.getCoordinates().length; i++) {
-				clones[i] = new Coordinate(geometry.getCoordinates()[i]);
-			}
-			clone.setCoordinates(clones);
+			clone.setCoordinates(cloneCoordinates(geometry.getCoordinates()));
 		}
 		return clone;
 	}
@@ -89,6 +89,22 @@ public final class GeometryService {
 	 * @return The bounding box for the given geometry.
 	 */
 	public static Bbox getBounds(Geometry geometry) {
+		if (geometry instanceof MeasuredGeometry) {
+			return ((MeasuredGeometry) geometry).getBounds();
+		}
+		return calculateBounds(geometry);
+	}
+
+	/**
+	 * Calculate the closest {@link Bbox} around the geometry, even if the geometry is a {@link MeasuredGeometry}. The
+	 * bounds of the sub-geometries are taken from {@link #getBounds(Geometry)}, so only sub-geometries that are
+	 * {@link MeasuredGeometry} instances avoid the calculation.
+	 * 
+	 * @param geometry The geometry to calculate a bounding box for.
+	 * @return The bounding box for the given geometry.
+	 * @since 1.4.0
+	 */
+	public static Bbox calculateBounds(Geometry geometry) {
 		if (geometry == null) {
 			throw new IllegalArgumentException("Cannot get bounds for null geometry.");
 		}
@@ -102,35 +118,55 @@ public final class GeometryService {
 				bbox = BboxService.union(bbox, getBounds(geometry.getGeometries()[i]));
 			}
 		}
-		if (geometry.getCoordinates() != null) {
-			double minX = Double.MAX_VALUE;
-			double minY = Double.MAX_VALUE;
-			double maxX = -Double.MAX_VALUE;
-			double maxY = -Double.MAX_VALUE;
-
-			for (Coordinate coordinate : geometry.getCoordinates()) {
-				if (coordinate.getX() < minX) {
-					minX = coordinate.getX();
-				}
-				if (coordinate.getY() < minY) {
-					minY = coordinate.getY();
-				}
-				if (coordinate.getX() > maxX) {
-					maxX = coordinate.getX();
-				}
-				if (coordinate.getY() > maxY) {
-					maxY = coordinate.getY();
-				}
-			}
+		if (geometry.getCoordinates() != null && geometry.getCoordinates().length > 0) {
+			Bbox coordinateBounds = getBounds(new CoordinateArraySequence(geometry.getCoordinates()));
 			if (bbox == null) {
-				bbox = new Bbox(minX, minY, maxX - minX, maxY - minY);
+				bbox = coordinateBounds;
 			} else {
-				bbox = BboxService.union(bbox, new Bbox(minX, minY, maxX - minX, maxY - minY));
+				bbox = BboxService.union(bbox, coordinateBounds);
 			}
 		}
 		return bbox;
 	}
 
+	/**
+	 * Get the closest {@link Bbox} around a sequence of coordinates.
+	 * 
+	 * @param sequence The coordinates to calculate a bounding box for.
+	 * @return The bounding box for the given coordinates, or null if the sequence is empty.
+	 * @since 1.4.0
+	 */
+	public static Bbox getBounds(CoordinateSequence sequence) {
+		if (sequence == null) {
+			throw new IllegalArgumentException("Cannot get bounds for null coordinate sequence.");
+		}
+		int size = sequence.size();
+		if (size == 0) {
+			return null;
+		}
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			double x = sequence.getX(i);
+			double y = sequence.getY(i);
+			if (x < minX) {
+				minX = x;
+			}
+			if (y < minY) {
+				minY = y;
+			}
+			if (x > maxX) {
+				maxX = x;
+			}
+			if (y > maxY) {
+				maxY = y;
+			}
+		}
+		return new Bbox(minX, minY, maxX - minX, maxY - minY);
+	}
+
 	/**
 	 * Transform the given bounding box into a polygon geometry.
 	 * 
@@ -174,6 +210,22 @@ public final class GeometryService {
 	 * @return The total number of coordinates within this geometry.
 	 */
 	public static int getNumPoints(Geometry geometry) {
+		if (geometry instanceof MeasuredGeometry) {
+			return ((MeasuredGeometry) geometry).getNumPoints();
+		}
+		return calculateNumPoints(geometry);
+	}
+
+	/**
+	 * Calculate the total number of coordinates within the geometry, even if the geometry is a
+	 * {@link MeasuredGeometry}. The counts of the sub-geometries are taken from {@link #getNumPoints(Geometry)}, so
+	 * only sub-geometries that are {@link MeasuredGeometry} instances avoid the calculation.
+	 * 
+	 * @param geometry The geometry to calculate the total number of points for.
+	 * @return The total number of coordinates within this geometry.
+	 * @since 1.4.0
+	 */
+	public static int calculateNumPoints(Geometry geometry) {
 		if (geometry == null) {
 			throw new IllegalArgumentException("Cannot get total number of points for null geometry.");
 		}
@@ -508,9 +560,36 @@ public final class GeometryService {
 	 * @return The total area within this geometry.
 	 */
 	public static double getArea(Geometry geometry) {
+		if (geometry instanceof MeasuredGeometry) {
+			return ((MeasuredGeometry) geometry).getArea();
+		}
+		return calculateArea(geometry);
+	}
+
+	/**
+	 * Calculate the area of the geometry, even if the geometry is a {@link MeasuredGeometry}. The areas of the
+	 * sub-geometries are taken from {@link #getArea(Geometry)}, so only sub-geometries that are
+	 * {@link MeasuredGeometry} instances avoid the calculation. The coordinates of the geometry itself are always used.
+	 * 
+	 * @param geometry The geometry to calculate the area for.
+	 * @return The total area within this geometry.
+	 * @since 1.4.0
+	 */
+	public static double calculateArea(Geometry geometry) {
 		return Math.abs(getSignedArea(geometry));
 	}
 
+	/**
+	 * Return the area of a linear ring that is defined by a sequence of coordinates.
+	 * 
+	 * @param ring The coordinates of the linear ring.
+	 * @return The area within the ring.
+	 * @since 1.4.0
+	 */
+	public static double getArea(CoordinateSequence ring) {
+		return Math.abs(getSignedArea(ring));
+	}
+
 	/**
 	 * Return the length of the geometry. This adds up the length of all edges within the geometry.
 	 * 
@@ -518,6 +597,22 @@ public final class GeometryService {
 	 * @return The total length of all edges of the given geometry.
 	 */
 	public static double getLength(Geometry geometry) {
+		if (geometry instanceof MeasuredGeometry) {
+			return ((MeasuredGeometry) geometry).getLength();
+		}
+		return calculateLength(geometry);
+	}
+
+	/**
+	 * Calculate the length of the geometry, even if the geometry is a {@link MeasuredGeometry}. The lengths of the
+	 * sub-geometries are taken from {@link #getLength(Geometry)}, so only sub-geometries that are
+	 * {@link MeasuredGeometry} instances avoid the calculation. The coordinates of the geometry itself are always used.
+	 * 
+	 * @param geometry The geometry to calculate the length for.
+	 * @return The total length of all edges of the given geometry.
+	 * @since 1.4.0
+	 */
+	public static double calculateLength(Geometry geometry) {
 		double length = 0;
 		if (geometry.getGeometries() != null) {
 			for (Geometry child : geometry.getGeometries()) {
@@ -527,11 +622,24 @@ public final class GeometryService {
 		if (geometry.getCoordinates() != null
 				&& (Geometry.LINE_STRING.equals(geometry.getGeometryType()) || Geometry.LINEAR_RING.equals(geometry
 						.getGeometryType()))) {
-			for (int i = 0; i < geometry.getCoordinates().length - 1; i++) {
-				double deltaX = geometry.getCoordinates()[i + 1].getX() - geometry.getCoordinates()[i].getX();
-				double deltaY = geometry.getCoordinates()[i + 1].getY() - geometry.getCoordinates()[i].getY();
-				length += Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-			}
+			length += getLength(new CoordinateArraySequence(geometry.getCoordinates()));
+		}
+		return length;
+	}
+
+	/**
+	 * Return the length of a line string that is defined by a sequence of coordinates.
+	 * 
+	 * @param sequence The coordinates of the line string.
+	 * @return The total length of all edges between the coordinates.
+	 * @since 1.4.0
+	 */
+	public static double getLength(CoordinateSequence sequence) {
+		double length = 0;
+		for (int i = 0; i < sequence.size() - 1; i++) {
+			double deltaX = sequence.getX(i + 1) - sequence.getX(i);
+			double deltaY = sequence.getY(i + 1) - sequence.getY(i);
+			length += Math.sqrt(deltaX * deltaX + deltaY * deltaY);
 		}
 		return length;
 	}
@@ -562,6 +670,58 @@ public final class GeometryService {
 		return null;
 	}
 
+	/**
+	 * Return the centroid of a sequence of coordinates. If the sequence is closed and has a non-zero area, it is
+	 * considered to be a linear ring and the center of its area is returned. Otherwise it is considered to be a line
+	 * string, or a point if there is only one coordinate. When the line string has no length (all coordinates
+	 * coincide), the average of the coordinates is returned.
+	 * 
+	 * @param sequence The coordinates to calculate the centroid for.
+	 * @return Return the center point, or null if the sequence is empty.
+	 * @since 1.4.0
+	 */
+	public static Coordinate getCentroid(CoordinateSequence sequence) {
+		int size = sequence.size();
+		if (size == 0) {
+			return null;
+		} else if (size == 1) {
+			return new Coordinate(sequence.getX(0), sequence.getY(0));
+		}
+		if (sequence.getX(0) == sequence.getX(size - 1) && sequence.getY(0) == sequence.getY(size - 1)) {
+			double area = getSignedArea(sequence);
+			if (area != 0) {
+				double x = 0;
+				double y = 0;
+				for (int i = 1; i < size; i++) {
+					double x1 = sequence.getX(i - 1);
+					double y1 = sequence.getY(i - 1);
+					double x2 = sequence.getX(i);
+					double y2 = sequence.getY(i);
+					x += (x1 + x2) * (x1 * y2 - x2 * y1);
+					y += (y1 + y2) * (x1 * y2 - x2 * y1);
+				}
+				return new Coordinate(x / (6 * area), y / (6 * area));
+			}
+		}
+		double sumX = 0;
+		double sumY = 0;
+		double totalLength = 0;
+		for (int i = 0; i < size - 1; i++) {
+			double deltaX = sequence.getX(i + 1) - sequence.getX(i);
+			double deltaY = sequence.getY(i + 1) - sequence.getY(i);
+			double length = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+			totalLength += length;
+			double midx = (sequence.getX(i) + sequence.getX(i + 1)) / 2;
+			sumX += length * midx;
+			double midy = (sequence.getY(i) + sequence.getY(i + 1)) / 2;
+			sumY += length * midy;
+		}
+		if (totalLength == 0) {
+			return getAverage(sequence);
+		}
+		return new Coordinate(sumX / totalLength, sumY / totalLength);
+	}
+
 	/**
 	 * Return the minimal distance between a coordinate and any vertex of a geometry.
 	 * 
@@ -581,19 +741,40 @@ public final class GeometryService {
 				}
 			}
 			if (geometry.getCoordinates() != null) {
-				if (geometry.getCoordinates().length == 1) {
-					double distance = MathService.distance(coordinate, geometry.getCoordinates()[0]);
+				double distance = getDistance(new CoordinateArraySequence(geometry.getCoordinates()), coordinate);
+				if (distance < minDistance) {
+					minDistance = distance;
+				}
+			}
+		}
+		return minDistance;
+	}
+
+	/**
+	 * Return the minimal distance between a coordinate and a sequence of coordinates. A sequence of more than one
+	 * coordinate is considered to be a line string.
+	 * 
+	 * @param sequence The sequence to calculate the distance for.
+	 * @param coordinate The coordinate for which to calculate the distance to the sequence.
+	 * @return Return the minimal distance
+	 * @since 1.4.0
+	 */
+	public static double getDistance(CoordinateSequence sequence, Coordinate coordinate) {
+		double minDistance = Double.MAX_VALUE;
+		if (coordinate != null && sequence != null) {
+			double x = coordinate.getX();
+			double y = coordinate.getY();
+			if (sequence.size() == 1) {
+				double deltaX = x - sequence.getX(0);
+				double deltaY = y - sequence.getY(0);
+				minDistance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+			} else {
+				for (int i = 0; i < sequence.size() - 1; i++) {
+					double distance = MathService.distance(sequence.getX(i), sequence.getY(i), sequence.getX(i + 1),
+							sequence.getY(i + 1), x, y);
 					if (distance < minDistance) {
 						minDistance = distance;
 					}
-				} else if (geometry.getCoordinates().length > 1) {
-					for (int i = 0; i < geometry.getCoordinates().length - 1; i++) {
-						double distance = MathService.distance(geometry.getCoordinates()[i],
-								geometry.getCoordinates()[i + 1], coordinate);
-						if (distance < minDistance) {
-							minDistance = distance;
-						}
-					}
 				}
 			}
 		}
@@ -609,15 +790,74 @@ public final class GeometryService {
 	 * @since 1.2.0
 	 */
 	public static Geometry transform(Geometry geometry, Matrix matrix) {
-		Geometry copy = GeometryService.clone(geometry);
-		transformInplace(copy, matrix);
+		if (geometry == null) {
+			throw new IllegalArgumentException("Cannot transform null geometry.");
+		}
+		// the transformed coordinates are written directly into the copy, there is no intermediate clone
+		Geometry copy = new Geometry(geometry.getGeometryType(), geometry.getSrid(), geometry.getPrecision());
+		Geometry[] geometries = geometry.getGeometries();
+		if (geometries != null) {
+			Geometry[] transformed = new Geometry[geometries.length];
+			for (int i = 0; i < geometries.length; i++) {
+				transformed[i] = transform(geometries[i], matrix);
+			}
+			copy.setGeometries(transformed);
+		}
+		Coordinate[] coordinates = geometry.getCoordinates();
+		if (coordinates != null) {
+			if (geometries != null) {
+				// only the coordinates of geometries without sub-geometries are transformed
+				copy.setCoordinates(cloneCoordinates(coordinates));
+			} else {
+				Coordinate[] transformed = new Coordinate[coordinates.length];
+				double xx = matrix.getXx();
+				double xy = matrix.getXy();
+				double yx = matrix.getYx();
+				double yy = matrix.getYy();
+				for (int i = 0; i < coordinates.length; i++) {
+					double x = coordinates[i].getX();
+					double y = coordinates[i].getY();
+					transformed[i] = new Coordinate(x * xx + y * xy + matrix.getDx(), x * yx + y * yy + matrix.getDy());
+				}
+				copy.setCoordinates(transformed);
+			}
+		}
 		return copy;
 	}
 
+	/**
+	 * Perform a matrix transformation of a sequence of coordinates. The result is written in the target sequence,
+	 * which may be the source sequence itself for an in-place transformation.
+	 * 
+	 * @param source the coordinates to transform
+	 * @param target the sequence that receives the transformed coordinates, must be at least as large as the source
+	 * @param matrix the matrix to use
+	 * @since 1.4.0
+	 */
+	public static void transform(CoordinateSequence source, CoordinateSequence target, Matrix matrix) {
+		if (target.size() < source.size()) {
+			throw new IllegalArgumentException("Target sequence is too small to hold the transformed coordinates.");
+		}
+		for (int i = 0; i < source.size(); i++) {
+			double x = source.getX(i);
+			double y = source.getY(i);
+			target.setX(i, x * matrix.getXx() + y * matrix.getXy() + matrix.getDx());
+			target.setY(i, x * matrix.getYx() + y * matrix.getYy() + matrix.getDy());
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Private methods:
 	// ------------------------------------------------------------------------
 
+	private static Coordinate[] cloneCoordinates(Coordinate[] coordinates) {
+		Coordinate[] clones = new Coordinate[coordinates.length];
+		for (int i = 0; i < coordinates.length; i++) {
+			clones[i] = new Coordinate(coordinates[i].getX(), coordinates[i].getY());
+		}
+		return clones;
+	}
+
 	private static void getAllCoordinates(Geometry geometry, List<Coordinate> coordinates) {
 		if (geometry.getGeometries() != null) {
 			for (Geometry child : geometry.getGeometries()) {
@@ -649,19 +889,34 @@ public final class GeometryService {
 			}
 		}
 		if (geometry.getCoordinates() != null && Geometry.LINEAR_RING.equals(geometry.getGeometryType())) {
-			double temp = 0;
-			for (int i = 1; i < geometry.getCoordinates().length; i++) {
-				double x1 = geometry.getCoordinates()[i - 1].getX();
-				double y1 = geometry.getCoordinates()[i - 1].getY();
-				double x2 = geometry.getCoordinates()[i].getX();
-				double y2 = geometry.getCoordinates()[i].getY();
-				temp += x1 * y2 - x2 * y1;
-			}
-			area += (temp / 2);
+			area += getSignedArea(new CoordinateArraySequence(geometry.getCoordinates()));
 		}
 		return area;
 	}
 
+	private static double getSignedArea(CoordinateSequence ring) {
+		double temp = 0;
+		for (int i = 1; i < ring.size(); i++) {
+			double x1 = ring.getX(i - 1);
+			double y1 = ring.getY(i - 1);
+			double x2 = ring.getX(i);
+			double y2 = ring.getY(i);
+			temp += x1 * y2 - x2 * y1;
+		}
+		return temp / 2;
+	}
+
+	private static Coordinate getAverage(CoordinateSequence sequence) {
+		double sumX = 0;
+		double sumY = 0;
+		int size = sequence.size();
+		for (int i = 0; i < size; i++) {
+			sumX += sequence.getX(i);
+			sumY += sequence.getY(i);
+		}
+		return new Coordinate(sumX / size, sumY / size);
+	}
+
 	private static Coordinate getCentroidPoint(Geometry geometry) {
 		if (geometry.getCoordinates() != null) {
 			return geometry.getCoordinates()[0];
@@ -1013,21 +1268,6 @@ public final class GeometryService {
 		return false;
 	}
 
-	private static void transformInplace(Geometry geometry, Matrix matrix) {
-		if (geometry.getGeometries() != null) {
-			for (Geometry g : geometry.getGeometries()) {
-				transformInplace(g, matrix);
-			}
-		} else if (geometry.getCoordinates() != null) {
-			for (Coordinate c : geometry.getCoordinates()) {
-				double x = c.getX() * matrix.getXx() + c.getY() * matrix.getXy() + matrix.getDx();
-				double y = c.getX() * matrix.getYx() + c.getY() * matrix.getYy() + matrix.getDy();
-				c.setX(x);
-				c.setY(y);
-			}
-		}
-	}
-
 	private static GeometryIndex toIndex(String type, int[] index) {
 		if (index.length == 0) {
 			return null;
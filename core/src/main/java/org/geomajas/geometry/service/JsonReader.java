@@ -0,0 +1,441 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>
+ * Minimal JSON pull parser, used by the GeoJSON readers. The parser reads the characters through a small buffer and
+ * never holds more than the current token in memory. Objects and arrays are walked with {@link #beginObject()},
+ * {@link #hasNext()}, {@link #nextName()}, ... in the same way as for the pull parsers of the common JSON libraries.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * reader.beginArray();
+ * while (reader.hasNext()) {
+ * 	double value = reader.nextDouble();
+ * }
+ * reader.endArray();
+ * </pre>
+ *
+ * @author Jan De Moerloose
+ */
+final class JsonReader {
+
+	private static final String ERR_MSG = "Error while parsing GeoJSON: ";
+
+	private static final int BUFFER_SIZE = 1024;
+
+	private static final int HEX_DIGITS = 4;
+
+	private static final int HEX_RADIX = 16;
+
+	private static final int INITIAL_DEPTH = 8;
+
+	// state of an array or object: no value yet, a value is expected next, the last value has been read
+	private static final int EMPTY = 0;
+
+	private static final int BEFORE_VALUE = 1;
+
+	private static final int AFTER_VALUE = 2;
+
+	private final Reader reader;
+
+	private final char[] buffer;
+
+	private int pos;
+
+	private int limit;
+
+	private int offset;
+
+	private int[] stack = new int[INITIAL_DEPTH];
+
+	private int depth;
+
+	private final StringBuilder token = new StringBuilder();
+
+	/**
+	 * Create a parser that reads from a {@link Reader}.
+	 *
+	 * @param reader
+	 *            reader
+	 */
+	JsonReader(Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+
+	/**
+	 * Create a parser for a string.
+	 *
+	 * @param json
+	 *            the JSON text
+	 */
+	JsonReader(String json) {
+		this.reader = null;
+		this.buffer = json.toCharArray();
+		this.limit = buffer.length;
+	}
+
+	/**
+	 * Start reading an object.
+	 *
+	 * @throws GeoJsonException
+	 *             if the next value is not an object
+	 */
+	void beginObject() throws GeoJsonException {
+		beforeValue();
+		expect('{');
+		push();
+	}
+
+	/**
+	 * Finish reading an object, all members should have been read.
+	 *
+	 * @throws GeoJsonException
+	 *             if the object has more members
+	 */
+	void endObject() throws GeoJsonException {
+		expect('}');
+		depth--;
+	}
+
+	/**
+	 * Start reading an array.
+	 *
+	 * @throws GeoJsonException
+	 *             if the next value is not an array
+	 */
+	void beginArray() throws GeoJsonException {
+		beforeValue();
+		expect('[');
+		push();
+	}
+
+	/**
+	 * Finish reading an array, all elements should have been read.
+	 *
+	 * @throws GeoJsonException
+	 *             if the array has more elements
+	 */
+	void endArray() throws GeoJsonException {
+		expect(']');
+		depth--;
+	}
+
+	/**
+	 * Does the current array or object have more elements or members? This method may be called more than once.
+	 *
+	 * @return true if there are more elements or members
+	 * @throws GeoJsonException
+	 *             if there is no array or object, or if the last element or member is followed by a comma
+	 */
+	boolean hasNext() throws GeoJsonException {
+		if (depth == 0) {
+			throw error("not in an array or object");
+		}
+		int c = peek();
+		int state = stack[depth - 1];
+		if (state == AFTER_VALUE) {
+			if (c != ',') {
+				return false;
+			}
+			pos++;
+			state = BEFORE_VALUE;
+			stack[depth - 1] = state;
+			c = peek();
+		}
+		if (c == ']' || c == '}') {
+			if (state == BEFORE_VALUE) {
+				throw error("unexpected ','");
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read the name of the next member of an object.
+	 *
+	 * @return name
+	 * @throws GeoJsonException
+	 *             if there is no name
+	 */
+	String nextName() throws GeoJsonException {
+		if (peek() != '"') {
+			throw error("expected a name");
+		}
+		String name = readString();
+		expect(':');
+		stack[depth - 1] = BEFORE_VALUE;
+		return name;
+	}
+
+	/**
+	 * Get the first character of the next value, without consuming it.
+	 *
+	 * @return '{', '[', '"', 'n', ... or -1 at the end of the input
+	 * @throws GeoJsonException
+	 *             if reading from the input fails
+	 */
+	int peek() throws GeoJsonException {
+		while (true) {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			char c = buffer[pos];
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return c;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Read a string value.
+	 *
+	 * @return value
+	 * @throws GeoJsonException
+	 *             if the next value is not a string
+	 */
+	String nextString() throws GeoJsonException {
+		beforeValue();
+		if (peek() != '"') {
+			throw error("expected a string");
+		}
+		return readString();
+	}
+
+	/**
+	 * Read a number.
+	 *
+	 * @return value
+	 * @throws GeoJsonException
+	 *             if the next value is not a number
+	 */
+	double nextDouble() throws GeoJsonException {
+		beforeValue();
+		peek();
+		token.setLength(0);
+		while (true) {
+			if (pos == limit && !fill()) {
+				break;
+			}
+			char c = buffer[pos];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				token.append(c);
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if (token.length() == 0) {
+			throw error("expected a number");
+		}
+		try {
+			return DoubleFormat.parse(token, 0, token.length());
+		} catch (NumberFormatException e) { // NOSONAR
+			throw error("invalid number " + token);
+		}
+	}
+
+	/**
+	 * Is the next value null?
+	 *
+	 * @return true if the next value is null
+	 * @throws GeoJsonException
+	 *             if reading from the input fails
+	 */
+	boolean isNull() throws GeoJsonException {
+		return peek() == 'n';
+	}
+
+	/**
+	 * Skip the next value, including all elements or members.
+	 *
+	 * @throws GeoJsonException
+	 *             if the next value is invalid
+	 */
+	void skipValue() throws GeoJsonException {
+		int c = peek();
+		if (c == '{') {
+			beginObject();
+			while (hasNext()) {
+				nextName();
+				skipValue();
+			}
+			endObject();
+		} else if (c == '[') {
+			beginArray();
+			while (hasNext()) {
+				skipValue();
+			}
+			endArray();
+		} else if (c == '"') {
+			nextString();
+		} else if (c == 't') {
+			nextLiteral("true");
+		} else if (c == 'f') {
+			nextLiteral("false");
+		} else if (c == 'n') {
+			nextLiteral("null");
+		} else {
+			nextDouble();
+		}
+	}
+
+	/**
+	 * Read a literal value (true, false or null).
+	 *
+	 * @param literal
+	 *            the expected literal
+	 * @throws GeoJsonException
+	 *             if the next value is not the literal
+	 */
+	void nextLiteral(String literal) throws GeoJsonException {
+		beforeValue();
+		peek();
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw error("expected " + literal);
+			}
+		}
+	}
+
+	/**
+	 * Check that all input has been read, apart from whitespace.
+	 *
+	 * @throws GeoJsonException
+	 *             if there is more input
+	 */
+	void endDocument() throws GeoJsonException {
+		if (peek() >= 0) {
+			throw error("unexpected characters after the end");
+		}
+	}
+
+	/**
+	 * Create an exception, with the position in the input.
+	 *
+	 * @param message
+	 *            message
+	 * @return exception
+	 */
+	GeoJsonException error(String message) {
+		return new GeoJsonException(ERR_MSG + message + " at position " + (offset + pos));
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private void beforeValue() {
+		if (depth > 0) {
+			stack[depth - 1] = AFTER_VALUE;
+		}
+	}
+
+	private void push() {
+		if (depth == stack.length) {
+			int[] grown = new int[2 * depth];
+			System.arraycopy(stack, 0, grown, 0, depth);
+			stack = grown;
+		}
+		stack[depth++] = EMPTY;
+	}
+
+	private void expect(char expected) throws GeoJsonException {
+		if (peek() != expected) {
+			throw error("expected '" + expected + "'");
+		}
+		pos++;
+	}
+
+	private String readString() throws GeoJsonException {
+		// skip the opening quote
+		pos++;
+		token.setLength(0);
+		while (true) {
+			char c = read();
+			if (c == '"') {
+				return token.toString();
+			} else if (c == '\\') {
+				c = read();
+				switch (c) {
+					case 'b':
+						token.append('\b');
+						break;
+					case 'f':
+						token.append('\f');
+						break;
+					case 'n':
+						token.append('\n');
+						break;
+					case 'r':
+						token.append('\r');
+						break;
+					case 't':
+						token.append('\t');
+						break;
+					case 'u':
+						int code = 0;
+						for (int i = 0; i < HEX_DIGITS; i++) {
+							int digit = Character.digit(read(), HEX_RADIX);
+							if (digit < 0) {
+								throw error("invalid unicode escape");
+							}
+							code = code * HEX_RADIX + digit;
+						}
+						token.append((char) code);
+						break;
+					default:
+						// quote, backslash and slash
+						token.append(c);
+						break;
+				}
+			} else {
+				token.append(c);
+			}
+		}
+	}
+
+	private char read() throws GeoJsonException {
+		if (pos == limit && !fill()) {
+			throw error("unexpected end of input");
+		}
+		return buffer[pos++];
+	}
+
+	private boolean fill() throws GeoJsonException {
+		if (reader == null) {
+			return false;
+		}
+		try {
+			int count = reader.read(buffer, 0, buffer.length);
+			if (count <= 0) {
+				return false;
+			}
+			offset += limit;
+			pos = 0;
+			limit = count;
+			return true;
+		} catch (IOException e) {
+			throw new GeoJsonException(ERR_MSG + e.getMessage(), e);
+		}
+	}
+}
@@ -170,6 +170,34 @@ public final class MathService {
 		return distance(nearest(c1, c2, c), c);
 	}
 
+	/**
+	 * Distance between a point and a line segment, expressed in ordinates. This gives the same result as
+	 * {@link #distance(Coordinate, Coordinate, Coordinate)}, without the need to create coordinates.
+	 * 
+	 * @param x1 X-ordinate of the first coordinate of the line segment.
+	 * @param y1 Y-ordinate of the first coordinate of the line segment.
+	 * @param x2 X-ordinate of the second coordinate of the line segment.
+	 * @param y2 Y-ordinate of the second coordinate of the line segment.
+	 * @param x X-ordinate of the coordinate to calculate distance to line from.
+	 * @param y Y-ordinate of the coordinate to calculate distance to line from.
+	 * @return distance between point and line segment
+	 */
+	public static double distance(double x1, double y1, double x2, double y2, double x, double y) {
+		double deltaX = x2 - x1;
+		double deltaY = y2 - y1;
+		double len = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+		double u = ((x - x1) * deltaX + (y - y1) * deltaY) / (len * len);
+		if (u < 0.00001 || u > 1) {
+			// Shortest point not within LineSegment, so take closest end-point.
+			double len1 = Math.sqrt((x - x1) * (x - x1) + (y - y1) * (y - y1));
+			double len2 = Math.sqrt((x - x2) * (x - x2) + (y - y2) * (y - y2));
+			return len1 < len2 ? len1 : len2;
+		}
+		double nearestX = x1 + u * deltaX;
+		double nearestY = y1 + u * deltaY;
+		return Math.sqrt((nearestX - x) * (nearestX - x) + (nearestY - y) * (nearestY - y));
+	}
+
 	/**
 	 * Calculate which point on a line segment is nearest to the given coordinate. Will be perpendicular or one of the
 	 * end-points.
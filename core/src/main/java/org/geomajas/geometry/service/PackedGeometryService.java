@@ -0,0 +1,216 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.PackedGeometry;
+
+/**
+ * Service for converting geometries to and from their {@link PackedGeometry} representation. The conversion is
+ * lossless, with the exception that empty coordinate or geometry arrays are restored as null (as is the case for
+ * geometries that are parsed from WKT) and that all parts and rings get the SRID and precision of the geometry itself.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class PackedGeometryService {
+
+	private PackedGeometryService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Convert a geometry into its packed representation.
+	 *
+	 * @param geometry
+	 *            The geometry to convert.
+	 * @return The packed geometry.
+	 */
+	public static PackedGeometry toPacked(Geometry geometry) {
+		if (geometry == null) {
+			throw new IllegalArgumentException("Cannot pack null geometry.");
+		}
+		String type = geometry.getGeometryType();
+		Geometry[] parts = getParts(geometry);
+
+		// First pass: count rings and vertices:
+		int numRings = 0;
+		int numPoints = 0;
+		for (Geometry part : parts) {
+			Geometry[] rings = getRings(type, part);
+			numRings += rings.length;
+			for (Geometry ring : rings) {
+				numPoints += size(ring.getCoordinates());
+			}
+		}
+
+		// Second pass: copy the coordinates and keep track of the offsets:
+		double[] ordinates = new double[numPoints * 2];
+		int[] ringOffsets = new int[numRings + 1];
+		int[] partOffsets = new int[parts.length + 1];
+		int ringIndex = 0;
+		int vertexIndex = 0;
+		for (int i = 0; i < parts.length; i++) {
+			partOffsets[i] = ringIndex;
+			for (Geometry ring : getRings(type, parts[i])) {
+				ringOffsets[ringIndex++] = vertexIndex;
+				Coordinate[] coordinates = ring.getCoordinates();
+				for (int j = 0; j < size(coordinates); j++) {
+					ordinates[2 * vertexIndex] = coordinates[j].getX();
+					ordinates[2 * vertexIndex + 1] = coordinates[j].getY();
+					vertexIndex++;
+				}
+			}
+		}
+		ringOffsets[numRings] = numPoints;
+		partOffsets[parts.length] = numRings;
+		return new PackedGeometry(type, geometry.getSrid(), geometry.getPrecision(), ordinates, ringOffsets,
+				partOffsets);
+	}
+
+	/**
+	 * Convert a packed geometry back into a geometry.
+	 *
+	 * @param packed
+	 *            The packed geometry to convert.
+	 * @return The geometry.
+	 */
+	public static Geometry toGeometry(PackedGeometry packed) {
+		if (packed == null) {
+			throw new IllegalArgumentException("Cannot unpack null geometry.");
+		}
+		String type = packed.getGeometryType();
+		Geometry geometry = new Geometry(type, packed.getSrid(), packed.getPrecision());
+		if (Geometry.POINT.equals(type) || Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)) {
+			if (packed.getNumParts() > 0 && packed.getPartSize(0) > 0) {
+				geometry.setCoordinates(createCoordinates(packed, packed.getPartStart(0)));
+			}
+		} else if (Geometry.POLYGON.equals(type)) {
+			if (packed.getNumParts() > 0) {
+				geometry.setGeometries(createRings(packed, 0, Geometry.LINEAR_RING));
+			}
+		} else {
+			String partType = getPartType(type);
+			if (packed.getNumParts() > 0) {
+				Geometry[] geometries = new Geometry[packed.getNumParts()];
+				for (int i = 0; i < geometries.length; i++) {
+					geometries[i] = new Geometry(partType, packed.getSrid(), packed.getPrecision());
+					if (Geometry.POLYGON.equals(partType)) {
+						geometries[i].setGeometries(createRings(packed, i, Geometry.LINEAR_RING));
+					} else if (packed.getPartSize(i) > 0) {
+						geometries[i].setCoordinates(createCoordinates(packed, packed.getPartStart(i)));
+					}
+				}
+				geometry.setGeometries(geometries);
+			}
+		}
+		return geometry;
+	}
+
+	/**
+	 * Perform a matrix transformation of a packed geometry. The geometry passed will be left untouched. The result
+	 * shares the offset arrays of the original, only the ordinates are allocated.
+	 *
+	 * @param packed
+	 *            the geometry to transform
+	 * @param matrix
+	 *            the matrix to use
+	 * @return a transformed copy of the geometry
+	 */
+	public static PackedGeometry transform(PackedGeometry packed, Matrix matrix) {
+		double[] ordinates = packed.getOrdinates();
+		double[] transformed = new double[ordinates.length];
+		double xx = matrix.getXx();
+		double xy = matrix.getXy();
+		double yx = matrix.getYx();
+		double yy = matrix.getYy();
+		double dx = matrix.getDx();
+		double dy = matrix.getDy();
+		for (int i = 0; i < ordinates.length; i += 2) {
+			double x = ordinates[i];
+			double y = ordinates[i + 1];
+			transformed[i] = x * xx + y * xy + dx;
+			transformed[i + 1] = x * yx + y * yy + dy;
+		}
+		return new PackedGeometry(packed.getGeometryType(), packed.getSrid(), packed.getPrecision(), transformed,
+				packed.getRingOffsets(), packed.getPartOffsets());
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	static Geometry[] getParts(Geometry geometry) {
+		String type = geometry.getGeometryType();
+		if (Geometry.POINT.equals(type) || Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)
+				|| Geometry.POLYGON.equals(type)) {
+			return new Geometry[] { geometry };
+		} else if (Geometry.MULTI_POINT.equals(type) || Geometry.MULTI_LINE_STRING.equals(type)
+				|| Geometry.MULTI_POLYGON.equals(type)) {
+			return geometry.getGeometries() == null ? new Geometry[0] : geometry.getGeometries();
+		}
+		throw new IllegalArgumentException("Unsupported geometry type: " + type);
+	}
+
+	static Geometry[] getRings(String type, Geometry part) {
+		if (Geometry.POLYGON.equals(type) || Geometry.MULTI_POLYGON.equals(type)) {
+			return part.getGeometries() == null ? new Geometry[0] : part.getGeometries();
+		}
+		return new Geometry[] { part };
+	}
+
+	private static String getPartType(String type) {
+		if (Geometry.MULTI_POINT.equals(type)) {
+			return Geometry.POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(type)) {
+			return Geometry.LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equals(type)) {
+			return Geometry.POLYGON;
+		}
+		throw new IllegalArgumentException("Unsupported geometry type: " + type);
+	}
+
+	private static Geometry[] createRings(PackedGeometry packed, int part, String ringType) {
+		int numRings = packed.getPartSize(part);
+		if (numRings == 0) {
+			return null;
+		}
+		Geometry[] rings = new Geometry[numRings];
+		for (int i = 0; i < numRings; i++) {
+			rings[i] = new Geometry(ringType, packed.getSrid(), packed.getPrecision());
+			rings[i].setCoordinates(createCoordinates(packed, packed.getPartStart(part) + i));
+		}
+		return rings;
+	}
+
+	private static Coordinate[] createCoordinates(PackedGeometry packed, int ring) {
+		int size = packed.getRingSize(ring);
+		if (size == 0) {
+			return null;
+		}
+		double[] ordinates = packed.getOrdinates();
+		Coordinate[] coordinates = new Coordinate[size];
+		int offset = 2 * packed.getRingStart(ring);
+		for (int i = 0; i < size; i++) {
+			coordinates[i] = new Coordinate(ordinates[offset + 2 * i], ordinates[offset + 2 * i + 1]);
+		}
+		return coordinates;
+	}
+
+	private static int size(Coordinate[] coordinates) {
+		return coordinates == null ? 0 : coordinates.length;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Exception thrown from within the {@link PolylineService} in case of parsing or formatting errors.
+ * 
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api
+public class PolylineException extends Exception {
+
+	private static final long serialVersionUID = 140L;
+
+	/**
+	 * Initialize this exception with the given message.
+	 * 
+	 * @param message
+	 *            The error message.
+	 */
+	public PolylineException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Create PolylineException with given message and cause.
+	 *
+	 * @param message message
+	 * @param cause cause
+	 */
+	public PolylineException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
\ No newline at end of file
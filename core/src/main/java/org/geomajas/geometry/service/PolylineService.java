@@ -0,0 +1,314 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * General service for encoded polyline to and from geometry conversion, using the Google polyline algorithm. Every
+ * coordinate is rounded to a number of decimals and written as the difference with the previous coordinate, in
+ * printable ASCII characters. As in the original algorithm, the y-coordinate (latitude) comes first.
+ * </p>
+ * <p>
+ * Only line strings (and linear rings) and multipoints can be encoded. The number of decimals is the precision of the
+ * geometry, or the standard precision of 5 for geometries without a positive precision (such as the geometries parsed
+ * from WKT or GeoJSON). Services that use another precision (such as 6 for OSRM) can pass it explicitly. The
+ * precision is not part of the encoded polyline, so the same precision should be used for decoding.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class PolylineService {
+
+	/** The precision of the original algorithm. */
+	public static final int DEFAULT_PRECISION = 5;
+
+	private static final String ERR_MSG = "Error while parsing polyline: ";
+
+	private static final String ERR_MSG_WRITE = "Error while writing polyline: ";
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10 };
+
+	private static final int CHUNK_BITS = 5;
+
+	private static final int CHUNK_MASK = 0x1F;
+
+	private static final int MORE_CHUNKS = 0x20;
+
+	private static final int OFFSET = 63;
+
+	// most coordinates take 4 to 8 characters
+	private static final int CHARS_PER_COORDINATE = 8;
+
+	private PolylineService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Encode a line string or multipoint, using the precision of the geometry. The default precision of 5 is used when
+	 * the geometry has no positive precision, use {@link #toPolyline(Geometry, int)} to encode whole numbers.
+	 *
+	 * @param geometry
+	 *            The geometry to encode.
+	 * @return The encoded polyline.
+	 * @throws PolylineException
+	 *             In case the geometry can not be encoded, or its precision is above 10.
+	 */
+	public static String toPolyline(Geometry geometry) throws PolylineException {
+		if (geometry == null) {
+			throw new PolylineException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		return toPolyline(geometry, geometry.getPrecision() <= 0 ? DEFAULT_PRECISION : geometry.getPrecision());
+	}
+
+	/**
+	 * Encode a line string or multipoint with the given number of decimals.
+	 *
+	 * @param geometry
+	 *            The geometry to encode.
+	 * @param precision
+	 *            The number of decimals, from 0 up to 10.
+	 * @return The encoded polyline.
+	 * @throws PolylineException
+	 *             In case the geometry can not be encoded.
+	 */
+	public static String toPolyline(Geometry geometry, int precision) throws PolylineException {
+		checkPrecision(precision);
+		if (geometry == null) {
+			throw new PolylineException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		String type = geometry.getGeometryType();
+		double scale = POWERS_OF_TEN[precision];
+		long[] previous = new long[2];
+		if (Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)) {
+			Coordinate[] coordinates = geometry.getCoordinates();
+			if (coordinates == null) {
+				return "";
+			}
+			StringBuilder builder = new StringBuilder(coordinates.length * CHARS_PER_COORDINATE);
+			for (Coordinate coordinate : coordinates) {
+				appendCoordinate(coordinate, scale, previous, builder);
+			}
+			return builder.toString();
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			StringBuilder builder = new StringBuilder();
+			if (geometry.getGeometries() != null) {
+				for (Geometry point : geometry.getGeometries()) {
+					// empty points can not be represented
+					if (point.getCoordinates() != null && point.getCoordinates().length > 0) {
+						appendCoordinate(point.getCoordinates()[0], scale, previous, builder);
+					}
+				}
+			}
+			return builder.toString();
+		}
+		throw new PolylineException(ERR_MSG_WRITE + "type of geometry not supported (" + type + ")");
+	}
+
+	/**
+	 * Decode a polyline into a line string, using the default precision of 5.
+	 *
+	 * @param polyline
+	 *            The encoded polyline.
+	 * @return The line string.
+	 * @throws PolylineException
+	 *             In case the polyline is invalid.
+	 */
+	public static Geometry toGeometry(String polyline) throws PolylineException {
+		return toGeometry(polyline, Geometry.LINE_STRING, DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Decode a polyline into a line string or multipoint. The precision of the geometry is set to the given number of
+	 * decimals.
+	 *
+	 * @param polyline
+	 *            The encoded polyline.
+	 * @param geometryType
+	 *            {@link Geometry#LINE_STRING} or {@link Geometry#MULTI_POINT}.
+	 * @param precision
+	 *            The number of decimals that was used for encoding.
+	 * @return The geometry.
+	 * @throws PolylineException
+	 *             In case the polyline is invalid.
+	 */
+	public static Geometry toGeometry(String polyline, String geometryType, int precision) throws PolylineException {
+		if (!Geometry.LINE_STRING.equals(geometryType) && !Geometry.MULTI_POINT.equals(geometryType)) {
+			throw new PolylineException(ERR_MSG + "type of geometry not supported (" + geometryType + ")");
+		}
+		Geometry geometry = new Geometry(geometryType, 0, precision);
+		int numPoints = getNumPoints(polyline);
+		if (numPoints > 0) {
+			Coordinate[] coordinates = new Coordinate[numPoints];
+			toCoordinates(polyline, precision, coordinates);
+			if (Geometry.LINE_STRING.equals(geometryType)) {
+				geometry.setCoordinates(coordinates);
+			} else {
+				Geometry[] points = new Geometry[numPoints];
+				for (int i = 0; i < numPoints; i++) {
+					points[i] = new Geometry(Geometry.POINT, 0, precision);
+					points[i].setCoordinates(new Coordinate[] { coordinates[i] });
+				}
+				geometry.setGeometries(points);
+			}
+		}
+		return geometry;
+	}
+
+	/**
+	 * Get the number of coordinates in a polyline, without decoding it. Use this to allocate the array for
+	 * {@link #toCoordinates(String, int, Coordinate[])}.
+	 *
+	 * @param polyline
+	 *            The encoded polyline.
+	 * @return The number of coordinates.
+	 * @throws PolylineException
+	 *             In case the polyline is invalid.
+	 */
+	public static int getNumPoints(String polyline) throws PolylineException {
+		if (polyline == null) {
+			throw new PolylineException(ERR_MSG + "illegal argument; no polyline");
+		}
+		int numValues = 0;
+		for (int i = 0; i < polyline.length(); i++) {
+			int chunk = polyline.charAt(i) - OFFSET;
+			if (chunk < 0 || chunk > (MORE_CHUNKS | CHUNK_MASK)) {
+				throw new PolylineException(ERR_MSG + "invalid character at position " + i);
+			}
+			if ((chunk & MORE_CHUNKS) == 0) {
+				numValues++;
+			}
+		}
+		if (numValues % 2 != 0 || (polyline.length() > 0 && !isLastChunk(polyline.charAt(polyline.length() - 1)))) {
+			throw new PolylineException(ERR_MSG + "unexpected end of polyline");
+		}
+		return numValues / 2;
+	}
+
+	/**
+	 * Decode a polyline into a preallocated coordinate array. Coordinates that are already in the array are reused,
+	 * missing ones are created. The array may be larger than needed, the remaining elements are not touched.
+	 *
+	 * @param polyline
+	 *            The encoded polyline.
+	 * @param precision
+	 *            The number of decimals that was used for encoding.
+	 * @param coordinates
+	 *            The array to decode into, at least {@link #getNumPoints(String)} long.
+	 * @return The number of decoded coordinates.
+	 * @throws PolylineException
+	 *             In case the polyline is invalid or the array is too small.
+	 */
+	public static int toCoordinates(String polyline, int precision, Coordinate[] coordinates)
+			throws PolylineException {
+		checkPrecision(precision);
+		if (polyline == null) {
+			throw new PolylineException(ERR_MSG + "illegal argument; no polyline");
+		}
+		double scale = POWERS_OF_TEN[precision];
+		int length = polyline.length();
+		int pos = 0;
+		int count = 0;
+		long x = 0;
+		long y = 0;
+		while (pos < length) {
+			if (count == coordinates.length) {
+				throw new PolylineException(ERR_MSG + "coordinate array too small (" + coordinates.length + ")");
+			}
+			// latitude first
+			long value = 0;
+			int shift = 0;
+			int chunk;
+			do {
+				chunk = nextChunk(polyline, pos++, shift);
+				value |= (long) (chunk & CHUNK_MASK) << shift;
+				shift += CHUNK_BITS;
+			} while ((chunk & MORE_CHUNKS) != 0);
+			y += decodeSigned(value);
+			value = 0;
+			shift = 0;
+			do {
+				chunk = nextChunk(polyline, pos++, shift);
+				value |= (long) (chunk & CHUNK_MASK) << shift;
+				shift += CHUNK_BITS;
+			} while ((chunk & MORE_CHUNKS) != 0);
+			x += decodeSigned(value);
+			// dividing by an exact power of ten is correctly rounded
+			if (coordinates[count] == null) {
+				coordinates[count] = new Coordinate(x / scale, y / scale);
+			} else {
+				coordinates[count].setX(x / scale);
+				coordinates[count].setY(y / scale);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static void checkPrecision(int precision) throws PolylineException {
+		if (precision < 0 || precision >= POWERS_OF_TEN.length) {
+			throw new PolylineException("Error in polyline: precision should be between 0 and "
+					+ (POWERS_OF_TEN.length - 1) + " (" + precision + ")");
+		}
+	}
+
+	private static void appendCoordinate(Coordinate coordinate, double scale, long[] previous, StringBuilder builder)
+			throws PolylineException {
+		if (Double.isNaN(coordinate.getX()) || Double.isNaN(coordinate.getY()) || Double.isInfinite(coordinate.getX())
+				|| Double.isInfinite(coordinate.getY())) {
+			throw new PolylineException(ERR_MSG_WRITE + "invalid coordinate " + coordinate);
+		}
+		long y = Math.round(coordinate.getY() * scale);
+		long x = Math.round(coordinate.getX() * scale);
+		appendSigned(y - previous[1], builder);
+		appendSigned(x - previous[0], builder);
+		previous[0] = x;
+		previous[1] = y;
+	}
+
+	private static void appendSigned(long delta, StringBuilder builder) {
+		long value = delta < 0 ? ~(delta << 1) : delta << 1;
+		while (value >= MORE_CHUNKS) {
+			builder.append((char) ((MORE_CHUNKS | (value & CHUNK_MASK)) + OFFSET));
+			value >>>= CHUNK_BITS;
+		}
+		builder.append((char) (value + OFFSET));
+	}
+
+	private static long decodeSigned(long value) {
+		return (value & 1) != 0 ? ~(value >>> 1) : value >>> 1;
+	}
+
+	private static int nextChunk(String polyline, int pos, int shift) throws PolylineException {
+		if (pos >= polyline.length()) {
+			throw new PolylineException(ERR_MSG + "unexpected end of polyline");
+		}
+		int chunk = polyline.charAt(pos) - OFFSET;
+		if (chunk < 0 || chunk > (MORE_CHUNKS | CHUNK_MASK) || shift >= Long.SIZE) {
+			throw new PolylineException(ERR_MSG + "invalid character at position " + pos);
+		}
+		return chunk;
+	}
+
+	private static boolean isLastChunk(char c) {
+		return ((c - OFFSET) & MORE_CHUNKS) == 0;
+	}
+}
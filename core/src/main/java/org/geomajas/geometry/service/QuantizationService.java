@@ -0,0 +1,340 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.math.BigInteger;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.PackedGeometry;
+import org.geomajas.geometry.QuantizedGeometry;
+
+/**
+ * Service for encoding geometries into their {@link QuantizedGeometry} representation and back, and for operations
+ * that work directly on the quantized ordinates. The number of decimals that is kept is given by the precision of the
+ * geometry, which must be between 0 and {@link #MAX_PRECISION}.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class QuantizationService {
+
+	/** The maximum supported precision (number of decimals). */
+	public static final int MAX_PRECISION = 9;
+
+	/** Below this limit, cross products of ordinate differences can be calculated exactly with longs. */
+	private static final long EXACT_LIMIT = 1L << 31;
+
+	private QuantizationService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Quantize a single value.
+	 *
+	 * @param value
+	 *            The value to quantize.
+	 * @param precision
+	 *            The number of decimals to keep.
+	 * @return The value multiplied by 10 to the power of the precision, and rounded.
+	 */
+	public static int quantize(double value, int precision) {
+		return quantize(value, getScale(precision));
+	}
+
+	/**
+	 * Decode a single quantized value.
+	 *
+	 * @param value
+	 *            The quantized value.
+	 * @param precision
+	 *            The number of decimals that were kept.
+	 * @return The value divided by 10 to the power of the precision.
+	 */
+	public static double dequantize(int value, int precision) {
+		return value / getScale(precision);
+	}
+
+	/**
+	 * Quantize a geometry, keeping the number of decimals that is given by its precision.
+	 *
+	 * @param geometry
+	 *            The geometry to quantize.
+	 * @return The quantized geometry.
+	 */
+	public static QuantizedGeometry quantize(Geometry geometry) {
+		return quantize(geometry, geometry.getPrecision());
+	}
+
+	/**
+	 * Quantize a geometry, keeping the given number of decimals.
+	 *
+	 * @param geometry
+	 *            The geometry to quantize.
+	 * @param precision
+	 *            The number of decimals to keep.
+	 * @return The quantized geometry, with the given precision.
+	 */
+	public static QuantizedGeometry quantize(Geometry geometry, int precision) {
+		PackedGeometry packed = PackedGeometryService.toPacked(geometry);
+		return quantize(packed, precision, packed.getRingOffsets(), packed.getPartOffsets());
+	}
+
+	/**
+	 * Quantize a packed geometry, keeping the given number of decimals.
+	 *
+	 * @param packed
+	 *            The packed geometry to quantize.
+	 * @param precision
+	 *            The number of decimals to keep.
+	 * @return The quantized geometry, with the given precision.
+	 */
+	public static QuantizedGeometry quantize(PackedGeometry packed, int precision) {
+		return quantize(packed, precision, packed.getRingOffsets().clone(), packed.getPartOffsets().clone());
+	}
+
+	/**
+	 * Decode a quantized geometry into a packed geometry.
+	 *
+	 * @param quantized
+	 *            The quantized geometry.
+	 * @return The packed geometry, with the same precision.
+	 */
+	public static PackedGeometry toPacked(QuantizedGeometry quantized) {
+		int[] ordinates = quantized.getOrdinates();
+		double scale = quantized.getScale();
+		double[] decoded = new double[ordinates.length];
+		for (int i = 0; i < ordinates.length; i++) {
+			decoded[i] = ordinates[i] / scale;
+		}
+		return new PackedGeometry(quantized.getGeometryType(), quantized.getSrid(), quantized.getPrecision(), decoded,
+				quantized.getRingOffsets().clone(), quantized.getPartOffsets().clone());
+	}
+
+	/**
+	 * Decode a quantized geometry into a geometry.
+	 *
+	 * @param quantized
+	 *            The quantized geometry.
+	 * @return The geometry, with the same precision.
+	 */
+	public static Geometry toGeometry(QuantizedGeometry quantized) {
+		return PackedGeometryService.toGeometry(toPacked(quantized));
+	}
+
+	/**
+	 * Get the closest {@link Bbox} around a quantized geometry. Only the resulting bounds are decoded.
+	 *
+	 * @param quantized
+	 *            The geometry to calculate a bounding box for.
+	 * @return The bounding box for the given geometry, or null if it is empty.
+	 */
+	public static Bbox getBounds(QuantizedGeometry quantized) {
+		if (quantized.isEmpty()) {
+			return null;
+		}
+		int[] bounds = getQuantizedBounds(quantized);
+		double scale = quantized.getScale();
+		return new Bbox(bounds[0] / scale, bounds[1] / scale, (bounds[2] - (long) bounds[0]) / scale,
+				(bounds[3] - (long) bounds[1]) / scale);
+	}
+
+	/**
+	 * Does the bounding box of a quantized geometry intersect the given bounding box? The comparison is done on the
+	 * quantized ordinates, touching bounding boxes are considered to intersect.
+	 *
+	 * @param quantized
+	 *            The quantized geometry.
+	 * @param bbox
+	 *            The bounding box.
+	 * @return true if the bounds intersect, false otherwise.
+	 */
+	public static boolean intersects(QuantizedGeometry quantized, Bbox bbox) {
+		if (quantized.isEmpty()) {
+			return false;
+		}
+		int[] bounds = getQuantizedBounds(quantized);
+		double scale = quantized.getScale();
+		return bounds[2] >= Math.ceil(bbox.getX() * scale) && bounds[3] >= Math.ceil(bbox.getY() * scale)
+				&& bounds[0] <= Math.floor(bbox.getMaxX() * scale) && bounds[1] <= Math.floor(bbox.getMaxY() * scale);
+	}
+
+	/**
+	 * Calculate whether or not two quantized geometries intersect each other. Both geometries must have the same
+	 * precision. The geometries intersect if any of their points or edges share at least one point (touching counts as
+	 * intersecting). As for {@link GeometryService#intersects(Geometry, Geometry)}, the interior of polygons is not
+	 * taken into account. The calculation is done on the quantized ordinates and is exact.
+	 *
+	 * @param one
+	 *            The first geometry.
+	 * @param two
+	 *            The second geometry.
+	 * @return true if the geometries intersect, false otherwise.
+	 */
+	public static boolean intersects(QuantizedGeometry one, QuantizedGeometry two) {
+		if (one.getPrecision() != two.getPrecision()) {
+			throw new IllegalArgumentException("Can only intersect quantized geometries with the same precision.");
+		}
+		if (one.isEmpty() || two.isEmpty()) {
+			return false;
+		}
+		int[] bounds1 = getQuantizedBounds(one);
+		int[] bounds2 = getQuantizedBounds(two);
+		if (bounds2[0] > bounds1[2] || bounds2[1] > bounds1[3] || bounds2[2] < bounds1[0]
+				|| bounds2[3] < bounds1[1]) {
+			return false;
+		}
+		int[] ordinates1 = one.getOrdinates();
+		int[] ordinates2 = two.getOrdinates();
+		for (int ring1 = 0; ring1 < one.getNumRings(); ring1++) {
+			int start1 = one.getRingStart(ring1);
+			int end1 = start1 + Math.max(one.getRingSize(ring1) - 1, 1);
+			for (int i = start1; i < end1 && one.getRingSize(ring1) > 0; i++) {
+				// a ring with one vertex is a point, handled as a segment with equal end points:
+				int j = one.getRingSize(ring1) == 1 ? i : i + 1;
+				for (int ring2 = 0; ring2 < two.getNumRings(); ring2++) {
+					int start2 = two.getRingStart(ring2);
+					int end2 = start2 + Math.max(two.getRingSize(ring2) - 1, 1);
+					for (int k = start2; k < end2 && two.getRingSize(ring2) > 0; k++) {
+						int l = two.getRingSize(ring2) == 1 ? k : k + 1;
+						if (intersectsSegment(ordinates1[2 * i], ordinates1[2 * i + 1], ordinates1[2 * j],
+								ordinates1[2 * j + 1], ordinates2[2 * k], ordinates2[2 * k + 1], ordinates2[2 * l],
+								ordinates2[2 * l + 1])) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Perform a matrix transformation of a quantized geometry. The geometry passed will be left untouched. The
+	 * translation of the matrix is expressed in (unquantized) ordinates, the result is rounded to the precision of the
+	 * geometry.
+	 *
+	 * @param quantized
+	 *            the geometry to transform
+	 * @param matrix
+	 *            the matrix to use
+	 * @return a transformed copy of the geometry, with the same precision
+	 */
+	public static QuantizedGeometry transform(QuantizedGeometry quantized, Matrix matrix) {
+		int[] ordinates = quantized.getOrdinates();
+		int[] transformed = new int[ordinates.length];
+		double scale = quantized.getScale();
+		double dx = matrix.getDx() * scale;
+		double dy = matrix.getDy() * scale;
+		for (int i = 0; i < ordinates.length; i += 2) {
+			double x = ordinates[i];
+			double y = ordinates[i + 1];
+			transformed[i] = toInt(x * matrix.getXx() + y * matrix.getXy() + dx);
+			transformed[i + 1] = toInt(x * matrix.getYx() + y * matrix.getYy() + dy);
+		}
+		return new QuantizedGeometry(quantized.getGeometryType(), quantized.getSrid(), quantized.getPrecision(),
+				transformed, quantized.getRingOffsets().clone(), quantized.getPartOffsets().clone());
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static QuantizedGeometry quantize(PackedGeometry packed, int precision, int[] ringOffsets,
+			int[] partOffsets) {
+		double scale = getScale(precision);
+		double[] ordinates = packed.getOrdinates();
+		int[] quantized = new int[ordinates.length];
+		for (int i = 0; i < ordinates.length; i++) {
+			quantized[i] = quantize(ordinates[i], scale);
+		}
+		return new QuantizedGeometry(packed.getGeometryType(), packed.getSrid(), precision, quantized, ringOffsets,
+				partOffsets);
+	}
+
+	private static double getScale(int precision) {
+		if (precision < 0 || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION + ", not "
+					+ precision);
+		}
+		return Math.pow(10, precision);
+	}
+
+	private static int quantize(double value, double scale) {
+		return toInt(value * scale);
+	}
+
+	private static int toInt(double value) {
+		double rounded = Math.rint(value);
+		if (rounded > Integer.MAX_VALUE || rounded < Integer.MIN_VALUE || Double.isNaN(rounded)) {
+			throw new IllegalArgumentException("Value " + value + " is out of range for quantization.");
+		}
+		return (int) rounded;
+	}
+
+	/** Returns the quantized bounds as { minX, minY, maxX, maxY }. */
+	private static int[] getQuantizedBounds(QuantizedGeometry quantized) {
+		int[] ordinates = quantized.getOrdinates();
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < ordinates.length; i += 2) {
+			int x = ordinates[i];
+			int y = ordinates[i + 1];
+			if (x < minX) {
+				minX = x;
+			}
+			if (y < minY) {
+				minY = y;
+			}
+			if (x > maxX) {
+				maxX = x;
+			}
+			if (y > maxY) {
+				maxY = y;
+			}
+		}
+		return new int[] { minX, minY, maxX, maxY };
+	}
+
+	/** Do the closed segments a-b and c-d share at least one point? */
+	private static boolean intersectsSegment(long ax, long ay, long bx, long by, long cx, long cy, long dx, long dy) {
+		int o1 = orientation(ax, ay, bx, by, cx, cy);
+		int o2 = orientation(ax, ay, bx, by, dx, dy);
+		int o3 = orientation(cx, cy, dx, dy, ax, ay);
+		int o4 = orientation(cx, cy, dx, dy, bx, by);
+		if (o1 == 0 && o2 == 0 && o3 == 0 && o4 == 0) {
+			// colinear (or single points), intersecting if the ranges overlap
+			return Math.max(Math.min(ax, bx), Math.min(cx, dx)) <= Math.min(Math.max(ax, bx), Math.max(cx, dx))
+					&& Math.max(Math.min(ay, by), Math.min(cy, dy)) <= Math.min(Math.max(ay, by), Math.max(cy, dy));
+		}
+		return o1 * o2 <= 0 && o3 * o4 <= 0;
+	}
+
+	/** Sign of the cross product (b - a) x (c - a), calculated exactly. */
+	private static int orientation(long ax, long ay, long bx, long by, long cx, long cy) {
+		long dx1 = bx - ax;
+		long dy1 = by - ay;
+		long dx2 = cx - ax;
+		long dy2 = cy - ay;
+		if (Math.abs(dx1) < EXACT_LIMIT && Math.abs(dy1) < EXACT_LIMIT && Math.abs(dx2) < EXACT_LIMIT
+				&& Math.abs(dy2) < EXACT_LIMIT) {
+			return Long.signum(dx1 * dy2 - dy1 * dx2);
+		}
+		return BigInteger.valueOf(dx1).multiply(BigInteger.valueOf(dy2))
+				.subtract(BigInteger.valueOf(dy1).multiply(BigInteger.valueOf(dx2))).signum();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.ImmutableGeometry;
+
+/**
+ * <p>
+ * Serialized form of a {@link Geometry} (or {@link ImmutableGeometry}). Geometries replace themselves by this proxy
+ * when they are written to an object stream, and the proxy resolves to the geometry again when it is read. Instead of
+ * a separate object per coordinate, the whole geometry tree is written in the compact encoding of
+ * {@link GeometrySerializer}.
+ * </p>
+ * <p>
+ * Keeping the serialization code here keeps the java.io dependencies out of the GWT compatible geometry DTOs.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ */
+public final class SerializedGeometry implements Serializable {
+
+	private static final long serialVersionUID = 140L;
+
+	private transient Geometry geometry;
+
+	private transient boolean immutable;
+
+	/**
+	 * Create the serialized form of a geometry.
+	 *
+	 * @param geometry
+	 *            The geometry to serialize.
+	 * @param immutable
+	 *            Should the geometry be read as an {@link ImmutableGeometry}?
+	 */
+	public SerializedGeometry(Geometry geometry, boolean immutable) {
+		this.geometry = geometry;
+		this.immutable = immutable;
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Write the compact form of the geometry.
+	 *
+	 * @param out
+	 *            output stream
+	 * @throws IOException
+	 *             in case writing to the stream fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeBoolean(immutable);
+		GeometrySerializer.write(geometry, out);
+	}
+
+	/**
+	 * Read the compact form of the geometry.
+	 *
+	 * @param in
+	 *            input stream
+	 * @throws IOException
+	 *             in case reading from the stream fails or the content is invalid
+	 * @throws ClassNotFoundException
+	 *             in case the class of a serialized coordinate array can not be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		immutable = in.readBoolean();
+		geometry = GeometrySerializer.read(in);
+	}
+
+	/**
+	 * Resolve to the geometry that was serialized. An {@link ImmutableGeometry} is frozen again, including its
+	 * sub-geometries.
+	 *
+	 * @return the geometry
+	 */
+	private Object readResolve() {
+		return immutable ? new ImmutableGeometry(geometry) : geometry;
+	}
+}
@@ -0,0 +1,536 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.ByteArrayOutputStream;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * General service for Tiny Well-Known-Binary (TWKB) to and from geometry conversion. TWKB is a compact binary format:
+ * coordinates are rounded to a number of decimals and written as the difference with the previous coordinate, using
+ * zig-zag variable length integers. An optional bounding box can be added to the header.
+ * </p>
+ * <p>
+ * The number of decimals is the precision of the geometry, or can be passed explicitly. Geometries without a positive
+ * precision (such as the geometries parsed from WKT or GeoJSON) are written with the default precision of 7 decimals.
+ * TWKB allows a precision from -8 (coordinates are rounded to 100000000) up to 7 decimals. Only 2D geometries are
+ * supported. TWKB has no SRID and no linear ring type, so linear rings are written as line strings. Empty points in a
+ * multipoint can not be represented and are left out.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class TwkbService {
+
+	/** The precision that is used for geometries without a positive precision. */
+	public static final int DEFAULT_PRECISION = 7;
+
+	private static final String ERR_MSG = "Error while parsing TWKB: ";
+
+	private static final String ERR_MSG_WRITE = "Error while writing TWKB: ";
+
+	private static final int TWKB_POINT = 1;
+
+	private static final int TWKB_LINE_STRING = 2;
+
+	private static final int TWKB_POLYGON = 3;
+
+	private static final int TWKB_MULTI_POINT = 4;
+
+	private static final int TWKB_MULTI_LINE_STRING = 5;
+
+	private static final int TWKB_MULTI_POLYGON = 6;
+
+	private static final int FLAG_BBOX = 0x01;
+
+	private static final int FLAG_SIZE = 0x02;
+
+	private static final int FLAG_ID_LIST = 0x04;
+
+	private static final int FLAG_EXTENDED = 0x08;
+
+	private static final int FLAG_EMPTY = 0x10;
+
+	private static final int EXTENDED_DIMENSIONS = 0x03;
+
+	private static final int MIN_PRECISION = -8;
+
+	private static final int MAX_PRECISION = 7;
+
+	private static final int TYPE_MASK = 0x0F;
+
+	private static final int PRECISION_SHIFT = 4;
+
+	private static final int VARINT_MASK = 0x7F;
+
+	private static final int VARINT_MORE = 0x80;
+
+	private static final int VARINT_SHIFT = 7;
+
+	private static final int VARINT_MAX_SHIFT = 63;
+
+	private static final int BOUNDS_SIZE = 4;
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8 };
+
+	private TwkbService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Parses a given TWKB into a geometry object. The precision of the geometry is set to the number of decimals of
+	 * the TWKB (or 0 if the TWKB precision is negative).
+	 *
+	 * @param twkb
+	 *            The TWKB to parse.
+	 * @return The resulting geometry.
+	 * @throws TwkbException
+	 *             In case something went wrong while parsing.
+	 */
+	public static Geometry toGeometry(byte[] twkb) throws TwkbException {
+		GeometryBuilder builder = new GeometryBuilder();
+		toGeometry(twkb, builder);
+		return builder.getGeometry();
+	}
+
+	/**
+	 * Parses a given TWKB and reports the resulting geometry to the given handler. When parsing fails, the partial
+	 * geometry is discarded through {@link GeometryHandler#abort()}.
+	 *
+	 * @param twkb
+	 *            The TWKB to parse.
+	 * @param handler
+	 *            The handler that receives the geometry.
+	 * @throws TwkbException
+	 *             In case something went wrong while parsing.
+	 */
+	public static void toGeometry(byte[] twkb, GeometryHandler handler) throws TwkbException {
+		if (twkb == null) {
+			throw new TwkbException(ERR_MSG + "illegal argument; no TWKB");
+		}
+		Input input = new Input(twkb);
+		boolean parsed = false;
+		try {
+			parseGeometry(input, handler);
+			parsed = true;
+		} finally {
+			if (!parsed) {
+				handler.abort();
+			}
+		}
+		if (input.pos < twkb.length) {
+			throw new TwkbException(ERR_MSG + "unexpected bytes after the geometry");
+		}
+	}
+
+	/**
+	 * Format a given geometry to TWKB, using the precision of the geometry as number of decimals, without bounding
+	 * box. The default precision of 7 is used when the geometry has no positive precision, use
+	 * {@link #toTwkb(Geometry, int, boolean)} to write whole numbers.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @return The TWKB.
+	 * @throws TwkbException
+	 *             In case something went wrong while formatting, or when the precision of the geometry is higher than
+	 *             7.
+	 */
+	public static byte[] toTwkb(Geometry geometry) throws TwkbException {
+		if (geometry == null) {
+			throw new TwkbException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		return toTwkb(geometry, geometry.getPrecision() <= 0 ? DEFAULT_PRECISION : geometry.getPrecision(), false);
+	}
+
+	/**
+	 * Format a given geometry to TWKB.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param precision
+	 *            The number of decimals to keep, from -8 up to 7. A negative precision rounds to tens, hundreds, ...
+	 * @param bbox
+	 *            Should a bounding box be added to the header?
+	 * @return The TWKB.
+	 * @throws TwkbException
+	 *             In case something went wrong while formatting.
+	 */
+	public static byte[] toTwkb(Geometry geometry, int precision, boolean bbox) throws TwkbException {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new TwkbException(ERR_MSG_WRITE + "precision should be between " + MIN_PRECISION + " and "
+					+ MAX_PRECISION + " (" + precision + ")");
+		}
+		int twkbType = getTwkbType(geometry);
+		Output body = new Output(precision);
+		writeGeometry(geometry, twkbType, body);
+		boolean empty = body.size() == 0;
+		Output out = new Output(precision);
+		out.write((zigZag(precision) << PRECISION_SHIFT) | twkbType);
+		if (empty) {
+			out.write(FLAG_EMPTY);
+		} else if (bbox) {
+			out.write(FLAG_BBOX);
+			out.writeSigned(body.bounds[0]);
+			out.writeSigned(body.bounds[2] - body.bounds[0]);
+			out.writeSigned(body.bounds[1]);
+			out.writeSigned(body.bounds[3] - body.bounds[1]);
+		} else {
+			out.write(0);
+		}
+		out.append(body);
+		return out.toByteArray();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private parsing methods:
+	// ------------------------------------------------------------------------
+
+	private static void parseGeometry(Input input, GeometryHandler handler) throws TwkbException {
+		int header = input.read();
+		int flags = input.read();
+		int twkbType = header & TYPE_MASK;
+		input.precision = unZigZag(header >>> PRECISION_SHIFT);
+		String type = getGeometryType(twkbType);
+		if ((flags & FLAG_EXTENDED) != 0 && (input.read() & EXTENDED_DIMENSIONS) != 0) {
+			throw new TwkbException(ERR_MSG + "only 2D geometries are supported");
+		}
+		if ((flags & FLAG_SIZE) != 0) {
+			long size = input.readUnsigned();
+			if (size != input.remaining()) {
+				throw new TwkbException(ERR_MSG + "invalid size " + size);
+			}
+		}
+		if ((flags & FLAG_BBOX) != 0) {
+			for (int i = 0; i < BOUNDS_SIZE; i++) {
+				input.readSigned();
+			}
+		}
+		int precision = Math.max(input.precision, 0);
+		handler.startGeometry(type, 0, precision);
+		if ((flags & FLAG_EMPTY) == 0) {
+			switch (twkbType) {
+				case TWKB_POINT:
+					input.readCoordinates(1, handler);
+					break;
+				case TWKB_LINE_STRING:
+					input.readCoordinates(input.readCount(2), handler);
+					break;
+				case TWKB_POLYGON:
+					parseRings(input, precision, handler);
+					break;
+				default:
+					String childType = getChildType(type);
+					int numGeometries = input.readCount(1);
+					if ((flags & FLAG_ID_LIST) != 0) {
+						for (int i = 0; i < numGeometries; i++) {
+							input.readSigned();
+						}
+					}
+					for (int i = 0; i < numGeometries; i++) {
+						handler.startGeometry(childType, 0, precision);
+						if (twkbType == TWKB_MULTI_POINT) {
+							input.readCoordinates(1, handler);
+						} else if (twkbType == TWKB_MULTI_LINE_STRING) {
+							input.readCoordinates(input.readCount(2), handler);
+						} else {
+							parseRings(input, precision, handler);
+						}
+						handler.endGeometry();
+					}
+					break;
+			}
+		}
+		handler.endGeometry();
+	}
+
+	private static void parseRings(Input input, int precision, GeometryHandler handler) throws TwkbException {
+		int numRings = input.readCount(1);
+		for (int i = 0; i < numRings; i++) {
+			handler.startGeometry(Geometry.LINEAR_RING, 0, precision);
+			input.readCoordinates(input.readCount(2), handler);
+			handler.endGeometry();
+		}
+	}
+
+	private static String getGeometryType(int twkbType) throws TwkbException {
+		switch (twkbType) {
+			case TWKB_POINT:
+				return Geometry.POINT;
+			case TWKB_LINE_STRING:
+				return Geometry.LINE_STRING;
+			case TWKB_POLYGON:
+				return Geometry.POLYGON;
+			case TWKB_MULTI_POINT:
+				return Geometry.MULTI_POINT;
+			case TWKB_MULTI_LINE_STRING:
+				return Geometry.MULTI_LINE_STRING;
+			case TWKB_MULTI_POLYGON:
+				return Geometry.MULTI_POLYGON;
+			default:
+				throw new TwkbException(ERR_MSG + "type of geometry not supported (" + twkbType + ")");
+		}
+	}
+
+	private static String getChildType(String parentType) {
+		if (Geometry.MULTI_POINT.equals(parentType)) {
+			return Geometry.POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(parentType)) {
+			return Geometry.LINE_STRING;
+		}
+		return Geometry.POLYGON;
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private formatting methods:
+	// ------------------------------------------------------------------------
+
+	private static void writeGeometry(Geometry geometry, int twkbType, Output out) throws TwkbException {
+		switch (twkbType) {
+			case TWKB_POINT:
+				if (getNumCoordinates(geometry) > 0) {
+					out.writeCoordinate(geometry.getCoordinates()[0]);
+				}
+				break;
+			case TWKB_LINE_STRING:
+				if (getNumCoordinates(geometry) > 0) {
+					out.writeCoordinates(geometry);
+				}
+				break;
+			case TWKB_POLYGON:
+				if (getNumGeometries(geometry) > 0) {
+					writeRings(geometry, out);
+				}
+				break;
+			case TWKB_MULTI_POINT:
+				int numPoints = 0;
+				for (int i = 0; i < getNumGeometries(geometry); i++) {
+					numPoints += getNumCoordinates(geometry.getGeometries()[i]) > 0 ? 1 : 0;
+				}
+				if (numPoints > 0) {
+					out.writeUnsigned(numPoints);
+					for (int i = 0; i < getNumGeometries(geometry); i++) {
+						if (getNumCoordinates(geometry.getGeometries()[i]) > 0) {
+							out.writeCoordinate(geometry.getGeometries()[i].getCoordinates()[0]);
+						}
+					}
+				}
+				break;
+			default:
+				if (getNumGeometries(geometry) > 0) {
+					out.writeUnsigned(getNumGeometries(geometry));
+					for (int i = 0; i < getNumGeometries(geometry); i++) {
+						Geometry child = geometry.getGeometries()[i];
+						int childType = getTwkbType(child);
+						if (twkbType == TWKB_MULTI_LINE_STRING && childType == TWKB_LINE_STRING) {
+							out.writeCoordinates(child);
+						} else if (twkbType == TWKB_MULTI_POLYGON && childType == TWKB_POLYGON) {
+							writeRings(child, out);
+						} else {
+							throw new TwkbException(ERR_MSG_WRITE + "a geometry of type " + geometry.getGeometryType()
+									+ " can not contain a " + child.getGeometryType());
+						}
+					}
+				}
+				break;
+		}
+	}
+
+	private static void writeRings(Geometry polygon, Output out) {
+		out.writeUnsigned(getNumGeometries(polygon));
+		for (int i = 0; i < getNumGeometries(polygon); i++) {
+			out.writeCoordinates(polygon.getGeometries()[i]);
+		}
+	}
+
+	private static int getTwkbType(Geometry geometry) throws TwkbException {
+		if (geometry == null) {
+			throw new TwkbException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		String type = geometry.getGeometryType();
+		if (Geometry.POINT.equals(type)) {
+			return TWKB_POINT;
+		} else if (Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)) {
+			return TWKB_LINE_STRING;
+		} else if (Geometry.POLYGON.equals(type)) {
+			return TWKB_POLYGON;
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			return TWKB_MULTI_POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(type)) {
+			return TWKB_MULTI_LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equals(type)) {
+			return TWKB_MULTI_POLYGON;
+		}
+		throw new TwkbException(ERR_MSG_WRITE + "type of geometry not supported (" + type + ")");
+	}
+
+	private static int getNumCoordinates(Geometry geometry) {
+		return geometry.getCoordinates() == null ? 0 : geometry.getCoordinates().length;
+	}
+
+	private static int getNumGeometries(Geometry geometry) {
+		return geometry.getGeometries() == null ? 0 : geometry.getGeometries().length;
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> (Integer.SIZE - 1));
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Cursor over the TWKB bytes, that keeps track of the previous coordinate.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Input {
+
+		private final byte[] bytes;
+
+		private int pos;
+
+		private int precision;
+
+		private long x;
+
+		private long y;
+
+		private Input(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		private int remaining() {
+			return bytes.length - pos;
+		}
+
+		private int read() throws TwkbException {
+			if (pos >= bytes.length) {
+				throw new TwkbException(ERR_MSG + "unexpected end of TWKB");
+			}
+			return bytes[pos++] & 0xFF;
+		}
+
+		private long readUnsigned() throws TwkbException {
+			long value = 0;
+			int shift = 0;
+			int b;
+			do {
+				if (shift > VARINT_MAX_SHIFT) {
+					throw new TwkbException(ERR_MSG + "invalid variable length integer");
+				}
+				b = read();
+				value |= (long) (b & VARINT_MASK) << shift;
+				shift += VARINT_SHIFT;
+			} while ((b & VARINT_MORE) != 0);
+			return value;
+		}
+
+		private long readSigned() throws TwkbException {
+			long value = readUnsigned();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		/** Read a count, and check that it does not exceed the remaining bytes. */
+		private int readCount(int minimumSize) throws TwkbException {
+			long count = readUnsigned();
+			if (count < 0 || count > remaining() / minimumSize) {
+				throw new TwkbException(ERR_MSG + "invalid number of elements " + count);
+			}
+			return (int) count;
+		}
+
+		private void readCoordinates(int count, GeometryHandler handler) throws TwkbException {
+			for (int i = 0; i < count; i++) {
+				x += readSigned();
+				y += readSigned();
+				handler.addCoordinate(toDouble(x), toDouble(y));
+			}
+		}
+
+		private double toDouble(long value) {
+			// dividing (or multiplying) by an exact power of ten is correctly rounded
+			return precision >= 0 ? value / POWERS_OF_TEN[precision] : value * POWERS_OF_TEN[-precision];
+		}
+	}
+
+	/**
+	 * Growing byte array that keeps track of the previous coordinate and the bounds of the written coordinates.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Output extends ByteArrayOutputStream {
+
+		private final int precision;
+
+		private final long[] bounds = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+
+		private long x;
+
+		private long y;
+
+		private Output(int precision) {
+			this.precision = precision;
+		}
+
+		private void append(Output other) {
+			write(other.buf, 0, other.count);
+		}
+
+		private void writeUnsigned(long value) {
+			long remaining = value;
+			while ((remaining & ~VARINT_MASK) != 0) {
+				write((int) (remaining & VARINT_MASK) | VARINT_MORE);
+				remaining >>>= VARINT_SHIFT;
+			}
+			write((int) remaining);
+		}
+
+		private void writeSigned(long value) {
+			writeUnsigned((value << 1) ^ (value >> (Long.SIZE - 1)));
+		}
+
+		private void writeCoordinates(Geometry geometry) {
+			writeUnsigned(getNumCoordinates(geometry));
+			for (int i = 0; i < getNumCoordinates(geometry); i++) {
+				writeCoordinate(geometry.getCoordinates()[i]);
+			}
+		}
+
+		private void writeCoordinate(Coordinate coordinate) {
+			long cx = toLong(coordinate.getX());
+			long cy = toLong(coordinate.getY());
+			writeSigned(cx - x);
+			writeSigned(cy - y);
+			x = cx;
+			y = cy;
+			bounds[0] = Math.min(bounds[0], cx);
+			bounds[1] = Math.min(bounds[1], cy);
+			bounds[2] = Math.max(bounds[2], cx);
+			bounds[3] = Math.max(bounds[3], cy);
+		}
+
+		private long toLong(double value) {
+			return Math.round(precision >= 0 ? value * POWERS_OF_TEN[precision] : value / POWERS_OF_TEN[-precision]);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.nio.ByteBuffer;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.MeasuredGeometry;
+
+/**
+ * <p>
+ * Lazy {@link Geometry} view on WKB (or EWKB) data. Only the header is read when the view is created, so the type and
+ * srid are available immediately. The number of points and the bounds are calculated once by walking over the WKB,
+ * without creating any objects. The coordinates and sub-geometries are only decoded when they are first accessed,
+ * through {@link #getCoordinates()} or {@link #getGeometries()}.
+ * </p>
+ * <p>
+ * The view does not copy the WKB, so the buffer must not be changed as long as the view has not been decoded. After
+ * decoding (or after calling any of the setters) the view behaves as a regular geometry and the buffer is released.
+ * The view is a {@link MeasuredGeometry}, so {@link GeometryService#getBounds(Geometry)} and
+ * {@link GeometryService#getNumPoints(Geometry)} do not decode it.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class WkbGeometry extends Geometry implements MeasuredGeometry {
+
+	private static final long serialVersionUID = 140L;
+
+	private static final int BOUNDS_SIZE = 4;
+
+	private transient volatile ByteBuffer wkb;
+
+	private transient volatile Bbox bounds;
+
+	private transient volatile boolean boundsKnown;
+
+	private transient volatile Integer numPoints;
+
+	/**
+	 * Create a lazy view on WKB data.
+	 *
+	 * @param wkb
+	 *            The WKB (or EWKB).
+	 * @throws WkbException
+	 *             In case the WKB header is invalid.
+	 */
+	public WkbGeometry(byte[] wkb) throws WkbException {
+		this(ByteBuffer.wrap(wkb));
+	}
+
+	/**
+	 * Create a lazy view on WKB data, starting at the current position of the buffer. The position of the buffer is
+	 * not changed.
+	 *
+	 * @param wkb
+	 *            The WKB (or EWKB).
+	 * @throws WkbException
+	 *             In case the WKB header is invalid.
+	 */
+	public WkbGeometry(ByteBuffer wkb) throws WkbException {
+		this(wkb, WkbService.parseHeader(wkb));
+	}
+
+	/**
+	 * Create a lazy view with the type and srid of the parsed header. These are passed to the super constructor, so
+	 * the overridden setters (which decode the view) are never called while constructing.
+	 *
+	 * @param wkb
+	 *            The WKB (or EWKB).
+	 * @param header
+	 *            Geometry with the type and srid of the header.
+	 */
+	private WkbGeometry(ByteBuffer wkb, Geometry header) {
+		super(header.getGeometryType(), header.getSrid(), header.getPrecision());
+		this.wkb = wkb.duplicate();
+	}
+
+	/**
+	 * Has this view been decoded (or changed)?
+	 *
+	 * @return true if the coordinates and sub-geometries have been decoded
+	 */
+	public boolean isDecoded() {
+		return wkb == null;
+	}
+
+	/**
+	 * Get the total number of coordinates of this geometry, without decoding it. As long as the view has not been
+	 * decoded, the WKB is only walked over once.
+	 *
+	 * @return The number of coordinates.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public int getNumPoints() {
+		ByteBuffer buffer = wkb;
+		if (buffer != null) {
+			Integer result = numPoints;
+			if (result == null) {
+				try {
+					result = WkbService.scan(buffer, null);
+				} catch (WkbException e) {
+					throw new IllegalStateException(e.getMessage(), e);
+				}
+				numPoints = result;
+			}
+			return result;
+		}
+		return GeometryService.calculateNumPoints(this);
+	}
+
+	/**
+	 * Get the bounds of this geometry, without decoding it. As long as the view has not been decoded, the WKB is only
+	 * walked over once.
+	 *
+	 * @return A copy of the bounding box, or null if the geometry is empty.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public Bbox getBounds() {
+		ByteBuffer buffer = wkb;
+		if (buffer != null) {
+			if (!boundsKnown) {
+				bounds = scanBounds(buffer);
+				boundsKnown = true;
+			}
+			Bbox result = bounds;
+			return result == null ? null : new Bbox(result.getX(), result.getY(), result.getWidth(),
+					result.getHeight());
+		}
+		return GeometryService.calculateBounds(this);
+	}
+
+	/**
+	 * Get the area of this geometry. This decodes the WKB.
+	 *
+	 * @return The area.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public double getArea() {
+		return GeometryService.calculateArea(this);
+	}
+
+	/**
+	 * Get the length of this geometry. This decodes the WKB.
+	 *
+	 * @return The length.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public double getLength() {
+		return GeometryService.calculateLength(this);
+	}
+
+	/**
+	 * Get the coordinates, decoding the WKB if needed.
+	 *
+	 * @return The coordinates.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public Coordinate[] getCoordinates() {
+		decode();
+		return super.getCoordinates();
+	}
+
+	/**
+	 * Get the sub-geometries, decoding the WKB if needed.
+	 *
+	 * @return The sub-geometries.
+	 * @throws IllegalStateException
+	 *             In case the WKB is invalid.
+	 */
+	@Override
+	public Geometry[] getGeometries() {
+		decode();
+		return super.getGeometries();
+	}
+
+	@Override
+	public void setGeometryType(String geometryType) {
+		decode();
+		super.setGeometryType(geometryType);
+	}
+
+	@Override
+	public void setSrid(int srid) {
+		decode();
+		super.setSrid(srid);
+	}
+
+	@Override
+	public void setPrecision(int precision) {
+		decode();
+		super.setPrecision(precision);
+	}
+
+	@Override
+	public void setCoordinates(Coordinate[] coordinates) {
+		decode();
+		super.setCoordinates(coordinates);
+	}
+
+	@Override
+	public void setGeometries(Geometry[] geometries) {
+		decode();
+		super.setGeometries(geometries);
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Decode the view before it is written to an object stream, as the WKB buffer is not serialized.
+	 *
+	 * @return this geometry
+	 */
+	private Object writeReplace() {
+		decode();
+		return this;
+	}
+
+	private Bbox scanBounds(ByteBuffer buffer) {
+		double[] extent = new double[BOUNDS_SIZE];
+		extent[0] = Double.MAX_VALUE;
+		extent[1] = Double.MAX_VALUE;
+		extent[2] = -Double.MAX_VALUE;
+		extent[3] = -Double.MAX_VALUE;
+		try {
+			if (WkbService.scan(buffer, extent) == 0) {
+				return null;
+			}
+		} catch (WkbException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		return new Bbox(extent[0], extent[1], extent[2] - extent[0], extent[3] - extent[1]);
+	}
+
+	private void decode() {
+		if (wkb != null) {
+			synchronized (this) {
+				ByteBuffer buffer = wkb;
+				if (buffer != null) {
+					try {
+						Geometry geometry = WkbService.toGeometry(buffer.duplicate());
+						super.setCoordinates(geometry.getCoordinates());
+						super.setGeometries(geometry.getGeometries());
+					} catch (WkbException e) {
+						throw new IllegalStateException(e.getMessage(), e);
+					}
+					wkb = null;
+				}
+			}
+		}
+	}
+}
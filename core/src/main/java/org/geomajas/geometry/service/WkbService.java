@@ -0,0 +1,552 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * General service for Well-Known-Binary to and from geometry conversion. This service also supports the EWKB format
+ * (as used by PostGIS), which adds the SRID to the WKB.
+ * </p>
+ * <p>
+ * Both byte orders are supported when reading, the byte order of every (sub-)geometry is taken into account. Only 2D
+ * geometries are supported. An empty point is represented by NaN coordinates, as PostGIS does. WKB has no linear ring
+ * type, so linear rings are written as line strings.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class WkbService {
+
+	private static final String ERR_MSG = "Error while parsing WKB: ";
+
+	private static final String ERR_MSG_WRITE = "Error while writing WKB: ";
+
+	private static final byte BIG_ENDIAN = 0;
+
+	private static final byte LITTLE_ENDIAN = 1;
+
+	private static final int WKB_POINT = 1;
+
+	private static final int WKB_LINE_STRING = 2;
+
+	private static final int WKB_POLYGON = 3;
+
+	private static final int WKB_MULTI_POINT = 4;
+
+	private static final int WKB_MULTI_LINE_STRING = 5;
+
+	private static final int WKB_MULTI_POLYGON = 6;
+
+	private static final int EWKB_Z = 0x80000000;
+
+	private static final int EWKB_M = 0x40000000;
+
+	private static final int EWKB_SRID = 0x20000000;
+
+	private static final int EWKB_FLAGS = EWKB_Z | EWKB_M | EWKB_SRID;
+
+	private static final int HEADER_SIZE = 5;
+
+	private static final int INT_SIZE = 4;
+
+	private static final int COORDINATE_SIZE = 16;
+
+	private WkbService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Parses a given WKB (or EWKB) into a geometry object.
+	 *
+	 * @param wkb
+	 *            The Well Known Binary to parse.
+	 * @return The resulting geometry.
+	 * @throws WkbException
+	 *             In case something went wrong while parsing.
+	 */
+	public static Geometry toGeometry(byte[] wkb) throws WkbException {
+		if (wkb == null) {
+			throw new WkbException(ERR_MSG + "illegal argument; no WKB");
+		}
+		return toGeometry(ByteBuffer.wrap(wkb));
+	}
+
+	/**
+	 * Parses a given WKB (or EWKB) into a geometry object, starting at the current position of the buffer. After
+	 * parsing, the position of the buffer is just after the geometry, so that multiple geometries can be read from
+	 * the same buffer. The byte order of the buffer is not used (nor changed), as WKB defines its own byte order.
+	 *
+	 * @param wkb
+	 *            The Well Known Binary to parse.
+	 * @return The resulting geometry.
+	 * @throws WkbException
+	 *             In case something went wrong while parsing.
+	 */
+	public static Geometry toGeometry(ByteBuffer wkb) throws WkbException {
+		GeometryBuilder builder = new GeometryBuilder();
+		toGeometry(wkb, builder);
+		return builder.getGeometry();
+	}
+
+	/**
+	 * Parses a given WKB (or EWKB) and reports the resulting geometry to the given handler, starting at the current
+	 * position of the buffer. After parsing, the position of the buffer is just after the geometry. When parsing
+	 * fails, the partial geometry is discarded through {@link GeometryHandler#abort()}.
+	 *
+	 * @param wkb
+	 *            The Well Known Binary to parse.
+	 * @param handler
+	 *            The handler that receives the geometry.
+	 * @throws WkbException
+	 *             In case something went wrong while parsing.
+	 */
+	public static void toGeometry(ByteBuffer wkb, GeometryHandler handler) throws WkbException {
+		if (wkb == null) {
+			throw new WkbException(ERR_MSG + "illegal argument; no WKB");
+		}
+		ByteBuffer buffer = wkb.duplicate();
+		boolean parsed = false;
+		try {
+			parseGeometry(buffer, null, 0, handler);
+			parsed = true;
+		} catch (BufferUnderflowException e) {
+			throw new WkbException(ERR_MSG + "unexpected end of WKB", e);
+		} finally {
+			if (!parsed) {
+				handler.abort();
+			}
+		}
+		wkb.position(buffer.position());
+	}
+
+	/**
+	 * Format a given geometry to WKB, in little endian (NDR) byte order.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @return The WKB.
+	 * @throws WkbException
+	 *             In case something went wrong while formatting.
+	 */
+	public static byte[] toWkb(Geometry geometry) throws WkbException {
+		return toWkb(geometry, ByteOrder.LITTLE_ENDIAN, false);
+	}
+
+	/**
+	 * Format a given geometry to EWKB, in little endian (NDR) byte order. EWKB is an extension of WKB that adds the
+	 * SRID of the geometry.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @return The EWKB.
+	 * @throws WkbException
+	 *             In case something went wrong while formatting.
+	 */
+	public static byte[] toEwkb(Geometry geometry) throws WkbException {
+		return toWkb(geometry, ByteOrder.LITTLE_ENDIAN, true);
+	}
+
+	/**
+	 * Format a given geometry to WKB or EWKB.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param byteOrder
+	 *            The byte order to use.
+	 * @param ewkb
+	 *            Should the SRID be added (EWKB)?
+	 * @return The WKB.
+	 * @throws WkbException
+	 *             In case something went wrong while formatting.
+	 */
+	public static byte[] toWkb(Geometry geometry, ByteOrder byteOrder, boolean ewkb) throws WkbException {
+		byte[] wkb = new byte[getWkbSize(geometry, ewkb)];
+		toWkb(geometry, ByteBuffer.wrap(wkb).order(byteOrder), ewkb);
+		return wkb;
+	}
+
+	/**
+	 * Write a given geometry as WKB or EWKB to a buffer, at the current position and in the byte order of the buffer.
+	 * After writing, the position of the buffer is just after the geometry. Use {@link #getWkbSize(Geometry, boolean)}
+	 * to make sure there is enough space.
+	 *
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param buffer
+	 *            The buffer to write to.
+	 * @param ewkb
+	 *            Should the SRID be added (EWKB)?
+	 * @throws WkbException
+	 *             In case something went wrong while formatting, or when the buffer is too small.
+	 */
+	public static void toWkb(Geometry geometry, ByteBuffer buffer, boolean ewkb) throws WkbException {
+		try {
+			writeGeometry(geometry, buffer, ewkb);
+		} catch (BufferOverflowException e) {
+			throw new WkbException(ERR_MSG_WRITE + "buffer too small", e);
+		}
+	}
+
+	/**
+	 * Get the number of bytes that are needed to write a geometry as WKB or EWKB.
+	 *
+	 * @param geometry
+	 *            The geometry.
+	 * @param ewkb
+	 *            Should the SRID be added (EWKB)?
+	 * @return The size in bytes.
+	 * @throws WkbException
+	 *             In case the geometry can not be formatted to WKB.
+	 */
+	public static int getWkbSize(Geometry geometry, boolean ewkb) throws WkbException {
+		int size = HEADER_SIZE + (ewkb ? INT_SIZE : 0);
+		switch (getWkbType(geometry)) {
+			case WKB_POINT:
+				return size + COORDINATE_SIZE;
+			case WKB_LINE_STRING:
+				return size + INT_SIZE + COORDINATE_SIZE * getNumCoordinates(geometry);
+			case WKB_POLYGON:
+				size += INT_SIZE;
+				for (int i = 0; i < getNumGeometries(geometry); i++) {
+					size += INT_SIZE + COORDINATE_SIZE * getNumCoordinates(geometry.getGeometries()[i]);
+				}
+				return size;
+			default:
+				size += INT_SIZE;
+				for (int i = 0; i < getNumGeometries(geometry); i++) {
+					size += getWkbSize(geometry.getGeometries()[i], false);
+				}
+				return size;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Package visible methods for lazy geometries:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Read the type and srid from the header of a WKB geometry, without moving the buffer.
+	 *
+	 * @param wkb
+	 *            buffer, positioned at the start of the geometry
+	 * @return geometry with only the type and srid set
+	 * @throws WkbException
+	 *             invalid header
+	 */
+	static Geometry parseHeader(ByteBuffer wkb) throws WkbException {
+		ByteBuffer buffer = wkb.duplicate();
+		try {
+			int wkbType = readType(buffer);
+			String geometryType = getGeometryType(wkbType & ~EWKB_FLAGS);
+			int srid = (wkbType & EWKB_SRID) != 0 ? buffer.getInt() : 0;
+			return new Geometry(geometryType, srid, 0);
+		} catch (BufferUnderflowException e) {
+			throw new WkbException(ERR_MSG + "unexpected end of WKB", e);
+		}
+	}
+
+	/**
+	 * Walk over a WKB geometry without creating any objects, counting the points and optionally calculating the
+	 * bounds. The buffer is not moved.
+	 *
+	 * @param wkb
+	 *            buffer, positioned at the start of the geometry
+	 * @param bounds
+	 *            array of 4 values (minX, minY, maxX, maxY) that is expanded with all coordinates, or null to only
+	 *            count the points
+	 * @return number of points
+	 * @throws WkbException
+	 *             invalid WKB
+	 */
+	static int scan(ByteBuffer wkb, double[] bounds) throws WkbException {
+		try {
+			return scanGeometry(wkb.duplicate(), bounds);
+		} catch (BufferUnderflowException e) {
+			throw new WkbException(ERR_MSG + "unexpected end of WKB", e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private parsing methods:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Parse a geometry with its header.
+	 *
+	 * @param buffer
+	 *            buffer, positioned at the byte order byte
+	 * @param parentType
+	 *            the type of the parent geometry, or null for the root
+	 * @param parentSrid
+	 *            the srid of the parent geometry
+	 * @param handler
+	 *            handler
+	 */
+	private static void parseGeometry(ByteBuffer buffer, String parentType, int parentSrid, GeometryHandler handler)
+			throws WkbException {
+		int wkbType = readType(buffer);
+		int srid = parentSrid;
+		if ((wkbType & EWKB_SRID) != 0) {
+			int ewkbSrid = buffer.getInt();
+			if (parentType == null) {
+				srid = ewkbSrid;
+			}
+		}
+		String type = getGeometryType(wkbType & ~EWKB_FLAGS);
+		if (parentType != null && !type.equals(getChildType(parentType))) {
+			throw new WkbException(ERR_MSG + "a geometry of type " + parentType + " can not contain a " + type);
+		}
+		handler.startGeometry(type, srid, 0);
+		switch (wkbType & ~EWKB_FLAGS) {
+			case WKB_POINT:
+				double x = buffer.getDouble();
+				double y = buffer.getDouble();
+				if (!Double.isNaN(x) || !Double.isNaN(y)) {
+					handler.addCoordinate(x, y);
+				}
+				break;
+			case WKB_LINE_STRING:
+				parseCoordinates(buffer, handler);
+				break;
+			case WKB_POLYGON:
+				int numRings = getCount(buffer, INT_SIZE);
+				for (int i = 0; i < numRings; i++) {
+					handler.startGeometry(Geometry.LINEAR_RING, srid, 0);
+					parseCoordinates(buffer, handler);
+					handler.endGeometry();
+				}
+				break;
+			default:
+				int numGeometries = getCount(buffer, HEADER_SIZE);
+				for (int i = 0; i < numGeometries; i++) {
+					parseGeometry(buffer, type, srid, handler);
+				}
+				break;
+		}
+		handler.endGeometry();
+	}
+
+	/** Read the byte order and the type, and set the byte order of the buffer. */
+	private static int readType(ByteBuffer buffer) throws WkbException {
+		byte order = buffer.get();
+		if (order == BIG_ENDIAN) {
+			buffer.order(ByteOrder.BIG_ENDIAN);
+		} else if (order == LITTLE_ENDIAN) {
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		} else {
+			throw new WkbException(ERR_MSG + "invalid byte order " + order);
+		}
+		int wkbType = buffer.getInt();
+		if ((wkbType & (EWKB_Z | EWKB_M)) != 0) {
+			throw new WkbException(ERR_MSG + "only 2D geometries are supported");
+		}
+		return wkbType;
+	}
+
+	private static int scanGeometry(ByteBuffer buffer, double[] bounds) throws WkbException {
+		int wkbType = readType(buffer);
+		if ((wkbType & EWKB_SRID) != 0) {
+			buffer.getInt();
+		}
+		int numPoints = 0;
+		switch (wkbType & ~EWKB_FLAGS) {
+			case WKB_POINT:
+				double x = buffer.getDouble();
+				double y = buffer.getDouble();
+				if (!Double.isNaN(x) || !Double.isNaN(y)) {
+					if (bounds != null) {
+						expand(bounds, x, y);
+					}
+					numPoints = 1;
+				}
+				break;
+			case WKB_LINE_STRING:
+				numPoints = scanCoordinates(buffer, bounds);
+				break;
+			case WKB_POLYGON:
+				int numRings = getCount(buffer, INT_SIZE);
+				for (int i = 0; i < numRings; i++) {
+					numPoints += scanCoordinates(buffer, bounds);
+				}
+				break;
+			case WKB_MULTI_POINT:
+			case WKB_MULTI_LINE_STRING:
+			case WKB_MULTI_POLYGON:
+				int numGeometries = getCount(buffer, HEADER_SIZE);
+				for (int i = 0; i < numGeometries; i++) {
+					numPoints += scanGeometry(buffer, bounds);
+				}
+				break;
+			default:
+				throw new WkbException(ERR_MSG + "type of geometry not supported (" + wkbType + ")");
+		}
+		return numPoints;
+	}
+
+	private static int scanCoordinates(ByteBuffer buffer, double[] bounds) throws WkbException {
+		int numPoints = getCount(buffer, COORDINATE_SIZE);
+		if (bounds == null) {
+			// skip the coordinates
+			buffer.position(buffer.position() + numPoints * COORDINATE_SIZE);
+		} else {
+			for (int i = 0; i < numPoints; i++) {
+				expand(bounds, buffer.getDouble(), buffer.getDouble());
+			}
+		}
+		return numPoints;
+	}
+
+	private static void expand(double[] bounds, double x, double y) {
+		bounds[0] = Math.min(bounds[0], x);
+		bounds[1] = Math.min(bounds[1], y);
+		bounds[2] = Math.max(bounds[2], x);
+		bounds[3] = Math.max(bounds[3], y);
+	}
+
+	private static void parseCoordinates(ByteBuffer buffer, GeometryHandler handler) throws WkbException {
+		int numPoints = getCount(buffer, COORDINATE_SIZE);
+		for (int i = 0; i < numPoints; i++) {
+			handler.addCoordinate(buffer.getDouble(), buffer.getDouble());
+		}
+	}
+
+	/** Read a count, and check that it does not exceed the remaining bytes. */
+	private static int getCount(ByteBuffer buffer, int minimumSize) throws WkbException {
+		int count = buffer.getInt();
+		if (count < 0 || (long) count * minimumSize > buffer.remaining()) {
+			throw new WkbException(ERR_MSG + "invalid number of elements " + count);
+		}
+		return count;
+	}
+
+	private static String getGeometryType(int wkbType) throws WkbException {
+		switch (wkbType) {
+			case WKB_POINT:
+				return Geometry.POINT;
+			case WKB_LINE_STRING:
+				return Geometry.LINE_STRING;
+			case WKB_POLYGON:
+				return Geometry.POLYGON;
+			case WKB_MULTI_POINT:
+				return Geometry.MULTI_POINT;
+			case WKB_MULTI_LINE_STRING:
+				return Geometry.MULTI_LINE_STRING;
+			case WKB_MULTI_POLYGON:
+				return Geometry.MULTI_POLYGON;
+			default:
+				throw new WkbException(ERR_MSG + "type of geometry not supported (" + wkbType + ")");
+		}
+	}
+
+	private static String getChildType(String parentType) {
+		if (Geometry.MULTI_POINT.equals(parentType)) {
+			return Geometry.POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(parentType)) {
+			return Geometry.LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equals(parentType)) {
+			return Geometry.POLYGON;
+		}
+		return null;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private formatting methods:
+	// ------------------------------------------------------------------------
+
+	private static void writeGeometry(Geometry geometry, ByteBuffer buffer, boolean ewkb) throws WkbException {
+		int wkbType = getWkbType(geometry);
+		buffer.put(buffer.order() == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN : LITTLE_ENDIAN);
+		if (ewkb) {
+			buffer.putInt(wkbType | EWKB_SRID);
+			buffer.putInt(geometry.getSrid());
+		} else {
+			buffer.putInt(wkbType);
+		}
+		switch (wkbType) {
+			case WKB_POINT:
+				if (getNumCoordinates(geometry) == 0) {
+					buffer.putDouble(Double.NaN);
+					buffer.putDouble(Double.NaN);
+				} else {
+					Coordinate coordinate = geometry.getCoordinates()[0];
+					buffer.putDouble(coordinate.getX());
+					buffer.putDouble(coordinate.getY());
+				}
+				break;
+			case WKB_LINE_STRING:
+				writeCoordinates(geometry, buffer);
+				break;
+			case WKB_POLYGON:
+				buffer.putInt(getNumGeometries(geometry));
+				for (int i = 0; i < getNumGeometries(geometry); i++) {
+					writeCoordinates(geometry.getGeometries()[i], buffer);
+				}
+				break;
+			default:
+				buffer.putInt(getNumGeometries(geometry));
+				for (int i = 0; i < getNumGeometries(geometry); i++) {
+					writeGeometry(geometry.getGeometries()[i], buffer, false);
+				}
+				break;
+		}
+	}
+
+	private static void writeCoordinates(Geometry geometry, ByteBuffer buffer) {
+		int numPoints = getNumCoordinates(geometry);
+		buffer.putInt(numPoints);
+		for (int i = 0; i < numPoints; i++) {
+			Coordinate coordinate = geometry.getCoordinates()[i];
+			buffer.putDouble(coordinate.getX());
+			buffer.putDouble(coordinate.getY());
+		}
+	}
+
+	private static int getWkbType(Geometry geometry) throws WkbException {
+		if (geometry == null) {
+			throw new WkbException(ERR_MSG_WRITE + "illegal argument; no geometry");
+		}
+		String type = geometry.getGeometryType();
+		if (Geometry.POINT.equals(type)) {
+			return WKB_POINT;
+		} else if (Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)) {
+			return WKB_LINE_STRING;
+		} else if (Geometry.POLYGON.equals(type)) {
+			return WKB_POLYGON;
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			return WKB_MULTI_POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(type)) {
+			return WKB_MULTI_LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equals(type)) {
+			return WKB_MULTI_POLYGON;
+		}
+		throw new WkbException(ERR_MSG_WRITE + "type of geometry not supported (" + type + ")");
+	}
+
+	private static int getNumCoordinates(Geometry geometry) {
+		return geometry.getCoordinates() == null ? 0 : geometry.getCoordinates().length;
+	}
+
+	private static int getNumGeometries(Geometry geometry) {
+		return geometry.getGeometries() == null ? 0 : geometry.getGeometries().length;
+	}
+}
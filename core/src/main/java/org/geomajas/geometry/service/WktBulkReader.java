@@ -0,0 +1,344 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Reader for large files with one WKT geometry per line. The file is read through a {@link FileChannel} in large
+ * chunks that end on a line boundary, and the chunks are parsed in parallel by an {@link ExecutorService}. The results
+ * are passed to a {@link WktLineHandler}, in the order of the file or in the order in which the chunks are parsed.
+ * Lines that can not be parsed are reported to the handler and do not stop the reading.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * WktBulkReader reader = new WktBulkReader();
+ * reader.read(file, new WktLineHandler() {
+ * 	public void handleGeometry(long lineNumber, Geometry geometry) {
+ * 		...
+ * 	}
+ * 	public void handleError(long lineNumber, String line, WktException exception) {
+ * 		...
+ * 	}
+ * });
+ * </pre>
+ *
+ * <p>
+ * Lines are separated by '\n', an optional '\r' before it is ignored and blank lines are skipped. The file is decoded
+ * as UTF-8.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class WktBulkReader {
+
+	/** The default chunk size, in bytes. */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	private static final int PENDING_PER_PROCESSOR = 2;
+
+	private final ExecutorService executor;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private boolean ordered = true;
+
+	/**
+	 * Create a reader that starts a thread for every processor while reading a file.
+	 */
+	public WktBulkReader() {
+		this(null);
+	}
+
+	/**
+	 * Create a reader that parses with the given executor, such as a fork/join pool.
+	 *
+	 * @param executor
+	 *            The executor. It is not shut down by the reader.
+	 */
+	public WktBulkReader(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the number of bytes that is read and parsed at once. Longer lines are read completely.
+	 *
+	 * @param chunkSize
+	 *            The chunk size, in bytes.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size should be positive");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Get the number of bytes that is read and parsed at once.
+	 *
+	 * @return The chunk size, in bytes.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Set whether the results are passed to the handler in the order of the file (the default), or as soon as a chunk
+	 * has been parsed. Within a chunk the results are always in the order of the file.
+	 *
+	 * @param ordered
+	 *            true to keep the order of the file
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Are the results passed to the handler in the order of the file?
+	 *
+	 * @return true if the order of the file is kept
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * Read a file. The handler is called from the calling thread, which returns when all lines have been handled.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @param handler
+	 *            The handler for the geometries and the errors.
+	 * @return The number of geometries that have been read.
+	 * @throws IOException
+	 *             In case the file could not be read, or the thread was interrupted.
+	 */
+	public long read(File file, WktLineHandler handler) throws IOException {
+		ExecutorService pool = executor;
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+		FileInputStream in = new FileInputStream(file);
+		try {
+			return read(in.getChannel(), pool, handler);
+		} finally {
+			in.close();
+			if (executor == null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private long read(FileChannel channel, ExecutorService pool, WktLineHandler handler) throws IOException {
+		int maxPending = PENDING_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+		CompletionService<Chunk> completion = new ExecutorCompletionService<Chunk>(pool);
+		LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+		long count = 0;
+		try {
+			byte[] buffer = new byte[chunkSize];
+			int filled = 0;
+			long lineNumber = 1;
+			boolean eof = false;
+			while (!eof) {
+				int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+				if (read < 0) {
+					eof = true;
+				} else {
+					filled += read;
+					if (filled < buffer.length) {
+						continue;
+					}
+				}
+				// split after the last complete line, or grow the buffer for a line that is longer than a chunk
+				int end = filled;
+				if (!eof) {
+					end = lastIndexOf(buffer, filled) + 1;
+					if (end == 0) {
+						byte[] grown = new byte[2 * buffer.length];
+						System.arraycopy(buffer, 0, grown, 0, filled);
+						buffer = grown;
+						continue;
+					}
+				}
+				if (end > 0) {
+					Chunk chunk = new Chunk(buffer, end, lineNumber);
+					lineNumber += chunk.numLines;
+					if (pending.size() == maxPending) {
+						count += deliver(ordered ? pending.removeFirst() : take(completion, pending), handler);
+					}
+					// when ordered, the futures are not taken from the completion service, so bypass it
+					pending.add(ordered ? pool.submit(chunk) : completion.submit(chunk));
+					byte[] next = new byte[Math.max(chunkSize, filled - end)];
+					System.arraycopy(buffer, end, next, 0, filled - end);
+					buffer = next;
+					filled -= end;
+				}
+			}
+			while (!pending.isEmpty()) {
+				count += deliver(ordered ? pending.removeFirst() : take(completion, pending), handler);
+			}
+		} finally {
+			for (Future<Chunk> future : pending) {
+				future.cancel(true);
+			}
+		}
+		return count;
+	}
+
+	private Future<Chunk> take(CompletionService<Chunk> completion, LinkedList<Future<Chunk>> pending)
+			throws InterruptedIOException {
+		try {
+			Future<Chunk> future = completion.take();
+			pending.remove(future);
+			return future;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing WKT");
+		}
+	}
+
+	private long deliver(Future<Chunk> future, WktLineHandler handler) throws InterruptedIOException {
+		Chunk chunk;
+		try {
+			chunk = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing WKT");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		long count = 0;
+		for (int i = 0; i < chunk.numLines; i++) {
+			if (chunk.geometries[i] != null) {
+				handler.handleGeometry(chunk.firstLine + i, chunk.geometries[i]);
+				count++;
+			} else if (chunk.errors[i] != null) {
+				handler.handleError(chunk.firstLine + i, chunk.lines[i], chunk.errors[i]);
+			}
+		}
+		return count;
+	}
+
+	private static int lastIndexOf(byte[] buffer, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (buffer[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Lines of a file that are parsed together. The line numbers are counted while reading, the results are set when
+	 * the chunk is parsed.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Chunk implements Callable<Chunk> {
+
+		private final byte[] bytes;
+
+		private final int length;
+
+		private final long firstLine;
+
+		private final int numLines;
+
+		private String[] lines;
+
+		private Geometry[] geometries;
+
+		private WktException[] errors;
+
+		private Chunk(byte[] bytes, int length, long firstLine) {
+			this.bytes = bytes;
+			this.length = length;
+			this.firstLine = firstLine;
+			int count = 0;
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] == '\n') {
+					count++;
+				}
+			}
+			if (length > 0 && bytes[length - 1] != '\n') {
+				// the last line of the file
+				count++;
+			}
+			numLines = count;
+		}
+
+		@Override
+		public Chunk call() throws UnsupportedEncodingException {
+			lines = new String[numLines];
+			geometries = new Geometry[numLines];
+			errors = new WktException[numLines];
+			int start = 0;
+			for (int i = 0; i < numLines; i++) {
+				int end = start;
+				while (end < length && bytes[end] != '\n') {
+					end++;
+				}
+				int next = end + 1;
+				if (end > start && bytes[end - 1] == '\r') {
+					end--;
+				}
+				String line = new String(bytes, start, end - start, "UTF-8");
+				if (line.trim().length() > 0) {
+					try {
+						geometries[i] = WktService.toGeometry(line);
+					} catch (WktException e) {
+						lines[i] = line;
+						errors[i] = e;
+					}
+				}
+				start = next;
+			}
+			return this;
+		}
+	}
+}
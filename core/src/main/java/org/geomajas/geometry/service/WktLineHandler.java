@@ -0,0 +1,49 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * Receiver of the results of a {@link WktBulkReader}, with one call for every non-blank line of the file. All calls are
+ * made from the thread that calls {@link WktBulkReader#read(java.io.File, WktLineHandler)}, so implementations do not
+ * have to be thread-safe.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public interface WktLineHandler {
+
+	/**
+	 * Handle a line that has been parsed.
+	 *
+	 * @param lineNumber
+	 *            The number of the line in the file, starting from 1.
+	 * @param geometry
+	 *            The geometry.
+	 */
+	void handleGeometry(long lineNumber, Geometry geometry);
+
+	/**
+	 * Handle a line that could not be parsed. Reading continues with the next line.
+	 *
+	 * @param lineNumber
+	 *            The number of the line in the file, starting from 1.
+	 * @param line
+	 *            The content of the line.
+	 * @param exception
+	 *            The parse error.
+	 */
+	void handleError(long lineNumber, String line, WktException exception);
+}
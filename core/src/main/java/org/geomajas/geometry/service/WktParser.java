@@ -0,0 +1,260 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Single pass WKT parser, used by the {@link WktService}. The parser walks over the characters with a cursor, it does
+ * not create intermediate strings. Numbers are parsed in place by {@link DoubleFormat#parse(CharSequence, int, int)}.
+ * </p>
+ * <p>
+ * The accepted syntax is exactly that of the original (string splitting) parser: a single space between x and y,
+ * optional whitespace after a comma that separates sub-geometries, and so on.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ */
+final class WktParser {
+
+	private static final String ERR_MSG = "Error while parsing WKT: ";
+
+	private static final String EMPTY = "EMPTY";
+
+	private final String wkt;
+
+	private final int start;
+
+	private int end;
+
+	private int pos;
+
+	private final int srid;
+
+	private final GeometryHandler handler;
+
+	/**
+	 * Create a parser for a part of a string.
+	 *
+	 * @param wkt
+	 *            string that contains the WKT
+	 * @param start
+	 *            start index of the WKT (inclusive)
+	 * @param end
+	 *            end index of the WKT (exclusive)
+	 * @param srid
+	 *            srid to assign to all geometries
+	 * @param handler
+	 *            handler that receives the geometry
+	 */
+	WktParser(String wkt, int start, int end, int srid, GeometryHandler handler) {
+		this.wkt = wkt;
+		this.start = start;
+		this.end = end;
+		this.srid = srid;
+		this.handler = handler;
+	}
+
+	/**
+	 * Parse the WKT (no EWKT here!).
+	 *
+	 * @throws WktException
+	 *             In case the WKT could not be parsed.
+	 */
+	void parse() throws WktException {
+		int i1 = indexOf('(', start);
+		int i2 = indexOf(' ', start);
+		// allow both '(' and ' ('
+		int i = Math.min(i1, i2);
+		if (i < 0) {
+			i = (i1 > start ? i1 : i2);
+		}
+		String type = null;
+		if (i >= 0) {
+			type = typeWktToGeom(wkt.substring(start, i).trim());
+		}
+		if (type == null) {
+			throw new WktException(ERR_MSG + "type of geometry not supported");
+		}
+		handler.startGeometry(type, srid, 0);
+		int empty = wkt.indexOf(EMPTY, start);
+		if (empty < 0 || empty + EMPTY.length() > end) {
+			pos = indexOf('(', start);
+			if (pos < 0) {
+				throw new WktException(ERR_MSG + "no coordinates found");
+			}
+			parse(type);
+			if (pos < end) {
+				throw new WktException(ERR_MSG + "unexpected ending \"" + wkt.substring(pos, end) + "\"");
+			}
+		}
+		handler.endGeometry();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Parse a geometry, starting at its opening parenthesis. */
+	private void parse(String type) throws WktException {
+		String childType = getChildType(type);
+		// skip the opening parenthesis
+		pos++;
+		if (charAt(pos) == '(') {
+			// Type has sub-geometries, so there must be a child type:
+			if (childType == null) {
+				throw new WktException(ERR_MSG + "no child geometry type could be found for type " + type);
+			}
+			while (charAt(pos) == '(') {
+				handler.startGeometry(childType, srid, 0);
+				parse(childType);
+				handler.endGeometry();
+				if (pos < end && wkt.charAt(pos) == ',') {
+					pos++;
+					skipWhitespace();
+				}
+			}
+			// skip the closing parenthesis
+			pos++;
+		} else {
+			// Type has no sub-geometries, but should contain coordinates directly:
+			if (childType != null) {
+				// No Polygons, MultiPoints, MultiLineStrings or MultiPolygons:
+				throw new WktException(ERR_MSG + "Geometry of type \"" + type + "\" has no direct coordinates.");
+			}
+			int close = indexOf(')', pos);
+			if (close < 0) {
+				throw new WktException(ERR_MSG + "missing closing parenthesis");
+			}
+			parseCoordinates(type, close);
+			pos = close + 1;
+		}
+	}
+
+	/** Parse the comma separated coordinates between the cursor and the closing parenthesis. */
+	private void parseCoordinates(String type, int close) throws WktException {
+		// trailing empty tokens are ignored, unless there is only a single one
+		int last = close;
+		while (last > pos && wkt.charAt(last - 1) == ',') {
+			last--;
+		}
+		if (last == pos && close > pos) {
+			return;
+		}
+		if (Geometry.POINT.equals(type) && indexOf(',', pos, last) >= 0) {
+			throw new WktException(ERR_MSG + "a point can have only one coordinate");
+		}
+		int tokenStart = pos;
+		while (tokenStart <= last) {
+			int tokenEnd = indexOf(',', tokenStart, last);
+			if (tokenEnd < 0) {
+				tokenEnd = last;
+			}
+			parseCoordinate(tokenStart, tokenEnd);
+			tokenStart = tokenEnd + 1;
+		}
+	}
+
+	/** Parse a single coordinate "x y", surrounding whitespace is allowed. */
+	private void parseCoordinate(int from, int to) throws WktException {
+		int tokenStart = from;
+		int tokenEnd = to;
+		while (tokenStart < tokenEnd && wkt.charAt(tokenStart) <= ' ') {
+			tokenStart++;
+		}
+		while (tokenEnd > tokenStart && wkt.charAt(tokenEnd - 1) <= ' ') {
+			tokenEnd--;
+		}
+		int space = indexOf(' ', tokenStart, tokenEnd);
+		if (space < 0 || indexOf(' ', space + 1, tokenEnd) >= 0) {
+			throw new WktException(ERR_MSG + "only 2D coordinates are supported");
+		}
+		double x;
+		double y;
+		try {
+			x = DoubleFormat.parse(wkt, tokenStart, space);
+			y = DoubleFormat.parse(wkt, space + 1, tokenEnd);
+		} catch (NumberFormatException e) { // NOSONAR
+			throw new WktException(ERR_MSG + "could not parse X and Y values ("
+					+ wkt.substring(tokenStart, tokenEnd) + ")", e);
+		}
+		handler.addCoordinate(x, y);
+	}
+
+	/** Current character, an exception is thrown when the end has been reached. */
+	private char charAt(int index) throws WktException {
+		if (index >= end) {
+			throw new WktException(ERR_MSG + "unexpected end of WKT");
+		}
+		return wkt.charAt(index);
+	}
+
+	/**
+	 * Skip whitespace at the cursor. Like {@link String#trim()} in the original parser, this also removes trailing
+	 * whitespace at the end of the WKT.
+	 */
+	private void skipWhitespace() {
+		while (pos < end && wkt.charAt(pos) <= ' ') {
+			pos++;
+		}
+		while (end > pos && wkt.charAt(end - 1) <= ' ') {
+			end--;
+		}
+	}
+
+	private int indexOf(char c, int from) {
+		return indexOf(c, from, end);
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (wkt.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String typeWktToGeom(String wktType) {
+		if (Geometry.POINT.toUpperCase().equals(wktType)) {
+			return Geometry.POINT;
+		} else if (Geometry.LINE_STRING.equalsIgnoreCase(wktType)) {
+			return Geometry.LINE_STRING;
+		} else if (Geometry.POLYGON.equalsIgnoreCase(wktType)) {
+			return Geometry.POLYGON;
+		} else if (Geometry.MULTI_POINT.equalsIgnoreCase(wktType)) {
+			return Geometry.MULTI_POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equalsIgnoreCase(wktType)) {
+			return Geometry.MULTI_LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equalsIgnoreCase(wktType)) {
+			return Geometry.MULTI_POLYGON;
+		}
+		return null;
+	}
+
+	private static String getChildType(String parentType) {
+		if (Geometry.POINT.equals(parentType) || Geometry.LINE_STRING.equals(parentType)
+				|| Geometry.LINEAR_RING.equals(parentType)) {
+			return null;
+		} else if (Geometry.POLYGON.equals(parentType)) {
+			return Geometry.LINEAR_RING;
+		} else if (Geometry.MULTI_POINT.equals(parentType)) {
+			return Geometry.POINT;
+		} else if (Geometry.MULTI_LINE_STRING.equals(parentType)) {
+			return Geometry.LINE_STRING;
+		} else if (Geometry.MULTI_POLYGON.equals(parentType)) {
+			return Geometry.POLYGON;
+		}
+		return null;
+	}
+}
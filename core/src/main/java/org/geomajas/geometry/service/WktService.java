@@ -11,8 +11,7 @@
 
 package org.geomajas.geometry.service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.geometry.Coordinate;
@@ -29,6 +28,8 @@ public final class WktService {
 
 	private static final String ERR_MSG = "Error while parsing WKT: ";
 
+	private static final String ERR_MSG_WRITE = "Error while writing WKT: ";
+
 	private WktService() {
 		// Final class should have a private no-argument constructor.
 	}
@@ -43,17 +44,52 @@ public final class WktService {
 	 *             In case something went wrong while parsing. The WKT format must be respected.
 	 */
 	public static Geometry toGeometry(String wkt) throws WktException {
+		GeometryBuilder builder = new GeometryBuilder();
+		toGeometry(wkt, builder);
+		return builder.getGeometry();
+	}
+
+	/**
+	 * Parses a given WKT (or EWKT) string and reports the resulting geometry to the given handler. This allows the
+	 * geometry to be written into another representation than {@link Geometry}, such as a
+	 * {@link org.geomajas.geometry.store.GeometryArena}. When parsing fails, the partial geometry is discarded
+	 * through {@link GeometryHandler#abort()}.
+	 *
+	 * @param wkt
+	 *            The Well Known Text to parse.
+	 * @param handler
+	 *            The handler that receives the geometry.
+	 * @throws WktException
+	 *             In case something went wrong while parsing. The WKT format must be respected.
+	 * @since 1.4.0
+	 */
+	public static void toGeometry(String wkt, GeometryHandler handler) throws WktException {
 		if (wkt != null) {
-			// First we detect if the string is WKT or EWKT:
-			String[] parts = wkt.split(";");
-			if (parts.length == 2) { // We assume it is EWKT:
-				Geometry geometry = parseWkt(parts[1]);
-				recursiveSetSrid(geometry, parseSrid(parts[0]));
-				return geometry;
+			// First we detect if the string is WKT or EWKT (exactly one ';', trailing ones are ignored):
+			int end = wkt.length();
+			while (end > 0 && wkt.charAt(end - 1) == ';') {
+				end--;
+			}
+			int separator = wkt.indexOf(';');
+			int next = wkt.indexOf(';', separator + 1);
+			boolean parsed = false;
+			try {
+				if (separator >= 0 && separator < end && (next < 0 || next >= end)) {
+					// We assume it is EWKT:
+					int srid = parseSrid(wkt.substring(0, separator));
+					new WktParser(wkt, separator + 1, end, srid, handler).parse();
+				} else {
+					new WktParser(wkt, 0, wkt.length(), 0, handler).parse();
+				}
+				parsed = true;
+			} finally {
+				if (!parsed) {
+					handler.abort();
+				}
 			}
-			return parseWkt(wkt);
+		} else {
+			throw new WktException(ERR_MSG + "illegal argument; no WKT");
 		}
-		throw new WktException(ERR_MSG + "illegal argument; no WKT");
 	}
 
 	/**
@@ -66,21 +102,78 @@ public final class WktService {
 	 *             In case something went wrong while formatting.
 	 */
 	public static String toWkt(Geometry geometry) throws WktException {
-		if (Geometry.POINT.equals(geometry.getGeometryType())) {
-			return toWktPoint(geometry);
-		} else if (Geometry.LINE_STRING.equals(geometry.getGeometryType())
-				|| Geometry.LINEAR_RING.equals(geometry.getGeometryType())) {
-			return toWktLineString(geometry);
-		} else if (Geometry.POLYGON.equals(geometry.getGeometryType())) {
-			return toWktPolygon(geometry);
-		} else if (Geometry.MULTI_POINT.equals(geometry.getGeometryType())) {
-			return toWktMultiPoint(geometry);
-		} else if (Geometry.MULTI_LINE_STRING.equals(geometry.getGeometryType())) {
-			return toWktMultiLineString(geometry);
-		} else if (Geometry.MULTI_POLYGON.equals(geometry.getGeometryType())) {
-			return toWktMultiPolygon(geometry);
+		StringBuilder builder = new StringBuilder();
+		toWkt(geometry, builder);
+		return builder.toString();
+	}
+
+	/**
+	 * Write a given geometry as Well Known Text to an {@link Appendable}, such as a {@link StringBuilder} or a
+	 * {@link java.io.Writer}. The result is the same as that of {@link #toWkt(Geometry)}, but no intermediate strings
+	 * are created. When writing to an unbuffered stream, wrap it in a {@link java.io.BufferedWriter}.
+	 * 
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param out
+	 *            The output to write to.
+	 * @throws WktException
+	 *             In case something went wrong while formatting or writing.
+	 * @since 1.4.0
+	 */
+	public static void toWkt(Geometry geometry, Appendable out) throws WktException {
+		toWkt(geometry, out, false);
+	}
+
+	/**
+	 * Write a given geometry as Well Known Text to an {@link Appendable}, optionally rounding the coordinates to the
+	 * precision of the geometry (the number of decimals). Rounding is only done for geometries with a precision of 0
+	 * or more, just like a fixed precision model in JTS. Note that geometries parsed from WKT have precision 0, so they
+	 * would be rounded to integers.
+	 * 
+	 * @param geometry
+	 *            The geometry to format.
+	 * @param out
+	 *            The output to write to.
+	 * @param usePrecision
+	 *            Should the coordinates be rounded to the precision of the geometry?
+	 * @throws WktException
+	 *             In case something went wrong while formatting or writing.
+	 * @since 1.4.0
+	 */
+	public static void toWkt(Geometry geometry, Appendable out, boolean usePrecision) throws WktException {
+		String wktType = typeGeomToWkt(geometry.getGeometryType());
+		if (wktType != null) {
+			try {
+				out.append(wktType);
+				out.append(' ');
+				appendCoordinates(geometry, out, usePrecision);
+			} catch (IOException e) {
+				throw new WktException(ERR_MSG_WRITE + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Write many geometries as Well Known Text to an {@link Appendable}, one geometry per line. Geometries of an
+	 * unsupported type result in an empty line.
+	 * 
+	 * @param geometries
+	 *            The geometries to format.
+	 * @param out
+	 *            The output to write to. It is not closed.
+	 * @throws WktException
+	 *             In case something went wrong while formatting or writing.
+	 * @since 1.4.0
+	 */
+	public static void toWkt(Iterable<Geometry> geometries, Appendable out) throws WktException {
+		for (Geometry geometry : geometries) {
+			toWkt(geometry, out, false);
+			try {
+				out.append('\n');
+			} catch (IOException e) {
+				throw new WktException(ERR_MSG_WRITE + e.getMessage(), e);
+			}
 		}
-		return "";
 	}
 
 	/**
@@ -102,17 +195,6 @@ public final class WktService {
 	// Private parsing methods:
 	// ------------------------------------------------------------------------
 
-	private static void recursiveSetSrid(Geometry geometry, int srid) {
-		if (geometry != null) {
-			geometry.setSrid(srid);
-		}
-		if (geometry.getGeometries() != null) {
-			for (Geometry childGeometry : geometry.getGeometries()) {
-				recursiveSetSrid(childGeometry, srid);
-			}
-		}
-	}
-
 	/** Get the SRID from a string like "SRDI=4326". Used in parsing EWKT. */
 	private static int parseSrid(String ewktPart) {
 		if (ewktPart != null && !"".equals(ewktPart)) {
@@ -127,204 +209,72 @@ public final class WktService {
 		return 0;
 	}
 
-	/** Parse a WKT string. No EWKT here! */
-	private static Geometry parseWkt(String wkt) throws WktException {
-		if (wkt != null) {
-			int i1 = wkt.indexOf('(');
-			int i2 = wkt.indexOf(' ');
-			// allow both '(' and ' ('
-			int i = Math.min(i1, i2);
-			if (i < 0) {
-				i = (i1 > 0 ? i1 : i2);
-			}
-			String type = null;
-			if (i >= 0) {
-				type = typeWktToGeom(wkt.substring(0, i).trim());
-			}
-			if (type == null) {
-				throw new WktException(ERR_MSG + "type of geometry not supported");
-			}
-			if (wkt.indexOf("EMPTY") >= 0) {
-				return new Geometry(type, 0, 0);
-			}
-			Geometry geometry = new Geometry(type, 0, 0);
-			String result = parse(wkt.substring(wkt.indexOf('(')), geometry);
-			if (result.length() != 0) {
-				throw new WktException(ERR_MSG + "unexpected ending \"" + result + "\"");
-			}
-			return geometry;
-		}
-		throw new WktException(ERR_MSG + "illegal argument; no WKT");
-	}
-
-	private static String parse(String wkt, Geometry geometry) throws WktException {
-		String childType = getChildType(geometry.getGeometryType());
-		String scopeWkt = wkt.substring(1);
-		if (scopeWkt.charAt(0) == '(') {
-			// Type has sub-geometries, so there must be a child type:
-			if (childType == null) {
-				throw new WktException(ERR_MSG + "no child geometry type could be found for type "
-						+ geometry.getGeometryType());
-			}
-
-			List<Geometry> geometries = new ArrayList<Geometry>();
-			while (scopeWkt.charAt(0) == '(') {
-				Geometry childGeometry = new Geometry(childType, 0, 0);
-				geometries.add(childGeometry);
-				scopeWkt = parse(scopeWkt, childGeometry);
-				if (scopeWkt.charAt(0) == ',') {
-					scopeWkt = scopeWkt.substring(1).trim();
-				}
-			}
-			geometry.setGeometries(geometries.toArray(new Geometry[geometries.size()]));
-			scopeWkt = scopeWkt.substring(1);
-		} else {
-			// Type has no sub-geometries, but should contain coordinates directly:
-			if (childType != null) {
-				// No Polygons, MultiPoints, MultiLineStrings or MultiPolygons:
-				throw new WktException(ERR_MSG + "Geometry of type \"" + geometry.getGeometryType()
-						+ "\" has no direct coordinates.");
-			}
-			// Format coordinates:
-			String[] coordStrings = scopeWkt.substring(0, scopeWkt.indexOf(')')).split(",");
-			if (Geometry.POINT.equals(geometry.getGeometryType()) && coordStrings.length > 1) {
-				throw new WktException(ERR_MSG + "a point can have only one coordinate");
-			}
-
-			Coordinate[] coordinates = new Coordinate[coordStrings.length];
-			for (int i = 0; i < coordStrings.length; i++) {
-				String token = coordStrings[i].trim();
-				String[] values = token.split(" ");
-				if (values.length != 2) {
-					throw new WktException(ERR_MSG + "only 2D coordinates are supported");
-				}
-				try {
-					coordinates[i] = new Coordinate(Double.parseDouble(values[0]), Double.parseDouble(values[1]));
-				} catch (Exception e) { // NOSONAR
-					throw new WktException(ERR_MSG + "could not parse X and Y values (" + token + ")", e);
-				}
-			}
-			geometry.setCoordinates(coordinates);
-			scopeWkt = scopeWkt.substring(scopeWkt.indexOf(')') + 1);
-		}
-		return scopeWkt;
-	}
-
-	private static String typeWktToGeom(String wktType) {
-		if (Geometry.POINT.toUpperCase().equals(wktType)) {
-			return Geometry.POINT;
-		} else if (Geometry.LINE_STRING.equalsIgnoreCase(wktType)) {
-			return Geometry.LINE_STRING;
-		} else if (Geometry.POLYGON.equalsIgnoreCase(wktType)) {
-			return Geometry.POLYGON;
-		} else if (Geometry.MULTI_POINT.equalsIgnoreCase(wktType)) {
-			return Geometry.MULTI_POINT;
-		} else if (Geometry.MULTI_LINE_STRING.equalsIgnoreCase(wktType)) {
-			return Geometry.MULTI_LINE_STRING;
-		} else if (Geometry.MULTI_POLYGON.equalsIgnoreCase(wktType)) {
-			return Geometry.MULTI_POLYGON;
-		}
-		return null;
-	}
+	// ------------------------------------------------------------------------
+	// Private methods for WKT formatting:
+	// ------------------------------------------------------------------------
 
-	private static String getChildType(String parentType) {
-		if (Geometry.POINT.equals(parentType) || Geometry.LINE_STRING.equals(parentType)
-				|| Geometry.LINEAR_RING.equals(parentType)) {
-			return null;
-		} else if (Geometry.POLYGON.equals(parentType)) {
-			return Geometry.LINEAR_RING;
-		} else if (Geometry.MULTI_POINT.equals(parentType)) {
-			return Geometry.POINT;
-		} else if (Geometry.MULTI_LINE_STRING.equals(parentType)) {
-			return Geometry.LINE_STRING;
-		} else if (Geometry.MULTI_POLYGON.equals(parentType)) {
-			return Geometry.POLYGON;
+	private static String typeGeomToWkt(String type) {
+		if (Geometry.POINT.equals(type)) {
+			return "POINT";
+		} else if (Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)) {
+			return "LINESTRING";
+		} else if (Geometry.POLYGON.equals(type)) {
+			return "POLYGON";
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			return "MULTIPOINT";
+		} else if (Geometry.MULTI_LINE_STRING.equals(type)) {
+			return "MULTILINESTRING";
+		} else if (Geometry.MULTI_POLYGON.equals(type)) {
+			return "MULTIPOLYGON";
 		}
 		return null;
 	}
 
-	// ------------------------------------------------------------------------
-	// Private methods for WKT formatting:
-	// ------------------------------------------------------------------------
-
 	private static boolean isEmpty(Geometry geometry) {
 		return (geometry.getCoordinates() == null || geometry.getCoordinates().length == 0)
 				&& (geometry.getGeometries() == null || geometry.getGeometries().length == 0);
 	}
 
-	private static String toWktPoint(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("POINT ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static String toWktPolygon(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("POLYGON ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static String toWktLineString(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("LINESTRING ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static String toWktMultiPoint(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("MULTIPOINT ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static String toWktMultiPolygon(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("MULTIPOLYGON ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static String toWktMultiLineString(Geometry geometry) {
-		StringBuilder builder = new StringBuilder();
-		builder.append("MULTILINESTRING ");
-		appendCoordinates(geometry, builder);
-		return builder.toString();
-	}
-
-	private static void appendCoordinates(Geometry geometry, StringBuilder builder) {
+	private static void appendCoordinates(Geometry geometry, Appendable out, boolean usePrecision)
+			throws IOException {
 		if (isEmpty(geometry)) {
-			builder.append("EMPTY");
+			out.append("EMPTY");
 		} else {
 			// multi-geometry
 			if (geometry.getGeometries() != null) {
-				builder.append("(");
+				out.append('(');
 				for (int i = 0; i < geometry.getGeometries().length; i++) {
 					if (i > 0) {
-						builder.append(", ");
+						out.append(", ");
 					}
-					appendCoordinates(geometry.getGeometries()[i], builder);
+					appendCoordinates(geometry.getGeometries()[i], out, usePrecision);
 				}
-				builder.append(")");
+				out.append(')');
 			// single geometry
 			} else {
-				builder.append("(");
+				out.append('(');
+				int precision = geometry.getPrecision();
 				for (int i = 0; i < geometry.getCoordinates().length; i++) {
 					if (i > 0) {
-						builder.append(", ");
+						out.append(", ");
 					}
-					appendCoordinate(geometry.getCoordinates()[i], builder);
+					appendCoordinate(geometry.getCoordinates()[i], precision, usePrecision, out);
 				}
-				builder.append(")");
+				out.append(')');
 			}
 		}
 	}
 
-	private static void appendCoordinate(Coordinate coordinate, StringBuilder builder) {
-		builder.append(coordinate.getX());
-		builder.append(" ");
-		builder.append(coordinate.getY());
+	private static void appendCoordinate(Coordinate coordinate, int precision, boolean usePrecision, Appendable out)
+			throws IOException {
+		double x = coordinate.getX();
+		double y = coordinate.getY();
+		if (usePrecision) {
+			x = DoubleFormat.round(x, precision);
+			y = DoubleFormat.round(y, precision);
+		}
+		DoubleFormat.append(x, precision, out);
+		out.append(' ');
+		DoubleFormat.append(y, precision, out);
 	}
-}
\ No newline at end of file
+}
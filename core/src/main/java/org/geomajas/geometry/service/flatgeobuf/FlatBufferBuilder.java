@@ -0,0 +1,305 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * <p>
+ * Minimal FlatBuffers builder, with only the types that are needed for FlatGeobuf headers and features. Unlike the
+ * official builder, the buffer is written front to back: a table is written before the strings, vectors and tables it
+ * refers to, and the offsets are filled in when those have been written. All values are little endian and aligned to
+ * their size, relative to the start of the buffer.
+ * </p>
+ * <p>
+ * The buffer starts with the offset of the root table, which is set with {@link #setOffset(int, int)} at position 0.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ */
+class FlatBufferBuilder {
+
+	static final int INT_SIZE = 4;
+
+	static final int LONG_SIZE = 8;
+
+	private static final int SHORT_SIZE = 2;
+
+	private static final int BYTE_MASK = 0xFF;
+
+	private static final int BYTE_SIZE = 8;
+
+	private static final int INITIAL_SIZE = 256;
+
+	private byte[] bytes = new byte[INITIAL_SIZE];
+
+	private int size;
+
+	/** Create a builder, with a placeholder for the root table offset. */
+	FlatBufferBuilder() {
+		putInt(0);
+	}
+
+	/**
+	 * Write a table. Offset fields are written as placeholders.
+	 *
+	 * @param table
+	 *            the fields of the table
+	 * @return the position of every field, -1 for absent fields, followed by the position of the table itself
+	 */
+	int[] writeTable(Table table) {
+		int numFields = 0;
+		boolean wide = false;
+		for (int i = 0; i < table.sizes.length; i++) {
+			if (table.sizes[i] > 0) {
+				numFields = i + 1;
+				wide |= table.sizes[i] == LONG_SIZE;
+			}
+		}
+		// lay out the fields from large to small, after the vtable offset, so they are all aligned
+		int[] offsets = new int[numFields];
+		int tableSize = INT_SIZE;
+		for (int fieldSize = LONG_SIZE; fieldSize > 0; fieldSize /= 2) {
+			for (int i = 0; i < numFields; i++) {
+				if (table.sizes[i] == fieldSize) {
+					offsets[i] = tableSize;
+					tableSize += fieldSize;
+				}
+			}
+		}
+		align(SHORT_SIZE);
+		int vtable = size;
+		putShort(INT_SIZE + SHORT_SIZE * numFields);
+		putShort(tableSize);
+		for (int i = 0; i < numFields; i++) {
+			putShort(offsets[i]);
+		}
+		align(INT_SIZE);
+		if (wide && size % LONG_SIZE == 0) {
+			putInt(0);
+		}
+		int start = size;
+		putInt(start - vtable);
+		for (int fieldSize = LONG_SIZE; fieldSize > 0; fieldSize /= 2) {
+			for (int i = 0; i < numFields; i++) {
+				if (table.sizes[i] == fieldSize) {
+					putValue(table.values[i], fieldSize);
+				}
+			}
+		}
+		int[] positions = new int[table.sizes.length + 1];
+		for (int i = 0; i < table.sizes.length; i++) {
+			positions[i] = i < numFields && table.sizes[i] > 0 ? start + offsets[i] : -1;
+		}
+		positions[table.sizes.length] = start;
+		return positions;
+	}
+
+	/**
+	 * Write a vector of doubles.
+	 *
+	 * @param values
+	 *            values
+	 * @param length
+	 *            number of values to write
+	 * @return position of the vector
+	 */
+	int writeDoubles(double[] values, int length) {
+		while ((size + INT_SIZE) % LONG_SIZE != 0) {
+			putValue(0, 1);
+		}
+		int vector = size;
+		putInt(length);
+		for (int i = 0; i < length; i++) {
+			putValue(Double.doubleToLongBits(values[i]), LONG_SIZE);
+		}
+		return vector;
+	}
+
+	/**
+	 * Write a vector of unsigned integers.
+	 *
+	 * @param values
+	 *            values
+	 * @param length
+	 *            number of values to write
+	 * @return position of the vector
+	 */
+	int writeInts(int[] values, int length) {
+		align(INT_SIZE);
+		int vector = size;
+		putInt(length);
+		for (int i = 0; i < length; i++) {
+			putInt(values[i]);
+		}
+		return vector;
+	}
+
+	/**
+	 * Write a vector of offsets, as placeholders. The offset of element i is at the returned position + 4 * (i + 1).
+	 *
+	 * @param length
+	 *            number of offsets
+	 * @return position of the vector
+	 */
+	int writeOffsets(int length) {
+		align(INT_SIZE);
+		int vector = size;
+		putInt(length);
+		for (int i = 0; i < length; i++) {
+			putInt(0);
+		}
+		return vector;
+	}
+
+	/**
+	 * Write a string, in UTF-8.
+	 *
+	 * @param value
+	 *            value
+	 * @return position of the string
+	 */
+	int writeString(String value) {
+		try {
+			byte[] utf8 = value.getBytes("UTF-8");
+			align(INT_SIZE);
+			int vector = size;
+			putInt(utf8.length);
+			for (byte b : utf8) {
+				putValue(b, 1);
+			}
+			putValue(0, 1);
+			return vector;
+		} catch (UnsupportedEncodingException e) {
+			// every JVM supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Fill in an offset placeholder.
+	 *
+	 * @param position
+	 *            position of the placeholder
+	 * @param target
+	 *            position of the table, vector or string it refers to, which must come after the placeholder
+	 */
+	void setOffset(int position, int target) {
+		int offset = target - position;
+		for (int i = 0; i < INT_SIZE; i++) {
+			bytes[position + i] = (byte) (offset >>> (i * BYTE_SIZE));
+		}
+	}
+
+	/**
+	 * Get the size of the buffer.
+	 *
+	 * @return size in bytes
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Write the buffer to a stream.
+	 *
+	 * @param out
+	 *            the stream
+	 * @throws IOException
+	 *             the stream could not be written
+	 */
+	void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, size);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private void align(int alignment) {
+		while (size % alignment != 0) {
+			putValue(0, 1);
+		}
+	}
+
+	private void putShort(int value) {
+		putValue(value, SHORT_SIZE);
+	}
+
+	private void putInt(int value) {
+		putValue(value, INT_SIZE);
+	}
+
+	private void putValue(long value, int length) {
+		if (size + length > bytes.length) {
+			byte[] grown = new byte[Math.max(2 * bytes.length, size + length)];
+			System.arraycopy(bytes, 0, grown, 0, size);
+			bytes = grown;
+		}
+		for (int i = 0; i < length; i++) {
+			bytes[size++] = (byte) ((value >>> (i * BYTE_SIZE)) & BYTE_MASK);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Fields of a table that is about to be written.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	static final class Table {
+
+		private final int[] sizes;
+
+		private final long[] values;
+
+		/**
+		 * Create a table.
+		 *
+		 * @param numFields
+		 *            number of fields in the schema
+		 */
+		Table(int numFields) {
+			sizes = new int[numFields];
+			values = new long[numFields];
+		}
+
+		void addByte(int field, int value) {
+			sizes[field] = 1;
+			values[field] = value;
+		}
+
+		void addShort(int field, int value) {
+			sizes[field] = SHORT_SIZE;
+			values[field] = value;
+		}
+
+		void addInt(int field, int value) {
+			sizes[field] = INT_SIZE;
+			values[field] = value;
+		}
+
+		void addLong(int field, long value) {
+			sizes[field] = LONG_SIZE;
+			values[field] = value;
+		}
+
+		void addOffset(int field) {
+			addInt(field, 0);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view on a FlatBuffers table, reading the fields directly from a little endian buffer. Vectors are
+ * accessed through their position in the buffer, so no arrays are created for them.
+ *
+ * @author Jan De Moerloose
+ */
+final class FlatBufferTable {
+
+	private static final int INT_SIZE = 4;
+
+	private static final int SHORT_SIZE = 2;
+
+	private static final int BYTE_MASK = 0xFF;
+
+	private static final int SHORT_MASK = 0xFFFF;
+
+	private final ByteBuffer buffer;
+
+	private final int position;
+
+	private final int vtable;
+
+	private final int vtableSize;
+
+	private FlatBufferTable(ByteBuffer buffer, int position) {
+		this.buffer = buffer;
+		this.position = position;
+		vtable = position - buffer.getInt(position);
+		vtableSize = buffer.getShort(vtable) & SHORT_MASK;
+	}
+
+	/**
+	 * Get the root table of a buffer, which starts at the position of the buffer.
+	 *
+	 * @param buffer
+	 *            little endian buffer
+	 * @return the root table
+	 */
+	static FlatBufferTable getRoot(ByteBuffer buffer) {
+		int start = buffer.position();
+		return new FlatBufferTable(buffer, start + buffer.getInt(start));
+	}
+
+	/**
+	 * Get the buffer, to read vector elements.
+	 *
+	 * @return buffer
+	 */
+	ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Get an unsigned byte field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param defaultValue
+	 *            value in case the field is absent
+	 * @return value
+	 */
+	int getByte(int field, int defaultValue) {
+		int offset = getFieldOffset(field);
+		return offset == 0 ? defaultValue : buffer.get(position + offset) & BYTE_MASK;
+	}
+
+	/**
+	 * Get an unsigned short field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param defaultValue
+	 *            value in case the field is absent
+	 * @return value
+	 */
+	int getShort(int field, int defaultValue) {
+		int offset = getFieldOffset(field);
+		return offset == 0 ? defaultValue : buffer.getShort(position + offset) & SHORT_MASK;
+	}
+
+	/**
+	 * Get an int field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param defaultValue
+	 *            value in case the field is absent
+	 * @return value
+	 */
+	int getInt(int field, int defaultValue) {
+		int offset = getFieldOffset(field);
+		return offset == 0 ? defaultValue : buffer.getInt(position + offset);
+	}
+
+	/**
+	 * Get a long field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param defaultValue
+	 *            value in case the field is absent
+	 * @return value
+	 */
+	long getLong(int field, long defaultValue) {
+		int offset = getFieldOffset(field);
+		return offset == 0 ? defaultValue : buffer.getLong(position + offset);
+	}
+
+	/**
+	 * Get a table field.
+	 *
+	 * @param field
+	 *            field number
+	 * @return the table, null if the field is absent
+	 */
+	FlatBufferTable getTable(int field) {
+		int reference = getReference(field);
+		return reference < 0 ? null : new FlatBufferTable(buffer, reference);
+	}
+
+	/**
+	 * Get an element of a vector of tables.
+	 *
+	 * @param field
+	 *            field number
+	 * @param index
+	 *            index in the vector
+	 * @return the table
+	 */
+	FlatBufferTable getTable(int field, int index) {
+		int element = getVector(field) + index * INT_SIZE;
+		return new FlatBufferTable(buffer, element + buffer.getInt(element));
+	}
+
+	/**
+	 * Get a string field.
+	 *
+	 * @param field
+	 *            field number
+	 * @return the string, null if the field is absent
+	 */
+	String getString(int field) {
+		int reference = getReference(field);
+		if (reference < 0) {
+			return null;
+		}
+		byte[] utf8 = new byte[buffer.getInt(reference)];
+		for (int i = 0; i < utf8.length; i++) {
+			utf8[i] = buffer.get(reference + INT_SIZE + i);
+		}
+		try {
+			return new String(utf8, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every JVM supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the length of a vector field.
+	 *
+	 * @param field
+	 *            field number
+	 * @return number of elements, 0 if the field is absent
+	 */
+	int getVectorLength(int field) {
+		int reference = getReference(field);
+		return reference < 0 ? 0 : buffer.getInt(reference);
+	}
+
+	/**
+	 * Get the position of the first element of a vector field.
+	 *
+	 * @param field
+	 *            field number
+	 * @return position in the buffer, -1 if the field is absent
+	 */
+	int getVector(int field) {
+		int reference = getReference(field);
+		return reference < 0 ? -1 : reference + INT_SIZE;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private int getFieldOffset(int field) {
+		int entry = INT_SIZE + field * SHORT_SIZE;
+		return entry < vtableSize ? buffer.getShort(vtable + entry) & SHORT_MASK : 0;
+	}
+
+	private int getReference(int field) {
+		int offset = getFieldOffset(field);
+		if (offset == 0) {
+			return -1;
+		}
+		int slot = position + offset;
+		return slot + buffer.getInt(slot);
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.GeometryBuilder;
+import org.geomajas.geometry.service.GeometryHandler;
+
+/**
+ * Constants of the FlatGeobuf format, and the conversion between {@link Geometry} and the FlatBuffers geometry table
+ * of a feature. Only 2D coordinates are written, and when reading z, m and the feature properties are ignored.
+ *
+ * @author Jan De Moerloose
+ */
+final class FlatGeobufFormat {
+
+	/** Magic bytes at the start of a file, for version 3.0 of the format. */
+	static final byte[] MAGIC = { 'f', 'g', 'b', 3, 'f', 'g', 'b', 0 };
+
+	/** Size of the size prefix of the header and the features. */
+	static final int SIZE_PREFIX = 4;
+
+	/** Default number of children of a node of the index, if the header does not specify it. */
+	static final int DEFAULT_NODE_SIZE = 16;
+
+	// field numbers of the header table
+	static final int HEADER_ENVELOPE = 1;
+
+	static final int HEADER_GEOMETRY_TYPE = 2;
+
+	static final int HEADER_FEATURES_COUNT = 8;
+
+	static final int HEADER_INDEX_NODE_SIZE = 9;
+
+	static final int HEADER_CRS = 10;
+
+	static final int HEADER_FIELDS = 14;
+
+	static final int CRS_CODE = 1;
+
+	static final int CRS_FIELDS = 6;
+
+	private static final int FEATURE_GEOMETRY = 0;
+
+	private static final int FEATURE_FIELDS = 3;
+
+	private static final int GEOMETRY_ENDS = 0;
+
+	private static final int GEOMETRY_XY = 1;
+
+	private static final int GEOMETRY_TYPE = 6;
+
+	private static final int GEOMETRY_PARTS = 7;
+
+	private static final int GEOMETRY_FIELDS = 8;
+
+	private static final String[] TYPES = { null, Geometry.POINT, Geometry.LINE_STRING, Geometry.POLYGON,
+			Geometry.MULTI_POINT, Geometry.MULTI_LINE_STRING, Geometry.MULTI_POLYGON };
+
+	private static final String ERR_MSG = "Error while reading FlatGeobuf: ";
+
+	private FlatGeobufFormat() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Get the FlatGeobuf code of a geometry type.
+	 *
+	 * @param geometryType
+	 *            geometry type, linear rings are written as line strings
+	 * @return the code
+	 * @throws FlatGeobufException
+	 *             unsupported type
+	 */
+	static int getTypeCode(String geometryType) throws FlatGeobufException {
+		if (Geometry.LINEAR_RING.equals(geometryType)) {
+			return getTypeCode(Geometry.LINE_STRING);
+		}
+		for (int i = 1; i < TYPES.length; i++) {
+			if (TYPES[i].equals(geometryType)) {
+				return i;
+			}
+		}
+		throw new FlatGeobufException("Error while writing FlatGeobuf: unsupported geometry type " + geometryType);
+	}
+
+	/**
+	 * Get the geometry type of a FlatGeobuf code.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the geometry type, null for unknown (mixed) geometries
+	 * @throws FlatGeobufException
+	 *             unsupported type
+	 */
+	static String getGeometryType(int code) throws FlatGeobufException {
+		if (code < 0 || code >= TYPES.length) {
+			throw new FlatGeobufException(ERR_MSG + "unsupported geometry type " + code);
+		}
+		return TYPES[code];
+	}
+
+	/**
+	 * Encode a feature.
+	 *
+	 * @param geometry
+	 *            the geometry of the feature, may be null
+	 * @return the encoded feature, without size prefix
+	 * @throws FlatGeobufException
+	 *             unsupported geometry
+	 */
+	static FlatBufferBuilder writeFeature(Geometry geometry) throws FlatGeobufException {
+		FlatBufferBuilder builder = new FlatBufferBuilder();
+		FlatBufferBuilder.Table feature = new FlatBufferBuilder.Table(FEATURE_FIELDS);
+		if (geometry != null) {
+			feature.addOffset(FEATURE_GEOMETRY);
+		}
+		int[] positions = builder.writeTable(feature);
+		builder.setOffset(0, positions[FEATURE_FIELDS]);
+		if (geometry != null) {
+			builder.setOffset(positions[FEATURE_GEOMETRY], writeGeometry(builder, geometry));
+		}
+		return builder;
+	}
+
+	/**
+	 * Decode a feature.
+	 *
+	 * @param buffer
+	 *            little endian buffer, positioned at the start of the feature (after the size prefix)
+	 * @param geometryType
+	 *            geometry type of the header, null if the features have different types
+	 * @param srid
+	 *            srid of the header
+	 * @return the geometry of the feature, null if it has none
+	 * @throws FlatGeobufException
+	 *             invalid feature
+	 */
+	static Geometry readFeature(ByteBuffer buffer, String geometryType, int srid) throws FlatGeobufException {
+		try {
+			FlatBufferTable geometry = FlatBufferTable.getRoot(buffer).getTable(FEATURE_GEOMETRY);
+			if (geometry == null) {
+				return null;
+			}
+			GeometryBuilder builder = new GeometryBuilder();
+			readGeometry(geometry, geometryType, srid, builder);
+			return builder.getGeometry();
+		} catch (IndexOutOfBoundsException e) {
+			throw new FlatGeobufException(ERR_MSG + "invalid feature", e);
+		}
+	}
+
+	/**
+	 * Read bytes from a channel, without changing its position.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param position
+	 *            position in the channel
+	 * @param length
+	 *            number of bytes
+	 * @return a little endian buffer with the bytes
+	 * @throws IOException
+	 *             read error, or the channel ends too early
+	 */
+	static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static int writeGeometry(FlatBufferBuilder builder, Geometry geometry) throws FlatGeobufException {
+		int typeCode = getTypeCode(geometry.getGeometryType());
+		Geometry[] parts = null;
+		Coordinate[] coordinates = null;
+		int[] ends = null;
+		Geometry[] children = geometry.getGeometries() == null ? new Geometry[0] : geometry.getGeometries();
+		if (Geometry.MULTI_POLYGON.equals(geometry.getGeometryType())) {
+			parts = children;
+		} else if (Geometry.MULTI_POINT.equals(geometry.getGeometryType())) {
+			int count = 0;
+			coordinates = new Coordinate[children.length];
+			for (Geometry point : children) {
+				if (point.getCoordinates() != null && point.getCoordinates().length > 0) {
+					coordinates[count++] = point.getCoordinates()[0];
+				}
+			}
+			coordinates = trim(coordinates, count);
+		} else if (Geometry.POLYGON.equals(geometry.getGeometryType())
+				|| Geometry.MULTI_LINE_STRING.equals(geometry.getGeometryType())) {
+			int count = 0;
+			ends = new int[children.length];
+			for (int i = 0; i < children.length; i++) {
+				count += children[i].getCoordinates() == null ? 0 : children[i].getCoordinates().length;
+				ends[i] = count;
+			}
+			coordinates = new Coordinate[count];
+			for (int i = 0; i < children.length; i++) {
+				if (children[i].getCoordinates() != null) {
+					int start = i == 0 ? 0 : ends[i - 1];
+					System.arraycopy(children[i].getCoordinates(), 0, coordinates, start, ends[i] - start);
+				}
+			}
+		} else {
+			coordinates = geometry.getCoordinates();
+		}
+
+		FlatBufferBuilder.Table table = new FlatBufferBuilder.Table(GEOMETRY_FIELDS);
+		boolean hasEnds = ends != null && ends.length > 1;
+		boolean hasXy = coordinates != null && coordinates.length > 0;
+		boolean hasParts = parts != null && parts.length > 0;
+		if (hasEnds) {
+			table.addOffset(GEOMETRY_ENDS);
+		}
+		if (hasXy) {
+			table.addOffset(GEOMETRY_XY);
+		}
+		table.addByte(GEOMETRY_TYPE, typeCode);
+		if (hasParts) {
+			table.addOffset(GEOMETRY_PARTS);
+		}
+		int[] positions = builder.writeTable(table);
+		if (hasEnds) {
+			builder.setOffset(positions[GEOMETRY_ENDS], builder.writeInts(ends, ends.length));
+		}
+		if (hasXy) {
+			double[] xy = new double[2 * coordinates.length];
+			for (int i = 0; i < coordinates.length; i++) {
+				xy[2 * i] = coordinates[i].getX();
+				xy[2 * i + 1] = coordinates[i].getY();
+			}
+			builder.setOffset(positions[GEOMETRY_XY], builder.writeDoubles(xy, xy.length));
+		}
+		if (hasParts) {
+			int vector = builder.writeOffsets(parts.length);
+			builder.setOffset(positions[GEOMETRY_PARTS], vector);
+			for (int i = 0; i < parts.length; i++) {
+				int element = vector + FlatBufferBuilder.INT_SIZE * (i + 1);
+				builder.setOffset(element, writeGeometry(builder, parts[i]));
+			}
+		}
+		return positions[GEOMETRY_FIELDS];
+	}
+
+	private static void readGeometry(FlatBufferTable table, String defaultType, int srid, GeometryHandler handler)
+			throws FlatGeobufException {
+		int typeCode = table.getByte(GEOMETRY_TYPE, 0);
+		String type = typeCode == 0 ? defaultType : getGeometryType(typeCode);
+		if (type == null) {
+			throw new FlatGeobufException(ERR_MSG + "geometry without type");
+		}
+		ByteBuffer buffer = table.getBuffer();
+		int xy = table.getVector(GEOMETRY_XY);
+		int numPoints = table.getVectorLength(GEOMETRY_XY) / 2;
+		handler.startGeometry(type, srid, 0);
+		if (Geometry.MULTI_POLYGON.equals(type)) {
+			int numParts = table.getVectorLength(GEOMETRY_PARTS);
+			for (int i = 0; i < numParts; i++) {
+				FlatBufferTable part = table.getTable(GEOMETRY_PARTS, i);
+				int partCode = part.getByte(GEOMETRY_TYPE, 0);
+				if (partCode != 0 && !Geometry.POLYGON.equals(getGeometryType(partCode))) {
+					throw new FlatGeobufException(ERR_MSG + "a multipolygon can only contain polygons");
+				}
+				readGeometry(part, Geometry.POLYGON, srid, handler);
+			}
+		} else if (Geometry.MULTI_POINT.equals(type)) {
+			for (int i = 0; i < numPoints; i++) {
+				handler.startGeometry(Geometry.POINT, srid, 0);
+				addCoordinates(buffer, xy, i, i + 1, handler);
+				handler.endGeometry();
+			}
+		} else if (Geometry.POLYGON.equals(type) || Geometry.MULTI_LINE_STRING.equals(type)) {
+			String partType = Geometry.POLYGON.equals(type) ? Geometry.LINEAR_RING : Geometry.LINE_STRING;
+			int ends = table.getVector(GEOMETRY_ENDS);
+			int numEnds = table.getVectorLength(GEOMETRY_ENDS);
+			if (numEnds == 0 && numPoints > 0) {
+				handler.startGeometry(partType, srid, 0);
+				addCoordinates(buffer, xy, 0, numPoints, handler);
+				handler.endGeometry();
+			}
+			int start = 0;
+			for (int i = 0; i < numEnds; i++) {
+				int end = buffer.getInt(ends + FlatBufferBuilder.INT_SIZE * i);
+				if (end < start || end > numPoints) {
+					throw new FlatGeobufException(ERR_MSG + "invalid part end " + end);
+				}
+				handler.startGeometry(partType, srid, 0);
+				addCoordinates(buffer, xy, start, end, handler);
+				handler.endGeometry();
+				start = end;
+			}
+		} else {
+			addCoordinates(buffer, xy, 0, numPoints, handler);
+		}
+		handler.endGeometry();
+	}
+
+	private static void addCoordinates(ByteBuffer buffer, int xy, int start, int end, GeometryHandler handler) {
+		for (int i = start; i < end; i++) {
+			int position = xy + 2 * FlatBufferBuilder.LONG_SIZE * i;
+			handler.addCoordinate(buffer.getDouble(position), buffer.getDouble(position + FlatBufferBuilder.LONG_SIZE));
+		}
+	}
+
+	private static Coordinate[] trim(Coordinate[] coordinates, int count) {
+		Coordinate[] trimmed = new Coordinate[count];
+		System.arraycopy(coordinates, 0, trimmed, 0, count);
+		return trimmed;
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.GeometryService;
+
+/**
+ * <p>
+ * Reader for FlatGeobuf files. Only the header is read when the reader is created. The features are read with
+ * positional reads on the channel, so a reader can be shared by several threads, and when the file has an index
+ * {@link #query(Bbox)} only reads the index nodes and the features that intersect the query bounds.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * FileChannel channel = new RandomAccessFile(file, &quot;r&quot;).getChannel();
+ * FlatGeobufReader reader = new FlatGeobufReader(channel);
+ * List&lt;Geometry&gt; geometries = reader.query(bounds);
+ * </pre>
+ *
+ * <p>
+ * Only the geometries of the features are read, with their x and y coordinates. Geometry collections are not
+ * supported.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class FlatGeobufReader {
+
+	private static final String ERR_MSG = "Error while reading FlatGeobuf: ";
+
+	private static final int VERSION_INDEX = 3;
+
+	private static final int MAX_HEADER_SIZE = 10 * 1024 * 1024;
+
+	private static final int BBOX_MAX_X = 2;
+
+	private static final int BBOX_MAX_Y = 3;
+
+	private static final int OFFSET_POSITION = 32;
+
+	private final FileChannel channel;
+
+	private final String geometryType;
+
+	private final int srid;
+
+	private final long featureCount;
+
+	private final Bbox bounds;
+
+	private final int nodeSize;
+
+	private final long indexPosition;
+
+	private final long featuresPosition;
+
+	/**
+	 * Create a reader and read the header of the file.
+	 *
+	 * @param channel
+	 *            The channel to read from. It is not closed by the reader.
+	 * @throws FlatGeobufException
+	 *             In case the file is not a valid FlatGeobuf file, or in case of read errors.
+	 */
+	public FlatGeobufReader(FileChannel channel) throws FlatGeobufException {
+		this.channel = channel;
+		try {
+			int prefix = FlatGeobufFormat.MAGIC.length + FlatGeobufFormat.SIZE_PREFIX;
+			ByteBuffer start = FlatGeobufFormat.read(channel, 0, prefix);
+			for (int i = 0; i < VERSION_INDEX; i++) {
+				if (start.get(i) != FlatGeobufFormat.MAGIC[i]
+						|| start.get(VERSION_INDEX + 1 + i) != FlatGeobufFormat.MAGIC[VERSION_INDEX + 1 + i]) {
+					throw new FlatGeobufException(ERR_MSG + "not a FlatGeobuf file");
+				}
+			}
+			if (start.get(VERSION_INDEX) != FlatGeobufFormat.MAGIC[VERSION_INDEX]) {
+				throw new FlatGeobufException(ERR_MSG + "unsupported version " + start.get(VERSION_INDEX));
+			}
+			int headerSize = start.getInt(FlatGeobufFormat.MAGIC.length);
+			if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+				throw new FlatGeobufException(ERR_MSG + "invalid header size " + headerSize);
+			}
+			FlatBufferTable header = FlatBufferTable.getRoot(FlatGeobufFormat.read(channel, prefix, headerSize));
+			geometryType = FlatGeobufFormat.getGeometryType(header.getByte(FlatGeobufFormat.HEADER_GEOMETRY_TYPE, 0));
+			featureCount = header.getLong(FlatGeobufFormat.HEADER_FEATURES_COUNT, 0);
+			nodeSize = header.getShort(FlatGeobufFormat.HEADER_INDEX_NODE_SIZE, FlatGeobufFormat.DEFAULT_NODE_SIZE);
+			FlatBufferTable crs = header.getTable(FlatGeobufFormat.HEADER_CRS);
+			srid = crs == null ? 0 : crs.getInt(FlatGeobufFormat.CRS_CODE, 0);
+			if (header.getVectorLength(FlatGeobufFormat.HEADER_ENVELOPE) >= BBOX_MAX_Y + 1) {
+				ByteBuffer buffer = header.getBuffer();
+				int envelope = header.getVector(FlatGeobufFormat.HEADER_ENVELOPE);
+				double[] values = new double[BBOX_MAX_Y + 1];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = buffer.getDouble(envelope + FlatBufferBuilder.LONG_SIZE * i);
+				}
+				bounds = new Bbox(values[0], values[1], values[BBOX_MAX_X] - values[0], values[BBOX_MAX_Y]
+						- values[1]);
+			} else {
+				bounds = null;
+			}
+			if (nodeSize == 1 || featureCount < 0) {
+				throw new FlatGeobufException(ERR_MSG + "invalid header");
+			}
+			indexPosition = prefix + headerSize;
+			featuresPosition = indexPosition + (hasIndex() ? PackedRTree.getSize(featureCount, nodeSize) : 0);
+		} catch (IndexOutOfBoundsException e) {
+			throw new FlatGeobufException(ERR_MSG + "invalid header", e);
+		} catch (IOException e) {
+			throw new FlatGeobufException(ERR_MSG + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Get the geometry type of all features.
+	 *
+	 * @return The geometry type, or null if the features have different types.
+	 */
+	public String getGeometryType() {
+		return geometryType;
+	}
+
+	/**
+	 * Get the srid of the features, which is the EPSG code of the coordinate reference system in the header.
+	 *
+	 * @return The srid, 0 if the header has no coordinate reference system.
+	 */
+	public int getSrid() {
+		return srid;
+	}
+
+	/**
+	 * Get the number of features in the file.
+	 *
+	 * @return number of features
+	 */
+	public long getFeatureCount() {
+		return featureCount;
+	}
+
+	/**
+	 * Get the bounds of all features, as written in the header.
+	 *
+	 * @return The bounds, or null if the header does not contain them.
+	 */
+	public Bbox getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Does the file have a spatial index?
+	 *
+	 * @return true if {@link #query(Bbox)} can use an index
+	 */
+	public boolean hasIndex() {
+		return nodeSize > 0 && featureCount > 0;
+	}
+
+	/**
+	 * Read the geometries of all features, in the order of the file.
+	 *
+	 * @return The geometries, with null for features without geometry.
+	 * @throws FlatGeobufException
+	 *             In case of an invalid feature, or in case of read errors.
+	 */
+	public List<Geometry> getGeometries() throws FlatGeobufException {
+		List<Geometry> geometries = new ArrayList<Geometry>();
+		try {
+			long position = featuresPosition;
+			for (long i = 0; i < featureCount; i++) {
+				int size = readSize(position);
+				geometries.add(readFeature(position, size));
+				position += FlatGeobufFormat.SIZE_PREFIX + size;
+			}
+		} catch (IOException e) {
+			throw new FlatGeobufException(ERR_MSG + e.getMessage(), e);
+		}
+		return geometries;
+	}
+
+	/**
+	 * Read the geometries of the features with bounds that intersect the given bounds. When the file has an index,
+	 * only the index nodes and the features that intersect are read, otherwise all features are read and filtered.
+	 *
+	 * @param queryBounds
+	 *            The bounds to search.
+	 * @return The geometries, in the order of the file.
+	 * @throws FlatGeobufException
+	 *             In case of an invalid index or feature, or in case of read errors.
+	 */
+	public List<Geometry> query(Bbox queryBounds) throws FlatGeobufException {
+		if (!hasIndex()) {
+			List<Geometry> result = new ArrayList<Geometry>();
+			for (Geometry geometry : getGeometries()) {
+				Bbox bbox = geometry == null ? null : GeometryService.getBounds(geometry);
+				if (bbox != null && BboxService.intersects(queryBounds, bbox)) {
+					result.add(geometry);
+				}
+			}
+			return result;
+		}
+		try {
+			long[] offsets = search(queryBounds);
+			List<Geometry> result = new ArrayList<Geometry>(offsets.length);
+			for (long offset : offsets) {
+				long position = featuresPosition + offset;
+				result.add(readFeature(position, readSize(position)));
+			}
+			return result;
+		} catch (IOException e) {
+			throw new FlatGeobufException(ERR_MSG + e.getMessage(), e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Search the index, reading all children of a node at once. Returns the sorted feature offsets. */
+	private long[] search(Bbox queryBounds) throws IOException, FlatGeobufException {
+		long[][] levelBounds = PackedRTree.getLevelBounds(featureCount, nodeSize);
+		long[] offsets = new long[16];
+		int numOffsets = 0;
+		// stack of node index and level
+		List<long[]> stack = new ArrayList<long[]>();
+		stack.add(new long[] { 0, levelBounds.length - 1 });
+		while (!stack.isEmpty()) {
+			long[] next = stack.remove(stack.size() - 1);
+			long nodeIndex = next[0];
+			int level = (int) next[1];
+			long end = Math.min(nodeIndex + nodeSize, levelBounds[level][1]);
+			ByteBuffer nodes = FlatGeobufFormat.read(channel, indexPosition + nodeIndex * PackedRTree.NODE_SIZE,
+					(int) (end - nodeIndex) * PackedRTree.NODE_SIZE);
+			for (int i = 0; i < end - nodeIndex; i++) {
+				int node = i * PackedRTree.NODE_SIZE;
+				int coordinate = FlatBufferBuilder.LONG_SIZE;
+				// written positively, so NaN bounds never intersect
+				if (nodes.getDouble(node) <= queryBounds.getMaxX()
+						&& nodes.getDouble(node + coordinate) <= queryBounds.getMaxY()
+						&& nodes.getDouble(node + BBOX_MAX_X * coordinate) >= queryBounds.getX()
+						&& nodes.getDouble(node + BBOX_MAX_Y * coordinate) >= queryBounds.getY()) {
+					long offset = nodes.getLong(node + OFFSET_POSITION);
+					if (level == 0) {
+						if (numOffsets == offsets.length) {
+							offsets = Arrays.copyOf(offsets, 2 * numOffsets);
+						}
+						offsets[numOffsets++] = offset;
+					} else if (offset >= levelBounds[level - 1][0] && offset < levelBounds[level - 1][1]) {
+						stack.add(new long[] { offset, level - 1 });
+					} else {
+						throw new FlatGeobufException(ERR_MSG + "invalid index node " + (nodeIndex + i));
+					}
+				}
+			}
+		}
+		offsets = Arrays.copyOf(offsets, numOffsets);
+		Arrays.sort(offsets);
+		return offsets;
+	}
+
+	private int readSize(long position) throws IOException, FlatGeobufException {
+		int size = FlatGeobufFormat.read(channel, position, FlatGeobufFormat.SIZE_PREFIX).getInt(0);
+		if (size < 0) {
+			throw new FlatGeobufException(ERR_MSG + "invalid feature size at " + position);
+		}
+		return size;
+	}
+
+	private Geometry readFeature(long position, int size) throws IOException, FlatGeobufException {
+		ByteBuffer buffer = FlatGeobufFormat.read(channel, position + FlatGeobufFormat.SIZE_PREFIX, size);
+		return FlatGeobufFormat.readFeature(buffer, geometryType, srid);
+	}
+}
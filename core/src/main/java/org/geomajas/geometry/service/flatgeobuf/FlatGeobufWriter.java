@@ -0,0 +1,264 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.GeometryService;
+
+/**
+ * <p>
+ * Writer for FlatGeobuf files, with a packed Hilbert R-tree index so that {@link FlatGeobufReader#query(Bbox)} only
+ * has to read the features that intersect the query bounds. Every geometry is written as a feature without
+ * properties.
+ * </p>
+ * <p>
+ * Since the index comes before the features and determines their order, the features are encoded as soon as they are
+ * passed but they are only written when {@link #finish()} is called. The geometry type and the srid of the header are
+ * taken from the geometries: if they all have the same type, it is written in the header, otherwise the type is
+ * unknown.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * FlatGeobufWriter features = new FlatGeobufWriter(out);
+ * for (Geometry geometry : geometries) {
+ * 	features.write(geometry);
+ * }
+ * features.finish();
+ * </pre>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class FlatGeobufWriter {
+
+	/** The default number of children of a node of the index. */
+	public static final int DEFAULT_NODE_SIZE = FlatGeobufFormat.DEFAULT_NODE_SIZE;
+
+	private static final String ERR_MSG_WRITE = "Error while writing FlatGeobuf: ";
+
+	private static final int MAX_NODE_SIZE = 0xFFFF;
+
+	private final OutputStream out;
+
+	private final int nodeSize;
+
+	private final List<FlatBufferBuilder> features = new ArrayList<FlatBufferBuilder>();
+
+	private double[] bounds = new double[64];
+
+	private String geometryType;
+
+	private boolean mixed;
+
+	private int srid;
+
+	private boolean finished;
+
+	/**
+	 * Create a writer with an index with the default node size.
+	 *
+	 * @param out
+	 *            The output to write to. When writing to an unbuffered stream, wrap it in a
+	 *            {@link java.io.BufferedOutputStream}.
+	 */
+	public FlatGeobufWriter(OutputStream out) {
+		this(out, DEFAULT_NODE_SIZE);
+	}
+
+	/**
+	 * Create a writer.
+	 *
+	 * @param out
+	 *            The output to write to. When writing to an unbuffered stream, wrap it in a
+	 *            {@link java.io.BufferedOutputStream}.
+	 * @param nodeSize
+	 *            The maximum number of children of a node of the index, between 2 and 65535, or 0 to write the
+	 *            features in the order in which they are passed, without index.
+	 */
+	public FlatGeobufWriter(OutputStream out, int nodeSize) {
+		if (nodeSize != 0 && (nodeSize < 2 || nodeSize > MAX_NODE_SIZE)) {
+			throw new IllegalArgumentException("Node size should be 0 or between 2 and " + MAX_NODE_SIZE);
+		}
+		this.out = out;
+		this.nodeSize = nodeSize;
+	}
+
+	/**
+	 * Add a feature with the given geometry.
+	 *
+	 * @param geometry
+	 *            The geometry of the feature, or null for a feature without geometry.
+	 * @throws FlatGeobufException
+	 *             In case the geometry type is not supported, or the file has been finished.
+	 */
+	public void write(Geometry geometry) throws FlatGeobufException {
+		if (finished) {
+			throw new FlatGeobufException(ERR_MSG_WRITE + "the file has been finished");
+		}
+		int index = features.size();
+		features.add(FlatGeobufFormat.writeFeature(geometry));
+		if (bounds.length < 4 * (index + 1)) {
+			double[] grown = new double[2 * bounds.length];
+			System.arraycopy(bounds, 0, grown, 0, bounds.length);
+			bounds = grown;
+		}
+		Bbox bbox = geometry == null ? null : GeometryService.getBounds(geometry);
+		if (bbox == null) {
+			// empty features are never found by a query
+			for (int i = 0; i < 4; i++) {
+				bounds[4 * index + i] = Double.NaN;
+			}
+		} else {
+			bounds[4 * index] = bbox.getX();
+			bounds[4 * index + 1] = bbox.getY();
+			bounds[4 * index + 2] = bbox.getMaxX();
+			bounds[4 * index + 3] = bbox.getMaxY();
+		}
+		if (geometry != null) {
+			String type = Geometry.LINEAR_RING.equals(geometry.getGeometryType()) ? Geometry.LINE_STRING : geometry
+					.getGeometryType();
+			if (geometryType == null && !mixed) {
+				geometryType = type;
+				srid = geometry.getSrid();
+			} else if (!type.equals(geometryType)) {
+				geometryType = null;
+				mixed = true;
+			}
+		}
+	}
+
+	/**
+	 * Write the file: the header, the index and the features. The output is not closed.
+	 *
+	 * @throws FlatGeobufException
+	 *             In case something went wrong while writing.
+	 */
+	public void finish() throws FlatGeobufException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		int count = features.size();
+		double[] extent = getExtent();
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		boolean indexed = nodeSize > 0 && count > 0;
+		if (indexed && extent != null) {
+			order = PackedRTree.sort(bounds, count, extent);
+		}
+		try {
+			out.write(FlatGeobufFormat.MAGIC);
+			FlatBufferBuilder header = writeHeader(extent);
+			writeSize(header.size());
+			header.writeTo(out);
+			if (indexed) {
+				double[] sorted = new double[4 * count];
+				long[] offsets = new long[count];
+				long offset = 0;
+				for (int i = 0; i < count; i++) {
+					System.arraycopy(bounds, 4 * order[i], sorted, 4 * i, 4);
+					offsets[i] = offset;
+					offset += FlatGeobufFormat.SIZE_PREFIX + features.get(order[i]).size();
+				}
+				ByteBuffer tree = PackedRTree.build(sorted, offsets, count, nodeSize);
+				out.write(tree.array(), 0, tree.limit());
+			}
+			for (int i = 0; i < count; i++) {
+				FlatBufferBuilder feature = features.get(order[i]);
+				writeSize(feature.size());
+				feature.writeTo(out);
+				// release the memory as soon as possible
+				features.set(order[i], null);
+			}
+		} catch (IOException e) {
+			throw new FlatGeobufException(ERR_MSG_WRITE + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Get the number of features that have been written.
+	 *
+	 * @return number of features
+	 */
+	public int getCount() {
+		return features.size();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private double[] getExtent() {
+		double[] extent = null;
+		for (int i = 0; i < features.size(); i++) {
+			if (!Double.isNaN(bounds[4 * i])) {
+				if (extent == null) {
+					extent = new double[4];
+					System.arraycopy(bounds, 4 * i, extent, 0, 4);
+				} else {
+					extent[0] = Math.min(extent[0], bounds[4 * i]);
+					extent[1] = Math.min(extent[1], bounds[4 * i + 1]);
+					extent[2] = Math.max(extent[2], bounds[4 * i + 2]);
+					extent[3] = Math.max(extent[3], bounds[4 * i + 3]);
+				}
+			}
+		}
+		return extent;
+	}
+
+	private FlatBufferBuilder writeHeader(double[] extent) throws FlatGeobufException {
+		FlatBufferBuilder builder = new FlatBufferBuilder();
+		FlatBufferBuilder.Table header = new FlatBufferBuilder.Table(FlatGeobufFormat.HEADER_FIELDS);
+		if (extent != null) {
+			header.addOffset(FlatGeobufFormat.HEADER_ENVELOPE);
+		}
+		header.addByte(FlatGeobufFormat.HEADER_GEOMETRY_TYPE,
+				geometryType == null ? 0 : FlatGeobufFormat.getTypeCode(geometryType));
+		header.addLong(FlatGeobufFormat.HEADER_FEATURES_COUNT, features.size());
+		header.addShort(FlatGeobufFormat.HEADER_INDEX_NODE_SIZE, nodeSize);
+		if (srid != 0) {
+			header.addOffset(FlatGeobufFormat.HEADER_CRS);
+		}
+		int[] positions = builder.writeTable(header);
+		builder.setOffset(0, positions[FlatGeobufFormat.HEADER_FIELDS]);
+		if (extent != null) {
+			builder.setOffset(positions[FlatGeobufFormat.HEADER_ENVELOPE], builder.writeDoubles(extent, 4));
+		}
+		if (srid != 0) {
+			FlatBufferBuilder.Table crs = new FlatBufferBuilder.Table(FlatGeobufFormat.CRS_FIELDS);
+			crs.addInt(FlatGeobufFormat.CRS_CODE, srid);
+			int[] crsPositions = builder.writeTable(crs);
+			builder.setOffset(positions[FlatGeobufFormat.HEADER_CRS], crsPositions[FlatGeobufFormat.CRS_FIELDS]);
+		}
+		return builder;
+	}
+
+	private void writeSize(int size) throws IOException {
+		for (int i = 0; i < FlatGeobufFormat.SIZE_PREFIX; i++) {
+			out.write(size >>> (Byte.SIZE * i));
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Static helpers for the packed Hilbert R-tree of FlatGeobuf. The tree is stored as an array of nodes, with the root
+ * first and the leaves last. Every node has a bounding box and an offset: for a leaf it is the byte offset of the
+ * feature in the feature section, for other nodes it is the index of the first child node.
+ * </p>
+ * <p>
+ * The leaves are the features, sorted on the Hilbert value of the center of their bounds. Since the tree is built
+ * bottom up from the sorted leaves, it is completely determined by the number of features and the node size.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ */
+final class PackedRTree {
+
+	/** Size of a node: four doubles and an unsigned long. */
+	static final int NODE_SIZE = 40;
+
+	private static final int HILBERT_MAX = (1 << 16) - 1;
+
+	private PackedRTree() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Get the start (inclusive) and end (exclusive) node index of every level of the tree, starting with the leaves.
+	 *
+	 * @param numItems
+	 *            number of features, at least 1
+	 * @param nodeSize
+	 *            maximum number of children of a node, at least 2
+	 * @return the level bounds
+	 */
+	static long[][] getLevelBounds(long numItems, int nodeSize) {
+		List<Long> levelNumNodes = new ArrayList<Long>();
+		long n = numItems;
+		long numNodes = n;
+		levelNumNodes.add(n);
+		do {
+			n = (n + nodeSize - 1) / nodeSize;
+			numNodes += n;
+			levelNumNodes.add(n);
+		} while (n != 1);
+		long[][] levelBounds = new long[levelNumNodes.size()][];
+		long end = numNodes;
+		for (int i = 0; i < levelBounds.length; i++) {
+			long start = end - levelNumNodes.get(i);
+			levelBounds[i] = new long[] { start, end };
+			end = start;
+		}
+		return levelBounds;
+	}
+
+	/**
+	 * Get the size of the tree in bytes.
+	 *
+	 * @param numItems
+	 *            number of features, at least 1
+	 * @param nodeSize
+	 *            maximum number of children of a node, at least 2
+	 * @return size in bytes
+	 */
+	static long getSize(long numItems, int nodeSize) {
+		return getLevelBounds(numItems, nodeSize)[0][1] * NODE_SIZE;
+	}
+
+	/**
+	 * Get the order of the features in the tree, by descending Hilbert value of the center of their bounds.
+	 *
+	 * @param bounds
+	 *            minX, minY, maxX and maxY of every feature, NaN for empty features
+	 * @param numItems
+	 *            number of features
+	 * @param extent
+	 *            minX, minY, maxX and maxY of all features
+	 * @return the indices of the features in tree order
+	 */
+	static int[] sort(double[] bounds, int numItems, double[] extent) {
+		double width = extent[2] - extent[0];
+		double height = extent[3] - extent[1];
+		long[] keys = new long[numItems];
+		for (int i = 0; i < numItems; i++) {
+			int x = 0;
+			int y = 0;
+			if (width > 0) {
+				x = (int) Math.floor(HILBERT_MAX * ((bounds[4 * i] + bounds[4 * i + 2]) / 2 - extent[0]) / width);
+			}
+			if (height > 0) {
+				y = (int) Math.floor(HILBERT_MAX * ((bounds[4 * i + 1] + bounds[4 * i + 3]) / 2 - extent[1]) / height);
+			}
+			// keep the index in the lower bits, so a single sort suffices and equal values stay in order, and flip the
+			// sign bit to sort unsigned
+			keys[i] = ((hilbert(x, y) << Integer.SIZE) | (numItems - 1 - i)) ^ Long.MIN_VALUE;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[numItems];
+		for (int i = 0; i < numItems; i++) {
+			order[i] = numItems - 1 - (int) keys[numItems - 1 - i];
+		}
+		return order;
+	}
+
+	/**
+	 * Build the tree.
+	 *
+	 * @param bounds
+	 *            minX, minY, maxX and maxY of every feature in tree order, NaN for empty features
+	 * @param offsets
+	 *            byte offset of every feature in tree order
+	 * @param numItems
+	 *            number of features, at least 1
+	 * @param nodeSize
+	 *            maximum number of children of a node, at least 2
+	 * @return the nodes, ready to be written
+	 */
+	static ByteBuffer build(double[] bounds, long[] offsets, int numItems, int nodeSize) {
+		long[][] levelBounds = getLevelBounds(numItems, nodeSize);
+		int numNodes = (int) levelBounds[0][1];
+		double[] nodes = new double[4 * numNodes];
+		long[] nodeOffsets = new long[numNodes];
+		int leaves = (int) levelBounds[0][0];
+		System.arraycopy(bounds, 0, nodes, 4 * leaves, 4 * numItems);
+		System.arraycopy(offsets, 0, nodeOffsets, leaves, numItems);
+		for (int level = 0; level < levelBounds.length - 1; level++) {
+			int pos = (int) levelBounds[level][0];
+			int end = (int) levelBounds[level][1];
+			int parent = (int) levelBounds[level + 1][0];
+			while (pos < end) {
+				nodes[4 * parent] = Double.POSITIVE_INFINITY;
+				nodes[4 * parent + 1] = Double.POSITIVE_INFINITY;
+				nodes[4 * parent + 2] = Double.NEGATIVE_INFINITY;
+				nodes[4 * parent + 3] = Double.NEGATIVE_INFINITY;
+				nodeOffsets[parent] = pos;
+				for (int i = 0; i < nodeSize && pos < end; i++, pos++) {
+					// written as comparisons, so the NaN bounds of empty features are skipped
+					for (int j = 0; j < 2; j++) {
+						if (nodes[4 * pos + j] < nodes[4 * parent + j]) {
+							nodes[4 * parent + j] = nodes[4 * pos + j];
+						}
+						if (nodes[4 * pos + 2 + j] > nodes[4 * parent + 2 + j]) {
+							nodes[4 * parent + 2 + j] = nodes[4 * pos + 2 + j];
+						}
+					}
+				}
+				parent++;
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(numNodes * NODE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < numNodes; i++) {
+			for (int j = 0; j < 4; j++) {
+				buffer.putDouble(nodes[4 * i + j]);
+			}
+			buffer.putLong(nodeOffsets[i]);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Calculate the position of a point on the Hilbert curve of order 16.
+	 *
+	 * @param x
+	 *            x, between 0 and 65535
+	 * @param y
+	 *            y, between 0 and 65535
+	 * @return the position, between 0 and 2^32 - 1
+	 */
+	static long hilbert(int x, int y) {
+		int a = x ^ y;
+		int b = HILBERT_MAX ^ a;
+		int c = HILBERT_MAX ^ (x | y);
+		int d = x & (y ^ HILBERT_MAX);
+
+		int aa = a | (b >>> 1);
+		int bb = (a >>> 1) ^ a;
+		int cc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+		int dd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+		a = aa;
+		b = bb;
+		c = cc;
+		d = dd;
+		aa = (a & (a >>> 2)) ^ (b & (b >>> 2));
+		bb = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+		cc ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+		dd ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+		a = aa;
+		b = bb;
+		c = cc;
+		d = dd;
+		aa = (a & (a >>> 4)) ^ (b & (b >>> 4));
+		bb = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+		cc ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+		dd ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+		a = aa;
+		b = bb;
+		c = cc;
+		d = dd;
+		cc ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+		dd ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+		a = cc ^ (cc >>> 1);
+		b = dd ^ (dd >>> 1);
+
+		int i0 = x ^ y;
+		int i1 = b | (HILBERT_MAX ^ (i0 | a));
+		return ((long) interleave(i1) << 1 | interleave(i0)) & 0xFFFFFFFFL;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	/** Spread the lower 16 bits to the even bits. */
+	private static int interleave(int value) {
+		int result = (value | (value << 8)) & 0x00FF00FF;
+		result = (result | (result << 4)) & 0x0F0F0F0F;
+		result = (result | (result << 2)) & 0x33333333;
+		return (result | (result << 1)) & 0x55555555;
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.mvt;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+
+/**
+ * <p>
+ * Service for encoding geometries as Mapbox Vector Tile (MVT) geometry commands. The coordinates are transformed into
+ * tile pixel space with a {@link Matrix} and rounded to integers. They are then written as MoveTo, LineTo and
+ * ClosePath commands, with zig-zag encoded deltas, as described in version 2.1 of the vector tile specification.
+ * </p>
+ * <p>
+ * Points that coincide after rounding are removed from lines and rings, and lines or rings that become degenerate are
+ * left out. Exterior rings are written clockwise and interior rings counterclockwise (in tile space, where the y-axis
+ * points down), reversing them when needed. Geometries are not clipped to the tile.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public final class MvtService {
+
+	/** The default extent (width and height in pixels) of a tile. */
+	public static final int DEFAULT_EXTENT = 4096;
+
+	/** Geometry type of an unknown geometry. */
+	public static final int GEOM_TYPE_UNKNOWN = 0;
+
+	/** Geometry type of points and multipoints. */
+	public static final int GEOM_TYPE_POINT = 1;
+
+	/** Geometry type of line strings and multilinestrings. */
+	public static final int GEOM_TYPE_LINE_STRING = 2;
+
+	/** Geometry type of polygons and multipolygons. */
+	public static final int GEOM_TYPE_POLYGON = 3;
+
+	private static final int MOVE_TO = 1;
+
+	private static final int LINE_TO = 2;
+
+	private static final int CLOSE_PATH = 7;
+
+	private static final int COMMAND_SHIFT = 3;
+
+	private static final int MIN_RING_SIZE = 3;
+
+	private MvtService() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Get the matrix that transforms world coordinates into the pixel space of a tile, with the origin at the top left
+	 * corner of the tile and the y-axis pointing down.
+	 *
+	 * @param tileBounds
+	 *            The bounds of the tile in world coordinates.
+	 * @param extent
+	 *            The width and height of the tile in pixels.
+	 * @return The transformation matrix.
+	 */
+	public static Matrix getTileMatrix(Bbox tileBounds, int extent) {
+		double scaleX = extent / tileBounds.getWidth();
+		double scaleY = extent / tileBounds.getHeight();
+		return new Matrix(scaleX, 0, 0, -scaleY, -tileBounds.getX() * scaleX, tileBounds.getMaxY() * scaleY);
+	}
+
+	/**
+	 * Get the MVT geometry type of a geometry.
+	 *
+	 * @param geometry
+	 *            The geometry.
+	 * @return One of the GEOM_TYPE constants.
+	 */
+	public static int getGeomType(Geometry geometry) {
+		String type = geometry.getGeometryType();
+		if (Geometry.POINT.equals(type) || Geometry.MULTI_POINT.equals(type)) {
+			return GEOM_TYPE_POINT;
+		} else if (Geometry.LINE_STRING.equals(type) || Geometry.LINEAR_RING.equals(type)
+				|| Geometry.MULTI_LINE_STRING.equals(type)) {
+			return GEOM_TYPE_LINE_STRING;
+		} else if (Geometry.POLYGON.equals(type) || Geometry.MULTI_POLYGON.equals(type)) {
+			return GEOM_TYPE_POLYGON;
+		}
+		return GEOM_TYPE_UNKNOWN;
+	}
+
+	/**
+	 * Encode a geometry as MVT geometry commands.
+	 *
+	 * @param geometry
+	 *            The geometry to encode.
+	 * @param matrix
+	 *            The transformation to tile pixel space, see {@link #getTileMatrix(Bbox, int)}.
+	 * @return The command integers, an empty array if nothing remains of the geometry after rounding.
+	 */
+	public static int[] toCommands(Geometry geometry, Matrix matrix) {
+		Commands commands = new Commands();
+		writeCommands(geometry, matrix, commands);
+		return commands.toArray();
+	}
+
+	// ------------------------------------------------------------------------
+	// Package visible methods for the tile builder:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Encode a geometry as MVT geometry commands, into a reusable buffer.
+	 *
+	 * @param geometry
+	 *            geometry
+	 * @param matrix
+	 *            transformation to tile pixel space
+	 * @param commands
+	 *            the buffer, which is cleared first
+	 */
+	static void writeCommands(Geometry geometry, Matrix matrix, Commands commands) {
+		if (geometry == null) {
+			throw new IllegalArgumentException("Cannot encode null geometry.");
+		}
+		commands.clear();
+		switch (getGeomType(geometry)) {
+			case GEOM_TYPE_POINT:
+				writePoints(geometry, matrix, commands);
+				break;
+			case GEOM_TYPE_LINE_STRING:
+				if (geometry.getGeometries() == null) {
+					writeLine(geometry.getCoordinates(), matrix, commands);
+				} else {
+					for (Geometry line : geometry.getGeometries()) {
+						writeLine(line.getCoordinates(), matrix, commands);
+					}
+				}
+				break;
+			case GEOM_TYPE_POLYGON:
+				if (Geometry.POLYGON.equals(geometry.getGeometryType())) {
+					writePolygon(geometry, matrix, commands);
+				} else if (geometry.getGeometries() != null) {
+					for (Geometry polygon : geometry.getGeometries()) {
+						writePolygon(polygon, matrix, commands);
+					}
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Cannot encode geometry of type " + geometry.getGeometryType());
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static void writePoints(Geometry geometry, Matrix matrix, Commands commands) {
+		Coordinate[] points;
+		if (geometry.getGeometries() == null) {
+			points = geometry.getCoordinates() == null ? new Coordinate[0] : geometry.getCoordinates();
+		} else {
+			int count = 0;
+			points = new Coordinate[geometry.getGeometries().length];
+			for (Geometry point : geometry.getGeometries()) {
+				if (point.getCoordinates() != null && point.getCoordinates().length > 0) {
+					points[count++] = point.getCoordinates()[0];
+				}
+			}
+			Coordinate[] trimmed = new Coordinate[count];
+			System.arraycopy(points, 0, trimmed, 0, count);
+			points = trimmed;
+		}
+		if (points.length > 0) {
+			commands.add(command(MOVE_TO, points.length));
+			for (Coordinate point : points) {
+				commands.addPoint(transformX(point, matrix), transformY(point, matrix));
+			}
+		}
+	}
+
+	private static void writeLine(Coordinate[] coordinates, Matrix matrix, Commands commands) {
+		Ring line = new Ring(coordinates, matrix);
+		if (line.size >= 2) {
+			commands.add(command(MOVE_TO, 1));
+			commands.addPoint(line.x[0], line.y[0]);
+			commands.add(command(LINE_TO, line.size - 1));
+			for (int i = 1; i < line.size; i++) {
+				commands.addPoint(line.x[i], line.y[i]);
+			}
+		}
+	}
+
+	private static void writePolygon(Geometry polygon, Matrix matrix, Commands commands) {
+		Geometry[] rings = polygon.getGeometries();
+		if (rings == null || rings.length == 0) {
+			return;
+		}
+		Ring shell = new Ring(rings[0].getCoordinates(), matrix);
+		shell.removeClosingPoint();
+		long area = shell.getDoubleArea();
+		if (shell.size < MIN_RING_SIZE || area == 0) {
+			// the holes are left out as well
+			return;
+		}
+		writeRing(shell, area < 0, commands);
+		for (int i = 1; i < rings.length; i++) {
+			Ring hole = new Ring(rings[i].getCoordinates(), matrix);
+			hole.removeClosingPoint();
+			area = hole.getDoubleArea();
+			if (hole.size >= MIN_RING_SIZE && area != 0) {
+				writeRing(hole, area > 0, commands);
+			}
+		}
+	}
+
+	private static void writeRing(Ring ring, boolean reverse, Commands commands) {
+		if (reverse) {
+			ring.reverse();
+		}
+		commands.add(command(MOVE_TO, 1));
+		commands.addPoint(ring.x[0], ring.y[0]);
+		commands.add(command(LINE_TO, ring.size - 1));
+		for (int i = 1; i < ring.size; i++) {
+			commands.addPoint(ring.x[i], ring.y[i]);
+		}
+		commands.add(command(CLOSE_PATH, 1));
+	}
+
+	private static int command(int id, int count) {
+		return id | (count << COMMAND_SHIFT);
+	}
+
+	private static int transformX(Coordinate c, Matrix matrix) {
+		return (int) Math.round(c.getX() * matrix.getXx() + c.getY() * matrix.getXy() + matrix.getDx());
+	}
+
+	private static int transformY(Coordinate c, Matrix matrix) {
+		return (int) Math.round(c.getX() * matrix.getYx() + c.getY() * matrix.getYy() + matrix.getDy());
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Growing array of command integers, that keeps track of the cursor.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	static final class Commands {
+
+		private static final int INITIAL_SIZE = 32;
+
+		private int[] values = new int[INITIAL_SIZE];
+
+		private int size;
+
+		private int x;
+
+		private int y;
+
+		int[] getValues() {
+			return values;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(values, 0, result, 0, size);
+			return result;
+		}
+
+		private void clear() {
+			size = 0;
+			x = 0;
+			y = 0;
+		}
+
+		private void add(int value) {
+			if (size == values.length) {
+				int[] grown = new int[2 * size];
+				System.arraycopy(values, 0, grown, 0, size);
+				values = grown;
+			}
+			values[size++] = value;
+		}
+
+		private void addPoint(int px, int py) {
+			add(zigZag(px - x));
+			add(zigZag(py - y));
+			x = px;
+			y = py;
+		}
+
+		private static int zigZag(int value) {
+			return (value << 1) ^ (value >> (Integer.SIZE - 1));
+		}
+	}
+
+	/**
+	 * Coordinates of a line or ring in tile space, without repeated points.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Ring {
+
+		private final int[] x;
+
+		private final int[] y;
+
+		private int size;
+
+		private Ring(Coordinate[] coordinates, Matrix matrix) {
+			int length = coordinates == null ? 0 : coordinates.length;
+			x = new int[length];
+			y = new int[length];
+			for (int i = 0; i < length; i++) {
+				int px = transformX(coordinates[i], matrix);
+				int py = transformY(coordinates[i], matrix);
+				if (size == 0 || px != x[size - 1] || py != y[size - 1]) {
+					x[size] = px;
+					y[size] = py;
+					size++;
+				}
+			}
+		}
+
+		private void removeClosingPoint() {
+			if (size > 1 && x[0] == x[size - 1] && y[0] == y[size - 1]) {
+				size--;
+			}
+		}
+
+		/** Twice the signed area, positive for clockwise rings in tile space. */
+		private long getDoubleArea() {
+			long area = 0;
+			for (int i = 0; i < size; i++) {
+				int j = (i + 1) % size;
+				area += (long) x[i] * y[j] - (long) x[j] * y[i];
+			}
+			return area;
+		}
+
+		private void reverse() {
+			for (int i = 0, j = size - 1; i < j; i++, j--) {
+				int swap = x[i];
+				x[i] = x[j];
+				x[j] = swap;
+				swap = y[i];
+				y[i] = y[j];
+				y[j] = swap;
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.mvt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+
+/**
+ * <p>
+ * Builder for a Mapbox Vector Tile (MVT). Features are added to named layers, and the tile is written as protocol
+ * buffers with {@link #toByteArray()}. Features are encoded as soon as they are added, so the builder does not keep
+ * any geometries.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * MvtTileBuilder tile = new MvtTileBuilder(tileBounds);
+ * tile.addFeature(&quot;roads&quot;, geometry, properties);
+ * byte[] mvt = tile.toByteArray();
+ * </pre>
+ *
+ * <p>
+ * Property values can be strings, booleans, integral numbers, floats and doubles. Other values are written as their
+ * string representation and null values are left out.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class MvtTileBuilder {
+
+	private static final int VERSION = 2;
+
+	// field numbers of the vector tile messages
+	private static final int TILE_LAYERS = 3;
+
+	private static final int LAYER_NAME = 1;
+
+	private static final int LAYER_FEATURES = 2;
+
+	private static final int LAYER_KEYS = 3;
+
+	private static final int LAYER_VALUES = 4;
+
+	private static final int LAYER_EXTENT = 5;
+
+	private static final int LAYER_VERSION = 15;
+
+	private static final int FEATURE_ID = 1;
+
+	private static final int FEATURE_TAGS = 2;
+
+	private static final int FEATURE_TYPE = 3;
+
+	private static final int FEATURE_GEOMETRY = 4;
+
+	private static final int VALUE_STRING = 1;
+
+	private static final int VALUE_FLOAT = 2;
+
+	private static final int VALUE_DOUBLE = 3;
+
+	private static final int VALUE_UINT = 5;
+
+	private static final int VALUE_SINT = 6;
+
+	private static final int VALUE_BOOL = 7;
+
+	private final Matrix matrix;
+
+	private final int extent;
+
+	private final Map<String, Layer> layers = new LinkedHashMap<String, Layer>();
+
+	private final MvtService.Commands commands = new MvtService.Commands();
+
+	private int[] tags = new int[0];
+
+	/**
+	 * Create a builder for a tile with the default extent of 4096 pixels.
+	 *
+	 * @param tileBounds
+	 *            The bounds of the tile in world coordinates.
+	 */
+	public MvtTileBuilder(Bbox tileBounds) {
+		this(MvtService.getTileMatrix(tileBounds, MvtService.DEFAULT_EXTENT), MvtService.DEFAULT_EXTENT);
+	}
+
+	/**
+	 * Create a builder for a tile with a custom transformation to tile pixel space.
+	 *
+	 * @param matrix
+	 *            The transformation from world coordinates to tile pixels, see
+	 *            {@link MvtService#getTileMatrix(Bbox, int)}.
+	 * @param extent
+	 *            The width and height of the tile in pixels.
+	 */
+	public MvtTileBuilder(Matrix matrix, int extent) {
+		this.matrix = matrix;
+		this.extent = extent;
+	}
+
+	/**
+	 * Add a feature without id to a layer.
+	 *
+	 * @param layerName
+	 *            The name of the layer, which is created if needed.
+	 * @param geometry
+	 *            The geometry of the feature.
+	 * @param properties
+	 *            The properties of the feature, may be null.
+	 * @return true if the feature was added, false if nothing remained of the geometry after rounding to pixels
+	 */
+	public boolean addFeature(String layerName, Geometry geometry, Map<String, ?> properties) {
+		return addFeature(layerName, -1, geometry, properties);
+	}
+
+	/**
+	 * Add a feature to a layer.
+	 *
+	 * @param layerName
+	 *            The name of the layer, which is created if needed.
+	 * @param id
+	 *            The id of the feature, negative for no id.
+	 * @param geometry
+	 *            The geometry of the feature.
+	 * @param properties
+	 *            The properties of the feature, may be null.
+	 * @return true if the feature was added, false if nothing remained of the geometry after rounding to pixels
+	 */
+	public boolean addFeature(String layerName, long id, Geometry geometry, Map<String, ?> properties) {
+		MvtService.writeCommands(geometry, matrix, commands);
+		if (commands.size() == 0) {
+			return false;
+		}
+		Layer layer = layers.get(layerName);
+		if (layer == null) {
+			layer = new Layer();
+			layers.put(layerName, layer);
+		}
+		int numTags = 0;
+		if (properties != null) {
+			if (tags.length < 2 * properties.size()) {
+				tags = new int[2 * properties.size()];
+			}
+			for (Map.Entry<String, ?> entry : properties.entrySet()) {
+				if (entry.getKey() != null && entry.getValue() != null) {
+					tags[numTags++] = layer.getKey(entry.getKey());
+					tags[numTags++] = layer.getValue(entry.getValue());
+				}
+			}
+		}
+		ProtobufWriter feature = new ProtobufWriter();
+		if (id >= 0) {
+			feature.writeVarint(FEATURE_ID, id);
+		}
+		feature.writePacked(FEATURE_TAGS, tags, numTags);
+		feature.writeVarint(FEATURE_TYPE, MvtService.getGeomType(geometry));
+		feature.writePacked(FEATURE_GEOMETRY, commands.getValues(), commands.size());
+		layer.features.writeMessage(LAYER_FEATURES, feature);
+		return true;
+	}
+
+	/**
+	 * Write the tile. Layers are written in the order in which they were created, empty layers are not written.
+	 *
+	 * @return The encoded tile.
+	 */
+	public byte[] toByteArray() {
+		ProtobufWriter tile = new ProtobufWriter();
+		for (Map.Entry<String, Layer> entry : layers.entrySet()) {
+			Layer layer = entry.getValue();
+			ProtobufWriter message = new ProtobufWriter();
+			message.writeString(LAYER_NAME, entry.getKey());
+			message.append(layer.features);
+			for (String key : layer.keys.keySet()) {
+				message.writeString(LAYER_KEYS, key);
+			}
+			for (Object value : layer.values.keySet()) {
+				message.writeMessage(LAYER_VALUES, toValue(value));
+			}
+			message.writeVarint(LAYER_EXTENT, extent);
+			message.writeVarint(LAYER_VERSION, VERSION);
+			tile.writeMessage(TILE_LAYERS, message);
+		}
+		return tile.toByteArray();
+	}
+
+	// ------------------------------------------------------------------------
+	// Private methods:
+	// ------------------------------------------------------------------------
+
+	private static ProtobufWriter toValue(Object value) {
+		ProtobufWriter message = new ProtobufWriter();
+		if (value instanceof Boolean) {
+			message.writeVarint(VALUE_BOOL, ((Boolean) value) ? 1 : 0);
+		} else if (value instanceof Double) {
+			message.writeDouble(VALUE_DOUBLE, (Double) value);
+		} else if (value instanceof Float) {
+			message.writeFloat(VALUE_FLOAT, (Float) value);
+		} else if (value instanceof Long) {
+			long number = (Long) value;
+			if (number < 0) {
+				message.writeSigned(VALUE_SINT, number);
+			} else {
+				message.writeVarint(VALUE_UINT, number);
+			}
+		} else {
+			message.writeString(VALUE_STRING, value.toString());
+		}
+		return message;
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Encoded features and key and value tables of a layer.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Layer {
+
+		private final ProtobufWriter features = new ProtobufWriter();
+
+		private final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+		private final Map<Object, Integer> values = new LinkedHashMap<Object, Integer>();
+
+		private int getKey(String key) {
+			Integer index = keys.get(key);
+			if (index == null) {
+				index = keys.size();
+				keys.put(key, index);
+			}
+			return index;
+		}
+
+		private int getValue(Object value) {
+			// integral numbers share the same index, other values are converted to strings
+			Object normalized;
+			if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				normalized = ((Number) value).longValue();
+			} else if (value instanceof Long || value instanceof Double || value instanceof Float
+					|| value instanceof Boolean || value instanceof String) {
+				normalized = value;
+			} else {
+				normalized = value.toString();
+			}
+			Integer index = values.get(normalized);
+			if (index == null) {
+				index = values.size();
+				values.put(normalized, index);
+			}
+			return index;
+		}
+	}
+}
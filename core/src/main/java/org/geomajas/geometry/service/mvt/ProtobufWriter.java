@@ -0,0 +1,210 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.mvt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Minimal protocol buffers writer, with only the wire types that are needed for vector tiles. Embedded messages are
+ * written in a separate writer first, so that their length is known.
+ *
+ * @author Jan De Moerloose
+ */
+class ProtobufWriter extends ByteArrayOutputStream {
+
+	static final int WIRE_VARINT = 0;
+
+	static final int WIRE_FIXED64 = 1;
+
+	static final int WIRE_LENGTH_DELIMITED = 2;
+
+	static final int WIRE_FIXED32 = 5;
+
+	private static final int TAG_SHIFT = 3;
+
+	private static final int VARINT_MASK = 0x7F;
+
+	private static final int VARINT_MORE = 0x80;
+
+	private static final int VARINT_SHIFT = 7;
+
+	private static final int BYTE_MASK = 0xFF;
+
+	private static final int BYTE_SIZE = 8;
+
+	private static final int FIXED32_SIZE = 4;
+
+	private static final int FIXED64_SIZE = 8;
+
+	/**
+	 * Write a field key.
+	 *
+	 * @param field
+	 *            field number
+	 * @param wireType
+	 *            wire type
+	 */
+	void writeTag(int field, int wireType) {
+		writeVarint((field << TAG_SHIFT) | wireType);
+	}
+
+	/**
+	 * Write an unsigned variable length integer.
+	 *
+	 * @param value
+	 *            value, interpreted as unsigned
+	 */
+	void writeVarint(long value) {
+		long remaining = value;
+		while ((remaining & ~VARINT_MASK) != 0) {
+			write((int) (remaining & VARINT_MASK) | VARINT_MORE);
+			remaining >>>= VARINT_SHIFT;
+		}
+		write((int) remaining);
+	}
+
+	/**
+	 * Write a varint field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param value
+	 *            value
+	 */
+	void writeVarint(int field, long value) {
+		writeTag(field, WIRE_VARINT);
+		writeVarint(value);
+	}
+
+	/**
+	 * Write a zig-zag encoded (sint64) field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param value
+	 *            value
+	 */
+	void writeSigned(int field, long value) {
+		writeVarint(field, (value << 1) ^ (value >> (Long.SIZE - 1)));
+	}
+
+	/**
+	 * Write a double field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param value
+	 *            value
+	 */
+	void writeDouble(int field, double value) {
+		writeTag(field, WIRE_FIXED64);
+		long bits = Double.doubleToLongBits(value);
+		for (int i = 0; i < FIXED64_SIZE; i++) {
+			write((int) (bits >>> (i * BYTE_SIZE)) & BYTE_MASK);
+		}
+	}
+
+	/**
+	 * Write a float field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param value
+	 *            value
+	 */
+	void writeFloat(int field, float value) {
+		writeTag(field, WIRE_FIXED32);
+		int bits = Float.floatToIntBits(value);
+		for (int i = 0; i < FIXED32_SIZE; i++) {
+			write((bits >>> (i * BYTE_SIZE)) & BYTE_MASK);
+		}
+	}
+
+	/**
+	 * Write a string field, in UTF-8.
+	 *
+	 * @param field
+	 *            field number
+	 * @param value
+	 *            value
+	 */
+	void writeString(int field, String value) {
+		try {
+			byte[] bytes = value.getBytes("UTF-8");
+			writeTag(field, WIRE_LENGTH_DELIMITED);
+			writeVarint(bytes.length);
+			write(bytes, 0, bytes.length);
+		} catch (UnsupportedEncodingException e) {
+			// every JVM supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Write an embedded message field.
+	 *
+	 * @param field
+	 *            field number
+	 * @param message
+	 *            the message
+	 */
+	void writeMessage(int field, ProtobufWriter message) {
+		writeTag(field, WIRE_LENGTH_DELIMITED);
+		writeVarint(message.count);
+		write(message.buf, 0, message.count);
+	}
+
+	/**
+	 * Append the content of another writer, such as a number of repeated fields.
+	 *
+	 * @param other
+	 *            the other writer
+	 */
+	void append(ProtobufWriter other) {
+		write(other.buf, 0, other.count);
+	}
+
+	/**
+	 * Write a packed repeated uint32 field. Nothing is written if there are no values.
+	 *
+	 * @param field
+	 *            field number
+	 * @param values
+	 *            values
+	 * @param length
+	 *            number of values to write
+	 */
+	void writePacked(int field, int[] values, int length) {
+		if (length > 0) {
+			int size = 0;
+			for (int i = 0; i < length; i++) {
+				size += getVarintSize(values[i] & 0xFFFFFFFFL);
+			}
+			writeTag(field, WIRE_LENGTH_DELIMITED);
+			writeVarint(size);
+			for (int i = 0; i < length; i++) {
+				writeVarint(values[i] & 0xFFFFFFFFL);
+			}
+		}
+	}
+
+	private static int getVarintSize(long value) {
+		int size = 1;
+		long remaining = value >>> VARINT_SHIFT;
+		while (remaining != 0) {
+			size++;
+			remaining >>>= VARINT_SHIFT;
+		}
+		return size;
+	}
+}
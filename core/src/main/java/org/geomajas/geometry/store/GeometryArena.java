@@ -0,0 +1,349 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import java.util.Arrays;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.CoordinateSequence;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.PackedCoordinateSequence;
+import org.geomajas.geometry.service.GeometryHandler;
+
+/**
+ * <p>
+ * Bump allocator for building many small geometries. All geometries are laid out contiguously in a handful of shared
+ * primitive arrays, which grow when needed. Each geometry is identified by a handle, which is simply its index in the
+ * arena (in the order in which the geometries were completed).
+ * </p>
+ * <p>
+ * The arena is a {@link GeometryHandler}, so it can be used as the target of the
+ * {@link org.geomajas.geometry.service.WktService} parser or of other converters. Individual geometries can be
+ * materialized with {@link #toGeometry(int)} when needed.
+ * </p>
+ * <p>
+ * Internally the geometries are stored as a tree of nodes in pre-order: every node is followed by its sub-geometries.
+ * Every node covers a contiguous range of coordinates, being its own coordinates or those of all its sub-geometries.
+ * A node can have either coordinates or sub-geometries, not both.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class GeometryArena implements GeometryHandler {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final String[] TYPES = { Geometry.POINT, Geometry.LINE_STRING, Geometry.LINEAR_RING,
+			Geometry.POLYGON, Geometry.MULTI_POINT, Geometry.MULTI_LINE_STRING, Geometry.MULTI_POLYGON };
+
+	// node arrays:
+
+	private byte[] types;
+
+	private int[] srids;
+
+	private int[] precisions;
+
+	private int[] nodeEnds;
+
+	private int[] coordinateStarts;
+
+	private int[] coordinateEnds;
+
+	private int nodeCount;
+
+	// coordinate array:
+
+	private double[] ordinates;
+
+	private int coordinateCount;
+
+	// geometry handles, pointing to the root nodes:
+
+	private int[] roots;
+
+	private int size;
+
+	// nodes that are currently open:
+
+	private int[] stack;
+
+	private int depth;
+
+	/** Create an empty arena. */
+	public GeometryArena() {
+		this(INITIAL_CAPACITY, INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Create an empty arena with an initial capacity.
+	 *
+	 * @param geometryCapacity
+	 *            The expected number of geometries and sub-geometries.
+	 * @param coordinateCapacity
+	 *            The expected number of coordinates.
+	 */
+	public GeometryArena(int geometryCapacity, int coordinateCapacity) {
+		int capacity = Math.max(geometryCapacity, 1);
+		types = new byte[capacity];
+		srids = new int[capacity];
+		precisions = new int[capacity];
+		nodeEnds = new int[capacity];
+		coordinateStarts = new int[capacity];
+		coordinateEnds = new int[capacity];
+		roots = new int[capacity];
+		ordinates = new double[2 * Math.max(coordinateCapacity, 1)];
+		stack = new int[INITIAL_CAPACITY];
+	}
+
+	// -------------------------------------------------------------------------
+	// GeometryHandler implementation:
+	// -------------------------------------------------------------------------
+
+	@Override
+	public void startGeometry(String geometryType, int srid, int precision) {
+		if (depth > 0 && getCoordinateCount(stack[depth - 1]) > 0) {
+			throw new IllegalStateException("A geometry can not have both coordinates and sub-geometries.");
+		}
+		if (nodeCount == types.length) {
+			int capacity = 2 * nodeCount;
+			types = Arrays.copyOf(types, capacity);
+			srids = Arrays.copyOf(srids, capacity);
+			precisions = Arrays.copyOf(precisions, capacity);
+			nodeEnds = Arrays.copyOf(nodeEnds, capacity);
+			coordinateStarts = Arrays.copyOf(coordinateStarts, capacity);
+			coordinateEnds = Arrays.copyOf(coordinateEnds, capacity);
+		}
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, 2 * depth);
+		}
+		types[nodeCount] = getTypeCode(geometryType);
+		srids[nodeCount] = srid;
+		precisions[nodeCount] = precision;
+		coordinateStarts[nodeCount] = coordinateCount;
+		coordinateEnds[nodeCount] = coordinateCount;
+		stack[depth++] = nodeCount++;
+	}
+
+	@Override
+	public void addCoordinate(double x, double y) {
+		if (depth == 0) {
+			throw new IllegalStateException("No geometry has been started.");
+		}
+		int node = stack[depth - 1];
+		if (nodeCount > node + 1) {
+			throw new IllegalStateException("A geometry can not have both coordinates and sub-geometries.");
+		}
+		if (2 * coordinateCount == ordinates.length) {
+			ordinates = Arrays.copyOf(ordinates, 2 * ordinates.length);
+		}
+		ordinates[2 * coordinateCount] = x;
+		ordinates[2 * coordinateCount + 1] = y;
+		coordinateCount++;
+		coordinateEnds[node] = coordinateCount;
+	}
+
+	@Override
+	public void endGeometry() {
+		if (depth == 0) {
+			throw new IllegalStateException("No geometry has been started.");
+		}
+		int node = stack[--depth];
+		nodeEnds[node] = nodeCount;
+		coordinateEnds[node] = coordinateCount;
+		if (depth == 0) {
+			if (size == roots.length) {
+				roots = Arrays.copyOf(roots, 2 * size);
+			}
+			roots[size++] = node;
+		}
+	}
+
+	@Override
+	public void abort() {
+		if (depth > 0) {
+			int root = stack[0];
+			nodeCount = root;
+			coordinateCount = coordinateStarts[root];
+			depth = 0;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the number of completed geometries in this arena. Handles range from 0 to size - 1.
+	 *
+	 * @return number of geometries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the type of a geometry.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return geometry type
+	 */
+	public String getGeometryType(int handle) {
+		return TYPES[types[getRoot(handle)]];
+	}
+
+	/**
+	 * Get the spatial reference ID of a geometry.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return srid
+	 */
+	public int getSrid(int handle) {
+		return srids[getRoot(handle)];
+	}
+
+	/**
+	 * Get the precision of a geometry.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return precision
+	 */
+	public int getPrecision(int handle) {
+		return precisions[getRoot(handle)];
+	}
+
+	/**
+	 * Get the total number of coordinates of a geometry.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return number of coordinates
+	 */
+	public int getNumPoints(int handle) {
+		return getCoordinateCount(getRoot(handle));
+	}
+
+	/**
+	 * Get a coordinate sequence on all coordinates of a geometry, in the order in which they were added. Changes to
+	 * the sequence are written through to the arena. The sequence is only valid until more geometries are added, as
+	 * the backing array may be reallocated.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return coordinate sequence
+	 */
+	public CoordinateSequence getCoordinateSequence(int handle) {
+		int root = getRoot(handle);
+		return new PackedCoordinateSequence(ordinates, coordinateStarts[root], getCoordinateCount(root));
+	}
+
+	/**
+	 * Get the bounds of a geometry, calculated directly on the shared coordinate array.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return The bounding box, or null if the geometry is empty.
+	 */
+	public Bbox getBounds(int handle) {
+		int root = getRoot(handle);
+		if (getCoordinateCount(root) == 0) {
+			return null;
+		}
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 2 * coordinateStarts[root]; i < 2 * coordinateEnds[root]; i += 2) {
+			minX = Math.min(minX, ordinates[i]);
+			minY = Math.min(minY, ordinates[i + 1]);
+			maxX = Math.max(maxX, ordinates[i]);
+			maxY = Math.max(maxY, ordinates[i + 1]);
+		}
+		return new Bbox(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Materialize a geometry. Coordinate and geometry arrays are only set when they are not empty.
+	 *
+	 * @param handle
+	 *            The handle of the geometry.
+	 * @return A new geometry.
+	 */
+	public Geometry toGeometry(int handle) {
+		return createGeometry(getRoot(handle));
+	}
+
+	/**
+	 * Remove all geometries from the arena. The arrays are kept, so that the arena can be reused without allocating.
+	 */
+	public void clear() {
+		nodeCount = 0;
+		coordinateCount = 0;
+		size = 0;
+		depth = 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	private int getRoot(int handle) {
+		if (handle < 0 || handle >= size) {
+			throw new IndexOutOfBoundsException("No geometry with handle " + handle);
+		}
+		return roots[handle];
+	}
+
+	private int getCoordinateCount(int node) {
+		return coordinateEnds[node] - coordinateStarts[node];
+	}
+
+	private Geometry createGeometry(int node) {
+		Geometry geometry = new Geometry(TYPES[types[node]], srids[node], precisions[node]);
+		if (nodeEnds[node] > node + 1) {
+			int count = 0;
+			for (int child = node + 1; child < nodeEnds[node]; child = nodeEnds[child]) {
+				count++;
+			}
+			Geometry[] geometries = new Geometry[count];
+			int index = 0;
+			for (int child = node + 1; child < nodeEnds[node]; child = nodeEnds[child]) {
+				geometries[index++] = createGeometry(child);
+			}
+			geometry.setGeometries(geometries);
+		} else if (getCoordinateCount(node) > 0) {
+			Coordinate[] coordinates = new Coordinate[getCoordinateCount(node)];
+			int offset = coordinateStarts[node];
+			for (int i = 0; i < coordinates.length; i++) {
+				coordinates[i] = new Coordinate(ordinates[2 * (offset + i)], ordinates[2 * (offset + i) + 1]);
+			}
+			geometry.setCoordinates(coordinates);
+		}
+		return geometry;
+	}
+
+	private static byte getTypeCode(String type) {
+		for (byte i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported geometry type: " + type);
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import java.nio.ByteBuffer;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.ByteBufferCoordinateSequence;
+import org.geomajas.geometry.CoordinateSequence;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Flyweight view on a single geometry in an {@link OffHeapGeometryStore}. The view holds no data of its own, only a
+ * reference to the buffer and the position of the geometry record within it. It has the same structure as a
+ * {@link org.geomajas.geometry.PackedGeometry}: a list of parts, each consisting of a list of rings.
+ * </p>
+ * <p>
+ * A view can be repositioned on another geometry with {@link OffHeapGeometryStore#get(int, OffHeapGeometry)}, which
+ * allows iterating over the whole store without creating any objects. The rings are accessible as
+ * {@link CoordinateSequence}s, so the {@link org.geomajas.geometry.service.GeometryService} methods that accept
+ * sequences can be used directly on the stored coordinates.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class OffHeapGeometry {
+
+	static final int LENGTH = 0;
+
+	static final int TYPE = 4;
+
+	static final int SRID = 8;
+
+	static final int PRECISION = 12;
+
+	static final int NUM_PARTS = 16;
+
+	static final int NUM_RINGS = 20;
+
+	static final int HEADER_SIZE = 24;
+
+	private static final String[] TYPES = { Geometry.POINT, Geometry.LINE_STRING, Geometry.LINEAR_RING,
+			Geometry.POLYGON, Geometry.MULTI_POINT, Geometry.MULTI_LINE_STRING, Geometry.MULTI_POLYGON };
+
+	private ByteBuffer buffer;
+
+	private int position;
+
+	private int id = -1;
+
+	/** Create a view that is not yet positioned on a geometry. */
+	public OffHeapGeometry() {
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Get the identifier of the geometry in the store.
+	 *
+	 * @return identifier, or -1 if the view is not positioned
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Get the geometry type.
+	 *
+	 * @return geometry type
+	 */
+	public String getGeometryType() {
+		int code = buffer.getInt(position + TYPE);
+		return code < 0 ? null : TYPES[code];
+	}
+
+	/**
+	 * Return the spatial reference ID.
+	 *
+	 * @return Returns the srid as an integer.
+	 */
+	public int getSrid() {
+		return buffer.getInt(position + SRID);
+	}
+
+	/**
+	 * Get the precision for the geometry.
+	 *
+	 * @return geometry precision
+	 */
+	public int getPrecision() {
+		return buffer.getInt(position + PRECISION);
+	}
+
+	/**
+	 * Get the total number of vertices in this geometry.
+	 *
+	 * @return number of vertices
+	 */
+	public int getNumPoints() {
+		return getRingStart(getNumRings());
+	}
+
+	/**
+	 * Get the total number of rings in this geometry.
+	 *
+	 * @return number of rings
+	 */
+	public int getNumRings() {
+		return buffer.getInt(position + NUM_RINGS);
+	}
+
+	/**
+	 * Get the number of parts in this geometry.
+	 *
+	 * @return number of parts
+	 */
+	public int getNumParts() {
+		return buffer.getInt(position + NUM_PARTS);
+	}
+
+	/**
+	 * Get the index of the first vertex of a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return vertex index
+	 */
+	public int getRingStart(int ring) {
+		return buffer.getInt(position + HEADER_SIZE + ((getNumParts() + 1 + ring) << 2));
+	}
+
+	/**
+	 * Get the number of vertices in a ring.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return number of vertices
+	 */
+	public int getRingSize(int ring) {
+		return getRingStart(ring + 1) - getRingStart(ring);
+	}
+
+	/**
+	 * Get the index of the first ring of a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return ring index
+	 */
+	public int getPartStart(int part) {
+		return buffer.getInt(position + HEADER_SIZE + (part << 2));
+	}
+
+	/**
+	 * Get the number of rings in a part.
+	 *
+	 * @param part
+	 *            part index
+	 * @return number of rings
+	 */
+	public int getPartSize(int part) {
+		return getPartStart(part + 1) - getPartStart(part);
+	}
+
+	/**
+	 * Get the x-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return x
+	 */
+	public double getX(int vertex) {
+		return buffer.getDouble(getOrdinatesPosition() + (vertex << 4));
+	}
+
+	/**
+	 * Get the y-ordinate of a vertex.
+	 *
+	 * @param vertex
+	 *            vertex index
+	 * @return y
+	 */
+	public double getY(int vertex) {
+		return buffer.getDouble(getOrdinatesPosition() + (vertex << 4) + 8);
+	}
+
+	/**
+	 * Get a coordinate sequence view on the vertices of a ring. Changes to the sequence are written through to the
+	 * store.
+	 *
+	 * @param ring
+	 *            ring index
+	 * @return coordinate sequence
+	 */
+	public CoordinateSequence getCoordinateSequence(int ring) {
+		return new ByteBufferCoordinateSequence(buffer, getOrdinatesPosition() + (getRingStart(ring) << 4),
+				getRingSize(ring));
+	}
+
+	/**
+	 * Get a coordinate sequence view on all vertices of this geometry. Changes to the sequence are written through to
+	 * the store.
+	 *
+	 * @return coordinate sequence
+	 */
+	public CoordinateSequence getCoordinateSequence() {
+		return new ByteBufferCoordinateSequence(buffer, getOrdinatesPosition(), getNumPoints());
+	}
+
+	/**
+	 * Get the bounds of this geometry, calculated directly on the stored coordinates.
+	 *
+	 * @return The bounding box, or null if the geometry is empty.
+	 */
+	public Bbox getBounds() {
+		int numPoints = getNumPoints();
+		if (numPoints == 0) {
+			return null;
+		}
+		int offset = getOrdinatesPosition();
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < numPoints; i++) {
+			double x = buffer.getDouble(offset + (i << 4));
+			double y = buffer.getDouble(offset + (i << 4) + 8);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		return new Bbox(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * This geometry is empty if it has no vertices.
+	 *
+	 * @return true or false.
+	 */
+	public boolean isEmpty() {
+		return getNumPoints() == 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// Package visible methods:
+	// -------------------------------------------------------------------------
+
+	void position(ByteBuffer buffer, int position, int id) {
+		this.buffer = buffer;
+		this.position = position;
+		this.id = id;
+	}
+
+	int getOrdinatesPosition() {
+		return position + getOrdinatesOffset(getNumParts(), getNumRings());
+	}
+
+	static int getOrdinatesOffset(int numParts, int numRings) {
+		// ordinates are aligned on 8 bytes:
+		return (HEADER_SIZE + ((numParts + numRings + 2) << 2) + 7) & ~7;
+	}
+
+	static int getTypeCode(String type) {
+		if (type == null) {
+			return -1;
+		}
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported geometry type: " + type);
+	}
+}
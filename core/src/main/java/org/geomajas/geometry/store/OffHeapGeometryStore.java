@@ -0,0 +1,311 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.PackedGeometry;
+import org.geomajas.geometry.service.PackedGeometryService;
+
+/**
+ * <p>
+ * Container that keeps geometries outside of the Java heap, in direct (or memory-mapped) {@link ByteBuffer}s. Apart
+ * from a small index of record positions, stored geometries are invisible to the garbage collector. Geometries are
+ * added once and are identified by their index in the store. They can be read back through {@link OffHeapGeometry}
+ * flyweight views, or converted back to {@link Geometry} or {@link PackedGeometry} instances.
+ * </p>
+ * <p>
+ * The records are stored in segments of a fixed size (a record never spans two segments). Each record is laid out in
+ * little endian byte order as follows:
+ * </p>
+ * <ul>
+ * <li>header: record length in bytes, geometry type code, SRID, precision, number of parts and number of rings (6
+ * ints)</li>
+ * <li>part offsets and ring offsets, as in {@link PackedGeometry} (ints)</li>
+ * <li>padding up to a multiple of 8 bytes</li>
+ * <li>interleaved x and y ordinates (doubles)</li>
+ * </ul>
+ * <p>
+ * The segments can be written to a channel with {@link #writeTo(WritableByteChannel)}, and a store can be opened on
+ * existing buffers, for example buffers that are obtained by memory-mapping such a file. Such buffers must start and
+ * end on record boundaries.
+ * </p>
+ * <p>
+ * Reading from the store (and from views on the store) is thread-safe, as only absolute buffer operations are used.
+ * Adding geometries is not: concurrent calls to the add methods must be synchronized externally.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class OffHeapGeometryStore {
+
+	/** The default segment size of 16 MB. */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+	private final int segmentSize;
+
+	private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+	private ByteBuffer current;
+
+	private int currentSize;
+
+	private int[] recordSegments = new int[16];
+
+	private int[] recordPositions = new int[16];
+
+	private int size;
+
+	/** Create an empty store, with the default segment size. */
+	public OffHeapGeometryStore() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Create an empty store.
+	 *
+	 * @param segmentSize
+	 *            The size in bytes of the direct buffers that are allocated. Geometries that are larger than this get
+	 *            a buffer of their own.
+	 */
+	public OffHeapGeometryStore(int segmentSize) {
+		if (segmentSize < OffHeapGeometry.HEADER_SIZE) {
+			throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+		}
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Open a store on existing buffers, for example buffers that are mapped on a file that was written by
+	 * {@link #writeTo(WritableByteChannel)}. The records are read from the position up to the limit of each buffer.
+	 * The buffers are not copied, but they are not written to either: new geometries are added to new segments.
+	 *
+	 * @param buffers
+	 *            The buffers holding the records.
+	 */
+	public OffHeapGeometryStore(ByteBuffer... buffers) {
+		this(DEFAULT_SEGMENT_SIZE);
+		for (ByteBuffer buffer : buffers) {
+			ByteBuffer segment = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+			int segmentIndex = segments.size();
+			segments.add(segment);
+			int position = 0;
+			while (position + OffHeapGeometry.HEADER_SIZE <= segment.limit()) {
+				int length = segment.getInt(position + OffHeapGeometry.LENGTH);
+				if (length < OffHeapGeometry.HEADER_SIZE || position + length > segment.limit()) {
+					throw new IllegalArgumentException("Invalid geometry record at position " + position);
+				}
+				addRecord(segmentIndex, position);
+				position += length;
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Add a geometry to the store.
+	 *
+	 * @param geometry
+	 *            The geometry to add.
+	 * @return The identifier of the geometry in the store.
+	 */
+	public int add(Geometry geometry) {
+		return add(PackedGeometryService.toPacked(geometry));
+	}
+
+	/**
+	 * Add a packed geometry to the store.
+	 *
+	 * @param packed
+	 *            The geometry to add.
+	 * @return The identifier of the geometry in the store.
+	 */
+	public int add(PackedGeometry packed) {
+		int numParts = packed.getNumParts();
+		int numRings = packed.getNumRings();
+		int ordinatesOffset = OffHeapGeometry.getOrdinatesOffset(numParts, numRings);
+		long length = ordinatesOffset + 8L * packed.getOrdinates().length;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Geometry is too large to store: " + length + " bytes");
+		}
+		ByteBuffer buffer = allocate((int) length);
+		int position = currentSize;
+		buffer.putInt(position + OffHeapGeometry.LENGTH, (int) length);
+		buffer.putInt(position + OffHeapGeometry.TYPE, OffHeapGeometry.getTypeCode(packed.getGeometryType()));
+		buffer.putInt(position + OffHeapGeometry.SRID, packed.getSrid());
+		buffer.putInt(position + OffHeapGeometry.PRECISION, packed.getPrecision());
+		buffer.putInt(position + OffHeapGeometry.NUM_PARTS, numParts);
+		buffer.putInt(position + OffHeapGeometry.NUM_RINGS, numRings);
+		int index = position + OffHeapGeometry.HEADER_SIZE;
+		for (int offset : packed.getPartOffsets()) {
+			buffer.putInt(index, offset);
+			index += 4;
+		}
+		for (int offset : packed.getRingOffsets()) {
+			buffer.putInt(index, offset);
+			index += 4;
+		}
+		index = position + ordinatesOffset;
+		for (double ordinate : packed.getOrdinates()) {
+			buffer.putDouble(index, ordinate);
+			index += 8;
+		}
+		currentSize += (int) length;
+		return addRecord(segments.size() - 1, position);
+	}
+
+	/**
+	 * Get the number of geometries in the store.
+	 *
+	 * @return number of geometries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get a new view on a stored geometry.
+	 *
+	 * @param id
+	 *            The identifier of the geometry.
+	 * @return The view.
+	 */
+	public OffHeapGeometry get(int id) {
+		return get(id, new OffHeapGeometry());
+	}
+
+	/**
+	 * Position an existing view on a stored geometry. This allows iterating over the store without creating objects.
+	 *
+	 * @param id
+	 *            The identifier of the geometry.
+	 * @param view
+	 *            The view to reposition.
+	 * @return The view that was passed.
+	 */
+	public OffHeapGeometry get(int id, OffHeapGeometry view) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No geometry with id " + id);
+		}
+		view.position(segments.get(recordSegments[id]), recordPositions[id], id);
+		return view;
+	}
+
+	/**
+	 * Read a stored geometry into a packed geometry.
+	 *
+	 * @param id
+	 *            The identifier of the geometry.
+	 * @return The packed geometry.
+	 */
+	public PackedGeometry toPacked(int id) {
+		OffHeapGeometry view = get(id);
+		int[] partOffsets = new int[view.getNumParts() + 1];
+		for (int i = 0; i < partOffsets.length; i++) {
+			partOffsets[i] = view.getPartStart(i);
+		}
+		int[] ringOffsets = new int[view.getNumRings() + 1];
+		for (int i = 0; i < ringOffsets.length; i++) {
+			ringOffsets[i] = view.getRingStart(i);
+		}
+		double[] ordinates = new double[2 * view.getNumPoints()];
+		for (int i = 0; i < ordinates.length; i += 2) {
+			ordinates[i] = view.getX(i >> 1);
+			ordinates[i + 1] = view.getY(i >> 1);
+		}
+		return new PackedGeometry(view.getGeometryType(), view.getSrid(), view.getPrecision(), ordinates,
+				ringOffsets, partOffsets);
+	}
+
+	/**
+	 * Read a stored geometry into a (heap) geometry.
+	 *
+	 * @param id
+	 *            The identifier of the geometry.
+	 * @return The geometry.
+	 */
+	public Geometry toGeometry(int id) {
+		return PackedGeometryService.toGeometry(toPacked(id));
+	}
+
+	/**
+	 * Write all records to a channel. The result can be mapped into memory and reopened with
+	 * {@link #OffHeapGeometryStore(ByteBuffer...)}.
+	 *
+	 * @param channel
+	 *            The channel to write to.
+	 * @throws IOException
+	 *             When writing fails.
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		for (ByteBuffer buffer : segments) {
+			ByteBuffer segment = buffer.duplicate();
+			segment.position(0);
+			if (buffer == current) {
+				segment.limit(currentSize);
+			}
+			while (segment.hasRemaining()) {
+				channel.write(segment);
+			}
+		}
+	}
+
+	/**
+	 * Remove all geometries from the store. The buffers are released and their memory is freed as soon as they are
+	 * garbage collected. Views on the store must no longer be used.
+	 */
+	public void clear() {
+		segments.clear();
+		current = null;
+		currentSize = 0;
+		size = 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	private ByteBuffer allocate(int length) {
+		if (current == null || currentSize + length > current.capacity()) {
+			if (current != null) {
+				current.limit(currentSize);
+			}
+			current = ByteBuffer.allocateDirect(Math.max(segmentSize, length)).order(ByteOrder.LITTLE_ENDIAN);
+			currentSize = 0;
+			segments.add(current);
+		}
+		return current;
+	}
+
+	private int addRecord(int segment, int position) {
+		if (size == recordPositions.length) {
+			recordSegments = Arrays.copyOf(recordSegments, 2 * size);
+			recordPositions = Arrays.copyOf(recordPositions, 2 * size);
+		}
+		recordSegments[size] = segment;
+		recordPositions[size] = position;
+		return size++;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Geometry of which the vertices are stored in a {@link VertexPool}. It has the same structure as a
+ * {@link org.geomajas.geometry.Geometry}, but refers to its vertices by id. Two geometries that share a vertex refer to
+ * the same id, so shared edges can be found by comparing ids. Use {@link VertexPool#toGeometry(PooledGeometry)} to
+ * create a regular geometry.
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class PooledGeometry {
+
+	private final String geometryType;
+
+	private final int srid;
+
+	private final int precision;
+
+	private final int[] vertices;
+
+	private final PooledGeometry[] geometries;
+
+	/**
+	 * Create a new pooled geometry.
+	 *
+	 * @param geometryType
+	 *            The type of geometry.
+	 * @param srid
+	 *            The spatial reference ID.
+	 * @param precision
+	 *            The precision.
+	 * @param vertices
+	 *            The vertex ids, or null.
+	 * @param geometries
+	 *            The sub-geometries, or null.
+	 */
+	PooledGeometry(String geometryType, int srid, int precision, int[] vertices, PooledGeometry[] geometries) {
+		this.geometryType = geometryType;
+		this.srid = srid;
+		this.precision = precision;
+		this.vertices = vertices;
+		this.geometries = geometries;
+	}
+
+	/**
+	 * Get the type of geometry.
+	 *
+	 * @return geometry type
+	 */
+	public String getGeometryType() {
+		return geometryType;
+	}
+
+	/**
+	 * Get the spatial reference ID.
+	 *
+	 * @return srid
+	 */
+	public int getSrid() {
+		return srid;
+	}
+
+	/**
+	 * Get the precision.
+	 *
+	 * @return precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Get the ids of the vertices of this geometry, in the order of the original coordinates. This is the backing
+	 * array, not a copy.
+	 *
+	 * @return vertex ids, or null if the original geometry had no coordinates
+	 */
+	public int[] getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Get the sub-geometries of this geometry.
+	 *
+	 * @return sub-geometries, or null if the original geometry had no sub-geometries
+	 */
+	public PooledGeometry[] getGeometries() {
+		return geometries;
+	}
+}
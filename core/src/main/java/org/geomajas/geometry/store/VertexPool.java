@@ -0,0 +1,280 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import java.util.Arrays;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+
+/**
+ * <p>
+ * Pool of unique vertices, shared by many geometries. Coverage-like data sets (parcels, administrative areas) have
+ * most of their boundary vertices in common with neighbouring geometries. Adding such geometries to a pool stores
+ * every distinct vertex only once, the geometries refer to their vertices by id (see {@link PooledGeometry}).
+ * </p>
+ * <p>
+ * Vertices are considered identical according to {@link Coordinate#hashCode()} and
+ * {@link Coordinate#equals(Object)}. Ids are assigned in the order in which new vertices are added, starting from 0.
+ * The pool keeps a reference count per vertex: the number of times it has been added. A vertex with a count larger
+ * than one is shared, either between geometries or within a geometry (e.g. the closing vertex of a ring).
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Jan De Moerloose
+ * @since 1.4.0
+ */
+@Api(allMethods = true)
+public class VertexPool {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int EMPTY = -1;
+
+	private Coordinate[] vertices;
+
+	private int[] referenceCounts;
+
+	private int size;
+
+	// open addressing hash table of vertex ids, always at least twice the capacity:
+	private int[] table;
+
+	/** Create an empty pool. */
+	public VertexPool() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Create an empty pool with an initial capacity.
+	 *
+	 * @param capacity
+	 *            The expected number of distinct vertices.
+	 */
+	public VertexPool(int capacity) {
+		int initial = Math.max(capacity, 1);
+		vertices = new Coordinate[initial];
+		referenceCounts = new int[initial];
+		table = new int[Integer.highestOneBit(initial) << 2];
+		Arrays.fill(table, EMPTY);
+	}
+
+	// -------------------------------------------------------------------------
+	// Public methods:
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Add a vertex to the pool. If an identical vertex is already present, its id is returned, otherwise a new id is
+	 * assigned. In both cases the reference count of the vertex is incremented.
+	 *
+	 * @param x
+	 *            x-ordinate
+	 * @param y
+	 *            y-ordinate
+	 * @return The id of the vertex.
+	 */
+	public int add(double x, double y) {
+		return add(new Coordinate(x, y));
+	}
+
+	/**
+	 * Add a vertex to the pool. If an identical vertex is already present, its id is returned, otherwise a new id is
+	 * assigned. In both cases the reference count of the vertex is incremented. The pool does not keep a reference to
+	 * the coordinate that is passed.
+	 *
+	 * @param coordinate
+	 *            The vertex.
+	 * @return The id of the vertex.
+	 */
+	public int add(Coordinate coordinate) {
+		int slot = findSlot(coordinate);
+		int id = table[slot];
+		if (id == EMPTY) {
+			if (size == vertices.length) {
+				vertices = Arrays.copyOf(vertices, 2 * size);
+				referenceCounts = Arrays.copyOf(referenceCounts, 2 * size);
+			}
+			id = size++;
+			vertices[id] = new Coordinate(coordinate.getX(), coordinate.getY());
+			table[slot] = id;
+			if (2 * size > table.length) {
+				rehash();
+			}
+		}
+		referenceCounts[id]++;
+		return id;
+	}
+
+	/**
+	 * Add all vertices of a geometry to the pool, and create a pooled geometry that refers to them.
+	 *
+	 * @param geometry
+	 *            The geometry.
+	 * @return The pooled geometry, with the same structure as the original geometry.
+	 */
+	public PooledGeometry add(Geometry geometry) {
+		PooledGeometry[] geometries = null;
+		if (geometry.getGeometries() != null) {
+			geometries = new PooledGeometry[geometry.getGeometries().length];
+			for (int i = 0; i < geometries.length; i++) {
+				geometries[i] = add(geometry.getGeometries()[i]);
+			}
+		}
+		int[] ids = null;
+		if (geometry.getCoordinates() != null) {
+			Coordinate[] coordinates = geometry.getCoordinates();
+			ids = new int[coordinates.length];
+			for (int i = 0; i < coordinates.length; i++) {
+				ids[i] = add(coordinates[i]);
+			}
+		}
+		return new PooledGeometry(geometry.getGeometryType(), geometry.getSrid(), geometry.getPrecision(), ids,
+				geometries);
+	}
+
+	/**
+	 * Find the id of a vertex, without adding it.
+	 *
+	 * @param coordinate
+	 *            The vertex.
+	 * @return The id of the vertex, or -1 if it is not in the pool.
+	 */
+	public int indexOf(Coordinate coordinate) {
+		return table[findSlot(coordinate)];
+	}
+
+	/**
+	 * Get the number of distinct vertices in the pool.
+	 *
+	 * @return number of vertices
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the x-ordinate of a vertex.
+	 *
+	 * @param id
+	 *            vertex id
+	 * @return x
+	 */
+	public double getX(int id) {
+		return getVertex(id).getX();
+	}
+
+	/**
+	 * Get the y-ordinate of a vertex.
+	 *
+	 * @param id
+	 *            vertex id
+	 * @return y
+	 */
+	public double getY(int id) {
+		return getVertex(id).getY();
+	}
+
+	/**
+	 * Get a vertex as a new coordinate.
+	 *
+	 * @param id
+	 *            vertex id
+	 * @return A new coordinate.
+	 */
+	public Coordinate getCoordinate(int id) {
+		Coordinate vertex = getVertex(id);
+		return new Coordinate(vertex.getX(), vertex.getY());
+	}
+
+	/**
+	 * Get the number of times a vertex has been added to the pool.
+	 *
+	 * @param id
+	 *            vertex id
+	 * @return reference count
+	 */
+	public int getReferenceCount(int id) {
+		getVertex(id);
+		return referenceCounts[id];
+	}
+
+	/**
+	 * Create a regular geometry from a pooled geometry. Every call creates new coordinates, so the result can be
+	 * modified without affecting the pool or other geometries.
+	 *
+	 * @param geometry
+	 *            A geometry that was created by this pool.
+	 * @return A new geometry.
+	 */
+	public Geometry toGeometry(PooledGeometry geometry) {
+		Geometry result = new Geometry(geometry.getGeometryType(), geometry.getSrid(), geometry.getPrecision());
+		if (geometry.getGeometries() != null) {
+			Geometry[] geometries = new Geometry[geometry.getGeometries().length];
+			for (int i = 0; i < geometries.length; i++) {
+				geometries[i] = toGeometry(geometry.getGeometries()[i]);
+			}
+			result.setGeometries(geometries);
+		}
+		if (geometry.getVertices() != null) {
+			int[] ids = geometry.getVertices();
+			Coordinate[] coordinates = new Coordinate[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				coordinates[i] = getCoordinate(ids[i]);
+			}
+			result.setCoordinates(coordinates);
+		}
+		return result;
+	}
+
+	// -------------------------------------------------------------------------
+	// Private methods:
+	// -------------------------------------------------------------------------
+
+	private Coordinate getVertex(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No vertex with id " + id);
+		}
+		return vertices[id];
+	}
+
+	/**
+	 * Find the slot of a vertex in the table, or the empty slot where it should be inserted (linear probing).
+	 */
+	private int findSlot(Coordinate coordinate) {
+		int mask = table.length - 1;
+		int slot = spread(coordinate.hashCode()) & mask;
+		while (table[slot] != EMPTY && !vertices[table[slot]].equals(coordinate)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		table = new int[table.length << 1];
+		Arrays.fill(table, EMPTY);
+		int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = spread(vertices[id].hashCode()) & mask;
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+		}
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
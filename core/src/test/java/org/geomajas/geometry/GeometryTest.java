@@ -11,6 +11,13 @@
 
 package org.geomajas.geometry;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -238,4 +245,151 @@ public class GeometryTest {
 			Assert.assertEquals(hole2.getCoordinates()[i], hole2Clone.getCoordinates()[i]);
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testSerialization() throws Exception {
+		Geometry[] geometries = createSerializationGeometries();
+		Geometry[] result = deserialize(serialize(geometries), geometries.length);
+		for (int i = 0; i < geometries.length; i++) {
+			assertSameGeometry(geometries[i], result[i]);
+		}
+	}
+
+	@Test
+	public void testSerializationSpecialCases() throws Exception {
+		// not exact at precision 2, so written as doubles:
+		Geometry point = new Geometry(Geometry.POINT, 4326, 2);
+		point.setCoordinates(new Coordinate[] { new Coordinate(0.001, -0.0) });
+		// custom type, null type and null members:
+		Geometry custom = new Geometry("GeometryCollection", 0, 3);
+		Geometry child = new Geometry(null, -1, -5);
+		child.setCoordinates(new Coordinate[] { new Coordinate(1, 2), null });
+		custom.setGeometries(new Geometry[] { child, null, point });
+		custom.setCoordinates(new Coordinate[] { new Coordinate(Double.NaN, Double.POSITIVE_INFINITY) });
+		Geometry[] geometries = { point, custom, new Geometry() };
+		Geometry[] result = deserialize(serialize(geometries), geometries.length);
+		for (int i = 0; i < geometries.length; i++) {
+			assertSameGeometry(geometries[i], result[i]);
+		}
+	}
+
+	@Test
+	public void testSerializationImmutable() throws Exception {
+		Geometry[] geometries = createSerializationGeometries();
+		Geometry[] immutables = new Geometry[geometries.length];
+		for (int i = 0; i < geometries.length; i++) {
+			immutables[i] = new ImmutableGeometry(geometries[i]);
+		}
+		Geometry[] result = deserialize(serialize(immutables), immutables.length);
+		for (int i = 0; i < geometries.length; i++) {
+			Assert.assertTrue(result[i] instanceof ImmutableGeometry);
+			assertSameGeometry(geometries[i], result[i]);
+		}
+		// sub-geometries are frozen as well, cached values are recalculated:
+		ImmutableGeometry multiPolygon = (ImmutableGeometry) result[0];
+		Assert.assertTrue(multiPolygon.getGeometries()[0] instanceof ImmutableGeometry);
+		Assert.assertTrue(multiPolygon.getGeometries()[0].getGeometries()[1] instanceof ImmutableGeometry);
+		Assert.assertEquals(((ImmutableGeometry) immutables[0]).getArea(), multiPolygon.getArea(), 1e-10);
+		try {
+			multiPolygon.getGeometries()[1].setSrid(0);
+			Assert.fail("sub-geometry should be immutable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSerializationSize() throws Exception {
+		Geometry[] geometries = createSerializationGeometries();
+		// the original form of these geometries takes 907 bytes
+		Assert.assertTrue(serialize(geometries).length < 400);
+	}
+
+	@Test
+	public void testReadOriginalSerialization() throws Exception {
+		InputStream in = getClass().getResourceAsStream("geometry-100.ser");
+		try {
+			ObjectInputStream ois = new ObjectInputStream(in);
+			Geometry[] geometries = createSerializationGeometries();
+			for (Geometry geometry : geometries) {
+				assertSameGeometry(geometry, (Geometry) ois.readObject());
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private Geometry[] createSerializationGeometries() {
+		Geometry shell = new Geometry(Geometry.LINEAR_RING, 4326, 2);
+		shell.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10),
+				new Coordinate(0, 10), new Coordinate(0, 0) });
+		Geometry hole = new Geometry(Geometry.LINEAR_RING, 4326, 2);
+		hole.setCoordinates(new Coordinate[] { new Coordinate(2.5, 2.5), new Coordinate(4, 2.5),
+				new Coordinate(4, 4), new Coordinate(2.5, 2.5) });
+		Geometry polygon1 = new Geometry(Geometry.POLYGON, 4326, 2);
+		polygon1.setGeometries(new Geometry[] { shell, hole });
+		Geometry shell2 = new Geometry(Geometry.LINEAR_RING, 4326, 2);
+		shell2.setCoordinates(new Coordinate[] { new Coordinate(20, 20), new Coordinate(30, 20),
+				new Coordinate(30, 30), new Coordinate(20, 20) });
+		Geometry polygon2 = new Geometry(Geometry.POLYGON, 4326, 2);
+		polygon2.setGeometries(new Geometry[] { shell2 });
+		Geometry multiPolygon = new Geometry(Geometry.MULTI_POLYGON, 4326, 2);
+		multiPolygon.setGeometries(new Geometry[] { polygon1, polygon2 });
+		Geometry point = new Geometry(Geometry.POINT, 31300, -1);
+		point.setCoordinates(new Coordinate[] { new Coordinate(1.25, -7.5) });
+		return new Geometry[] { multiPolygon, point, new Geometry(Geometry.POLYGON, 0, 0) };
+	}
+
+	private byte[] serialize(Geometry[] geometries) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		for (Geometry geometry : geometries) {
+			oos.writeObject(geometry);
+		}
+		oos.close();
+		return bos.toByteArray();
+	}
+
+	private Geometry[] deserialize(byte[] bytes, int count) throws IOException, ClassNotFoundException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		Geometry[] geometries = new Geometry[count];
+		for (int i = 0; i < count; i++) {
+			geometries[i] = (Geometry) ois.readObject();
+		}
+		return geometries;
+	}
+
+	private void assertSameGeometry(Geometry expected, Geometry actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+			return;
+		}
+		Assert.assertEquals(expected.getGeometryType(), actual.getGeometryType());
+		Assert.assertEquals(expected.getSrid(), actual.getSrid());
+		Assert.assertEquals(expected.getPrecision(), actual.getPrecision());
+		if (expected.getCoordinates() == null) {
+			Assert.assertNull(actual.getCoordinates());
+		} else {
+			Assert.assertEquals(expected.getCoordinates().length, actual.getCoordinates().length);
+			for (int i = 0; i < expected.getCoordinates().length; i++) {
+				Coordinate c1 = expected.getCoordinates()[i];
+				Coordinate c2 = actual.getCoordinates()[i];
+				if (c1 == null) {
+					Assert.assertNull(c2);
+				} else {
+					// bitwise comparison, the serialization should be lossless
+					Assert.assertEquals(Double.doubleToLongBits(c1.getX()), Double.doubleToLongBits(c2.getX()));
+					Assert.assertEquals(Double.doubleToLongBits(c1.getY()), Double.doubleToLongBits(c2.getY()));
+				}
+			}
+		}
+		if (expected.getGeometries() == null) {
+			Assert.assertNull(actual.getGeometries());
+		} else {
+			Assert.assertEquals(expected.getGeometries().length, actual.getGeometries().length);
+			for (int i = 0; i < expected.getGeometries().length; i++) {
+				assertSameGeometry(expected.getGeometries()[i], actual.getGeometries()[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+/**
+ * Fixtures and helpers that are shared by the tests of the geometry formats.
+ *
+ * @author Jan De Moerloose
+ */
+public final class GeometryTestUtil {
+
+	/**
+	 * One geometry of every type, followed by the empty geometry of every type, in the form written by
+	 * {@link org.geomajas.geometry.service.WktService#toWkt(Geometry)}.
+	 */
+	public static final String[] WKT = { "POINT (1.0 2.0)", "LINESTRING (10.0 10.0, 10.0 20.0, 20.0 20.5)",
+			"POLYGON ((10.0 10.0, 10.0 20.0, 20.0 20.0, 10.0 10.0), (14.0 14.0, 14.0 16.0, 16.0 16.0, 14.0 14.0))",
+			"MULTIPOINT ((10.0 20.0), (-20.0 20.0))",
+			"MULTILINESTRING ((10.0 10.0, 10.0 20.0, 20.0 20.0), (14.0 14.0, 14.0 16.0))",
+			"MULTIPOLYGON (((10.0 10.0, 10.0 20.0, 20.0 20.0, 10.0 10.0), (14.0 14.0, 14.0 16.0, 16.0 16.0, "
+					+ "14.0 14.0)), ((30.0 10.0, 30.0 20.0, 40.0 20.0, 30.0 10.0)))", "POINT EMPTY",
+			"LINESTRING EMPTY", "POLYGON EMPTY", "MULTIPOINT EMPTY", "MULTILINESTRING EMPTY", "MULTIPOLYGON EMPTY" };
+
+	private GeometryTestUtil() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Convert a hexadecimal string (as produced by PostGIS) to bytes.
+	 *
+	 * @param hex
+	 *            hexadecimal string, two characters per byte
+	 * @return bytes
+	 */
+	public static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Convert bytes to an upper case hexadecimal string.
+	 *
+	 * @param bytes
+	 *            bytes
+	 * @return hexadecimal string, two characters per byte
+	 */
+	public static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder();
+		for (byte b : bytes) {
+			builder.append(String.format("%02X", b));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry;
+
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.service.WktException;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ImmutableGeometry}.
+ *
+ * @author Jan De Moerloose
+ */
+public class ImmutableGeometryTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String WKT = "MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2)), "
+			+ "((20 20, 30 20, 30 30, 20 20)))";
+
+	@Test
+	public void testCachedValues() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		ImmutableGeometry immutable = new ImmutableGeometry(geometry);
+
+		Assert.assertTrue(BboxService.equals(GeometryService.getBounds(geometry),
+				GeometryService.getBounds(immutable), DELTA));
+		Assert.assertEquals(GeometryService.getArea(geometry), GeometryService.getArea(immutable), DELTA);
+		Assert.assertEquals(146.0, immutable.getArea(), DELTA);
+		Assert.assertEquals(GeometryService.getLength(geometry), GeometryService.getLength(immutable), DELTA);
+		Assert.assertEquals(GeometryService.getNumPoints(geometry), GeometryService.getNumPoints(immutable));
+		Assert.assertEquals(WktService.toWkt(geometry), WktService.toWkt(immutable));
+	}
+
+	@Test
+	public void testFrozenCopy() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		ImmutableGeometry immutable = new ImmutableGeometry(geometry);
+		Bbox bounds = immutable.getBounds();
+
+		// changes to the source or to returned bounds do not affect the copy:
+		geometry.getGeometries()[0].getGeometries()[0].getCoordinates()[0].setX(-100);
+		bounds.setX(-100);
+		Assert.assertEquals(0.0, GeometryService.getBounds(immutable).getX(), DELTA);
+		Assert.assertTrue(immutable.getGeometries()[0] instanceof ImmutableGeometry);
+		Assert.assertTrue(immutable.getGeometries()[0].getGeometries()[0] instanceof ImmutableGeometry);
+	}
+
+	@Test
+	public void testMutableClone() throws WktException {
+		ImmutableGeometry immutable = new ImmutableGeometry(WktService.toGeometry(WKT));
+		Geometry clone = GeometryService.clone(immutable);
+		Assert.assertFalse(clone instanceof ImmutableGeometry);
+		clone.setSrid(4326);
+		Assert.assertFalse(clone.clone() instanceof ImmutableGeometry);
+	}
+
+	@Test
+	public void testEmpty() {
+		ImmutableGeometry immutable = new ImmutableGeometry(new Geometry(Geometry.POINT, 0, 0));
+		Assert.assertNull(GeometryService.getBounds(immutable));
+		Assert.assertEquals(0, GeometryService.getNumPoints(immutable));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetCoordinates() {
+		new ImmutableGeometry(new Geometry(Geometry.POINT, 0, 0)).setCoordinates(new Coordinate[0]);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetSrid() {
+		new ImmutableGeometry(new Geometry(Geometry.POINT, 0, 0)).setSrid(4326);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.service.BboxService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ConcurrentRTree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class ConcurrentRTreeTest {
+
+	@Test
+	public void testInsertRemoveMove() {
+		Random random = new Random(11);
+		int size = 2000;
+		Bbox[] bounds = StrTreeTest.createBounds(random, size);
+		for (int maxEntries : new int[] { 4, 16 }) {
+			ConcurrentRTree<Integer> tree = new ConcurrentRTree<Integer>(maxEntries);
+			Bbox[] current = bounds.clone();
+			for (int i = 0; i < size; i++) {
+				tree.insert(current[i], i);
+			}
+			assertQueries(random, current, tree);
+			int count = size;
+			for (int step = 0; step < 5000; step++) {
+				int id = random.nextInt(size);
+				if (current[id] == null) {
+					current[id] = StrTreeTest.createBounds(random, 1)[0];
+					tree.insert(current[id], id);
+					count++;
+				} else if (random.nextBoolean()) {
+					Assert.assertTrue(tree.remove(current[id], id));
+					Assert.assertFalse(tree.remove(current[id], id));
+					current[id] = null;
+					count--;
+				} else {
+					Bbox moved = StrTreeTest.createBounds(random, 1)[0];
+					Assert.assertTrue(tree.move(current[id], moved, id));
+					current[id] = moved;
+				}
+				Assert.assertEquals(count, tree.size());
+			}
+			assertQueries(random, current, tree);
+			Assert.assertFalse(tree.remove(new Bbox(-1, -1, 1, 1), 0));
+			Assert.assertFalse(tree.move(new Bbox(-1, -1, 1, 1), new Bbox(0, 0, 1, 1), 0));
+			for (int i = 0; i < size; i++) {
+				if (current[i] != null) {
+					Assert.assertTrue(tree.remove(current[i], i));
+				}
+			}
+			Assert.assertEquals(0, tree.size());
+			Assert.assertNull(tree.getBounds());
+			Assert.assertFalse(tree.iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void testStableIterator() {
+		ConcurrentRTree<Integer> tree = new ConcurrentRTree<Integer>(4);
+		for (int i = 0; i < 100; i++) {
+			tree.insert(new Bbox(i, i, 1, 1), i);
+		}
+		Iterator<Integer> iterator = tree.query(new Bbox(0, 0, 200, 200));
+		ConcurrentRTree<Integer> snapshot = tree.snapshot();
+		for (int i = 0; i < 100; i++) {
+			tree.move(new Bbox(i, i, 1, 1), new Bbox(i + 1000, i, 1, 1), i);
+		}
+		tree.insert(new Bbox(5, 5, 1, 1), 100);
+		Assert.assertEquals(100, count(iterator));
+		Assert.assertEquals(1, count(tree.query(new Bbox(0, 0, 200, 200))));
+		Assert.assertEquals(100, snapshot.size());
+		Assert.assertEquals(100, count(snapshot.query(new Bbox(0, 0, 200, 200))));
+		Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 100, 100), snapshot.getBounds(), 0.0));
+		snapshot.clear();
+		Assert.assertEquals(0, snapshot.size());
+		Assert.assertEquals(101, tree.size());
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		final int size = 500;
+		final ConcurrentRTree<Integer> tree = new ConcurrentRTree<Integer>();
+		final Bbox[] bounds = StrTreeTest.createBounds(new Random(5), size);
+		for (int i = 0; i < size; i++) {
+			tree.insert(bounds[i], i);
+		}
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						while (!done.get()) {
+							// a move is atomic, so every reader sees all entries exactly once
+							Assert.assertEquals(size, count(tree.iterator()));
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			};
+			readers[t].start();
+		}
+		Random random = new Random(6);
+		for (int step = 0; step < 20000; step++) {
+			int id = random.nextInt(size);
+			Bbox moved = new Bbox(random.nextDouble() * 1000, random.nextDouble() * 1000, 10, 10);
+			Assert.assertTrue(tree.move(bounds[id], moved, id));
+			bounds[id] = moved;
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		Assert.assertNull(failure.get());
+	}
+
+	@Test
+	public void testConcurrentWriters() throws Exception {
+		final ConcurrentRTree<Integer> tree = new ConcurrentRTree<Integer>();
+		Thread[] writers = new Thread[4];
+		for (int t = 0; t < writers.length; t++) {
+			final int offset = t * 1000;
+			writers[t] = new Thread() {
+
+				@Override
+				public void run() {
+					Random random = new Random(offset);
+					for (int i = 0; i < 1000; i++) {
+						tree.insert(new Bbox(random.nextDouble() * 1000, random.nextDouble() * 1000, 1, 1), offset + i);
+					}
+				}
+			};
+			writers[t].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		Assert.assertEquals(4000, tree.size());
+		boolean[] seen = new boolean[4000];
+		for (int value : tree) {
+			Assert.assertFalse(seen[value]);
+			seen[value] = true;
+		}
+		Assert.assertEquals(4000, count(tree.iterator()));
+	}
+
+	private void assertQueries(Random random, Bbox[] bounds, final ConcurrentRTree<Integer> tree) {
+		IndexTestUtil.assertQueries(random, bounds, new IndexTestUtil.WindowQuery() {
+
+			public int[] query(Bbox window) {
+				int[] ids = new int[count(tree.query(window))];
+				Iterator<Integer> iterator = tree.query(window);
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = iterator.next();
+				}
+				return ids;
+			}
+		});
+	}
+
+	private static int count(Iterator<Integer> iterator) {
+		int count = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IndexHelper}.
+ *
+ * @author Jan De Moerloose
+ */
+public class IndexHelperTest {
+
+	@Test
+	public void testSort() {
+		Random random = new Random(7);
+		for (int size : new int[] { 0, 1, 5, 17, 1000, 100000 }) {
+			for (int distinct : new int[] { 1, 3, size + 1 }) {
+				double[] keys = new double[size];
+				int[] items = new int[size];
+				for (int i = 0; i < size; i++) {
+					keys[i] = random.nextInt(distinct);
+					items[i] = size - 1 - i;
+				}
+				// sort a range only
+				int from = size / 4;
+				int to = size - size / 4;
+				IndexHelper.sort(items, keys, from, to);
+				for (int i = from + 1; i < to; i++) {
+					Assert.assertTrue(keys[items[i - 1]] <= keys[items[i]]);
+				}
+				boolean[] seen = new boolean[size];
+				for (int i = 0; i < size; i++) {
+					Assert.assertFalse(seen[items[i]]);
+					seen[items[i]] = true;
+					if (i < from || i >= to) {
+						Assert.assertEquals(size - 1 - i, items[i]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSelect() {
+		Random random = new Random(9);
+		for (int size : new int[] { 1, 2, 5, 17, 1000 }) {
+			for (int distinct : new int[] { 1, 3, size + 1 }) {
+				double[] keys = new double[size];
+				int[] items = new int[size];
+				for (int i = 0; i < size; i++) {
+					keys[i] = random.nextInt(distinct);
+					items[i] = i;
+				}
+				int position = random.nextInt(size);
+				IndexHelper.select(items, keys, 0, size, position);
+				for (int i = 0; i < size; i++) {
+					if (i < position) {
+						Assert.assertTrue(keys[items[i]] <= keys[items[position]]);
+					} else {
+						Assert.assertTrue(keys[items[i]] >= keys[items[position]]);
+					}
+				}
+				int[] sorted = items.clone();
+				IndexHelper.sort(sorted, keys, 0, size);
+				Assert.assertEquals(keys[sorted[position]], keys[items[position]], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.service.BboxService;
+import org.junit.Assert;
+
+/**
+ * Brute force checks that are shared by the tests of the bounding box indexes.
+ *
+ * @author Jan De Moerloose
+ */
+final class IndexTestUtil {
+
+	private IndexTestUtil() {
+		// Final class should have a private no-argument constructor.
+	}
+
+	/**
+	 * Window query on the index under test.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	interface WindowQuery {
+
+		/**
+		 * Find the ids of all entries that intersect the window, in any order.
+		 *
+		 * @param window
+		 *            window
+		 * @return ids
+		 */
+		int[] query(Bbox window);
+	}
+
+	/**
+	 * Compare the results of 20 random window queries with a brute force search.
+	 *
+	 * @param random
+	 *            random generator for the windows
+	 * @param bounds
+	 *            bounds of the entries, indexed by id, null for removed entries
+	 * @param query
+	 *            query on the index
+	 */
+	static void assertQueries(Random random, Bbox[] bounds, WindowQuery query) {
+		for (int i = 0; i < 20; i++) {
+			Bbox window = new Bbox(random.nextDouble() * 1000, random.nextDouble() * 1000, random.nextDouble() * 200,
+					random.nextDouble() * 200);
+			int[] actual = query.query(window);
+			Arrays.sort(actual);
+			Assert.assertArrayEquals(bruteForce(bounds, window), actual);
+		}
+	}
+
+	/**
+	 * Find the ids of all bounds that intersect the window.
+	 *
+	 * @param bounds
+	 *            bounds, indexed by id, null for removed entries
+	 * @param window
+	 *            window
+	 * @return ids in ascending order
+	 */
+	static int[] bruteForce(Bbox[] bounds, Bbox window) {
+		int[] result = new int[bounds.length];
+		int count = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			if (bounds[i] != null && BboxService.intersects(window, bounds[i])) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+}
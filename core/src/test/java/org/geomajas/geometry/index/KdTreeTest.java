@@ -0,0 +1,108 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link KdTree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class KdTreeTest {
+
+	@Test
+	public void testNearest() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 8, 9, 100, 20000 }) {
+			double[][] points = PointQuadtreeTest.createPoints(random, size);
+			KdTree tree = new KdTree(points[0], points[1]);
+			Assert.assertEquals(size, tree.size());
+			for (int i = 0; i < 30; i++) {
+				double px = random.nextInt(1100) - 50;
+				double py = random.nextInt(1100) - 50;
+				double[] expected = new double[size];
+				for (int j = 0; j < size; j++) {
+					expected[j] = distance(points, j, px, py);
+				}
+				Arrays.sort(expected);
+				int k = 1 + random.nextInt(20);
+				int[] nearest = tree.nearest(px, py, k);
+				Assert.assertEquals(Math.min(k, size), nearest.length);
+				for (int j = 0; j < nearest.length; j++) {
+					Assert.assertEquals(expected[j], distance(points, nearest[j], px, py), 0.0);
+				}
+				Assert.assertEquals(expected[0], distance(points, tree.nearest(px, py), px, py), 0.0);
+				// limited by distance
+				double maxDistance = random.nextInt(100);
+				int within = 0;
+				while (within < size && expected[within] <= maxDistance * maxDistance) {
+					within++;
+				}
+				Assert.assertEquals(Math.min(within, k), tree.nearest(px, py, k, maxDistance).length);
+			}
+		}
+	}
+
+	@Test
+	public void testWithin() {
+		Random random = new Random(3);
+		double[][] points = PointQuadtreeTest.createPoints(random, 5000);
+		KdTree tree = new KdTree(points[0], points[1]);
+		for (int i = 0; i < 50; i++) {
+			double px = random.nextInt(1100) - 50;
+			double py = random.nextInt(1100) - 50;
+			double distance = random.nextInt(300);
+			int[] actual = tree.within(px, py, distance);
+			Arrays.sort(actual);
+			Assert.assertArrayEquals(PointQuadtreeTest.bruteForce(points, px, py, distance), actual);
+		}
+	}
+
+	@Test
+	public void testGeometries() throws Exception {
+		Geometry[] geometries = { WktService.toGeometry("LINESTRING (0 0, 10 0, 10 10)"), null,
+				WktService.toGeometry("POINT (4 1)"),
+				WktService.toGeometry("POLYGON ((20 20, 30 20, 30 30, 20 20))"),
+				WktService.toGeometry("MULTIPOINT ((1 1), (2 2))") };
+		KdTree tree = new KdTree(geometries);
+		Assert.assertEquals(10, tree.size());
+		// every geometry once, at the distance of its nearest vertex
+		Assert.assertArrayEquals(new int[] { 4, 0, 2, 3 }, tree.nearest(0.6, 0.6, 10));
+		Assert.assertEquals(2, tree.nearest(4, 2));
+		int[] within = tree.within(10, 5, 5);
+		Arrays.sort(within);
+		Assert.assertArrayEquals(new int[] { 0, 0 }, within);
+	}
+
+	@Test
+	public void testEmpty() {
+		KdTree tree = new KdTree(new double[0], new double[0]);
+		Assert.assertEquals(0, tree.size());
+		Assert.assertEquals(-1, tree.nearest(0, 0));
+		Assert.assertEquals(0, tree.nearest(0, 0, 5).length);
+		Assert.assertEquals(0, tree.within(0, 0, 5).length);
+	}
+
+	/** Get the squared distance from a point to a position. */
+	private double distance(double[][] points, int i, double px, double py) {
+		double dx = points[0][i] - px;
+		double dy = points[1][i] - py;
+		return dx * dx + dy * dy;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PointGrid}.
+ *
+ * @author Jan De Moerloose
+ */
+public class PointGridTest {
+
+	@Test
+	public void testQuery() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 15, 16, 17, 1000, 20000 }) {
+			double[][] points = PointQuadtreeTest.createPoints(random, size);
+			for (PointGrid grid : new PointGrid[] { new PointGrid(points[0], points[1]),
+					new PointGrid(points[0], points[1], 10), new PointGrid(points[0], points[1], 3000) }) {
+				Assert.assertEquals(size, grid.size());
+				for (int i = 0; i < 30; i++) {
+					Bbox window = PointQuadtreeTest.createWindow(random);
+					int[] expected = PointQuadtreeTest.bruteForce(points, window);
+					int[] actual = grid.query(window);
+					Arrays.sort(actual);
+					Assert.assertArrayEquals(expected, actual);
+					Assert.assertEquals(expected.length, grid.count(window));
+				}
+				Bbox all = new Bbox(-1, -1, 1002, 1002);
+				Assert.assertEquals(size, grid.count(all));
+			}
+		}
+	}
+
+	@Test
+	public void testRadius() {
+		Random random = new Random(3);
+		double[][] points = PointQuadtreeTest.createPoints(random, 5000);
+		PointGrid grid = new PointGrid(points[0], points[1], 7);
+		for (int i = 0; i < 50; i++) {
+			double centerX = random.nextInt(1100) - 50;
+			double centerY = random.nextInt(1100) - 50;
+			double radius = random.nextInt(300);
+			int[] expected = PointQuadtreeTest.bruteForce(points, centerX, centerY, radius);
+			IdCollector collector = new IdCollector(false);
+			Assert.assertTrue(grid.query(centerX, centerY, radius, collector));
+			int[] actual = collector.toArray();
+			Arrays.sort(actual);
+			Assert.assertArrayEquals(expected, actual);
+			Assert.assertEquals(expected.length, grid.count(centerX, centerY, radius));
+		}
+	}
+
+	@Test
+	public void testLine() {
+		// all points on one horizontal line
+		double[] x = new double[100];
+		double[] y = new double[100];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i;
+			y[i] = 5;
+		}
+		PointGrid grid = new PointGrid(x, y);
+		Assert.assertEquals(11, grid.count(new Bbox(10, 0, 10, 10)));
+		Assert.assertEquals(0, grid.count(new Bbox(10, 6, 10, 10)));
+		Assert.assertEquals(3, grid.count(50, 5, 1));
+	}
+
+	@Test
+	public void testGeometries() throws Exception {
+		Geometry[] geometries = { WktService.toGeometry("POINT (1 1)"), null,
+				WktService.toGeometry("MULTIPOINT ((5 5), (6 6), (20 20))") };
+		PointGrid grid = new PointGrid(geometries);
+		Assert.assertEquals(4, grid.size());
+		Assert.assertTrue(BboxService.equals(new Bbox(1, 1, 19, 19), grid.getBounds(), 0.0));
+		int[] ids = grid.query(new Bbox(0, 0, 10, 10));
+		Arrays.sort(ids);
+		Assert.assertArrayEquals(new int[] { 0, 2, 2 }, ids);
+	}
+
+	@Test
+	public void testInvalid() {
+		PointGrid grid = new PointGrid(new double[0], new double[0]);
+		Assert.assertNull(grid.getBounds());
+		Assert.assertEquals(0, grid.count(new Bbox(0, 0, 1, 1)));
+		try {
+			new PointGrid(new double[] { 0, 1e12 }, new double[] { 0, 1e12 }, 1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		try {
+			new PointGrid(new double[1], new double[2]);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+	}
+}
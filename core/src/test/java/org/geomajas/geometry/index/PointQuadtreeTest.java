@@ -0,0 +1,142 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PointQuadtree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class PointQuadtreeTest {
+
+	@Test
+	public void testQuery() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 31, 32, 33, 1000, 20000 }) {
+			double[][] points = createPoints(random, size);
+			for (int bucketSize : new int[] { 1, 8, 32 }) {
+				PointQuadtree tree = new PointQuadtree(points[0], points[1], bucketSize);
+				Assert.assertEquals(size, tree.size());
+				for (int i = 0; i < 30; i++) {
+					Bbox window = createWindow(random);
+					int[] expected = bruteForce(points, window);
+					int[] actual = tree.query(window);
+					Arrays.sort(actual);
+					Assert.assertArrayEquals(expected, actual);
+					Assert.assertEquals(expected.length, tree.count(window));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRadius() {
+		Random random = new Random(3);
+		double[][] points = createPoints(random, 5000);
+		PointQuadtree tree = new PointQuadtree(points[0], points[1]);
+		for (int i = 0; i < 50; i++) {
+			double centerX = random.nextInt(1100) - 50;
+			double centerY = random.nextInt(1100) - 50;
+			double radius = random.nextInt(300);
+			int[] expected = bruteForce(points, centerX, centerY, radius);
+			IdCollector collector = new IdCollector(false);
+			Assert.assertTrue(tree.query(centerX, centerY, radius, collector));
+			int[] actual = collector.toArray();
+			Arrays.sort(actual);
+			Assert.assertArrayEquals(expected, actual);
+			Assert.assertEquals(expected.length, tree.count(centerX, centerY, radius));
+		}
+	}
+
+	@Test
+	public void testGeometries() throws Exception {
+		Geometry[] geometries = { WktService.toGeometry("POINT (1 1)"), null,
+				WktService.toGeometry("MULTIPOINT ((5 5), (6 6), (20 20))"), WktService.toGeometry("POINT EMPTY") };
+		PointQuadtree tree = new PointQuadtree(geometries);
+		Assert.assertEquals(4, tree.size());
+		Assert.assertTrue(BboxService.equals(new Bbox(1, 1, 19, 19), tree.getBounds(), 0.0));
+		int[] ids = tree.query(new Bbox(0, 0, 10, 10));
+		Arrays.sort(ids);
+		Assert.assertArrayEquals(new int[] { 0, 2, 2 }, ids);
+		Assert.assertEquals(1, tree.count(20, 20, 0));
+	}
+
+	@Test
+	public void testEmpty() {
+		PointQuadtree tree = new PointQuadtree(new double[0], new double[0]);
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getBounds());
+		Assert.assertEquals(0, tree.count(new Bbox(0, 0, 1, 1)));
+		Assert.assertEquals(0, tree.count(0, 0, 1));
+	}
+
+	/** Random points, with clusters of equal points and points on a grid. */
+	static double[][] createPoints(Random random, int size) {
+		double[][] points = new double[2][size];
+		for (int i = 0; i < size; i++) {
+			switch (i % 3) {
+				case 0:
+					points[0][i] = random.nextDouble() * 1000;
+					points[1][i] = random.nextDouble() * 1000;
+					break;
+				case 1:
+					points[0][i] = 500;
+					points[1][i] = 250;
+					break;
+				default:
+					points[0][i] = random.nextInt(100) * 10;
+					points[1][i] = random.nextInt(100) * 10;
+			}
+		}
+		return points;
+	}
+
+	static Bbox createWindow(Random random) {
+		return new Bbox(random.nextInt(1100) - 50, random.nextInt(1100) - 50, random.nextInt(400),
+				random.nextInt(400));
+	}
+
+	static int[] bruteForce(double[][] points, Bbox window) {
+		int[] result = new int[points[0].length];
+		int count = 0;
+		for (int i = 0; i < result.length; i++) {
+			if (points[0][i] >= window.getX() && points[0][i] <= window.getMaxX() && points[1][i] >= window.getY()
+					&& points[1][i] <= window.getMaxY()) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	static int[] bruteForce(double[][] points, double centerX, double centerY, double radius) {
+		int[] result = new int[points[0].length];
+		int count = 0;
+		for (int i = 0; i < result.length; i++) {
+			double dx = points[0][i] - centerX;
+			double dy = points[1][i] - centerY;
+			if (dx * dx + dy * dy <= radius * radius) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RStarTree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class RStarTreeTest {
+
+	@Test
+	public void testInsert() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 2, 16, 17, 257, 5000 }) {
+			Bbox[] bounds = StrTreeTest.createBounds(random, size);
+			for (int maxEntries : new int[] { 4, 16 }) {
+				RStarTree tree = new RStarTree(maxEntries);
+				for (int i = 0; i < size; i++) {
+					tree.insert(i, bounds[i]);
+				}
+				Assert.assertEquals(size, tree.size());
+				assertQueries(random, bounds, tree);
+			}
+		}
+	}
+
+	@Test
+	public void testRemoveAndMove() {
+		Random random = new Random(7);
+		int size = 2000;
+		Bbox[] bounds = StrTreeTest.createBounds(random, size);
+		RStarTree tree = new RStarTree(6);
+		for (int i = 0; i < size; i++) {
+			tree.insert(i, bounds[i]);
+		}
+		int count = size;
+		for (int step = 0; step < 10000; step++) {
+			int id = random.nextInt(size);
+			if (bounds[id] == null) {
+				bounds[id] = StrTreeTest.createBounds(random, 1)[0];
+				tree.insert(id, bounds[id]);
+				count++;
+			} else if (random.nextBoolean()) {
+				Assert.assertTrue(tree.remove(id));
+				Assert.assertFalse(tree.remove(id));
+				bounds[id] = null;
+				count--;
+			} else {
+				// small moves stay within the leaf, large ones are reinserted
+				double shift = random.nextBoolean() ? 1 : 500;
+				Bbox moved = new Bbox(bounds[id].getX() + shift * (random.nextDouble() - 0.5), bounds[id].getY()
+						+ shift * (random.nextDouble() - 0.5), bounds[id].getWidth(), bounds[id].getHeight());
+				tree.move(id, moved);
+				bounds[id] = moved;
+			}
+			Assert.assertEquals(count, tree.size());
+			if (step % 1000 == 0) {
+				assertQueries(random, bounds, tree);
+			}
+		}
+		assertQueries(random, bounds, tree);
+		for (int i = 0; i < size; i++) {
+			Assert.assertEquals(bounds[i] != null, tree.contains(i));
+			if (bounds[i] != null) {
+				Assert.assertTrue(BboxService.equals(bounds[i], tree.getBounds(i), 1e-9));
+				tree.remove(i);
+			}
+		}
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getBounds());
+		Assert.assertEquals(0, tree.query(new Bbox(-1000, -1000, 3000, 3000)).length);
+	}
+
+	@Test
+	public void testNearest() {
+		Random random = new Random(3);
+		int size = 3000;
+		Bbox[] bounds = StrTreeTest.createBounds(random, size);
+		RStarTree tree = new RStarTree();
+		for (int i = 0; i < size; i++) {
+			tree.insert(i, bounds[i]);
+		}
+		for (int i = 0; i < 20; i++) {
+			double x = random.nextDouble() * 1200 - 100;
+			double y = random.nextDouble() * 1200 - 100;
+			double[] expected = new double[size];
+			for (int j = 0; j < size; j++) {
+				expected[j] = distance(bounds[j], x, y);
+			}
+			Arrays.sort(expected);
+			int[] nearest = tree.nearest(x, y, 10);
+			Assert.assertEquals(10, nearest.length);
+			for (int j = 0; j < nearest.length; j++) {
+				Assert.assertEquals(expected[j], distance(bounds[nearest[j]], x, y), 0.0);
+			}
+			int[] within = tree.nearest(x, y, size, 50);
+			int count = 0;
+			while (count < size && expected[count] <= 50) {
+				count++;
+			}
+			Assert.assertEquals(count, within.length);
+		}
+		Assert.assertEquals(size, tree.nearest(0, 0, size + 1).length);
+		Assert.assertEquals(0, new RStarTree().nearest(0, 0, 1).length);
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		RStarTree tree = new RStarTree();
+		Geometry line = WktService.toGeometry("LINESTRING (0 0, 10 10)");
+		tree.update(0, line);
+		tree.update(1, WktService.toGeometry("POINT (100 100)"));
+		tree.update(2, WktService.toGeometry("POINT EMPTY"));
+		Assert.assertEquals(2, tree.size());
+		Assert.assertFalse(tree.contains(2));
+		Assert.assertArrayEquals(new int[] { 0 }, tree.query(new Bbox(5, 5, 1, 1)));
+		// edit the geometry in place
+		line.getCoordinates()[1].setX(50);
+		line.getCoordinates()[1].setY(50);
+		tree.update(0, line);
+		Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 50, 50), tree.getBounds(0), 0.0));
+		Assert.assertArrayEquals(new int[] { 0 }, tree.query(new Bbox(40, 40, 1, 1)));
+		Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 100, 100), tree.getBounds(), 0.0));
+		tree.update(0, null);
+		Assert.assertEquals(1, tree.size());
+		Assert.assertEquals(0, tree.count(new Bbox(0, 0, 50, 50)));
+	}
+
+	@Test
+	public void testInvalid() {
+		RStarTree tree = new RStarTree();
+		tree.insert(0, new Bbox(0, 0, 1, 1));
+		try {
+			tree.insert(0, new Bbox(0, 0, 1, 1));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		try {
+			tree.insert(-1, new Bbox(0, 0, 1, 1));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		try {
+			tree.move(1, new Bbox(0, 0, 1, 1));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		try {
+			new RStarTree(3);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		try {
+			tree.nearest(0, 0, -1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+		Assert.assertEquals(0, tree.nearest(0, 0, 0).length);
+	}
+
+	private void assertQueries(Random random, Bbox[] bounds, final RStarTree tree) {
+		IndexTestUtil.assertQueries(random, bounds, new IndexTestUtil.WindowQuery() {
+
+			public int[] query(Bbox window) {
+				int[] ids = tree.query(window);
+				Assert.assertEquals(ids.length, tree.count(window));
+				return ids;
+			}
+		});
+	}
+
+	private double distance(Bbox bounds, double x, double y) {
+		double dx = Math.max(Math.max(bounds.getX() - x, x - bounds.getMaxX()), 0);
+		double dy = Math.max(Math.max(bounds.getY() - y, y - bounds.getMaxY()), 0);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
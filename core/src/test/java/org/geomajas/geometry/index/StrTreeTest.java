@@ -0,0 +1,108 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.index;
+
+import java.util.Random;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link StrTree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class StrTreeTest {
+
+	@Test
+	public void testQuery() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 2, 15, 16, 17, 257, 5000 }) {
+			Bbox[] bounds = createBounds(random, size);
+			for (int capacity : new int[] { 2, 4, 16 }) {
+				final StrTree tree = new StrTree(bounds, capacity);
+				Assert.assertEquals(size, tree.size());
+				IndexTestUtil.assertQueries(random, bounds, new IndexTestUtil.WindowQuery() {
+
+					public int[] query(Bbox window) {
+						int[] ids = tree.query(window);
+						Assert.assertEquals(ids.length, tree.count(window));
+						return ids;
+					}
+				});
+			}
+		}
+	}
+
+	@Test
+	public void testPointQuery() {
+		Bbox[] bounds = { new Bbox(0, 0, 10, 10), null, new Bbox(5, 5, 10, 10), new Bbox(20, 20, 1, 1) };
+		StrTree tree = new StrTree(bounds, 2);
+		Assert.assertEquals(3, tree.size());
+		Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 21, 21), tree.getBounds(), 0.0));
+		final int[] found = new int[4];
+		tree.query(10, 10, new IndexVisitor() {
+
+			public boolean visit(int id) {
+				found[id]++;
+				return true;
+			}
+		});
+		Assert.assertArrayEquals(new int[] { 1, 0, 1, 0 }, found);
+		Assert.assertEquals(0, tree.query(new Bbox(16, 16, 1, 1)).length);
+	}
+
+	@Test
+	public void testStop() {
+		Bbox[] bounds = createBounds(new Random(1), 1000);
+		StrTree tree = new StrTree(bounds);
+		final int[] count = new int[1];
+		Assert.assertFalse(tree.query(new Bbox(0, 0, 2000, 2000), new IndexVisitor() {
+
+			public boolean visit(int id) {
+				return ++count[0] < 10;
+			}
+		}));
+		Assert.assertEquals(10, count[0]);
+	}
+
+	@Test
+	public void testGeometries() throws Exception {
+		Geometry[] geometries = { WktService.toGeometry("POINT (1 1)"), null,
+				WktService.toGeometry("LINESTRING EMPTY"), WktService.toGeometry("LINESTRING (2 2, 4 5)") };
+		StrTree tree = new StrTree(geometries);
+		Assert.assertEquals(2, tree.size());
+		Assert.assertArrayEquals(new int[] { 3 }, tree.query(new Bbox(3, 3, 1, 1)));
+		Assert.assertArrayEquals(new int[] { 0 }, tree.query(new Bbox(0, 0, 1, 1)));
+	}
+
+	@Test
+	public void testEmpty() {
+		StrTree tree = new StrTree(new Bbox[0]);
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getBounds());
+		Assert.assertEquals(0, tree.count(new Bbox(0, 0, 1, 1)));
+	}
+
+	static Bbox[] createBounds(Random random, int size) {
+		Bbox[] bounds = new Bbox[size];
+		for (int i = 0; i < size; i++) {
+			bounds[i] = new Bbox(random.nextDouble() * 1000, random.nextDouble() * 1000, random.nextDouble() * 20,
+					random.nextDouble() * 20);
+		}
+		return bounds;
+	}
+}
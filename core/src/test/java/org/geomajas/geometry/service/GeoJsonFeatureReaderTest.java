@@ -0,0 +1,137 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.NoSuchElementException;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link GeoJsonFeatureReader} and {@link GeoJsonFeatureWriter}.
+ *
+ * @author Jan De Moerloose
+ */
+public class GeoJsonFeatureReaderTest {
+
+	private static final String COLLECTION = "{\"type\": \"FeatureCollection\", \"name\": \"test\", \"features\": [\n"
+			+ "{\"type\": \"Feature\", \"properties\": {\"name\": \"a\", \"tags\": [1, 2]},"
+			+ " \"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}},\n"
+			+ "{\"type\": \"Feature\", \"geometry\": null, \"properties\": null},\n"
+			+ "{\"type\": \"Feature\", \"id\": 3, \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[1, 2], "
+			+ "[3, 4]]}}\n], \"crs\": {\"type\": \"name\", \"properties\": {\"name\": \"EPSG:4326\"}}}";
+
+	@Test
+	public void testRead() throws Exception {
+		GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(COLLECTION));
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertEquals("POINT (1.0 2.0)", WktService.toWkt(reader.next()));
+		Assert.assertNull(reader.next());
+		Assert.assertEquals("LINESTRING (1.0 2.0, 3.0 4.0)", WktService.toWkt(reader.next()));
+		Assert.assertFalse(reader.hasNext());
+		Assert.assertFalse(reader.hasNext());
+		try {
+			reader.next();
+			Assert.fail();
+		} catch (NoSuchElementException e) {
+			// We expect to get here.
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		StringWriter writer = new StringWriter();
+		GeoJsonFeatureWriter features = new GeoJsonFeatureWriter(writer);
+		for (int i = 0; i < 1000; i++) {
+			features.write(WktService.toGeometry("POINT (" + i + ".0 " + (-i) + ".5)"));
+		}
+		features.write(null);
+		features.finish();
+		features.finish();
+		Assert.assertEquals(1001, features.getCount());
+		try {
+			features.write(null);
+			Assert.fail();
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+
+		GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(writer.toString()));
+		for (int i = 0; i < 1000; i++) {
+			Geometry point = reader.next();
+			Assert.assertEquals("POINT (" + i + ".0 " + (-i) + ".5)", WktService.toWkt(point));
+		}
+		Assert.assertNull(reader.next());
+		Assert.assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testWriteInvalidGeometry() throws Exception {
+		StringWriter writer = new StringWriter();
+		GeoJsonFeatureWriter features = new GeoJsonFeatureWriter(writer);
+		features.write(WktService.toGeometry("POINT (1.0 2.0)"));
+		Geometry point = new Geometry(Geometry.POINT, 0, 0);
+		point.setCoordinates(new Coordinate[] { new Coordinate(Double.NaN, 0) });
+		try {
+			features.write(point);
+			Assert.fail();
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+		features.write(WktService.toGeometry("POINT (3.0 4.0)"));
+		features.finish();
+		Assert.assertEquals(2, features.getCount());
+
+		GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(writer.toString()));
+		Assert.assertEquals("POINT (1.0 2.0)", WktService.toWkt(reader.next()));
+		Assert.assertEquals("POINT (3.0 4.0)", WktService.toWkt(reader.next()));
+		Assert.assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		StringWriter writer = new StringWriter();
+		new GeoJsonFeatureWriter(writer).finish();
+		Assert.assertEquals("{\"type\":\"FeatureCollection\",\"features\":[]}", writer.toString());
+		Assert.assertFalse(new GeoJsonFeatureReader(new StringReader(writer.toString())).hasNext());
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		assertInvalid("{\"type\":\"Feature\",\"geometry\":null}");
+		assertInvalid("{\"type\":\"FeatureCollection\"}");
+		assertInvalid("[]");
+		GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(
+				"{\"type\":\"FeatureCollection\",\"features\":[{\"geometry\":null}]} ]"));
+		reader.next();
+		try {
+			reader.hasNext();
+			Assert.fail();
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+	}
+
+	private void assertInvalid(String geoJson) {
+		try {
+			new GeoJsonFeatureReader(new StringReader(geoJson));
+			Assert.fail(geoJson);
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryTestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link GeoJsonService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class GeoJsonServiceTest {
+
+	private static final String[] WKT = GeometryTestUtil.WKT;
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry(wkt);
+			String geoJson = GeoJsonService.toGeoJson(geometry);
+			Assert.assertEquals(wkt, WktService.toWkt(GeoJsonService.toGeometry(geoJson)));
+			Assert.assertEquals(wkt, WktService.toWkt(GeoJsonService.toGeometry(new StringReader(geoJson))));
+		}
+	}
+
+	@Test
+	public void testToGeoJson() throws Exception {
+		Assert.assertEquals("{\"type\":\"Point\",\"coordinates\":[1.0,2.0]}",
+				GeoJsonService.toGeoJson(WktService.toGeometry(WKT[0])));
+		Assert.assertEquals("{\"type\":\"Polygon\",\"coordinates\":[[[10.0,10.0],[10.0,20.0],[20.0,20.0],[10.0,10.0]],"
+				+ "[[14.0,14.0],[14.0,16.0],[16.0,16.0],[14.0,14.0]]]}",
+				GeoJsonService.toGeoJson(WktService.toGeometry(WKT[2])));
+		Assert.assertEquals("{\"type\":\"Point\",\"coordinates\":[]}",
+				GeoJsonService.toGeoJson(WktService.toGeometry("POINT EMPTY")));
+		Geometry ring = new Geometry(Geometry.LINEAR_RING, 0, -1);
+		ring.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(0, 0) });
+		Assert.assertEquals("{\"type\":\"LineString\",\"coordinates\":[[0.0,0.0],[1.0,0.0],[0.0,0.0]]}",
+				GeoJsonService.toGeoJson(ring));
+		StringBuilder builder = new StringBuilder("[");
+		GeoJsonService.toGeoJson(WktService.toGeometry(WKT[0]), builder);
+		Assert.assertEquals("[{\"type\":\"Point\",\"coordinates\":[1.0,2.0]}", builder.toString());
+	}
+
+	@Test
+	public void testParse() throws Exception {
+		// member order, whitespace, extra members and dimensions, exponents, escapes
+		Geometry geometry = GeoJsonService.toGeometry(" {\n\t\"coordinates\" : [ [1, 2.5, 100], [-3e2 , 4E-1] ],"
+				+ " \"bbox\": [1, 2, 3, {\"a\": [true, false, null]}], \"t\\u0079pe\": \"LineString\","
+				+ " \"x\": \"\\\"\"}");
+		Assert.assertEquals("LINESTRING (1.0 2.5, -300.0 0.4)", WktService.toWkt(geometry));
+		Assert.assertEquals(0, geometry.getSrid());
+		Assert.assertEquals("POINT EMPTY", WktService.toWkt(GeoJsonService.toGeometry(
+				"{\"type\":\"Point\",\"coordinates\":[]}")));
+	}
+
+	@Test
+	public void testLargeReader() throws Exception {
+		// bigger than the internal buffer, so numbers and names are split over several reads
+		StringBuilder builder = new StringBuilder("{\"type\":\"LineString\",\"coordinates\":[");
+		for (int i = 0; i < 10000; i++) {
+			builder.append(i > 0 ? "," : "").append("[").append(i * 0.125).append(",").append(-i).append("]");
+		}
+		builder.append("]}");
+		Reader reader = new StringReader(builder.toString()) {
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				// return few characters at a time
+				return super.read(cbuf, off, Math.min(len, 7));
+			}
+		};
+		Geometry geometry = GeoJsonService.toGeometry(reader);
+		Assert.assertEquals(10000, geometry.getCoordinates().length);
+		Assert.assertEquals(new Coordinate(9999 * 0.125, -9999), geometry.getCoordinates()[9999]);
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		assertInvalid("");
+		assertInvalid("null");
+		assertInvalid("{\"type\":\"Point\"}");
+		assertInvalid("{\"coordinates\":[1,2]}");
+		assertInvalid("{\"type\":\"GeometryCollection\",\"geometries\":[]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[[1,2]]}");
+		assertInvalid("{\"type\":\"LineString\",\"coordinates\":[1,2]}");
+		assertInvalid("{\"type\":\"Polygon\",\"coordinates\":[[1,2]]}");
+		assertInvalid("{\"type\":\"MultiPoint\",\"coordinates\":[[1,2],[]]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1 2]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2,]}");
+		assertInvalid("{\"type\":\"LineString\",\"coordinates\":[[1,2],[3,4],]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2],}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2],\"bbox\":[1,2,1,2,]}");
+		assertInvalid("{\"type\":\"Point\" \"coordinates\":[1,2]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2]");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2]} x");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[\"1\",2]}");
+		assertInvalid("{\"type\":\"Point\",\"coordinates\":[1,2],\"x\":tru}");
+	}
+
+	@Test(expected = GeoJsonException.class)
+	public void testUnsupportedType() throws GeoJsonException {
+		GeoJsonService.toGeoJson(new Geometry("GeometryCollection", 0, 0));
+	}
+
+	@Test(expected = GeoJsonException.class)
+	public void testNaN() throws GeoJsonException {
+		Geometry point = new Geometry(Geometry.POINT, 0, 0);
+		point.setCoordinates(new Coordinate[] { new Coordinate(Double.NaN, 0) });
+		GeoJsonService.toGeoJson(point);
+	}
+
+	private void assertInvalid(String geoJson) {
+		try {
+			GeoJsonService.toGeometry(geoJson);
+			Assert.fail(geoJson);
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryColumn;
+import org.geomajas.geometry.Matrix;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GeometryColumnService}. All batch operations are compared with the {@link GeometryService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class GeometryColumnServiceTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String[] WKT = { "POINT (1 2)", "LINESTRING (0 0, 10 0, 10 10)",
+			"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))",
+			"MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)), ((20 20, 30 20, 30 30, 20 20)))",
+			"MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2)))",
+			"MULTILINESTRING ((0 0, 1 1), (2 2, 3 3, 4 4), (5 0, 6 0))", "MULTIPOINT ((1 1), (2 2), (6 3))",
+			"POINT EMPTY", "POLYGON EMPTY", "MULTIPOLYGON EMPTY" };
+
+	private Geometry[] geometries;
+
+	private GeometryColumn column;
+
+	@Before
+	public void setUp() throws WktException {
+		geometries = new Geometry[WKT.length + 1];
+		for (int i = 0; i < WKT.length; i++) {
+			geometries[i] = WktService.toGeometry(WKT[i]);
+		}
+		geometries[WKT.length] = new Geometry(Geometry.LINEAR_RING, 4326, 2);
+		geometries[WKT.length].setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(0, 5),
+				new Coordinate(5, 5), new Coordinate(0, 0) });
+		column = GeometryColumnService.toColumn(geometries);
+	}
+
+	@Test
+	public void testRoundTrip() throws WktException {
+		Assert.assertEquals(geometries.length, column.size());
+		Geometry[] result = GeometryColumnService.toGeometries(column);
+		for (int i = 0; i < geometries.length; i++) {
+			Assert.assertEquals(WktService.toWkt(geometries[i]), WktService.toWkt(result[i]));
+			Assert.assertEquals(geometries[i].getGeometryType(), result[i].getGeometryType());
+			Assert.assertEquals(geometries[i].getSrid(), result[i].getSrid());
+			Assert.assertEquals(geometries[i].getPrecision(), result[i].getPrecision());
+			Assert.assertEquals(GeometryService.getNumPoints(geometries[i]), column.getNumPoints(i));
+		}
+	}
+
+	@Test
+	public void testBounds() {
+		double[] bounds = GeometryColumnService.getBounds(column);
+		for (int i = 0; i < geometries.length; i++) {
+			Bbox expected = GeometryService.getBounds(geometries[i]);
+			if (expected == null) {
+				Assert.assertTrue(Double.isNaN(bounds[4 * i]));
+			} else {
+				Assert.assertEquals(expected.getX(), bounds[4 * i], 0.0);
+				Assert.assertEquals(expected.getY(), bounds[4 * i + 1], 0.0);
+				Assert.assertEquals(expected.getMaxX(), bounds[4 * i + 2], 0.0);
+				Assert.assertEquals(expected.getMaxY(), bounds[4 * i + 3], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testArea() {
+		double[] areas = GeometryColumnService.getArea(column);
+		for (int i = 0; i < geometries.length; i++) {
+			Assert.assertEquals(WKT.length > i ? WKT[i] : "ring", GeometryService.getArea(geometries[i]), areas[i],
+					0.0);
+		}
+		Assert.assertEquals(96.0, areas[2], DELTA);
+		Assert.assertEquals(150.0, areas[3], DELTA);
+	}
+
+	@Test
+	public void testLength() {
+		double[] lengths = GeometryColumnService.getLength(column);
+		for (int i = 0; i < geometries.length; i++) {
+			Assert.assertEquals(GeometryService.getLength(geometries[i]), lengths[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testCentroid() {
+		double[] centroids = GeometryColumnService.getCentroid(column);
+		for (int i = 0; i < geometries.length; i++) {
+			Coordinate expected = GeometryService.isEmpty(geometries[i]) ? null : GeometryService
+					.getCentroid(geometries[i]);
+			if (expected == null) {
+				Assert.assertTrue(Double.isNaN(centroids[2 * i]));
+				Assert.assertTrue(Double.isNaN(centroids[2 * i + 1]));
+			} else {
+				Assert.assertEquals(expected.getX(), centroids[2 * i], 0.0);
+				Assert.assertEquals(expected.getY(), centroids[2 * i + 1], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testFilter() {
+		Assert.assertArrayEquals(new int[] { 3 }, GeometryColumnService.filter(column, new Bbox(25, 25, 10, 10)));
+		Assert.assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 10 },
+				GeometryColumnService.filter(column, new Bbox(5, 0, 5, 5)));
+		Assert.assertArrayEquals(new int[0], GeometryColumnService.filter(column, new Bbox(-10, -10, 5, 5)));
+	}
+
+	@Test
+	public void testTransform() throws WktException {
+		Matrix matrix = new Matrix(2, 1, 0.5, 3, 5, 7);
+		GeometryColumnService.transform(column, matrix);
+		for (int i = 0; i < geometries.length; i++) {
+			Assert.assertEquals(WktService.toWkt(GeometryService.transform(geometries[i], matrix)),
+					WktService.toWkt(GeometryColumnService.toGeometry(column, i)));
+		}
+	}
+}
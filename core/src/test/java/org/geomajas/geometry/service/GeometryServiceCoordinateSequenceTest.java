@@ -0,0 +1,146 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.CoordinateArraySequence;
+import org.geomajas.geometry.CoordinateSequence;
+import org.geomajas.geometry.FloatCoordinateSequence;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.PackedCoordinateSequence;
+import org.geomajas.geometry.PackedGeometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CoordinateSequence} methods of the {@link GeometryService}. Every method is run on the three
+ * available backings and compared to the result of the {@link Geometry} based method.
+ *
+ * @author Jan De Moerloose
+ */
+public class GeometryServiceCoordinateSequenceTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final double[] RING = { 10, 10, 20, 10, 20, 30, 10, 30, 10, 10 };
+
+	private CoordinateSequence[] createSequences(double[] ordinates) {
+		Coordinate[] coordinates = new Coordinate[ordinates.length / 2];
+		float[] floats = new float[ordinates.length + 2];
+		double[] padded = new double[ordinates.length + 4];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(ordinates[2 * i], ordinates[2 * i + 1]);
+			floats[2 * i + 2] = (float) ordinates[2 * i];
+			floats[2 * i + 3] = (float) ordinates[2 * i + 1];
+			padded[2 * i + 4] = ordinates[2 * i];
+			padded[2 * i + 5] = ordinates[2 * i + 1];
+		}
+		return new CoordinateSequence[] { new CoordinateArraySequence(coordinates),
+				new PackedCoordinateSequence(padded, 2, coordinates.length),
+				new FloatCoordinateSequence(floats, 1, coordinates.length) };
+	}
+
+	private Geometry createGeometry(String type, double[] ordinates) {
+		Geometry geometry = new Geometry(type, 0, 0);
+		geometry.setCoordinates(((CoordinateArraySequence) createSequences(ordinates)[0]).getCoordinates());
+		return geometry;
+	}
+
+	@Test
+	public void testBounds() {
+		Bbox expected = GeometryService.getBounds(createGeometry(Geometry.LINEAR_RING, RING));
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			Assert.assertTrue(BboxService.equals(expected, GeometryService.getBounds(sequence), DELTA));
+		}
+		Assert.assertNull(GeometryService.getBounds(new PackedCoordinateSequence(new double[0])));
+	}
+
+	@Test
+	public void testArea() {
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			Assert.assertEquals(200.0, GeometryService.getArea(sequence), DELTA);
+		}
+	}
+
+	@Test
+	public void testLength() {
+		double expected = GeometryService.getLength(createGeometry(Geometry.LINE_STRING, RING));
+		Assert.assertEquals(60.0, expected, DELTA);
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			Assert.assertEquals(expected, GeometryService.getLength(sequence), DELTA);
+		}
+	}
+
+	@Test
+	public void testCentroid() {
+		Coordinate ringCentroid = GeometryService.getCentroid(createGeometry(Geometry.LINEAR_RING, RING));
+		double[] line = { 0, 0, 10, 0, 10, 10 };
+		Coordinate lineCentroid = GeometryService.getCentroid(createGeometry(Geometry.LINE_STRING, line));
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			Assert.assertTrue(ringCentroid.equalsDelta(GeometryService.getCentroid(sequence), DELTA));
+		}
+		for (CoordinateSequence sequence : createSequences(line)) {
+			Assert.assertTrue(lineCentroid.equalsDelta(GeometryService.getCentroid(sequence), DELTA));
+		}
+		Assert.assertEquals(new Coordinate(3, 4),
+				GeometryService.getCentroid(new PackedCoordinateSequence(new double[] { 3, 4 })));
+	}
+
+	@Test
+	public void testCentroidDegenerate() {
+		// all coordinates coincide, so there is neither an area nor a length:
+		for (CoordinateSequence sequence : createSequences(new double[] { 3, 4, 3, 4, 3, 4 })) {
+			Assert.assertEquals(new Coordinate(3, 4), GeometryService.getCentroid(sequence));
+		}
+		for (CoordinateSequence sequence : createSequences(new double[] { 3, 4, 3, 4 })) {
+			Assert.assertEquals(new Coordinate(3, 4), GeometryService.getCentroid(sequence));
+		}
+	}
+
+	@Test
+	public void testDistance() {
+		Coordinate coordinate = new Coordinate(15, 0);
+		double expected = GeometryService.getDistance(createGeometry(Geometry.LINEAR_RING, RING), coordinate);
+		Assert.assertEquals(10.0, expected, DELTA);
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			Assert.assertEquals(expected, GeometryService.getDistance(sequence, coordinate), DELTA);
+		}
+		Assert.assertEquals(5.0,
+				GeometryService.getDistance(new PackedCoordinateSequence(new double[] { 3, 4 }), new Coordinate()),
+				DELTA);
+	}
+
+	@Test
+	public void testTransform() {
+		Matrix matrix = new Matrix(2, 0, 0, 3, 5, 7);
+		Geometry expected = GeometryService.transform(createGeometry(Geometry.LINEAR_RING, RING), matrix);
+		for (CoordinateSequence sequence : createSequences(RING)) {
+			GeometryService.transform(sequence, sequence, matrix);
+			for (int i = 0; i < sequence.size(); i++) {
+				Assert.assertEquals(expected.getCoordinates()[i].getX(), sequence.getX(i), DELTA);
+				Assert.assertEquals(expected.getCoordinates()[i].getY(), sequence.getY(i), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testPackedGeometrySequence() {
+		PackedGeometry packed = new PackedGeometry(Geometry.LINE_STRING, 0, 0, RING.clone(), new int[] { 0, 5 },
+				new int[] { 0, 1 });
+		CoordinateSequence sequence = packed.getCoordinateSequence(0);
+		Assert.assertEquals(5, sequence.size());
+		sequence.setX(1, 42);
+		Assert.assertEquals(42.0, packed.getX(1), 0.0);
+	}
+}
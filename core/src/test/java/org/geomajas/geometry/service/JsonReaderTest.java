@@ -0,0 +1,68 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link JsonReader}.
+ *
+ * @author Jan De Moerloose
+ */
+public class JsonReaderTest {
+
+	@Test
+	public void testArray() throws GeoJsonException {
+		JsonReader reader = new JsonReader("[1, 2]");
+		reader.beginArray();
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertEquals(1.0, reader.nextDouble(), 0.0);
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertEquals(2.0, reader.nextDouble(), 0.0);
+		Assert.assertFalse(reader.hasNext());
+		reader.endArray();
+		reader.endDocument();
+	}
+
+	@Test
+	public void testTrailingComma() throws GeoJsonException {
+		JsonReader reader = new JsonReader("[1,2,]");
+		reader.beginArray();
+		reader.nextDouble();
+		Assert.assertTrue(reader.hasNext());
+		reader.nextDouble();
+		try {
+			reader.hasNext();
+			Assert.fail("trailing comma in array");
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+
+		reader = new JsonReader("{\"a\":1,}");
+		reader.beginObject();
+		Assert.assertEquals("a", reader.nextName());
+		reader.nextDouble();
+		try {
+			reader.hasNext();
+			Assert.fail("trailing comma in object");
+		} catch (GeoJsonException e) {
+			// We expect to get here.
+		}
+	}
+
+	@Test(expected = GeoJsonException.class)
+	public void testHasNextOutsideArray() throws GeoJsonException {
+		new JsonReader("1").hasNext();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryTestUtil;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.PackedGeometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PackedGeometryService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class PackedGeometryServiceTest {
+
+	private static final String[] WKT = GeometryTestUtil.WKT;
+
+	@Test
+	public void testRoundTrip() throws WktException {
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry(wkt);
+			geometry.setSrid(31300);
+			geometry.setPrecision(3);
+			Geometry result = PackedGeometryService.toGeometry(PackedGeometryService.toPacked(geometry));
+			Assert.assertEquals(wkt, WktService.toWkt(result));
+			Assert.assertEquals(geometry.getGeometryType(), result.getGeometryType());
+			Assert.assertEquals(31300, result.getSrid());
+			Assert.assertEquals(3, result.getPrecision());
+		}
+	}
+
+	@Test
+	public void testLayout() throws WktException {
+		PackedGeometry packed = PackedGeometryService.toPacked(WktService.toGeometry(WKT[5]));
+		Assert.assertEquals(Geometry.MULTI_POLYGON, packed.getGeometryType());
+		Assert.assertEquals(2, packed.getNumParts());
+		Assert.assertEquals(3, packed.getNumRings());
+		Assert.assertEquals(12, packed.getNumPoints());
+		Assert.assertArrayEquals(new int[] { 0, 2, 3 }, packed.getPartOffsets());
+		Assert.assertArrayEquals(new int[] { 0, 4, 8, 12 }, packed.getRingOffsets());
+		Assert.assertEquals(24, packed.getOrdinates().length);
+		Assert.assertEquals(14.0, packed.getX(4), 0.0);
+		Assert.assertEquals(16.0, packed.getY(5), 0.0);
+		Assert.assertEquals(2, packed.getPartSize(0));
+		Assert.assertEquals(8, packed.getRingStart(2));
+		Assert.assertEquals(4, packed.getRingSize(2));
+		Assert.assertFalse(packed.isEmpty());
+	}
+
+	@Test
+	public void testEmptyParts() {
+		Geometry point = new Geometry(Geometry.POINT, 0, 0);
+		point.setCoordinates(new Coordinate[] { new Coordinate(1, 2) });
+		Geometry multiPoint = new Geometry(Geometry.MULTI_POINT, 0, 0);
+		multiPoint.setGeometries(new Geometry[] { point, new Geometry(Geometry.POINT, 0, 0) });
+
+		PackedGeometry packed = PackedGeometryService.toPacked(multiPoint);
+		Assert.assertEquals(2, packed.getNumParts());
+		Assert.assertEquals(2, packed.getNumRings());
+		Assert.assertEquals(1, packed.getNumPoints());
+		Assert.assertEquals(0, packed.getRingSize(1));
+
+		Geometry result = PackedGeometryService.toGeometry(packed);
+		Assert.assertEquals(2, result.getGeometries().length);
+		Assert.assertEquals(new Coordinate(1, 2), result.getGeometries()[0].getCoordinates()[0]);
+		Assert.assertNull(result.getGeometries()[1].getCoordinates());
+		Assert.assertTrue(PackedGeometryService.toPacked(new Geometry(Geometry.POLYGON, 0, 0)).isEmpty());
+	}
+
+	@Test
+	public void testLinearRing() {
+		Geometry ring = new Geometry(Geometry.LINEAR_RING, 0, 0);
+		ring.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(0, 1),
+				new Coordinate(0, 0) });
+		Geometry result = PackedGeometryService.toGeometry(PackedGeometryService.toPacked(ring));
+		Assert.assertEquals(Geometry.LINEAR_RING, result.getGeometryType());
+		Assert.assertArrayEquals(ring.getCoordinates(), result.getCoordinates());
+	}
+
+	@Test
+	public void testClone() throws WktException {
+		PackedGeometry packed = PackedGeometryService.toPacked(WktService.toGeometry(WKT[2]));
+		PackedGeometry clone = (PackedGeometry) packed.clone();
+		Assert.assertNotSame(packed.getOrdinates(), clone.getOrdinates());
+		clone.setX(0, 99);
+		Assert.assertEquals(10.0, packed.getX(0), 0.0);
+		Assert.assertEquals(WktService.toWkt(WktService.toGeometry(WKT[2])),
+				WktService.toWkt(PackedGeometryService.toGeometry(packed)));
+	}
+
+	@Test
+	public void testCopyOnWrite() throws WktException {
+		PackedGeometry packed = PackedGeometryService.toPacked(WktService.toGeometry(WKT[5]));
+		PackedGeometry copy = packed.copy();
+		Assert.assertSame(packed.getOrdinates(), copy.getOrdinates());
+		Assert.assertTrue(packed.isShared());
+		Assert.assertTrue(copy.isShared());
+
+		// changing the copy should not affect the original:
+		copy.getCoordinateSequence(1).setY(0, 99);
+		Assert.assertNotSame(packed.getOrdinates(), copy.getOrdinates());
+		Assert.assertSame(packed.getRingOffsets(), copy.getRingOffsets());
+		Assert.assertFalse(copy.isShared());
+		Assert.assertEquals(99.0, copy.getY(copy.getRingStart(1)), 0.0);
+		Assert.assertEquals(14.0, packed.getY(packed.getRingStart(1)), 0.0);
+
+		// the original still thinks it is shared, so it copies once more:
+		double[] ordinates = packed.getOrdinates();
+		packed.setX(0, 5);
+		Assert.assertNotSame(ordinates, packed.getOrdinates());
+		Assert.assertEquals(10.0, ordinates[0], 0.0);
+		packed.setX(0, 6);
+		Assert.assertFalse(packed.isShared());
+		Assert.assertEquals(6.0, packed.getX(0), 0.0);
+	}
+
+	@Test
+	public void testTransform() throws WktException {
+		Matrix matrix = new Matrix(2, 1, 0.5, 3, 5, 7);
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry(wkt);
+			PackedGeometry packed = PackedGeometryService.toPacked(geometry);
+			PackedGeometry transformed = PackedGeometryService.transform(packed, matrix);
+			Assert.assertEquals(WktService.toWkt(GeometryService.transform(geometry, matrix)),
+					WktService.toWkt(PackedGeometryService.toGeometry(transformed)));
+			Assert.assertEquals(wkt, WktService.toWkt(PackedGeometryService.toGeometry(packed)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedType() {
+		PackedGeometryService.toPacked(new Geometry("GeometryCollection", 0, 0));
+	}
+}
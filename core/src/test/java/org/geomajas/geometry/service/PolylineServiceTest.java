@@ -0,0 +1,162 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PolylineService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class PolylineServiceTest {
+
+	// example of the Google polyline algorithm documentation
+	private static final String POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+	private static final Coordinate[] COORDINATES = { new Coordinate(-120.2, 38.5), new Coordinate(-120.95, 40.7),
+			new Coordinate(-126.453, 43.252) };
+
+	@Test
+	public void testGoogle() throws Exception {
+		Geometry line = new Geometry(Geometry.LINE_STRING, 4326, -1);
+		line.setCoordinates(COORDINATES);
+		Assert.assertEquals(POLYLINE, PolylineService.toPolyline(line));
+		Geometry result = PolylineService.toGeometry(POLYLINE);
+		Assert.assertEquals(Geometry.LINE_STRING, result.getGeometryType());
+		Assert.assertEquals(PolylineService.DEFAULT_PRECISION, result.getPrecision());
+		Assert.assertArrayEquals(COORDINATES, result.getCoordinates());
+	}
+
+	@Test
+	public void testMultiPoint() throws Exception {
+		Geometry multiPoint = WktService.toGeometry("MULTIPOINT ((-120.2 38.5), (-120.95 40.7), (-126.453 43.252))");
+		Assert.assertEquals(POLYLINE, PolylineService.toPolyline(multiPoint, 5));
+		Geometry result = PolylineService.toGeometry(POLYLINE, Geometry.MULTI_POINT, 5);
+		Assert.assertEquals(WktService.toWkt(multiPoint), WktService.toWkt(result));
+		Assert.assertEquals("MULTIPOINT EMPTY", WktService.toWkt(PolylineService.toGeometry("", Geometry.MULTI_POINT,
+				5)));
+	}
+
+	@Test
+	public void testDefaultPrecision() throws Exception {
+		// geometries parsed from WKT have precision 0
+		Geometry line = WktService.toGeometry("LINESTRING (-120.2 38.5, -120.95 40.7, -126.453 43.252)");
+		Assert.assertEquals(0, line.getPrecision());
+		Assert.assertEquals(POLYLINE, PolylineService.toPolyline(line));
+		Assert.assertArrayEquals(COORDINATES, PolylineService.toGeometry(PolylineService.toPolyline(line))
+				.getCoordinates());
+	}
+
+	@Test
+	public void testPrecision() throws Exception {
+		Geometry line = new Geometry(Geometry.LINE_STRING, 0, 6);
+		line.setCoordinates(new Coordinate[] { new Coordinate(4.1234567, 50.7654321), new Coordinate(-4.5, -50.25) });
+		String polyline = PolylineService.toPolyline(line);
+		Geometry result = PolylineService.toGeometry(polyline, Geometry.LINE_STRING, 6);
+		Assert.assertEquals("LINESTRING (4.123457 50.765432, -4.5 -50.25)", WktService.toWkt(result));
+		Assert.assertEquals(6, result.getPrecision());
+		result = PolylineService.toGeometry(PolylineService.toPolyline(line, 0), Geometry.LINE_STRING, 0);
+		Assert.assertEquals("LINESTRING (4.0 51.0, -4.0 -50.0)", WktService.toWkt(result));
+	}
+
+	@Test
+	public void testPreallocated() throws Exception {
+		Geometry line = new Geometry(Geometry.LINE_STRING, 0, 5);
+		Coordinate[] coordinates = new Coordinate[20000];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(4.35 + i * 0.00001, 50.85 + (i % 100) * 0.00002);
+		}
+		line.setCoordinates(coordinates);
+		String polyline = PolylineService.toPolyline(line);
+		Assert.assertTrue(polyline.length() * 3 < WktService.toWkt(line).length());
+		Assert.assertEquals(coordinates.length, PolylineService.getNumPoints(polyline));
+
+		Coordinate[] target = new Coordinate[coordinates.length + 1];
+		Coordinate reused = new Coordinate();
+		target[0] = reused;
+		Assert.assertEquals(coordinates.length, PolylineService.toCoordinates(polyline, 5, target));
+		Assert.assertSame(reused, target[0]);
+		Assert.assertNull(target[coordinates.length]);
+		for (int i = 0; i < coordinates.length; i++) {
+			Assert.assertTrue(coordinates[i].equalsDelta(target[i], 0.000005));
+		}
+		try {
+			PolylineService.toCoordinates(polyline, 5, new Coordinate[10]);
+			Assert.fail();
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		assertInvalid("_p~iF~ps|U_ulL");
+		assertInvalid("_p~iF~ps|U_");
+		assertInvalid("_p~iF ps|U");
+		assertInvalid("~~~~~~~~~~~~~~~~~~~~~~~~~~~~??");
+		try {
+			PolylineService.toPolyline(WktService.toGeometry("POINT (1 2)"));
+			Assert.fail();
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+		try {
+			PolylineService.toGeometry(POLYLINE, Geometry.POLYGON, 5);
+			Assert.fail();
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+	}
+
+	@Test
+	public void testInvalidGeometry() throws Exception {
+		Geometry line = new Geometry(Geometry.LINE_STRING, 0, 11);
+		line.setCoordinates(new Coordinate[] { new Coordinate(1, 2), new Coordinate(3, 4) });
+		assertInvalid(line);
+		line.setPrecision(5);
+		line.getCoordinates()[1].setX(Double.POSITIVE_INFINITY);
+		assertInvalid(line);
+		line.getCoordinates()[1].setX(3);
+		line.getCoordinates()[1].setY(Double.NEGATIVE_INFINITY);
+		assertInvalid(line);
+		line.getCoordinates()[1].setY(Double.NaN);
+		assertInvalid(line);
+	}
+
+	private void assertInvalid(Geometry geometry) {
+		try {
+			PolylineService.toPolyline(geometry);
+			Assert.fail();
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+	}
+
+	private void assertInvalid(String polyline) {
+		try {
+			PolylineService.toCoordinates(polyline, 5, new Coordinate[100]);
+			Assert.fail(polyline);
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+		try {
+			PolylineService.toGeometry(polyline);
+			Assert.fail(polyline);
+		} catch (PolylineException e) {
+			// We expect to get here.
+		}
+	}
+}
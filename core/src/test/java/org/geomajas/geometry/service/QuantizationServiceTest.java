@@ -0,0 +1,143 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.CoordinateSequence;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.QuantizedGeometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link QuantizationService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class QuantizationServiceTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String WKT = "MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2)), "
+			+ "((20 20, 30 20, 30 30, 20 20)))";
+
+	@Test
+	public void testRoundTrip() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		QuantizedGeometry quantized = QuantizationService.quantize(geometry);
+		Assert.assertEquals(0, quantized.getPrecision());
+		Assert.assertEquals(14, quantized.getNumPoints());
+		Assert.assertEquals(WktService.toWkt(geometry), WktService.toWkt(QuantizationService.toGeometry(quantized)));
+	}
+
+	@Test
+	public void testPrecision() throws WktException {
+		Geometry geometry = WktService.toGeometry("LINESTRING (1.23456 2.34567, 3.45678 4.56789)");
+		QuantizedGeometry quantized = QuantizationService.quantize(geometry, 2);
+		Assert.assertArrayEquals(new int[] { 123, 235, 346, 457 }, quantized.getOrdinates());
+		Assert.assertEquals(1.23, quantized.getX(0), DELTA);
+		Assert.assertEquals(4.57, quantized.getY(1), DELTA);
+		Geometry decoded = QuantizationService.toGeometry(quantized);
+		Assert.assertEquals(2, decoded.getPrecision());
+		Assert.assertEquals(3.46, decoded.getCoordinates()[1].getX(), DELTA);
+		Assert.assertEquals(123, QuantizationService.quantize(1.234, 2));
+		Assert.assertEquals(1.23, QuantizationService.dequantize(123, 2), DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFloatingPrecision() throws WktException {
+		Geometry geometry = WktService.toGeometry("POINT (1 2)");
+		geometry.setPrecision(-1);
+		QuantizationService.quantize(geometry);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOverflow() {
+		QuantizationService.quantize(1e6, 5);
+	}
+
+	@Test
+	public void testCoordinateSequence() throws WktException {
+		QuantizedGeometry quantized = QuantizationService.quantize(WktService.toGeometry(WKT), 1);
+		CoordinateSequence ring = quantized.getCoordinateSequence(1);
+		Assert.assertEquals(5, ring.size());
+		Assert.assertEquals(4.0, GeometryService.getArea(ring), DELTA);
+		ring.setX(1, 4.06);
+		Assert.assertEquals(41, quantized.getOrdinates()[12]);
+		Assert.assertEquals(4.1, ring.getX(1), DELTA);
+	}
+
+	@Test
+	public void testBounds() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		QuantizedGeometry quantized = QuantizationService.quantize(geometry);
+		Assert.assertTrue(BboxService.equals(GeometryService.getBounds(geometry),
+				QuantizationService.getBounds(quantized), DELTA));
+		Assert.assertNull(QuantizationService.getBounds(new QuantizedGeometry()));
+
+		Assert.assertTrue(QuantizationService.intersects(quantized, new Bbox(30, 30, 10, 10)));
+		Assert.assertTrue(QuantizationService.intersects(quantized, new Bbox(-5.5, -5.5, 5.5, 5.5)));
+		Assert.assertFalse(QuantizationService.intersects(quantized, new Bbox(30.1, 30, 10, 10)));
+		Assert.assertFalse(QuantizationService.intersects(new QuantizedGeometry(), new Bbox(0, 0, 10, 10)));
+	}
+
+	@Test
+	public void testIntersects() throws WktException {
+		QuantizedGeometry polygons = QuantizationService.quantize(WktService.toGeometry(WKT));
+		Assert.assertTrue(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("LINESTRING (-5 5, 5 5)"))));
+		Assert.assertTrue(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("POINT (25 20)"))));
+		Assert.assertTrue(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("LINESTRING (12 10, 10 10)"))));
+		Assert.assertTrue(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("LINESTRING (10 5, 10 15)"))));
+		// interior is not taken into account:
+		Assert.assertFalse(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("POINT (5 1)"))));
+		Assert.assertFalse(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("LINESTRING (11 1, 11 20)"))));
+		Assert.assertFalse(QuantizationService.intersects(polygons,
+				QuantizationService.quantize(WktService.toGeometry("POINT (25 21)"))));
+	}
+
+	@Test
+	public void testIntersectsLargeOrdinates() {
+		QuantizedGeometry one = new QuantizedGeometry(Geometry.LINE_STRING, 0, 0, new int[] { Integer.MIN_VALUE,
+				Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE }, new int[] { 0, 2 }, new int[] { 0, 1 });
+		QuantizedGeometry two = new QuantizedGeometry(Geometry.LINE_STRING, 0, 0, new int[] { Integer.MIN_VALUE,
+				Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE }, new int[] { 0, 2 }, new int[] { 0, 1 });
+		QuantizedGeometry point = new QuantizedGeometry(Geometry.POINT, 0, 0, new int[] { Integer.MAX_VALUE - 1,
+				Integer.MAX_VALUE }, new int[] { 0, 1 }, new int[] { 0, 1 });
+		Assert.assertTrue(QuantizationService.intersects(one, two));
+		Assert.assertFalse(QuantizationService.intersects(one, point));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIntersectsDifferentPrecision() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		QuantizationService.intersects(QuantizationService.quantize(geometry, 0),
+				QuantizationService.quantize(geometry, 1));
+	}
+
+	@Test
+	public void testTransform() throws WktException {
+		Geometry geometry = WktService.toGeometry(WKT);
+		Matrix matrix = new Matrix(2, 0, 0, 3, 5.5, 7);
+		QuantizedGeometry transformed = QuantizationService.transform(QuantizationService.quantize(geometry, 1),
+				matrix);
+		Assert.assertEquals(WktService.toWkt(GeometryService.transform(geometry, matrix)),
+				WktService.toWkt(QuantizationService.toGeometry(transformed)));
+		Assert.assertEquals(55, transformed.getOrdinates()[0]);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryTestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TwkbService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class TwkbServiceTest {
+
+	private static final String[] WKT = GeometryTestUtil.WKT;
+
+	// as produced by PostGIS: ST_AsTWKB('LINESTRING(1 1,5 5)')
+	private static final String LINE_TWKB = "02000202020808";
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry(wkt);
+			geometry.setPrecision(2);
+			for (boolean bbox : new boolean[] { false, true }) {
+				Geometry result = TwkbService.toGeometry(TwkbService.toTwkb(geometry, 2, bbox));
+				Assert.assertEquals(wkt, WktService.toWkt(result));
+				Assert.assertEquals(2, result.getPrecision());
+			}
+			Assert.assertEquals(wkt, WktService.toWkt(TwkbService.toGeometry(TwkbService.toTwkb(geometry))));
+		}
+	}
+
+	@Test
+	public void testPostGis() throws Exception {
+		Geometry line = TwkbService.toGeometry(GeometryTestUtil.fromHex(LINE_TWKB));
+		Assert.assertEquals("LINESTRING (1.0 1.0, 5.0 5.0)", WktService.toWkt(line));
+		Assert.assertEquals(LINE_TWKB, GeometryTestUtil.toHex(TwkbService.toTwkb(line, 0, false)));
+		// with bounding box: xmin 1, deltax 4, ymin 1, deltay 4
+		Assert.assertEquals("020102080208" + LINE_TWKB.substring(4),
+				GeometryTestUtil.toHex(TwkbService.toTwkb(line, 0, true)));
+		// empty point
+		Geometry empty = WktService.toGeometry("POINT EMPTY");
+		Assert.assertEquals("0110", GeometryTestUtil.toHex(TwkbService.toTwkb(empty, 0, false)));
+	}
+
+	@Test
+	public void testPrecision() throws Exception {
+		Geometry point = new Geometry(Geometry.POINT, 0, -1);
+		point.setCoordinates(new Coordinate[] { new Coordinate(1234.5678, -1234.5678) });
+		Assert.assertEquals("POINT (1234.57 -1234.57)", WktService.toWkt(toGeometry(point, 2)));
+		Assert.assertEquals("POINT (1235.0 -1235.0)", WktService.toWkt(toGeometry(point, 0)));
+		Assert.assertEquals("POINT (1200.0 -1200.0)", WktService.toWkt(toGeometry(point, -2)));
+		Assert.assertEquals("POINT (1234.5678 -1234.5678)", WktService.toWkt(toGeometry(point, 7)));
+		Assert.assertEquals(0, toGeometry(point, -2).getPrecision());
+		// floating precision uses the default precision:
+		Assert.assertEquals("POINT (1234.5678 -1234.5678)",
+				WktService.toWkt(TwkbService.toGeometry(TwkbService.toTwkb(point))));
+		point.setPrecision(8);
+		try {
+			TwkbService.toTwkb(point);
+			Assert.fail();
+		} catch (TwkbException e) {
+			// We expect to get here.
+		}
+		try {
+			TwkbService.toTwkb(point, 8, false);
+			Assert.fail();
+		} catch (TwkbException e) {
+			// We expect to get here.
+		}
+	}
+
+	@Test
+	public void testDefaultPrecision() throws Exception {
+		// geometries parsed from WKT have precision 0
+		Geometry line = WktService.toGeometry("LINESTRING (4.3512345 50.8512345, -0.1234567 51.5)");
+		Assert.assertEquals(0, line.getPrecision());
+		Geometry result = TwkbService.toGeometry(TwkbService.toTwkb(line));
+		Assert.assertEquals(TwkbService.DEFAULT_PRECISION, result.getPrecision());
+		Assert.assertEquals("LINESTRING (4.3512345 50.8512345, -0.1234567 51.5)", WktService.toWkt(result));
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		Geometry line = new Geometry(Geometry.LINE_STRING, 0, 5);
+		Coordinate[] coordinates = new Coordinate[1000];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(4.35 + i * 0.0001, 50.85 + Math.sin(i) * 0.001);
+		}
+		line.setCoordinates(coordinates);
+		byte[] twkb = TwkbService.toTwkb(line);
+		Assert.assertTrue(twkb.length * 4 < WkbService.toWkb(line).length);
+		Geometry result = TwkbService.toGeometry(twkb);
+		for (int i = 0; i < coordinates.length; i++) {
+			Assert.assertEquals(coordinates[i].getX(), result.getCoordinates()[i].getX(), 0.000005);
+			Assert.assertEquals(coordinates[i].getY(), result.getCoordinates()[i].getY(), 0.000005);
+		}
+	}
+
+	@Test
+	public void testOptionalHeaders() throws Exception {
+		// line string with size (5)
+		Geometry line = TwkbService.toGeometry(GeometryTestUtil.fromHex("020205" + LINE_TWKB.substring(4)));
+		Assert.assertEquals("LINESTRING (1.0 1.0, 5.0 5.0)", WktService.toWkt(line));
+		// multipoint with id list (3, 4)
+		Geometry multiPoint = TwkbService.toGeometry(GeometryTestUtil.fromHex("040402060802020808"));
+		Assert.assertEquals("MULTIPOINT ((1.0 1.0), (5.0 5.0))", WktService.toWkt(multiPoint));
+		// extended precision without z or m
+		line = TwkbService.toGeometry(GeometryTestUtil.fromHex("020800" + LINE_TWKB.substring(4)));
+		Assert.assertEquals("LINESTRING (1.0 1.0, 5.0 5.0)", WktService.toWkt(line));
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		assertInvalid(new byte[0]);
+		// geometry collection
+		assertInvalid(GeometryTestUtil.fromHex("0710"));
+		// z coordinates
+		assertInvalid(GeometryTestUtil.fromHex("020801" + LINE_TWKB.substring(4)));
+		// truncated
+		assertInvalid(GeometryTestUtil.fromHex(LINE_TWKB.substring(0, LINE_TWKB.length() - 2)));
+		// too many points
+		assertInvalid(GeometryTestUtil.fromHex("020010020208"));
+		// wrong size
+		assertInvalid(GeometryTestUtil.fromHex("020207" + LINE_TWKB.substring(4)));
+		// trailing bytes
+		assertInvalid(GeometryTestUtil.fromHex(LINE_TWKB + "00"));
+		// unterminated varint
+		assertInvalid(GeometryTestUtil.fromHex("0100FFFFFFFFFFFFFFFFFFFF01"));
+	}
+
+	private Geometry toGeometry(Geometry geometry, int precision) throws TwkbException {
+		return TwkbService.toGeometry(TwkbService.toTwkb(geometry, precision, false));
+	}
+
+	private void assertInvalid(byte[] twkb) {
+		try {
+			TwkbService.toGeometry(twkb);
+			Assert.fail();
+		} catch (TwkbException e) {
+			// We expect to get here.
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryTestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link WkbGeometry}.
+ *
+ * @author Jan De Moerloose
+ */
+public class WkbGeometryTest {
+
+	private static final String[] WKT = GeometryTestUtil.WKT;
+
+	private static final double DELTA = 1e-10;
+
+	@Test
+	public void testLazy() throws Exception {
+		ByteOrder[] orders = { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN };
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry("SRID=31300;" + wkt);
+			for (ByteOrder order : orders) {
+				for (boolean ewkb : new boolean[] { false, true }) {
+					WkbGeometry lazy = new WkbGeometry(WkbService.toWkb(geometry, order, ewkb));
+					Assert.assertEquals(geometry.getGeometryType(), lazy.getGeometryType());
+					Assert.assertEquals(ewkb ? 31300 : 0, lazy.getSrid());
+					Assert.assertEquals(GeometryService.getNumPoints(geometry), GeometryService.getNumPoints(lazy));
+					assertEquals(GeometryService.getBounds(geometry), GeometryService.getBounds(lazy));
+					Assert.assertFalse(lazy.isDecoded());
+					Assert.assertEquals(wkt, WktService.toWkt(lazy));
+					Assert.assertTrue(lazy.isDecoded());
+					Assert.assertEquals(GeometryService.getNumPoints(geometry), GeometryService.getNumPoints(lazy));
+					assertEquals(GeometryService.getBounds(geometry), GeometryService.getBounds(lazy));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBuffer() throws Exception {
+		Geometry first = WktService.toGeometry(WKT[2]);
+		Geometry second = WktService.toGeometry(WKT[5]);
+		ByteBuffer buffer = ByteBuffer.allocate(WkbService.getWkbSize(first, false)
+				+ WkbService.getWkbSize(second, false));
+		WkbService.toWkb(first, buffer, false);
+		int position = buffer.position();
+		WkbService.toWkb(second, buffer, false);
+		buffer.position(position);
+		WkbGeometry lazy = new WkbGeometry(buffer);
+		Assert.assertEquals(position, buffer.position());
+		Assert.assertEquals(Geometry.MULTI_POLYGON, lazy.getGeometryType());
+		assertEquals(new Bbox(10, 10, 30, 10), lazy.getBounds());
+		Assert.assertEquals(WKT[5], WktService.toWkt(lazy));
+	}
+
+	@Test
+	public void testCachedValues() throws Exception {
+		byte[] wkb = WkbService.toWkb(WktService.toGeometry(WKT[1]));
+		WkbGeometry lazy = new WkbGeometry(wkb);
+		Bbox bounds = GeometryService.getBounds(lazy);
+		bounds.setX(-100);
+		Assert.assertEquals(3, GeometryService.getNumPoints(lazy));
+		// the WKB is not walked over again, even though it has changed:
+		ByteBuffer.wrap(wkb).order(wkb[0] == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN)
+				.putDouble(wkb.length - 8, 100);
+		assertEquals(new Bbox(10, 10, 10, 10.5), GeometryService.getBounds(lazy));
+		Assert.assertEquals(3, GeometryService.getNumPoints(lazy));
+		Assert.assertFalse(lazy.isDecoded());
+
+		// after a change, the cached values are no longer used:
+		lazy = new WkbGeometry(WkbService.toWkb(WktService.toGeometry(WKT[1])));
+		Assert.assertEquals(3, GeometryService.getNumPoints(lazy));
+		lazy.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 1) });
+		Assert.assertEquals(2, GeometryService.getNumPoints(lazy));
+		assertEquals(new Bbox(0, 0, 1, 1), GeometryService.getBounds(lazy));
+	}
+
+	@Test
+	public void testSetter() throws Exception {
+		WkbGeometry lazy = new WkbGeometry(WkbService.toWkb(WktService.toGeometry(WKT[1])));
+		lazy.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 1) });
+		Assert.assertTrue(lazy.isDecoded());
+		Assert.assertEquals(2, GeometryService.getNumPoints(lazy));
+		assertEquals(new Bbox(0, 0, 1, 1), GeometryService.getBounds(lazy));
+
+		lazy = new WkbGeometry(WkbService.toWkb(WktService.toGeometry(WKT[1])));
+		lazy.setSrid(4326);
+		Assert.assertTrue(lazy.isDecoded());
+		Assert.assertEquals(WKT[1], WktService.toWkt(lazy));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		WkbGeometry lazy = new WkbGeometry(WkbService.toEwkb(WktService.toGeometry("SRID=4326;" + WKT[5])));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(lazy);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		WkbGeometry result = (WkbGeometry) in.readObject();
+		Assert.assertTrue(result.isDecoded());
+		Assert.assertEquals(4326, result.getSrid());
+		Assert.assertEquals(WKT[5], WktService.toWkt(result));
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		try {
+			new WkbGeometry(new byte[] { 1, 7, 0, 0, 0, 0, 0, 0, 0 });
+			Assert.fail();
+		} catch (WkbException e) {
+			// We expect to get here.
+		}
+		byte[] wkb = WkbService.toWkb(WktService.toGeometry(WKT[1]));
+		byte[] truncated = new byte[wkb.length - 1];
+		System.arraycopy(wkb, 0, truncated, 0, truncated.length);
+		WkbGeometry lazy = new WkbGeometry(truncated);
+		try {
+			lazy.getCoordinates();
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// We expect to get here.
+		}
+	}
+
+	private void assertEquals(Bbox expected, Bbox actual) {
+		if (expected == null) {
+			Assert.assertNull(actual);
+		} else {
+			Assert.assertEquals(expected.getX(), actual.getX(), DELTA);
+			Assert.assertEquals(expected.getY(), actual.getY(), DELTA);
+			Assert.assertEquals(expected.getMaxX(), actual.getMaxX(), DELTA);
+			Assert.assertEquals(expected.getMaxY(), actual.getMaxY(), DELTA);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.GeometryTestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link WkbService}.
+ *
+ * @author Jan De Moerloose
+ */
+public class WkbServiceTest {
+
+	private static final String[] WKT = GeometryTestUtil.WKT;
+
+	// as produced by PostGIS: ST_AsBinary('POINT(1 2)') and ST_AsEWKB('SRID=4326;POINT(1 2)')
+	private static final String POINT_WKB = "0101000000000000000000F03F0000000000000040";
+
+	private static final String POINT_EWKB = "0101000020E6100000000000000000F03F0000000000000040";
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		ByteOrder[] orders = { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN };
+		for (String wkt : WKT) {
+			Geometry geometry = WktService.toGeometry("SRID=31300;" + wkt);
+			for (ByteOrder order : orders) {
+				byte[] wkb = WkbService.toWkb(geometry, order, false);
+				Assert.assertEquals(WkbService.getWkbSize(geometry, false), wkb.length);
+				Geometry result = WkbService.toGeometry(wkb);
+				Assert.assertEquals(wkt, WktService.toWkt(result));
+				Assert.assertEquals(0, result.getSrid());
+
+				byte[] ewkb = WkbService.toWkb(geometry, order, true);
+				Assert.assertEquals(WkbService.getWkbSize(geometry, true), ewkb.length);
+				result = WkbService.toGeometry(ewkb);
+				Assert.assertEquals(WktService.toEwkt(geometry), WktService.toEwkt(result));
+				if (result.getGeometries() != null) {
+					Assert.assertEquals(31300, result.getGeometries()[0].getSrid());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPostGis() throws Exception {
+		Geometry point = WkbService.toGeometry(GeometryTestUtil.fromHex(POINT_WKB));
+		Assert.assertEquals(Geometry.POINT, point.getGeometryType());
+		Assert.assertEquals(new Coordinate(1, 2), point.getCoordinates()[0]);
+		Assert.assertEquals(POINT_WKB, GeometryTestUtil.toHex(WkbService.toWkb(point)));
+		point = WkbService.toGeometry(GeometryTestUtil.fromHex(POINT_EWKB));
+		Assert.assertEquals(4326, point.getSrid());
+		Assert.assertEquals(POINT_EWKB, GeometryTestUtil.toHex(WkbService.toEwkb(point)));
+	}
+
+	@Test
+	public void testLinearRing() throws Exception {
+		Geometry ring = new Geometry(Geometry.LINEAR_RING, 0, 0);
+		ring.setCoordinates(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(0, 1),
+				new Coordinate(0, 0) });
+		Geometry result = WkbService.toGeometry(WkbService.toWkb(ring));
+		Assert.assertEquals(Geometry.LINE_STRING, result.getGeometryType());
+		Assert.assertArrayEquals(ring.getCoordinates(), result.getCoordinates());
+	}
+
+	@Test
+	public void testMixedByteOrder() throws Exception {
+		// multipoint in big endian, with a little endian point and a big endian point
+		ByteBuffer buffer = ByteBuffer.allocate(51);
+		buffer.put((byte) 0).putInt(4).putInt(2);
+		buffer.put((byte) 1).order(ByteOrder.LITTLE_ENDIAN).putInt(1).putDouble(1).putDouble(2);
+		buffer.put((byte) 0).order(ByteOrder.BIG_ENDIAN).putInt(1).putDouble(3).putDouble(4);
+		Geometry geometry = WkbService.toGeometry(buffer.array());
+		Assert.assertEquals("MULTIPOINT ((1.0 2.0), (3.0 4.0))", WktService.toWkt(geometry));
+	}
+
+	@Test
+	public void testBuffer() throws Exception {
+		Geometry first = WktService.toGeometry(WKT[2]);
+		Geometry second = WktService.toGeometry(WKT[4]);
+		ByteBuffer buffer = ByteBuffer.allocate(WkbService.getWkbSize(first, false)
+				+ WkbService.getWkbSize(second, true));
+		WkbService.toWkb(first, buffer, false);
+		WkbService.toWkb(second, buffer, true);
+		Assert.assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		Assert.assertEquals(WKT[2], WktService.toWkt(WkbService.toGeometry(buffer)));
+		Assert.assertEquals(WKT[4], WktService.toWkt(WkbService.toGeometry(buffer)));
+		Assert.assertFalse(buffer.hasRemaining());
+		Assert.assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		byte[] wkb = WkbService.toWkb(WktService.toGeometry(WKT[1]));
+		assertInvalid(new byte[0]);
+		assertInvalid(new byte[] { 2, 1, 0, 0, 0 });
+		// truncated
+		byte[] truncated = new byte[wkb.length - 1];
+		System.arraycopy(wkb, 0, truncated, 0, truncated.length);
+		assertInvalid(truncated);
+		// geometry collection
+		assertInvalid(new byte[] { 1, 7, 0, 0, 0, 0, 0, 0, 0 });
+		// Z flag
+		wkb[4] = (byte) 0x80;
+		assertInvalid(wkb);
+		// multipoint containing a line string
+		ByteBuffer buffer = ByteBuffer.allocate(9 + wkb.length);
+		buffer.put((byte) 0).putInt(4).putInt(1).put(WkbService.toWkb(WktService.toGeometry(WKT[1])));
+		assertInvalid(buffer.array());
+	}
+
+	@Test(expected = WkbException.class)
+	public void testUnsupportedType() throws WkbException {
+		WkbService.toWkb(new Geometry("GeometryCollection", 0, 0));
+	}
+
+	private void assertInvalid(byte[] wkb) {
+		try {
+			WkbService.toGeometry(wkb);
+			Assert.fail();
+		} catch (WkbException e) {
+			// We expect to get here.
+		}
+	}
+}
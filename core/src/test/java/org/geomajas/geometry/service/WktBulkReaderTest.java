@@ -0,0 +1,148 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geomajas.geometry.Geometry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the {@link WktBulkReader}.
+ *
+ * @author Jan De Moerloose
+ */
+public class WktBulkReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testOrdered() throws Exception {
+		File file = write(1000);
+		WktBulkReader reader = new WktBulkReader();
+		reader.setChunkSize(100);
+		Handler handler = new Handler();
+		Assert.assertEquals(1000 - 1000 / 7, reader.read(file, handler));
+		Assert.assertEquals(getExpected(1000), handler.results);
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		File file = write(1000);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			WktBulkReader reader = new WktBulkReader(executor);
+			reader.setChunkSize(64);
+			reader.setOrdered(false);
+			Handler handler = new Handler();
+			Assert.assertEquals(1000 - 1000 / 7, reader.read(file, handler));
+			List<String> expected = getExpected(1000);
+			Collections.sort(expected);
+			Collections.sort(handler.results);
+			Assert.assertEquals(expected, handler.results);
+			// the executor can be used again
+			Assert.assertFalse(executor.isShutdown());
+			handler = new Handler();
+			reader.read(file, handler);
+			Assert.assertEquals(1000, handler.results.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testLongLines() throws Exception {
+		StringBuilder line = new StringBuilder("LINESTRING (0 0");
+		for (int i = 1; i < 1000; i++) {
+			line.append(", ").append(i).append(' ').append(i);
+		}
+		line.append(')');
+		File file = folder.newFile();
+		OutputStream out = new FileOutputStream(file);
+		// no line break at the end
+		out.write(("POINT (1 2)\r\n\r\n" + line + "\n   \n" + line).getBytes("UTF-8"));
+		out.close();
+		WktBulkReader reader = new WktBulkReader();
+		reader.setChunkSize(16);
+		Handler handler = new Handler();
+		Assert.assertEquals(3, reader.read(file, handler));
+		Assert.assertEquals(3, handler.results.size());
+		Assert.assertEquals("1: POINT (1.0 2.0)", handler.results.get(0));
+		Assert.assertTrue(handler.results.get(1).startsWith("3: LINESTRING (0.0 0.0, 1.0 1.0"));
+		Assert.assertTrue(handler.results.get(2).startsWith("5: LINESTRING (0.0 0.0, 1.0 1.0"));
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Handler handler = new Handler();
+		Assert.assertEquals(0, new WktBulkReader().read(folder.newFile(), handler));
+		Assert.assertTrue(handler.results.isEmpty());
+	}
+
+	/** Write a file with a point on every line, except for every seventh line, which is invalid. */
+	private File write(int numLines) throws Exception {
+		File file = folder.newFile();
+		OutputStream out = new FileOutputStream(file);
+		try {
+			for (int i = 1; i <= numLines; i++) {
+				String line = i % 7 == 0 ? "POINT (" + i : "POINT (" + i + " " + (i % 13) + ")";
+				out.write((line + "\n").getBytes("UTF-8"));
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private List<String> getExpected(int numLines) {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 1; i <= numLines; i++) {
+			expected.add(i % 7 == 0 ? i + ": error POINT (" + i : i + ": POINT (" + i + ".0 " + (i % 13) + ".0)");
+		}
+		return expected;
+	}
+
+	/**
+	 * Handler that records the results as strings.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Handler implements WktLineHandler {
+
+		private final List<String> results = new ArrayList<String>();
+
+		@Override
+		public void handleGeometry(long lineNumber, Geometry geometry) {
+			try {
+				results.add(lineNumber + ": " + WktService.toWkt(geometry));
+			} catch (WktException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void handleError(long lineNumber, String line, WktException exception) {
+			results.add(lineNumber + ": error " + line);
+		}
+	}
+}
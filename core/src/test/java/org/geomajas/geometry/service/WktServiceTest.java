@@ -11,6 +11,10 @@
 
 package org.geomajas.geometry.service;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Assert;
 
 import org.geomajas.geometry.Coordinate;
@@ -468,4 +472,110 @@ public class WktServiceTest {
 		Assert.assertEquals(5.0, geometry.getGeometries()[0].getGeometries()[1].getCoordinates()[2].getX());
 		Assert.assertEquals(6.0, geometry.getGeometries()[0].getGeometries()[1].getCoordinates()[2].getY());
 	}
-}
\ No newline at end of file
+
+	// ------------------------------------------------------------------------
+	// Parsing numbers and large geometries:
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testParseNumbers() throws WktException {
+		String[] values = { "0", "-0", "1.", ".5", "-12.375", "1e3", "1.5E-7", "2.5e+2", "0.30000000000000004",
+				"123456789.123456789", "1e22", "1e-30", "9007199254740993", "-1.7976931348623157E308", "NaN",
+				"-Infinity", "0x1p3", "4.9E-324" };
+		for (String value : values) {
+			Geometry geometry = WktService.toGeometry("POINT (" + value + " " + value + ")");
+			double expected = Double.parseDouble(value);
+			Assert.assertEquals(value, Double.doubleToLongBits(expected),
+					Double.doubleToLongBits(geometry.getCoordinates()[0].getX()));
+			Assert.assertEquals(value, Double.doubleToLongBits(expected),
+					Double.doubleToLongBits(geometry.getCoordinates()[0].getY()));
+		}
+		try {
+			WktService.toGeometry("POINT (1.2.3 4)");
+			Assert.fail();
+		} catch (WktException e) {
+			Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+		}
+	}
+
+	@Test
+	public void testParseTruncated() {
+		String[] wkts = { "POINT (1 2", "POINT", "MULTIPOINT ((1 2)", "POLYGON ((1 2, 3 4, 1 2),", "LINESTRING (" };
+		for (String wkt : wkts) {
+			try {
+				WktService.toGeometry(wkt);
+				Assert.fail(wkt);
+			} catch (WktException e) {
+				// We expect to get here.
+			}
+		}
+	}
+
+	@Test
+	public void testParseLarge() throws WktException {
+		StringBuilder builder = new StringBuilder("MULTIPOLYGON (");
+		for (int p = 0; p < 1000; p++) {
+			builder.append(p == 0 ? "((" : ", ((");
+			for (int i = 0; i < 100; i++) {
+				builder.append(i == 0 ? "" : ", ").append(p + i * 0.125).append(' ').append((double) -i);
+			}
+			builder.append("))");
+		}
+		builder.append(")");
+		Geometry geometry = WktService.toGeometry(builder.toString());
+		Assert.assertEquals(1000, geometry.getGeometries().length);
+		Coordinate last = geometry.getGeometries()[999].getGeometries()[0].getCoordinates()[99];
+		Assert.assertEquals(999 + 99 * 0.125, last.getX());
+		Assert.assertEquals(-99.0, last.getY());
+		Assert.assertEquals(builder.toString(), WktService.toWkt(geometry));
+	}
+
+	// ------------------------------------------------------------------------
+	// Streaming output:
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testToWktAppendable() throws WktException {
+		double[] values = { 0.0, -0.0, 1.0, -12.375, 0.001, 0.0005, 1234567.5, 1e7, 0.1 + 0.2, 1.0 / 3,
+				123456789.123456789, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -1.7976931348623157E308 };
+		for (int precision = -1; precision < 4; precision++) {
+			Geometry geometry = new Geometry(Geometry.LINE_STRING, 0, precision);
+			Coordinate[] coordinates = new Coordinate[values.length];
+			StringBuilder expected = new StringBuilder("LINESTRING (");
+			for (int i = 0; i < values.length; i++) {
+				coordinates[i] = new Coordinate(values[i], -values[i]);
+				expected.append(i > 0 ? ", " : "").append(values[i]).append(' ').append(-values[i]);
+			}
+			geometry.setCoordinates(coordinates);
+			StringBuilder builder = new StringBuilder();
+			WktService.toWkt(geometry, builder);
+			Assert.assertEquals(expected.append(')').toString(), builder.toString());
+			Assert.assertEquals(builder.toString(), WktService.toWkt(geometry));
+		}
+	}
+
+	@Test
+	public void testToWktPrecision() throws WktException {
+		Geometry geometry = new Geometry(Geometry.POINT, 0, 2);
+		geometry.setCoordinates(new Coordinate[] { new Coordinate(1.23456, -0.005) });
+		StringBuilder builder = new StringBuilder();
+		WktService.toWkt(geometry, builder, true);
+		Assert.assertEquals("POINT (1.23 0.0)", builder.toString());
+		geometry.setPrecision(-1);
+		builder.setLength(0);
+		WktService.toWkt(geometry, builder, true);
+		Assert.assertEquals("POINT (1.23456 -0.005)", builder.toString());
+	}
+
+	@Test
+	public void testToWktWriter() throws WktException {
+		List<Geometry> geometries = new ArrayList<Geometry>();
+		geometries.add(point);
+		geometries.add(multiPolygon);
+		geometries.add(new Geometry(Geometry.POLYGON, 0, 0));
+		StringWriter writer = new StringWriter();
+		WktService.toWkt(geometries, writer);
+		Assert.assertEquals(WktService.toWkt(point) + "\n" + WktService.toWkt(multiPolygon) + "\nPOLYGON EMPTY\n",
+				writer.toString());
+	}
+}
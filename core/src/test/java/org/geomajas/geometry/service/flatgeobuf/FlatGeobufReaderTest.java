@@ -0,0 +1,200 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the {@link FlatGeobufReader} and the {@link FlatGeobufWriter}.
+ *
+ * @author Jan De Moerloose
+ */
+public class FlatGeobufReaderTest {
+
+	private static final String[] WKT = { "POINT (1.5 2.5)", "LINESTRING (0 0, 10 10, 20 0)",
+			"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))",
+			"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 8, 8 8, 8 2, 2 2), (3 3, 3 4, 4 4, 3 3))",
+			"MULTIPOINT ((1 2), (3 4))", "MULTILINESTRING ((1 2, 3 4))", "MULTILINESTRING ((1 2, 3 4), (5 6, 7 8))",
+			"MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)), ((20 20, 30 20, 30 30, 20 20), "
+					+ "(22 21, 28 21, 28 27, 22 21)))", "POINT EMPTY", "POLYGON EMPTY" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		List<Geometry> geometries = new ArrayList<Geometry>();
+		for (String wkt : WKT) {
+			geometries.add(WktService.toGeometry(wkt));
+		}
+		geometries.add(null);
+		for (int nodeSize : new int[] { 0, 2, 16 }) {
+			File file = write(geometries, nodeSize);
+			FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+				FlatGeobufReader reader = new FlatGeobufReader(channel);
+				Assert.assertNull(reader.getGeometryType());
+				Assert.assertEquals(geometries.size(), reader.getFeatureCount());
+				Assert.assertEquals(nodeSize > 0, reader.hasIndex());
+				Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 30, 30), reader.getBounds(), 0.0));
+				List<String> expected = toWkt(geometries);
+				List<String> actual = toWkt(reader.getGeometries());
+				if (nodeSize == 0) {
+					Assert.assertEquals(expected, actual);
+				} else {
+					// sorted on the index
+					Assert.assertEquals(expected.size(), actual.size());
+					Assert.assertTrue(actual.containsAll(expected));
+				}
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	@Test
+	public void testHeader() throws Exception {
+		List<Geometry> geometries = new ArrayList<Geometry>();
+		for (int i = 0; i < 3; i++) {
+			Geometry geometry = WktService.toGeometry("LINESTRING (" + i + " 0, 1 " + i + ")");
+			geometry.setSrid(31370);
+			geometries.add(geometry);
+		}
+		File file = write(geometries, FlatGeobufWriter.DEFAULT_NODE_SIZE);
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		try {
+			FlatGeobufReader reader = new FlatGeobufReader(channel);
+			Assert.assertEquals(Geometry.LINE_STRING, reader.getGeometryType());
+			Assert.assertEquals(31370, reader.getSrid());
+			Assert.assertEquals(3, reader.getFeatureCount());
+			Assert.assertTrue(BboxService.equals(new Bbox(0, 0, 2, 2), reader.getBounds(), 0.0));
+			for (Geometry geometry : reader.getGeometries()) {
+				Assert.assertEquals(31370, geometry.getSrid());
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testQuery() throws Exception {
+		List<Geometry> geometries = new ArrayList<Geometry>();
+		for (int i = 0; i < 1000; i++) {
+			double x = (i * 7919) % 1000;
+			double y = (i * 104729) % 997;
+			geometries.add(WktService.toGeometry("LINESTRING (" + x + " " + y + ", " + (x + i % 10) + " "
+					+ (y + i % 7) + ")"));
+		}
+		Bbox[] queries = { new Bbox(0, 0, 1000, 1000), new Bbox(100, 100, 50, 50), new Bbox(500, 0, 1, 1000),
+				new Bbox(-10, -10, 5, 5), new Bbox(999, 999, 100, 100) };
+		for (int nodeSize : new int[] { 0, 2, 16, 1000 }) {
+			File file = write(geometries, nodeSize);
+			FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+				FlatGeobufReader reader = new FlatGeobufReader(channel);
+				for (Bbox query : queries) {
+					List<String> expected = new ArrayList<String>();
+					for (Geometry geometry : geometries) {
+						if (BboxService.intersects(query, GeometryService.getBounds(geometry))) {
+							expected.add(WktService.toWkt(geometry));
+						}
+					}
+					List<String> actual = toWkt(reader.query(query));
+					Assert.assertEquals(expected.size(), actual.size());
+					Assert.assertTrue(actual.containsAll(expected));
+				}
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		File file = write(new ArrayList<Geometry>(), FlatGeobufWriter.DEFAULT_NODE_SIZE);
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		try {
+			FlatGeobufReader reader = new FlatGeobufReader(channel);
+			Assert.assertEquals(0, reader.getFeatureCount());
+			Assert.assertFalse(reader.hasIndex());
+			Assert.assertNull(reader.getBounds());
+			Assert.assertEquals(0, reader.query(new Bbox(0, 0, 1, 1)).size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		File file = folder.newFile("invalid.fgb");
+		OutputStream out = new FileOutputStream(file);
+		out.write("POINT (1 2)".getBytes("UTF-8"));
+		out.close();
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		try {
+			new FlatGeobufReader(channel);
+			Assert.fail();
+		} catch (FlatGeobufException e) {
+			// We expect to get here.
+		} finally {
+			channel.close();
+		}
+		try {
+			new FlatGeobufWriter(new ByteArrayOutputStream(), 1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+	}
+
+	private File write(List<Geometry> geometries, int nodeSize) throws Exception {
+		File file = folder.newFile();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			FlatGeobufWriter writer = new FlatGeobufWriter(out, nodeSize);
+			for (Geometry geometry : geometries) {
+				writer.write(geometry);
+			}
+			writer.finish();
+			Assert.assertEquals(geometries.size(), writer.getCount());
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private List<String> toWkt(List<Geometry> geometries) throws Exception {
+		List<String> result = new ArrayList<String>();
+		for (Geometry geometry : geometries) {
+			result.add(geometry == null ? null : WktService.toWkt(geometry));
+		}
+		return result;
+	}
+}
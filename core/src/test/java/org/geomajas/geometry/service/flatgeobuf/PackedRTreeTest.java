@@ -0,0 +1,93 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.flatgeobuf;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PackedRTree}.
+ *
+ * @author Jan De Moerloose
+ */
+public class PackedRTreeTest {
+
+	@Test
+	public void testLevelBounds() {
+		long[][] levels = PackedRTree.getLevelBounds(100, 16);
+		Assert.assertEquals(3, levels.length);
+		// 100 leaves, 7 nodes and the root
+		Assert.assertArrayEquals(new long[] { 8, 108 }, levels[0]);
+		Assert.assertArrayEquals(new long[] { 1, 8 }, levels[1]);
+		Assert.assertArrayEquals(new long[] { 0, 1 }, levels[2]);
+		Assert.assertEquals(108 * PackedRTree.NODE_SIZE, PackedRTree.getSize(100, 16));
+		// a single feature still has a root
+		Assert.assertEquals(2 * PackedRTree.NODE_SIZE, PackedRTree.getSize(1, 16));
+	}
+
+	@Test
+	public void testHilbert() {
+		Assert.assertEquals(0, PackedRTree.hilbert(0, 0));
+		Assert.assertEquals(0xFFFFFFFFL, PackedRTree.hilbert(0xFFFF, 0));
+		// every square of 2^k by 2^k in the corner is a range on the curve, in which each step is to a neighbour
+		int size = 64;
+		int[] x = new int[size * size];
+		int[] y = new int[size * size];
+		boolean[] found = new boolean[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				int d = (int) PackedRTree.hilbert(i, j);
+				Assert.assertTrue(d < size * size);
+				Assert.assertFalse(found[d]);
+				found[d] = true;
+				x[d] = i;
+				y[d] = j;
+			}
+		}
+		for (int d = 1; d < size * size; d++) {
+			Assert.assertEquals(1, Math.abs(x[d] - x[d - 1]) + Math.abs(y[d] - y[d - 1]));
+		}
+	}
+
+	@Test
+	public void testBuild() {
+		double[] bounds = { 0, 0, 1, 1, 2, 2, 3, 3, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 4, 0, 5, 1 };
+		long[] offsets = { 0, 10, 20, 30 };
+		ByteBuffer tree = PackedRTree.build(bounds, offsets, 4, 2);
+		// root, 2 nodes, 4 leaves
+		Assert.assertEquals(7 * PackedRTree.NODE_SIZE, tree.limit());
+		assertNode(tree, 0, 0, 0, 5, 3, 1);
+		assertNode(tree, 1, 0, 0, 3, 3, 3);
+		assertNode(tree, 2, 4, 0, 5, 1, 5);
+		assertNode(tree, 6, 4, 0, 5, 1, 30);
+		Assert.assertTrue(Double.isNaN(tree.getDouble(5 * PackedRTree.NODE_SIZE)));
+	}
+
+	@Test
+	public void testSort() {
+		double[] bounds = { 9, 0, 10, 1, 0, 0, 1, 1, 0, 9, 1, 10, 9, 9, 10, 10 };
+		// the curve goes from the lower left corner via the upper corners to the lower right corner, backwards
+		Assert.assertArrayEquals(new int[] { 0, 3, 2, 1 }, PackedRTree.sort(bounds, 4, new double[] { 0, 0, 10, 10 }));
+	}
+
+	private void assertNode(ByteBuffer tree, int index, double minX, double minY, double maxX, double maxY,
+			long offset) {
+		int position = index * PackedRTree.NODE_SIZE;
+		Assert.assertEquals(minX, tree.getDouble(position), 0.0);
+		Assert.assertEquals(minY, tree.getDouble(position + 8), 0.0);
+		Assert.assertEquals(maxX, tree.getDouble(position + 16), 0.0);
+		Assert.assertEquals(maxY, tree.getDouble(position + 24), 0.0);
+		Assert.assertEquals(offset, tree.getLong(position + 32));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.mvt;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link MvtService}, with the examples of the vector tile specification.
+ *
+ * @author Jan De Moerloose
+ */
+public class MvtServiceTest {
+
+	@Test
+	public void testPoint() throws Exception {
+		assertCommands("POINT (25 17)", 9, 50, 34);
+		assertCommands("MULTIPOINT ((5 7), (3 2))", 17, 10, 14, 3, 9);
+		assertCommands("POINT EMPTY");
+	}
+
+	@Test
+	public void testLineString() throws Exception {
+		assertCommands("LINESTRING (2 2, 2 10, 10 10)", 9, 4, 4, 18, 0, 16, 16, 0);
+		assertCommands("MULTILINESTRING ((2 2, 2 10, 10 10), (1 1, 3 5))", 9, 4, 4, 18, 0, 16, 16, 0, 9, 17, 17, 10,
+				4, 8);
+		// repeated points are removed
+		assertCommands("LINESTRING (2 2, 2 2.1, 2 10, 10 10, 10 10)", 9, 4, 4, 18, 0, 16, 16, 0);
+		// a line that becomes a point is left out
+		assertCommands("MULTILINESTRING ((1 1, 1.2 1.2), (2 2, 2 10, 10 10))", 9, 4, 4, 18, 0, 16, 16, 0);
+	}
+
+	@Test
+	public void testPolygon() throws Exception {
+		assertCommands("POLYGON ((3 6, 8 12, 20 34, 3 6))", 9, 6, 12, 18, 10, 12, 24, 44, 15);
+		assertCommands("MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)), ((11 11, 20 11, 20 20, 11 20, 11 11), "
+				+ "(13 13, 13 17, 17 17, 17 13, 13 13)))", 9, 0, 0, 26, 20, 0, 0, 20, 19, 0, 15, 9, 22, 2, 26, 18, 0,
+				0, 18, 17, 0, 15, 9, 4, 13, 26, 0, 8, 8, 0, 0, 7, 15);
+	}
+
+	@Test
+	public void testWinding() throws Exception {
+		// exterior clockwise and interior counterclockwise in tile space, where the y-axis points down
+		assertCommands("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 8, 8 8, 8 2, 2 2))", 9, 0, 0, 26, 20, 0, 0, 20,
+				19, 0, 15, 9, 4, 15, 26, 0, 12, 12, 0, 0, 11, 15);
+		// both rings are reversed
+		assertCommands("POLYGON ((0 10, 10 10, 10 0, 0 0, 0 10), (2 2, 8 2, 8 8, 2 8, 2 2))", 9, 0, 0, 26, 20, 0, 0, 20,
+				19, 0, 15, 9, 4, 3, 26, 12, 0, 0, 11, 11, 0, 15);
+		// degenerate polygons and holes are left out
+		assertCommands("POLYGON ((0 0, 0.1 0, 0.1 0.1, 0 0))");
+		assertCommands("POLYGON ((3 6, 8 12, 20 34, 3 6), (4 7, 4.1 7, 4.1 7.1, 4 7))", 9, 6, 12, 18, 10, 12, 24, 44,
+				15);
+	}
+
+	@Test
+	public void testTileMatrix() throws Exception {
+		Matrix matrix = MvtService.getTileMatrix(new Bbox(100, 200, 50, 25), 4096);
+		Geometry line = WktService.toGeometry("LINESTRING (100 225, 150 200)");
+		// from the top left to the bottom right corner
+		Assert.assertArrayEquals(new int[] { 9, 0, 0, 10, 8192, 8192 }, MvtService.toCommands(line, matrix));
+	}
+
+	@Test
+	public void testGeomType() throws Exception {
+		Assert.assertEquals(MvtService.GEOM_TYPE_POINT, MvtService.getGeomType(new Geometry(Geometry.MULTI_POINT, 0,
+				0)));
+		Assert.assertEquals(MvtService.GEOM_TYPE_LINE_STRING, MvtService.getGeomType(new Geometry(
+				Geometry.LINEAR_RING, 0, 0)));
+		Assert.assertEquals(MvtService.GEOM_TYPE_POLYGON, MvtService.getGeomType(new Geometry(Geometry.MULTI_POLYGON,
+				0, 0)));
+		Assert.assertEquals(MvtService.GEOM_TYPE_UNKNOWN, MvtService.getGeomType(new Geometry("GeometryCollection",
+				0, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedType() {
+		MvtService.toCommands(new Geometry("GeometryCollection", 0, 0), Matrix.IDENTITY);
+	}
+
+	private void assertCommands(String wkt, int... expected) throws Exception {
+		Assert.assertArrayEquals(expected, MvtService.toCommands(WktService.toGeometry(wkt), Matrix.IDENTITY));
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.service.mvt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Matrix;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link MvtTileBuilder}. The tile is decoded with a minimal protocol buffers reader.
+ *
+ * @author Jan De Moerloose
+ */
+public class MvtTileBuilderTest {
+
+	@Test
+	public void testTile() throws Exception {
+		MvtTileBuilder builder = new MvtTileBuilder(Matrix.IDENTITY, 256);
+		Map<String, Object> properties = new LinkedHashMap<String, Object>();
+		properties.put("name", "main street");
+		properties.put("lanes", 2);
+		properties.put("oneway", true);
+		Assert.assertTrue(builder.addFeature("roads", 7, WktService.toGeometry("LINESTRING (2 2, 2 10, 10 10)"),
+				properties));
+		properties.put("name", "side street");
+		properties.put("lanes", 2L);
+		properties.put("width", -3.5);
+		properties.put("remark", null);
+		Assert.assertTrue(builder.addFeature("roads", WktService.toGeometry("LINESTRING (1 1, 3 5)"), properties));
+		Assert.assertTrue(builder.addFeature("pois", WktService.toGeometry("POINT (25 17)"), null));
+		Assert.assertFalse(builder.addFeature("empty", WktService.toGeometry("LINESTRING (1 1, 1.2 1.2)"), null));
+
+		List<Message> layers = new Message(builder.toByteArray()).getMessages(3);
+		Assert.assertEquals(2, layers.size());
+
+		Message roads = layers.get(0);
+		Assert.assertEquals("roads", roads.getString(1));
+		Assert.assertEquals(2L, roads.getVarint(15));
+		Assert.assertEquals(256L, roads.getVarint(5));
+		Assert.assertEquals("[name, lanes, oneway, width]", roads.getStrings(3).toString());
+		List<Message> values = roads.getMessages(4);
+		Assert.assertEquals(5, values.size());
+		Assert.assertEquals("main street", values.get(0).getString(1));
+		Assert.assertEquals(2L, values.get(1).getVarint(5));
+		Assert.assertEquals(1L, values.get(2).getVarint(7));
+		Assert.assertEquals("side street", values.get(3).getString(1));
+		Assert.assertEquals(-3.5, Double.longBitsToDouble(values.get(4).getFixed64(3)), 0.0);
+
+		List<Message> features = roads.getMessages(2);
+		Assert.assertEquals(2, features.size());
+		Assert.assertEquals(7L, features.get(0).getVarint(1));
+		Assert.assertEquals(MvtService.GEOM_TYPE_LINE_STRING, features.get(0).getVarint(3));
+		Assert.assertEquals("[0, 0, 1, 1, 2, 2]", features.get(0).getPacked(2).toString());
+		Assert.assertEquals("[9, 4, 4, 18, 0, 16, 16, 0]", features.get(0).getPacked(4).toString());
+		Assert.assertEquals(-1L, features.get(1).getVarint(1));
+		Assert.assertEquals("[0, 3, 1, 1, 2, 2, 3, 4]", features.get(1).getPacked(2).toString());
+		Assert.assertEquals("[9, 2, 2, 10, 4, 8]", features.get(1).getPacked(4).toString());
+
+		Message pois = layers.get(1);
+		Assert.assertEquals("pois", pois.getString(1));
+		Assert.assertEquals(0, pois.getStrings(3).size());
+		Assert.assertEquals("[]", pois.getMessages(2).get(0).getPacked(2).toString());
+		Assert.assertEquals("[9, 50, 34]", pois.getMessages(2).get(0).getPacked(4).toString());
+	}
+
+	@Test
+	public void testTileBounds() throws Exception {
+		MvtTileBuilder builder = new MvtTileBuilder(new Bbox(0, 0, 100, 100));
+		builder.addFeature("layer", WktService.toGeometry("POINT (50 25)"), null);
+		Message layer = new Message(builder.toByteArray()).getMessages(3).get(0);
+		Assert.assertEquals(4096L, layer.getVarint(5));
+		Assert.assertEquals("[9, 4096, 6144]", layer.getMessages(2).get(0).getPacked(4).toString());
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		Assert.assertEquals(0, new MvtTileBuilder(new Bbox(0, 0, 1, 1)).toByteArray().length);
+	}
+
+	// ------------------------------------------------------------------------
+	// Private classes:
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Decoded message, with the raw values of all fields.
+	 *
+	 * @author Jan De Moerloose
+	 */
+	private static final class Message {
+
+		private final Map<Integer, List<Object>> fields = new LinkedHashMap<Integer, List<Object>>();
+
+		private final byte[] bytes;
+
+		private int position;
+
+		private Message(byte[] bytes) {
+			this(bytes, true);
+		}
+
+		private Message(byte[] bytes, boolean parse) {
+			this.bytes = bytes;
+			while (parse && position < bytes.length) {
+				long key = readVarint();
+				int field = (int) (key >>> 3);
+				Object value;
+				switch ((int) (key & 7)) {
+					case 0:
+						value = readVarint();
+						break;
+					case 1:
+						long bits = 0;
+						for (int i = 0; i < 8; i++) {
+							bits |= (bytes[position++] & 0xFFL) << (8 * i);
+						}
+						value = bits;
+						break;
+					case 2:
+						int length = (int) readVarint();
+						byte[] data = new byte[length];
+						System.arraycopy(bytes, position, data, 0, length);
+						position += length;
+						value = data;
+						break;
+					default:
+						throw new IllegalStateException("Unexpected wire type " + (key & 7));
+				}
+				if (!fields.containsKey(field)) {
+					fields.put(field, new ArrayList<Object>());
+				}
+				fields.get(field).add(value);
+			}
+		}
+
+		private long readVarint() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[position++];
+				value |= (b & 0x7FL) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		private List<Object> get(int field) {
+			List<Object> values = fields.get(field);
+			return values == null ? new ArrayList<Object>() : values;
+		}
+
+		private long getVarint(int field) {
+			return get(field).isEmpty() ? -1 : (Long) get(field).get(0);
+		}
+
+		private long getFixed64(int field) {
+			return (Long) get(field).get(0);
+		}
+
+		private String getString(int field) throws Exception {
+			return new String((byte[]) get(field).get(0), "UTF-8");
+		}
+
+		private List<String> getStrings(int field) throws Exception {
+			List<String> result = new ArrayList<String>();
+			for (Object value : get(field)) {
+				result.add(new String((byte[]) value, "UTF-8"));
+			}
+			return result;
+		}
+
+		private List<Message> getMessages(int field) {
+			List<Message> result = new ArrayList<Message>();
+			for (Object value : get(field)) {
+				result.add(new Message((byte[]) value));
+			}
+			return result;
+		}
+
+		private List<Long> getPacked(int field) {
+			List<Long> result = new ArrayList<Long>();
+			if (!get(field).isEmpty()) {
+				Message packed = new Message((byte[]) get(field).get(0), false);
+				while (packed.position < packed.bytes.length) {
+					result.add(packed.readVarint());
+				}
+			}
+			return result;
+		}
+	}
+}
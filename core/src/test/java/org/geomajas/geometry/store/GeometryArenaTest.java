@@ -0,0 +1,134 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.service.WktException;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GeometryArena}.
+ *
+ * @author Jan De Moerloose
+ */
+public class GeometryArenaTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String[] WKT = { "POINT (1 2)", "LINESTRING (0 0, 10 0, 10 10)",
+			"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))",
+			"MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)), ((20 20, 30 20, 30 30, 20 20)))",
+			"MULTILINESTRING ((0 0, 1 1), (2 2, 3 3, 4 4))", "MULTIPOINT ((1 1), (2 2))", "POINT EMPTY" };
+
+	@Test
+	public void testParseIntoArena() throws WktException {
+		// start small, so the arrays have to grow:
+		GeometryArena arena = new GeometryArena(1, 1);
+		for (String wkt : WKT) {
+			WktService.toGeometry(wkt, arena);
+		}
+		Assert.assertEquals(WKT.length, arena.size());
+		for (int i = 0; i < WKT.length; i++) {
+			Geometry expected = WktService.toGeometry(WKT[i]);
+			Assert.assertEquals(WktService.toWkt(expected), WktService.toWkt(arena.toGeometry(i)));
+			Assert.assertEquals(expected.getGeometryType(), arena.getGeometryType(i));
+			Assert.assertEquals(GeometryService.getNumPoints(expected), arena.getNumPoints(i));
+			Bbox bounds = GeometryService.getBounds(expected);
+			if (bounds == null) {
+				Assert.assertNull(arena.getBounds(i));
+			} else {
+				Assert.assertTrue(BboxService.equals(bounds, arena.getBounds(i), DELTA));
+			}
+		}
+	}
+
+	@Test
+	public void testEwkt() throws WktException {
+		GeometryArena arena = new GeometryArena();
+		WktService.toGeometry("SRID=4326;MULTIPOINT ((1 1), (2 2))", arena);
+		Assert.assertEquals(4326, arena.getSrid(0));
+		Assert.assertEquals(4326, arena.toGeometry(0).getGeometries()[1].getSrid());
+	}
+
+	@Test
+	public void testCoordinateSequence() throws WktException {
+		GeometryArena arena = new GeometryArena();
+		WktService.toGeometry(WKT[0], arena);
+		WktService.toGeometry(WKT[1], arena);
+		Assert.assertEquals(20.0, GeometryService.getLength(arena.getCoordinateSequence(1)), DELTA);
+		arena.getCoordinateSequence(1).setX(0, 5);
+		Assert.assertEquals(5.0, arena.toGeometry(1).getCoordinates()[0].getX(), DELTA);
+	}
+
+	@Test
+	public void testClear() throws WktException {
+		GeometryArena arena = new GeometryArena();
+		WktService.toGeometry(WKT[2], arena);
+		arena.clear();
+		Assert.assertEquals(0, arena.size());
+		WktService.toGeometry(WKT[0], arena);
+		Assert.assertEquals(Geometry.POINT, arena.getGeometryType(0));
+		Assert.assertEquals(1, arena.getNumPoints(0));
+	}
+
+	@Test
+	public void testAbortAfterInvalidWkt() throws WktException {
+		GeometryArena arena = new GeometryArena();
+		WktService.toGeometry(WKT[0], arena);
+		try {
+			WktService.toGeometry("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2", arena);
+			Assert.fail("invalid WKT should not be parsed");
+		} catch (WktException e) {
+			// expected
+		}
+		WktService.toGeometry(WKT[1], arena);
+		Assert.assertEquals(2, arena.size());
+		Assert.assertEquals(WktService.toWkt(WktService.toGeometry(WKT[0])), WktService.toWkt(arena.toGeometry(0)));
+		Assert.assertEquals(WktService.toWkt(WktService.toGeometry(WKT[1])), WktService.toWkt(arena.toGeometry(1)));
+		Assert.assertEquals(3, arena.getNumPoints(1));
+	}
+
+	@Test
+	public void testAbort() throws WktException {
+		GeometryArena arena = new GeometryArena();
+		arena.abort();
+		arena.startGeometry(Geometry.MULTI_POINT, 0, 0);
+		arena.startGeometry(Geometry.POINT, 0, 0);
+		arena.addCoordinate(1, 2);
+		arena.abort();
+		Assert.assertEquals(0, arena.size());
+		arena.startGeometry(Geometry.POINT, 0, 0);
+		arena.addCoordinate(3, 4);
+		arena.endGeometry();
+		Assert.assertEquals(1, arena.size());
+		Assert.assertEquals("POINT (3.0 4.0)", WktService.toWkt(arena.toGeometry(0)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMixedContent() {
+		GeometryArena arena = new GeometryArena();
+		arena.startGeometry(Geometry.POLYGON, 0, 0);
+		arena.startGeometry(Geometry.LINEAR_RING, 0, 0);
+		arena.endGeometry();
+		arena.addCoordinate(1, 2);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidHandle() {
+		new GeometryArena().toGeometry(0);
+	}
+}
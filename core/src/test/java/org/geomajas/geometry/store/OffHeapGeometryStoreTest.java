@@ -0,0 +1,113 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.CoordinateSequence;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.BboxService;
+import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.service.WktException;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link OffHeapGeometryStore} and its {@link OffHeapGeometry} views.
+ *
+ * @author Jan De Moerloose
+ */
+public class OffHeapGeometryStoreTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String[] WKT = { "POINT (1 2)", "LINESTRING (0 0, 10 0, 10 10)",
+			"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))",
+			"MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0)), ((20 20, 30 20, 30 30, 20 20)))",
+			"MULTILINESTRING ((0 0, 1 1), (2 2, 3 3, 4 4))", "MULTIPOINT ((1 1), (2 2))", "POINT EMPTY" };
+
+	private OffHeapGeometryStore createStore(int segmentSize) throws WktException {
+		OffHeapGeometryStore store = new OffHeapGeometryStore(segmentSize);
+		for (String wkt : WKT) {
+			store.add(WktService.toGeometry(wkt));
+		}
+		return store;
+	}
+
+	@Test
+	public void testRoundTrip() throws WktException {
+		// small segments, so that several segments and oversized records are used:
+		OffHeapGeometryStore store = createStore(128);
+		Assert.assertEquals(WKT.length, store.size());
+		for (int i = 0; i < WKT.length; i++) {
+			Assert.assertEquals(WktService.toWkt(WktService.toGeometry(WKT[i])), WktService.toWkt(store.toGeometry(i)));
+		}
+	}
+
+	@Test
+	public void testView() throws WktException {
+		OffHeapGeometryStore store = createStore(OffHeapGeometryStore.DEFAULT_SEGMENT_SIZE);
+		OffHeapGeometry view = store.get(2);
+		Geometry polygon = WktService.toGeometry(WKT[2]);
+		Assert.assertEquals(Geometry.POLYGON, view.getGeometryType());
+		Assert.assertEquals(1, view.getNumParts());
+		Assert.assertEquals(2, view.getNumRings());
+		Assert.assertEquals(10, view.getNumPoints());
+		Assert.assertEquals(10.0, view.getX(1), DELTA);
+		Assert.assertTrue(BboxService.equals(GeometryService.getBounds(polygon), view.getBounds(), DELTA));
+
+		// the existing services work on the rings:
+		CoordinateSequence shell = view.getCoordinateSequence(0);
+		Assert.assertEquals(100.0, GeometryService.getArea(shell), DELTA);
+		Assert.assertEquals(40.0, GeometryService.getLength(shell), DELTA);
+		Assert.assertEquals(new Coordinate(5, 5), GeometryService.getCentroid(shell));
+
+		// reuse the view:
+		Assert.assertSame(view, store.get(6, view));
+		Assert.assertTrue(view.isEmpty());
+		Assert.assertNull(view.getBounds());
+		Assert.assertEquals(6, view.getId());
+	}
+
+	@Test
+	public void testWriteThrough() throws WktException {
+		OffHeapGeometryStore store = createStore(OffHeapGeometryStore.DEFAULT_SEGMENT_SIZE);
+		CoordinateSequence line = store.get(1).getCoordinateSequence();
+		line.setX(0, -5);
+		Assert.assertEquals(-5.0, store.toGeometry(1).getCoordinates()[0].getX(), DELTA);
+	}
+
+	@Test
+	public void testWriteAndReopen() throws WktException, IOException {
+		OffHeapGeometryStore store = createStore(256);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		store.writeTo(Channels.newChannel(out));
+		OffHeapGeometryStore reopened = new OffHeapGeometryStore(ByteBuffer.wrap(out.toByteArray()));
+		Assert.assertEquals(store.size(), reopened.size());
+		for (int i = 0; i < WKT.length; i++) {
+			Assert.assertEquals(WktService.toWkt(store.toGeometry(i)), WktService.toWkt(reopened.toGeometry(i)));
+		}
+		// appending is still possible:
+		Assert.assertEquals(WKT.length, reopened.add(WktService.toGeometry(WKT[0])));
+		Assert.assertEquals(WktService.toWkt(store.toGeometry(0)), WktService.toWkt(reopened.toGeometry(WKT.length)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidId() throws WktException {
+		createStore(OffHeapGeometryStore.DEFAULT_SEGMENT_SIZE).get(WKT.length);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2015 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the Apache
+ * License, Version 2.0. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.geometry.store;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.WktException;
+import org.geomajas.geometry.service.WktService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link VertexPool}.
+ *
+ * @author Jan De Moerloose
+ */
+public class VertexPoolTest {
+
+	private static final String LEFT = "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))";
+
+	private static final String RIGHT = "POLYGON ((10 0, 20 0, 20 10, 10 10, 10 0))";
+
+	@Test
+	public void testSharedVertices() throws WktException {
+		VertexPool pool = new VertexPool();
+		PooledGeometry left = pool.add(WktService.toGeometry(LEFT));
+		PooledGeometry right = pool.add(WktService.toGeometry(RIGHT));
+		Assert.assertEquals(6, pool.size());
+
+		// the closing vertex refers to the same id as the first
+		int[] leftRing = left.getGeometries()[0].getVertices();
+		int[] rightRing = right.getGeometries()[0].getVertices();
+		Assert.assertEquals(leftRing[0], leftRing[4]);
+
+		// the shared edge (10 0) - (10 10) has the same ids in both polygons
+		Assert.assertEquals(leftRing[1], rightRing[0]);
+		Assert.assertEquals(leftRing[2], rightRing[3]);
+		Assert.assertEquals(2, pool.getReferenceCount(leftRing[2]));
+		// (10 0) is also the closing vertex of the right polygon
+		Assert.assertEquals(3, pool.getReferenceCount(leftRing[1]));
+		Assert.assertEquals(1, pool.getReferenceCount(leftRing[3]));
+		Assert.assertEquals(2, pool.getReferenceCount(leftRing[0]));
+	}
+
+	@Test
+	public void testToGeometry() throws WktException {
+		VertexPool pool = new VertexPool(1);
+		String[] wkts = { LEFT, RIGHT, "MULTIPOINT ((10 10), (1 2))", "LINESTRING (0 0, 20 10)", "POINT EMPTY" };
+		PooledGeometry[] pooled = new PooledGeometry[wkts.length];
+		for (int i = 0; i < wkts.length; i++) {
+			pooled[i] = pool.add(WktService.toGeometry(wkts[i]));
+		}
+		for (int i = 0; i < wkts.length; i++) {
+			Geometry expected = WktService.toGeometry(wkts[i]);
+			Geometry geometry = pool.toGeometry(pooled[i]);
+			Assert.assertEquals(WktService.toWkt(expected), WktService.toWkt(geometry));
+			Assert.assertEquals(expected.getGeometryType(), geometry.getGeometryType());
+		}
+		Assert.assertEquals(7, pool.size());
+
+		// materialized coordinates are independent of the pool
+		pool.toGeometry(pooled[0]).getGeometries()[0].getCoordinates()[1].setX(99);
+		Assert.assertEquals(10.0, pool.getX(pooled[0].getGeometries()[0].getVertices()[1]), 0.0);
+	}
+
+	@Test
+	public void testAddVertex() {
+		VertexPool pool = new VertexPool();
+		Coordinate coordinate = new Coordinate(1, 2);
+		Assert.assertEquals(-1, pool.indexOf(coordinate));
+		int id = pool.add(coordinate);
+		Assert.assertEquals(id, pool.add(1, 2));
+		Assert.assertEquals(id, pool.indexOf(new Coordinate(1, 2)));
+		coordinate.setX(5);
+		Assert.assertEquals(1.0, pool.getX(id), 0.0);
+		Assert.assertEquals(2.0, pool.getCoordinate(id).getY(), 0.0);
+		Assert.assertEquals(2, pool.getReferenceCount(id));
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals(i + 1, pool.add(i, -i));
+		}
+		Assert.assertEquals(1001, pool.size());
+		Assert.assertEquals(500, pool.indexOf(new Coordinate(499, -499)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidId() {
+		new VertexPool().getX(0);
+	}
+}
@@ -15,6 +15,8 @@ import org.geomajas.annotation.Api;
 import org.geomajas.geometry.Bbox;
 import org.geomajas.geometry.Coordinate;
 import org.geomajas.geometry.Geometry;
+import org.geomajas.geometry.service.GeometryBuilder;
+import org.geomajas.geometry.service.GeometryHandler;
 import org.geomajas.geometry.service.GeometryService;
 
 import com.vividsolutions.jts.geom.Envelope;
@@ -142,46 +144,35 @@ public final class GeometryConverterService {
 	 * @throws JtsConversionException conversion failed
 	 */
 	public static Geometry fromJts(com.vividsolutions.jts.geom.Geometry geometry) throws JtsConversionException {
+		GeometryBuilder builder = new GeometryBuilder();
+		fromJts(geometry, builder);
+		return builder.getGeometry();
+	}
+
+	/**
+	 * Convert a JTS geometry and report the result to a geometry handler. This allows the geometry to be written into
+	 * another representation than {@link Geometry}, such as a {@link org.geomajas.geometry.store.GeometryArena}. When
+	 * the conversion fails, the partial geometry is discarded through {@link GeometryHandler#abort()}.
+	 *
+	 * @param geometry JTS geometry
+	 * @param handler the handler that receives the geometry
+	 * @throws JtsConversionException conversion failed
+	 * @since 1.4.0
+	 */
+	public static void fromJts(com.vividsolutions.jts.geom.Geometry geometry, GeometryHandler handler)
+			throws JtsConversionException {
 		if (geometry == null) {
 			throw new  JtsConversionException("Cannot convert null argument");
 		}
-		int srid = geometry.getSRID();
-		int precision = -1;
-		PrecisionModel precisionmodel = geometry.getPrecisionModel();
-		if (!precisionmodel.isFloating()) {
-			precision = (int) Math.log10(precisionmodel.getScale());
-		}
-		String geometryType = getGeometryType(geometry);
-		Geometry dto = new Geometry(geometryType, srid, precision);
-		if (geometry.isEmpty()) {
-			// nothing to do
-		} else if (geometry instanceof Point) {
-			dto.setCoordinates(convertCoordinates(geometry));
-		} else if (geometry instanceof LinearRing) {
-			dto.setCoordinates(convertCoordinates(geometry));
-		} else if (geometry instanceof LineString) {
-			dto.setCoordinates(convertCoordinates(geometry));
-		} else if (geometry instanceof Polygon) {
-			Polygon polygon = (Polygon) geometry;
-			Geometry[] geometries = new Geometry[polygon.getNumInteriorRing() + 1];
-			for (int i = 0; i < geometries.length; i++) {
-				if (i == 0) {
-					geometries[i] = fromJts(polygon.getExteriorRing());
-				} else {
-					geometries[i] = fromJts(polygon.getInteriorRingN(i - 1));
-				}
+		boolean converted = false;
+		try {
+			convertGeometry(geometry, handler);
+			converted = true;
+		} finally {
+			if (!converted) {
+				handler.abort();
 			}
-			dto.setGeometries(geometries);
-		} else if (geometry instanceof MultiPoint) {
-			dto.setGeometries(convertGeometries(geometry));
-		} else if (geometry instanceof MultiLineString) {
-			dto.setGeometries(convertGeometries(geometry));
-		} else if (geometry instanceof MultiPolygon) {
-			dto.setGeometries(convertGeometries(geometry));
-		} else {
-			throw new JtsConversionException("Cannot convert geometry: Unsupported type.");
 		}
-		return dto;
 	}
 
 	/**
@@ -254,21 +245,53 @@ public final class GeometryConverterService {
 		}
 	}
 
-	private static Coordinate[] convertCoordinates(com.vividsolutions.jts.geom.Geometry geometry) {
-		Coordinate[] coordinates = new Coordinate[geometry.getCoordinates().length];
-		for (int i = 0; i < coordinates.length; i++) {
-			coordinates[i] = new Coordinate(geometry.getCoordinates()[i].x, geometry.getCoordinates()[i].y);
+	private static void convertGeometry(com.vividsolutions.jts.geom.Geometry geometry, GeometryHandler handler)
+			throws JtsConversionException {
+		int srid = geometry.getSRID();
+		int precision = -1;
+		PrecisionModel precisionmodel = geometry.getPrecisionModel();
+		if (!precisionmodel.isFloating()) {
+			precision = (int) Math.log10(precisionmodel.getScale());
 		}
-		return coordinates;
+		String geometryType = getGeometryType(geometry);
+		handler.startGeometry(geometryType, srid, precision);
+		if (geometry.isEmpty()) {
+			// nothing to do
+		} else if (geometry instanceof Point) {
+			convertCoordinates(geometry, handler);
+		} else if (geometry instanceof LinearRing) {
+			convertCoordinates(geometry, handler);
+		} else if (geometry instanceof LineString) {
+			convertCoordinates(geometry, handler);
+		} else if (geometry instanceof Polygon) {
+			Polygon polygon = (Polygon) geometry;
+			convertGeometry(polygon.getExteriorRing(), handler);
+			for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+				convertGeometry(polygon.getInteriorRingN(i), handler);
+			}
+		} else if (geometry instanceof MultiPoint) {
+			convertGeometries(geometry, handler);
+		} else if (geometry instanceof MultiLineString) {
+			convertGeometries(geometry, handler);
+		} else if (geometry instanceof MultiPolygon) {
+			convertGeometries(geometry, handler);
+		} else {
+			throw new JtsConversionException("Cannot convert geometry: Unsupported type.");
+		}
+		handler.endGeometry();
 	}
 
-	private static Geometry[] convertGeometries(com.vividsolutions.jts.geom.Geometry geometry)
+	private static void convertCoordinates(com.vividsolutions.jts.geom.Geometry geometry, GeometryHandler handler) {
+		for (com.vividsolutions.jts.geom.Coordinate coordinate : geometry.getCoordinates()) {
+			handler.addCoordinate(coordinate.x, coordinate.y);
+		}
+	}
+
+	private static void convertGeometries(com.vividsolutions.jts.geom.Geometry geometry, GeometryHandler handler)
 			throws JtsConversionException {
-		Geometry[] geometries = new Geometry[geometry.getNumGeometries()];
-		for (int i = 0; i < geometries.length; i++) {
-			geometries[i] = fromJts(geometry.getGeometryN(i));
+		for (int i = 0; i < geometry.getNumGeometries(); i++) {
+			convertGeometry(geometry.getGeometryN(i), handler);
 		}
-		return geometries;
 	}
 
 	private static com.vividsolutions.jts.geom.Coordinate[] convertCoordinates(Geometry geometry) {
@@ -16,6 +16,7 @@ import junit.framework.Assert;
 import org.geomajas.geometry.Coordinate;
 import org.geomajas.geometry.Geometry;
 import org.geomajas.geometry.service.GeometryService;
+import org.geomajas.geometry.store.GeometryArena;
 import org.junit.Test;
 
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -175,6 +176,21 @@ public class GeometryConverterTest {
 		Assert.assertEquals(jtsC7.x, multiPolygon.getGeometries()[1].getGeometries()[1].getCoordinates()[2].getX());
 	}
 
+	@Test
+	public void multiPolygonFromJtsToArena() throws JtsConversionException {
+		// Test JTS MultiPolygon to an arena:
+		GeometryArena arena = new GeometryArena();
+		GeometryConverterService.fromJts(createJtsMultiPolygon(), arena);
+		GeometryConverterService.fromJts(createJtsPoint(), arena);
+		Assert.assertEquals(2, arena.size());
+		Assert.assertEquals(Geometry.MULTI_POLYGON, arena.getGeometryType(0));
+		Assert.assertEquals(SRID, arena.getSrid(0));
+		Assert.assertEquals(15, arena.getNumPoints(0));
+		Geometry multiPolygon = arena.toGeometry(0);
+		Assert.assertEquals(jtsC7.x, multiPolygon.getGeometries()[1].getGeometries()[1].getCoordinates()[2].getX());
+		Assert.assertEquals(jtsC1.x, arena.toGeometry(1).getCoordinates()[0].getX());
+	}
+
 	// -------------------------------------------------------------------------
 	// Test geometry conversions from DTO to JTS:
 	// -------------------------------------------------------------------------